@@ -117,6 +117,10 @@ public class MMNEAT {
 	public static MMNEATLog ghostLocationsOnPowerPillEaten = null;
 	public static boolean browseLineage = false;
 	public static SubstrateCoordinateMapping substrateMapping = null;
+	// Private copies of stateful Ms. Pac-Man components for parallel evaluation threads
+	private static final ThreadLocal<MsPacManControllerInputOutputMediator> threadPacmanInputOutputMediator = new ThreadLocal<MsPacManControllerInputOutputMediator>();
+	private static final ThreadLocal<VariableDirectionBlock> threadDirectionalSafetyFunction = new ThreadLocal<VariableDirectionBlock>();
+	private static final ThreadLocal<MsPacManModeSelector> threadPacmanMultitaskScheme = new ThreadLocal<MsPacManModeSelector>();
 	
 	public static MMNEAT mmneat;
 	
@@ -497,6 +501,73 @@ public class MMNEAT {
 		}
 	}
 
+	/**
+	 * Give the calling thread its own instances of the Ms. Pac-Man components
+	 * that keep state while a game is played: the input/output mediator (and
+	 * therefore its sensor blocks), the directional safety function, and the
+	 * multitask mode selector. Afterward, the accessor methods for these
+	 * components return the thread's private instances. Called by each
+	 * parallel evaluation thread before it creates any controllers.
+	 *
+	 * If the shared mediator was modified after creation (for example, by
+	 * adding subnetwork blocks), a fresh instance would not match it, so the
+	 * shared instance is kept in that case.
+	 *
+	 * @throws NoSuchMethodException
+	 *             if a component class cannot be instantiated
+	 */
+	public static void createThreadPacManComponents() throws NoSuchMethodException {
+		if (pacmanInputOutputMediator != null) {
+			MsPacManControllerInputOutputMediator mediator = (MsPacManControllerInputOutputMediator) ClassCreation
+					.createObject("pacmanInputOutputMediator");
+			if (mediator.getClass().equals(pacmanInputOutputMediator.getClass())
+					&& mediator.numIn() == pacmanInputOutputMediator.numIn()) {
+				threadPacmanInputOutputMediator.set(mediator);
+			} else {
+				System.out.println("Parallel evaluation threads will share " + pacmanInputOutputMediator.getClass().getSimpleName());
+			}
+		}
+		if (directionalSafetyFunction != null) {
+			threadDirectionalSafetyFunction.set((VariableDirectionBlock) ClassCreation.createObject("directionalSafetyFunction"));
+		}
+		if (pacmanMultitaskScheme != null) {
+			threadPacmanMultitaskScheme.set((MsPacManModeSelector) ClassCreation.createObject("pacmanMultitaskScheme"));
+		}
+	}
+
+	/**
+	 * Ms. Pac-Man input/output mediator for the calling thread
+	 *
+	 * @return private mediator of the thread if it has one, and the shared
+	 *         pacmanInputOutputMediator otherwise
+	 */
+	public static MsPacManControllerInputOutputMediator pacmanInputOutputMediator() {
+		MsPacManControllerInputOutputMediator mediator = threadPacmanInputOutputMediator.get();
+		return mediator == null ? pacmanInputOutputMediator : mediator;
+	}
+
+	/**
+	 * Directional safety function for the calling thread
+	 *
+	 * @return private instance of the thread if it has one, and the shared
+	 *         directionalSafetyFunction otherwise
+	 */
+	public static VariableDirectionBlock directionalSafetyFunction() {
+		VariableDirectionBlock safety = threadDirectionalSafetyFunction.get();
+		return safety == null ? directionalSafetyFunction : safety;
+	}
+
+	/**
+	 * Multitask mode selector for the calling thread
+	 *
+	 * @return private instance of the thread if it has one, and the shared
+	 *         pacmanMultitaskScheme otherwise
+	 */
+	public static MsPacManModeSelector pacmanMultitaskScheme() {
+		MsPacManModeSelector scheme = threadPacmanMultitaskScheme.get();
+		return scheme == null ? pacmanMultitaskScheme : scheme;
+	}
+
 	public static boolean taskHasSubnetworks() {
 		return CooperativeSubtaskSelectorMsPacManTask.class.equals(Parameters.parameters.classParameter("task"))
 				|| CooperativeSubtaskCombinerMsPacManTask.class.equals(Parameters.parameters.classParameter("task"));
@@ -952,6 +1023,7 @@ public class MMNEAT {
 			EvolutionaryHistory.lineageLog.close();
 			EvolutionaryHistory.lineageLog = null;
 		}
+		EvolutionaryHistory.closeLineageStore();
 	}
 
 	/**
@@ -0,0 +1,268 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Saves each generation of a population incrementally. Most members of a
+ * population survive from one generation to the next unchanged, so instead of
+ * saving the whole population every generation, only genotypes that have not
+ * been saved before are written, into a population archive (the "segment") for
+ * that generation. A small text manifest then lists the id of every member of
+ * the population along with the segment that holds it.
+ *
+ * Files are written by a background thread, so evolution does not wait on
+ * the disk. The manifest is only written after its segment is complete, and
+ * is moved into place atomically, so an existing manifest always describes a
+ * complete generation, even after a crash. At most one checkpoint is waiting
+ * to be written at any time.
+ *
+ * @author Jacob Schrum
+ */
+public class CheckpointStore {
+
+	public static final String MANIFEST_EXTENSION = ".manifest";
+	private static final String MANIFEST_HEADER = "MM-NEAT checkpoint 1";
+
+	private final String directory;
+	private final boolean deleteOld;
+	// Segment holding each genotype that has been saved (or is about to be)
+	private final HashMap<Long, String> segmentOf = new HashMap<Long, String>();
+	private final ExecutorService writer;
+	private Future<?> pending = null;
+
+	/**
+	 * @param directory
+	 *            directory for segments and manifests, created if needed
+	 * @param deleteOld
+	 *            whether to delete old manifests and unused segments once a
+	 *            newer manifest is saved
+	 */
+	public CheckpointStore(String directory, boolean deleteOld) {
+		this.directory = directory;
+		this.deleteOld = deleteOld;
+		new File(directory).mkdirs();
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "CheckpointWriter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * @param name
+	 *            name of a checkpoint, such as gen5
+	 * @return file name of the manifest for that checkpoint
+	 */
+	public String manifest(String name) {
+		return directory + "/" + name + MANIFEST_EXTENSION;
+	}
+
+	/**
+	 * Save a checkpoint of the population. New genotypes are encoded right
+	 * away, so the population may be changed as soon as this returns, but the
+	 * files are written in the background.
+	 *
+	 * @param name
+	 *            name of the checkpoint, such as gen5
+	 * @param population
+	 *            population to save, all supported by GenotypeCodec
+	 * @param onCommit
+	 *            run by the writer right after the manifest is saved, or null
+	 */
+	public <T> void checkpoint(final String name, List<Genotype<T>> population, final Runnable onCommit) {
+		final String segment = name + PopulationArchive.EXTENSION;
+		final long[] ids = new long[population.size()];
+		final String[] segments = new String[population.size()];
+		ArrayList<Long> newIds = new ArrayList<Long>();
+		final ArrayList<byte[]> records = new ArrayList<byte[]>();
+		HashMap<Long, String> surviving = new HashMap<Long, String>();
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				Genotype<T> g = population.get(i);
+				ids[i] = g.getId();
+				String saved = segmentOf.containsKey(ids[i]) ? segmentOf.get(ids[i]) : surviving.get(ids[i]);
+				if (saved == null) {
+					saved = segment;
+					newIds.add(ids[i]);
+					records.add(PopulationArchive.encode(g));
+				}
+				segments[i] = saved;
+				surviving.put(ids[i], saved);
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Failure encoding checkpoint " + name);
+			System.exit(1);
+		}
+		// Genotypes that died out are never needed again
+		segmentOf.clear();
+		segmentOf.putAll(surviving);
+
+		final long[] segmentIds = new long[newIds.size()];
+		for (int i = 0; i < segmentIds.length; i++) {
+			segmentIds[i] = newIds.get(i);
+		}
+		waitForPending();
+		pending = writer.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (segmentIds.length > 0) {
+						PopulationArchive.write(segmentIds, records, directory + "/" + segment);
+					}
+					writeManifest(name, ids, segments);
+					if (onCommit != null) {
+						onCommit.run();
+					}
+					if (deleteOld) {
+						deleteUnused(name, segments);
+					}
+				} catch (IOException ex) {
+					ex.printStackTrace();
+					System.out.println("Failure saving checkpoint " + name);
+					System.exit(1);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Wait until every checkpoint has been completely written
+	 */
+	public void flush() {
+		waitForPending();
+	}
+
+	/**
+	 * Write any remaining checkpoint and stop the background writer
+	 */
+	public void close() {
+		waitForPending();
+		writer.shutdown();
+	}
+
+	private void waitForPending() {
+		if (pending != null) {
+			try {
+				pending.get();
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.out.println("Failure waiting for checkpoint writer");
+				System.exit(1);
+			}
+			pending = null;
+		}
+	}
+
+	private void writeManifest(String name, long[] ids, String[] segments) throws IOException {
+		File file = new File(manifest(name));
+		File tmp = new File(file.getPath() + ".tmp");
+		try (PrintStream stream = new PrintStream(new FileOutputStream(tmp))) {
+			stream.println(MANIFEST_HEADER);
+			for (int i = 0; i < ids.length; i++) {
+				stream.println(ids[i] + " " + segments[i]);
+			}
+			if (stream.checkError()) {
+				throw new IOException("Could not write " + tmp);
+			}
+		}
+		PopulationArchive.replace(tmp, file);
+	}
+
+	/**
+	 * Delete all manifests except the newest, and all segments it does not
+	 * refer to
+	 */
+	private void deleteUnused(String name, String[] segments) {
+		final HashSet<String> keep = new HashSet<String>();
+		for (String s : segments) {
+			keep.add(s);
+		}
+		keep.add(name + MANIFEST_EXTENSION);
+		File[] unused = new File(directory).listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String file) {
+				return !keep.contains(file) && (file.endsWith(MANIFEST_EXTENSION) || file.endsWith(PopulationArchive.EXTENSION));
+			}
+		});
+		if (unused != null) {
+			for (File f : unused) {
+				f.delete();
+			}
+		}
+	}
+
+	/**
+	 * Load the population described by a manifest
+	 *
+	 * @param manifest
+	 *            manifest file name
+	 * @return population in the order it was saved
+	 * @throws IOException
+	 *             if any file is missing or invalid
+	 */
+	public static <T> ArrayList<Genotype<T>> load(String manifest) throws IOException {
+		File file = new File(manifest);
+		ArrayList<Long> ids = new ArrayList<Long>();
+		// Ids needed from each segment, in order of first use
+		LinkedHashMap<String, HashSet<Long>> needed = new LinkedHashMap<String, HashSet<Long>>();
+		try (Scanner scanner = new Scanner(file)) {
+			if (!scanner.hasNextLine() || !scanner.nextLine().equals(MANIFEST_HEADER)) {
+				throw new IOException(manifest + " is not a checkpoint manifest");
+			}
+			while (scanner.hasNextLong()) {
+				long id = scanner.nextLong();
+				String segment = scanner.next();
+				ids.add(id);
+				if (!needed.containsKey(segment)) {
+					needed.put(segment, new HashSet<Long>());
+				}
+				needed.get(segment).add(id);
+			}
+		} catch (FileNotFoundException ex) {
+			throw new IOException("Missing checkpoint manifest " + manifest, ex);
+		}
+
+		HashMap<Long, Genotype<T>> genotypes = new HashMap<Long, Genotype<T>>();
+		for (Map.Entry<String, HashSet<Long>> e : needed.entrySet()) {
+			String segment = file.getParent() + "/" + e.getKey();
+			ArrayList<Genotype<T>> contents = PopulationArchive.load(segment);
+			for (Genotype<T> g : contents) {
+				if (e.getValue().contains(g.getId())) {
+					genotypes.put(g.getId(), g);
+				}
+			}
+		}
+
+		ArrayList<Genotype<T>> population = new ArrayList<Genotype<T>>(ids.size());
+		for (Long id : ids) {
+			Genotype<T> g = genotypes.get(id);
+			if (g == null) {
+				throw new IOException("Genotype " + id + " of " + manifest + " is missing");
+			}
+			population.add(g);
+		}
+		return population;
+	}
+}
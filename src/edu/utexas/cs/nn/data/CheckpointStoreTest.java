@@ -0,0 +1,96 @@
+package edu.utexas.cs.nn.data;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.file.FileUtilities;
+
+public class CheckpointStoreTest {
+
+	File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		MMNEAT.loadClasses();
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.genotype = new TWEANNGenotype(5, 3, 0);
+		EvolutionaryHistory.initArchetype(0);
+		dir = Files.createTempDirectory("checkpoints").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtilities.deleteDirectoryContents(dir);
+		dir.delete();
+		MMNEAT.clearClasses();
+	}
+
+	private static ArrayList<Genotype<TWEANN>> population(int size) {
+		ArrayList<Genotype<TWEANN>> population = new ArrayList<Genotype<TWEANN>>(size);
+		for (int i = 0; i < size; i++) {
+			population.add(new TWEANNGenotype(5, 3, 0));
+		}
+		return population;
+	}
+
+	private static void assertSameIds(ArrayList<Genotype<TWEANN>> expected, ArrayList<Genotype<TWEANN>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getId(), actual.get(i).getId());
+		}
+	}
+
+	/**
+	 * Only new genotypes are written each generation, every manifest loads
+	 * the whole population, and files no longer needed are deleted.
+	 */
+	@Test
+	public void test_incremental() throws IOException {
+		CheckpointStore store = new CheckpointStore(dir.getPath(), true);
+		final int[] commits = new int[1];
+		Runnable counter = new Runnable() {
+			@Override
+			public void run() {
+				commits[0]++;
+			}
+		};
+
+		ArrayList<Genotype<TWEANN>> initial = population(4);
+		store.checkpoint("initial", initial, counter);
+		// Two survivors, two new
+		ArrayList<Genotype<TWEANN>> gen1 = population(2);
+		gen1.add(initial.get(3));
+		gen1.add(0, initial.get(1));
+		store.checkpoint("gen1", gen1, counter);
+		store.flush();
+
+		assertEquals(2, commits[0]);
+		assertFalse(new File(store.manifest("initial")).exists());
+		assertEquals(2, PopulationArchive.ids(dir + "/gen1" + PopulationArchive.EXTENSION).length);
+		assertSameIds(gen1, CheckpointStore.<TWEANN> load(store.manifest("gen1")));
+
+		// No survivors from the initial population
+		ArrayList<Genotype<TWEANN>> gen2 = population(1);
+		gen2.add(gen1.get(1));
+		store.checkpoint("gen2", gen2, null);
+		store.close();
+		assertFalse(new File(dir + "/initial" + PopulationArchive.EXTENSION).exists());
+		assertSameIds(gen2, CheckpointStore.<TWEANN> load(store.manifest("gen2")));
+	}
+}
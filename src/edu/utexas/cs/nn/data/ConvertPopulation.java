@@ -0,0 +1,170 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.PopulationUtil;
+import edu.utexas.cs.nn.util.file.PopulationArchiveFilter;
+import edu.utexas.cs.nn.util.file.XMLFilter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Converts the saved populations of existing run directories between xml
+ * files and binary population archives. Only population directories are
+ * converted: "initial" and "genN" directories, and the numbered
+ * subpopulation directories inside them. Other saved files, such as
+ * archetypes and best networks, are left alone.
+ *
+ * Usage: ConvertPopulation toBinary|toXML runDirectory [delete]
+ *
+ * The original files are only deleted if "delete" is given. Otherwise, the
+ * converted files are added next to them. Note that a directory with both
+ * kinds of files will load every genotype twice.
+ *
+ * @author Jacob Schrum
+ */
+public class ConvertPopulation {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || !(args[0].equals("toBinary") || args[0].equals("toXML"))) {
+			System.out.println("Usage: ConvertPopulation toBinary|toXML runDirectory [delete]");
+			System.exit(1);
+		}
+		boolean toBinary = args[0].equals("toBinary");
+		boolean delete = args.length > 2 && args[2].equals("delete");
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		File run = new File(args[1]);
+		if (!run.isDirectory()) {
+			System.out.println(run + " is not a directory");
+			System.exit(1);
+		}
+		int converted = convertAll(run, toBinary, delete, false);
+		System.out.println("Converted " + converted + " population directories");
+	}
+
+	/**
+	 * Convert every population directory at or below dir
+	 *
+	 * @param dir
+	 *            directory to search
+	 * @param toBinary
+	 *            true to convert xml to binary, false for the reverse
+	 * @param delete
+	 *            whether to delete the original files
+	 * @param inGeneration
+	 *            whether dir is inside a generation directory, in which case
+	 *            numbered subdirectories are subpopulations
+	 * @return number of directories converted
+	 * @throws IOException
+	 *             if reading or writing fails
+	 */
+	public static int convertAll(File dir, boolean toBinary, boolean delete, boolean inGeneration) throws IOException {
+		int converted = 0;
+		boolean generation = isGeneration(dir.getName());
+		if (generation || (inGeneration && dir.getName().matches("\\d+"))) {
+			if (toBinary ? toBinary(dir, delete) : toXML(dir, delete)) {
+				converted++;
+			}
+		}
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.isDirectory()) {
+					converted += convertAll(child, toBinary, delete, generation);
+				}
+			}
+		}
+		return converted;
+	}
+
+	private static boolean isGeneration(String name) {
+		return name.equals("initial") || name.matches("gen\\d+");
+	}
+
+	/**
+	 * Replace the xml genotype files in dir with one archive. The archive is
+	 * named after the common prefix of the xml files, so
+	 * "Run0_gen5_0.xml", "Run0_gen5_1.xml", ... become
+	 * "Run0_gen5_population.pop", the name used when saving.
+	 *
+	 * @return whether anything was converted
+	 */
+	private static boolean toBinary(File dir, boolean delete) throws IOException {
+		String[] files = dir.list(new XMLFilter());
+		if (files == null || files.length == 0 || !files[0].matches(".*\\d+\\.xml")) {
+			return false;
+		}
+		sortByIndex(files);
+		String prefix = files[0].replaceAll("\\d+\\.xml$", "");
+		ArrayList<Genotype<Object>> population = new ArrayList<Genotype<Object>>(files.length);
+		for (String file : files) {
+			if (!file.startsWith(prefix) || !file.matches(".*\\d+\\.xml")) {
+				System.out.println("Skipping " + dir + ": " + file + " is not part of the population");
+				return false;
+			}
+			Genotype<Object> g = PopulationUtil.extractGenotype(dir + "/" + file);
+			if (g == null) {
+				System.out.println("Skipping " + dir + ": " + file + " is not a genotype");
+				return false;
+			}
+			population.add(g);
+		}
+		if (!PopulationArchive.canSave(population)) {
+			System.out.println("Skipping " + dir + ": genotype type has no binary encoding");
+			return false;
+		}
+		String archive = dir + "/" + prefix + "population" + PopulationArchive.EXTENSION;
+		PopulationArchive.save(population, archive, false);
+		System.out.println("Saved " + archive);
+		if (delete) {
+			for (String file : files) {
+				new File(dir, file).delete();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replace each archive in dir with one xml file per genotype, named the
+	 * same way as when xml files are saved directly.
+	 *
+	 * @return whether anything was converted
+	 */
+	private static boolean toXML(File dir, boolean delete) throws IOException {
+		String[] archives = dir.list(new PopulationArchiveFilter());
+		if (archives == null || archives.length == 0) {
+			return false;
+		}
+		for (String archive : archives) {
+			String prefix = archive.substring(0, archive.length() - PopulationArchive.EXTENSION.length()).replaceAll("population$", "");
+			ArrayList<Genotype<Object>> population = PopulationArchive.load(dir + "/" + archive);
+			for (int i = 0; i < population.size(); i++) {
+				if (!new SaveThread<Genotype<Object>>(population.get(i), dir + "/" + prefix + i + ".xml").call()) {
+					throw new IOException("Failure saving " + population.get(i));
+				}
+			}
+			System.out.println("Saved " + population.size() + " xml files in " + dir);
+			if (delete) {
+				new File(dir, archive).delete();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sort file names ending in a population index by that index, so that
+	 * genotypes keep their place in the population
+	 */
+	private static void sortByIndex(String[] files) {
+		Arrays.sort(files, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				int byLength = Integer.compare(a.length(), b.length());
+				return byLength != 0 ? byLength : a.compareTo(b);
+			}
+		});
+	}
+}
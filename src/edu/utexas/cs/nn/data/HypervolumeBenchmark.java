@@ -0,0 +1,100 @@
+package edu.utexas.cs.nn.data;
+
+import java.util.Random;
+import jmetal.qualityIndicator.Hypervolume;
+
+/**
+ * Micro-benchmark comparing the jMetal hypervolume with WFGHypervolume, and
+ * with IncrementalHypervolume over a sequence of fronts where a few points
+ * change each generation, as in a parent population. Points are random on
+ * the positive part of the unit sphere, so that all of them are
+ * nondominated, which is the hard case. Results of both are checked to agree
+ * up to rounding. Times are totals for all generations after a warm up, in
+ * milliseconds.
+ *
+ * Usage: HypervolumeBenchmark [generations]
+ *
+ * @author Jacob Schrum
+ */
+public class HypervolumeBenchmark {
+
+	private static final int[][] CASES = new int[][] {
+		// objectives, points
+		{ 3, 100 }, { 4, 50 }, { 4, 100 }, { 5, 50 } };
+	// Points replaced in each generation
+	private static final int CHANGES = 3;
+
+	public static void main(String[] args) {
+		int generations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		// Warm up
+		run(new Random(0), generations, false);
+		System.out.println("M\tN\tjMetal\t\tWFG\tincremental\tspeedup");
+		run(new Random(1), generations, true);
+	}
+
+	private static void run(Random random, int generations, boolean print) {
+		for (int[] c : CASES) {
+			double[][][] fronts = new double[generations][][];
+			double[][] points = new double[c[1]][];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = randomPoint(random, c[0]);
+			}
+			for (int g = 0; g < generations; g++) {
+				for (int i = 0; i < CHANGES; i++) {
+					points[random.nextInt(points.length)] = randomPoint(random, c[0]);
+				}
+				fronts[g] = points.clone();
+			}
+
+			double[] expected = new double[generations];
+			long start = System.nanoTime();
+			for (int g = 0; g < generations; g++) {
+				double[][] front = new double[fronts[g].length][];
+				for (int i = 0; i < front.length; i++) {
+					front[i] = fronts[g][i].clone();
+				}
+				expected[g] = new Hypervolume().calculateHypervolume(front, front.length, c[0]);
+			}
+			double jMetalTime = (System.nanoTime() - start) / 1000000.0;
+
+			start = System.nanoTime();
+			for (int g = 0; g < generations; g++) {
+				check(expected[g], WFGHypervolume.hypervolume(fronts[g]));
+			}
+			double wfgTime = (System.nanoTime() - start) / 1000000.0;
+
+			IncrementalHypervolume incremental = new IncrementalHypervolume();
+			start = System.nanoTime();
+			for (int g = 0; g < generations; g++) {
+				check(expected[g], incremental.update(fronts[g]));
+			}
+			double incrementalTime = (System.nanoTime() - start) / 1000000.0;
+			if (print) {
+				System.out.println(c[0] + "\t" + c[1] + "\t" + String.format("%.1f", jMetalTime) + "\t\t"
+						+ String.format("%.1f", wfgTime) + "\t" + String.format("%.1f", incrementalTime) + "\t\t"
+						+ String.format("%.1f", jMetalTime / incrementalTime));
+			}
+		}
+	}
+
+	private static double[] randomPoint(Random random, int objectives) {
+		double[] point = new double[objectives];
+		double length = 0;
+		for (int j = 0; j < objectives; j++) {
+			point[j] = Math.abs(random.nextGaussian());
+			length += point[j] * point[j];
+		}
+		length = Math.sqrt(length);
+		for (int j = 0; j < objectives; j++) {
+			point[j] /= length;
+		}
+		return point;
+	}
+
+	private static void check(double expected, double actual) {
+		if (Math.abs(expected - actual) > 1e-9 * expected) {
+			System.out.println("Hypervolumes differ: " + expected + " vs " + actual);
+			System.exit(1);
+		}
+	}
+}
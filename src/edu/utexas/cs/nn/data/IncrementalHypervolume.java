@@ -0,0 +1,118 @@
+package edu.utexas.cs.nn.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Hypervolume of a front that changes a little at a time, such as the
+ * parent population from one generation to the next. The nondominated front
+ * of the previous update is kept, and when only a few of its points change,
+ * the hypervolume is updated by subtracting the exclusive contribution of
+ * each point that left the front and adding that of each point that joined,
+ * instead of being computed from scratch.
+ *
+ * With three objectives or fewer, the whole hypervolume is found by one sweep
+ * that costs about as much as a single exclusive contribution, so it is
+ * always recomputed. Updated volumes agree with recomputed ones up to
+ * rounding.
+ *
+ * @author Jacob Schrum
+ */
+public class IncrementalHypervolume {
+
+	/**
+	 * Point compared by value, for finding which points of the front changed
+	 */
+	private static class Point {
+
+		final double[] values;
+
+		Point(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Point && Arrays.equals(values, ((Point) other).values);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+	}
+
+	// Fewer objectives than this are always recomputed
+	private static final int MIN_INCREMENTAL_OBJECTIVES = 4;
+
+	private ArrayList<double[]> front = new ArrayList<double[]>();
+	private HashSet<Point> members = new HashSet<Point>();
+	private double volume = 0;
+	private int frontSize = 0;
+
+	/**
+	 * Replace the points and return the new hypervolume
+	 *
+	 * @param points
+	 *            all points, maximized with the reference point at the
+	 *            origin. Not modified, and not used after the call returns
+	 * @return hypervolume of the points
+	 */
+	public double update(double[][] points) {
+		frontSize = WFGHypervolume.frontSize(points);
+		double[][] next = WFGHypervolume.nondominated(points);
+		HashSet<Point> nextMembers = new HashSet<Point>();
+		ArrayList<double[]> added = new ArrayList<double[]>();
+		for (double[] p : next) {
+			Point point = new Point(p.clone());
+			nextMembers.add(point);
+			if (!members.contains(point)) {
+				added.add(point.values);
+			}
+		}
+		ArrayList<double[]> removed = new ArrayList<double[]>();
+		for (double[] p : front) {
+			if (!nextMembers.contains(new Point(p))) {
+				removed.add(p);
+			}
+		}
+		boolean incremental = !front.isEmpty() && next.length > 0 && front.get(0).length == next[0].length
+				&& next[0].length >= MIN_INCREMENTAL_OBJECTIVES;
+		if (!incremental || 2 * (removed.size() + added.size()) > next.length) {
+			// Too many changes to be worth updating
+			volume = WFGHypervolume.hypervolume(next);
+			front = new ArrayList<double[]>(next.length);
+			for (Point point : nextMembers) {
+				front.add(point.values);
+			}
+		} else {
+			// Remove first, so every intermediate front is nondominated
+			for (double[] p : removed) {
+				front.remove(p);
+				volume -= WFGHypervolume.exclusive(p, front);
+			}
+			for (double[] p : added) {
+				volume += WFGHypervolume.exclusive(p, front);
+				front.add(p);
+			}
+		}
+		members = nextMembers;
+		return volume;
+	}
+
+	/**
+	 * @return hypervolume after the latest update
+	 */
+	public double volume() {
+		return volume;
+	}
+
+	/**
+	 * @return number of points of the latest update not strictly dominated
+	 *         by any other, counting duplicates separately
+	 */
+	public int frontSize() {
+		return frontSize;
+	}
+}
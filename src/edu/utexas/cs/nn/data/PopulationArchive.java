@@ -0,0 +1,300 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.GenotypeCodec;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A whole population saved in one binary file, instead of one XML file per
+ * genotype. The file starts with an index giving the id, position and size
+ * of every genotype, so single genotypes can be read without decoding the
+ * rest of the file. Genotypes are encoded with GenotypeCodec.
+ *
+ * Layout: magic number, format version, number of genotypes, then one
+ * (id, offset, length) entry per genotype, then the encoded genotypes in
+ * population order.
+ *
+ * Files are written to a temporary file first and then moved into place, so
+ * a crash while saving never leaves a partial archive behind.
+ *
+ * @author Jacob Schrum
+ */
+public class PopulationArchive {
+
+	public static final String EXTENSION = ".pop";
+
+	private static final int MAGIC = 0x4D4D504F; // "MMPO"
+	private static final int VERSION = 1;
+	// Bytes of id, offset and length in each index entry
+	private static final int INDEX_ENTRY_SIZE = 8 + 8 + 4;
+	private static final int HEADER_SIZE = 4 + 4 + 4;
+
+	/**
+	 * Whether every member of the population can be saved in an archive
+	 *
+	 * @param population
+	 *            genotypes to check
+	 * @return true if all genotypes are supported by GenotypeCodec
+	 */
+	public static <T> boolean canSave(List<Genotype<T>> population) {
+		for (Genotype<T> g : population) {
+			if (!GenotypeCodec.supports(g)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Save the population to a single archive file, replacing any existing
+	 * file of the same name.
+	 *
+	 * @param population
+	 *            genotypes to save, all supported by GenotypeCodec
+	 * @param filename
+	 *            file to save to, normally ending in EXTENSION
+	 * @param parallel
+	 *            whether to encode genotypes on the shared worker threads
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public static <T> void save(List<Genotype<T>> population, String filename, boolean parallel) throws IOException {
+		ArrayList<EncodeJob> jobs = new ArrayList<EncodeJob>(population.size());
+		for (Genotype<T> g : population) {
+			jobs.add(new EncodeJob(g));
+		}
+		ArrayList<byte[]> records;
+		if (parallel) {
+			try {
+				records = EvaluationScheduler.getScheduler().executeAll(jobs);
+			} catch (InterruptedException | ExecutionException ex) {
+				throw new IOException("Could not encode population", ex);
+			}
+		} else {
+			records = new ArrayList<byte[]>(jobs.size());
+			for (EncodeJob job : jobs) {
+				records.add(job.call());
+			}
+		}
+
+		long[] ids = new long[population.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = population.get(i).getId();
+		}
+		write(ids, records, filename);
+	}
+
+	/**
+	 * Encode a single genotype for later use with write
+	 *
+	 * @param g
+	 *            genotype supported by GenotypeCodec
+	 * @return encoded genotype
+	 * @throws IOException
+	 *             if encoding fails
+	 */
+	public static byte[] encode(Genotype<?> g) throws IOException {
+		return new EncodeJob(g).call();
+	}
+
+	/**
+	 * Save genotypes that were already encoded, replacing any existing file
+	 * of the same name.
+	 *
+	 * @param ids
+	 *            id of each genotype
+	 * @param records
+	 *            each genotype as returned by encode
+	 * @param filename
+	 *            file to save to, normally ending in EXTENSION
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public static void write(long[] ids, List<byte[]> records, String filename) throws IOException {
+		File file = new File(filename);
+		File tmp = new File(filename + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(records.size());
+			long offset = HEADER_SIZE + (long) records.size() * INDEX_ENTRY_SIZE;
+			for (int i = 0; i < records.size(); i++) {
+				out.writeLong(ids[i]);
+				out.writeLong(offset);
+				out.writeInt(records.get(i).length);
+				offset += records.get(i).length;
+			}
+			for (byte[] record : records) {
+				out.write(record);
+			}
+		} finally {
+			out.close();
+		}
+		replace(tmp, file);
+	}
+
+	/**
+	 * Move a completely written file into place, atomically if the file
+	 * system supports it
+	 *
+	 * @param tmp
+	 *            file that was just written
+	 * @param file
+	 *            file to replace
+	 * @throws IOException
+	 *             if the move fails
+	 */
+	public static void replace(File tmp, File file) throws IOException {
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Load every genotype in an archive
+	 *
+	 * @param filename
+	 *            archive file
+	 * @return genotypes in the order they were saved
+	 * @throws IOException
+	 *             if reading fails or the file is not an archive
+	 */
+	public static <T> ArrayList<Genotype<T>> load(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			int count = readHeader(in, filename);
+			// Records follow the index in order, so the index can be skipped
+			for (int i = 0; i < count; i++) {
+				in.readLong();
+				in.readLong();
+				in.readInt();
+			}
+			ArrayList<Genotype<T>> population = new ArrayList<Genotype<T>>(count);
+			for (int i = 0; i < count; i++) {
+				@SuppressWarnings("unchecked")
+				Genotype<T> g = (Genotype<T>) GenotypeCodec.read(in);
+				population.add(g);
+			}
+			return population;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Load a single genotype from an archive, without decoding the others
+	 *
+	 * @param filename
+	 *            archive file
+	 * @param id
+	 *            id of the genotype to load
+	 * @return the genotype, or null if the archive does not contain it
+	 * @throws IOException
+	 *             if reading fails or the file is not an archive
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Genotype<T> load(String filename, long id) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			int count = readHeader(file, filename);
+			for (int i = 0; i < count; i++) {
+				long entryId = file.readLong();
+				long offset = file.readLong();
+				int length = file.readInt();
+				if (entryId == id) {
+					byte[] record = new byte[length];
+					file.seek(offset);
+					file.readFully(record);
+					return (Genotype<T>) GenotypeCodec.read(new DataInputStream(new ByteArrayInputStream(record)));
+				}
+			}
+			return null;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Ids of all genotypes in an archive, read from the index only
+	 *
+	 * @param filename
+	 *            archive file
+	 * @return ids in the order the genotypes were saved
+	 * @throws IOException
+	 *             if reading fails or the file is not an archive
+	 */
+	public static long[] ids(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			long[] ids = new long[readHeader(in, filename)];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = in.readLong();
+				in.readLong();
+				in.readInt();
+			}
+			return ids;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Check magic number and version
+	 *
+	 * @return number of genotypes in the archive
+	 */
+	private static int readHeader(DataInput in, String filename) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException(filename + " is not a population archive");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException(filename + " has unsupported archive version " + version);
+		}
+		return in.readInt();
+	}
+
+	/**
+	 * Encodes one genotype in memory, so that encoding can be spread across
+	 * threads while the file itself is written sequentially
+	 */
+	private static class EncodeJob implements Callable<byte[]> {
+
+		private final Genotype<?> genotype;
+
+		EncodeJob(Genotype<?> genotype) {
+			this.genotype = genotype;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			GenotypeCodec.write(out, genotype);
+			out.flush();
+			return bytes.toByteArray();
+		}
+	}
+}
@@ -6,6 +6,7 @@ import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.MultiplePopulationTask;
 import edu.utexas.cs.nn.tasks.Task;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.stats.Statistic;
 import java.io.File;
@@ -14,7 +15,9 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Scanner;
-import jmetal.qualityIndicator.Hypervolume;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import jmetal.qualityIndicator.util.MetricsUtil;
 
 /**
  * After several runs of an experiment have been executed, this class can be
@@ -133,20 +136,59 @@ public class ResultSummaryUtilities {
 		return result;
 	}
 
-	public static void hypervolumesByGenerationForAllRuns(String dirPrefix, int runs, String filePrefix,
-			String fileMiddle, String fileExtension, int generations) throws FileNotFoundException {
+	/**
+	 * Hypervolume files of all runs. Runs are independent, so they are
+	 * processed in parallel on the shared EvaluationScheduler.
+	 */
+	public static void hypervolumesByGenerationForAllRuns(final String dirPrefix, int runs, final String filePrefix,
+			final String fileMiddle, final String fileExtension, final int generations) throws FileNotFoundException {
+		EvaluationScheduler scheduler = EvaluationScheduler.getScheduler();
+		if (runs < 2 || scheduler.getThreads() < 2) {
+			for (int i = 0; i < runs; i++) {
+				hypervolumesByGeneration(dirPrefix, i, filePrefix, fileMiddle, fileExtension, generations,
+						dirPrefix + i + "/" + filePrefix);
+			}
+			return;
+		}
+		ArrayList<Callable<Boolean>> jobs = new ArrayList<Callable<Boolean>>(runs);
 		for (int i = 0; i < runs; i++) {
-			hypervolumesByGeneration(dirPrefix, i, filePrefix, fileMiddle, fileExtension, generations,
-					dirPrefix + i + "/" + filePrefix);
+			final int run = i;
+			jobs.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws FileNotFoundException {
+					hypervolumesByGeneration(dirPrefix, run, filePrefix, fileMiddle, fileExtension, generations,
+							dirPrefix + run + "/" + filePrefix);
+					return true;
+				}
+			});
+		}
+		try {
+			scheduler.invokeAll(jobs);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof FileNotFoundException) {
+				throw (FileNotFoundException) ex.getCause();
+			}
+			ex.printStackTrace();
+			System.out.println("Failure calculating hypervolumes");
+			System.exit(1);
+		} catch (InterruptedException ex) {
+			ex.printStackTrace();
+			System.out.println("Failure calculating hypervolumes");
+			System.exit(1);
 		}
 	}
 
+	/**
+	 * Hypervolume file of one run. Consecutive generations share most of
+	 * their Pareto front, so the hypervolume is updated incrementally.
+	 */
 	public static void hypervolumesByGeneration(String dirPrefix, int run, String filePrefix, String fileMiddle,
 			String fileExtension, int generations, String outputPrefix) throws FileNotFoundException {
 		PrintStream out = new PrintStream(new FileOutputStream(outputPrefix + run + fileMiddle + "HV.txt"));
+		IncrementalHypervolume hypervolume = new IncrementalHypervolume();
 		for (int i = 0; i < generations; i++) {
 			Pair<Double, Integer> hypervolumeAndFrontSize = hypervolumeForGeneration(dirPrefix, run, filePrefix,
-					fileMiddle, i, fileExtension);
+					fileMiddle, i, fileExtension, hypervolume);
 			// out.println(i + "\t" + hypervolume);
 			out.println(i + "\t" + hypervolumeAndFrontSize.t1 + "\t" + hypervolumeAndFrontSize.t2);
 		}
@@ -173,10 +215,22 @@ public class ResultSummaryUtilities {
 	 */
 	public static Pair<Double, Integer> hypervolumeForGeneration(String dirPrefix, int run, String filePrefix,
 			String fileMiddle, int generation, String fileExtension) {
-		Hypervolume qualityIndicator = new Hypervolume();
+		return hypervolumeForGeneration(dirPrefix, run, filePrefix, fileMiddle, generation, fileExtension,
+				new IncrementalHypervolume());
+	}
+
+	/**
+	 * Same as above, but updates the hypervolume of the previous generation
+	 * of the run
+	 *
+	 * @param hypervolume
+	 *            hypervolume of the run so far
+	 */
+	public static Pair<Double, Integer> hypervolumeForGeneration(String dirPrefix, int run, String filePrefix,
+			String fileMiddle, int generation, String fileExtension, IncrementalHypervolume hypervolume) {
 		// Read the front from the files
 		String file = dirPrefix + run + "/" + filePrefix + run + fileMiddle + generation + "." + fileExtension;
-		double[][] fileData = qualityIndicator.utils_.readFront(file);
+		double[][] fileData = new MetricsUtil().readFront(file);
 		double[][] solutions;
 		// First drop solution number
 		double[][] step1 = dropColumn(fileData, 0);
@@ -197,17 +251,9 @@ public class ResultSummaryUtilities {
 			}
 		}
 
-		int noNondominatedPoints = qualityIndicator.filterNondominatedSet(solutions, solutions.length,
-				solutions[0].length);
-				// System.out.println("noNondominatedPoints:"+noNondominatedPoints+":"+solutions.length);
-				// for(int i = 0; i <= noNondominatedPoints; i++) {
-				// System.out.println("\t" + Arrays.toString(solutions[i]));
-				// }
-
 		// Obtain hypervolume
-		double value = qualityIndicator.calculateHypervolume(solutions, solutions.length, solutions[0].length);
-		// return value;
-		return new Pair<Double, Integer>(value, noNondominatedPoints);
+		double value = hypervolume.update(solutions);
+		return new Pair<Double, Integer>(value, hypervolume.frontSize());
 	}
 
 	public static double[][] dropColumn(double[][] data, int col) {
@@ -0,0 +1,339 @@
+package edu.utexas.cs.nn.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hypervolume of a set of points in objective space, with all objectives
+ * maximized and the reference point at the origin, which is how the jMetal
+ * Hypervolume indicator is used by ResultSummaryUtilities (scores are shifted
+ * by the minimum scores of the task first).
+ *
+ * Uses the WFG algorithm (While, Bradstreet and Barone, "A Fast Way of
+ * Calculating Exact Hypervolumes", IEEE TEC 2012): points are sorted by the
+ * last objective and the volume is summed slice by slice, where each slice is
+ * the exclusive contribution of one point in one fewer dimensions. An
+ * exclusive contribution is the volume of the point minus the hypervolume of
+ * the other points limited to that volume, and limiting makes most of them
+ * dominated, so the recursive sets stay small. Three objectives are handled
+ * by a sweep over a two dimensional staircase in O(n log n), and two by a
+ * simple sweep.
+ *
+ * The result is the same as the jMetal calculateHypervolume up to rounding,
+ * but is not exponential in the number of objectives.
+ *
+ * @author Jacob Schrum
+ */
+public class WFGHypervolume {
+
+	/**
+	 * Hypervolume of points. The points are not modified.
+	 *
+	 * @param points
+	 *            points with the same number of objectives each, all
+	 *            maximized
+	 * @return volume dominated by the points and bounded by the origin
+	 */
+	public static double hypervolume(double[][] points) {
+		double[][] front = nondominated(points);
+		return front.length == 0 ? 0 : hv(front, front.length, front[0].length);
+	}
+
+	/**
+	 * Distinct points not weakly dominated by any other point. Points with a
+	 * coordinate at or below zero have no volume and are dropped.
+	 *
+	 * @param points
+	 *            points to filter, which are not modified
+	 * @return nondominated points, sharing the arrays of the original points
+	 */
+	public static double[][] nondominated(double[][] points) {
+		ArrayList<double[]> positive = new ArrayList<double[]>(points.length);
+		for (double[] p : points) {
+			if (positive(p, p.length)) {
+				positive.add(p);
+			}
+		}
+		double[][] result = positive.toArray(new double[positive.size()][]);
+		int n = filter(result, result.length, result.length == 0 ? 0 : result[0].length);
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Number of points not strictly dominated by any other point, counting
+	 * duplicates separately. This is the Pareto front size reported by
+	 * jMetal's filterNondominatedSet.
+	 *
+	 * @param points
+	 *            points to check
+	 * @return size of the Pareto front
+	 */
+	public static int frontSize(double[][] points) {
+		int count = 0;
+		for (int i = 0; i < points.length; i++) {
+			boolean dominated = false;
+			for (int j = 0; j < points.length && !dominated; j++) {
+				dominated = j != i && dominates(points[j], points[i]);
+			}
+			if (!dominated) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Volume dominated by one point but not by any of the others
+	 *
+	 * @param point
+	 *            point to get the contribution of
+	 * @param others
+	 *            other points, which need not be nondominated
+	 * @return exclusive hypervolume of the point
+	 */
+	public static double exclusive(double[] point, List<double[]> others) {
+		int d = point.length;
+		if (!positive(point, d)) {
+			return 0;
+		}
+		double[][] limited = new double[others.size()][];
+		for (int i = 0; i < limited.length; i++) {
+			limited[i] = limit(point, others.get(i), d);
+		}
+		return inclusive(point, d) - hv(limited, reduce(limited, limited.length, d), d);
+	}
+
+	private static boolean dominates(double[] p, double[] q) {
+		boolean better = false;
+		for (int j = 0; j < p.length; j++) {
+			if (p[j] < q[j]) {
+				return false;
+			}
+			better = better || p[j] > q[j];
+		}
+		return better;
+	}
+
+	private static boolean positive(double[] p, int d) {
+		for (int j = 0; j < d; j++) {
+			if (!(p[j] > 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Volume of the box between the origin and one point
+	 */
+	private static double inclusive(double[] p, int d) {
+		double volume = 1;
+		for (int j = 0; j < d; j++) {
+			volume *= p[j];
+		}
+		return volume;
+	}
+
+	/**
+	 * Other point limited to the volume of a point
+	 */
+	private static double[] limit(double[] p, double[] other, int d) {
+		double[] result = new double[d];
+		for (int j = 0; j < d; j++) {
+			result[j] = Math.min(p[j], other[j]);
+		}
+		return result;
+	}
+
+	/**
+	 * Move the points of ps[0..n) that are not weakly dominated in the first
+	 * d objectives to the front of ps, keeping one copy of duplicates. Points
+	 * are sorted by decreasing first objective (and the rest in order to
+	 * break ties), so a point can only be dominated by a point before it.
+	 *
+	 * @return number of nondominated points
+	 */
+	private static int filter(double[][] ps, int n, final int d) {
+		Arrays.sort(ps, 0, n, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] a, double[] b) {
+				for (int j = 0; j < d; j++) {
+					int c = Double.compare(b[j], a[j]);
+					if (c != 0) {
+						return c;
+					}
+				}
+				return 0;
+			}
+		});
+		int kept = 0;
+		for (int i = 0; i < n; i++) {
+			boolean dominated = false;
+			for (int k = 0; k < kept && !dominated; k++) {
+				dominated = weaklyDominates(ps[k], ps[i], d);
+			}
+			if (!dominated) {
+				ps[kept++] = ps[i];
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Filter dominated points out of a limited set when that pays off. The
+	 * sweeps used for up to three objectives skip dominated points by
+	 * themselves, faster than they could be filtered out.
+	 *
+	 * @return number of points to keep at the front of ps
+	 */
+	private static int reduce(double[][] ps, int n, int d) {
+		return d <= 3 ? n : filter(ps, n, d);
+	}
+
+	private static boolean weaklyDominates(double[] p, double[] q, int d) {
+		for (int j = 0; j < d; j++) {
+			if (p[j] < q[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hypervolume of points ps[0..n) in the first d objectives. The points
+	 * need not be nondominated, but fewer points are faster.
+	 */
+	private static double hv(double[][] ps, int n, int d) {
+		if (n == 0) {
+			return 0;
+		}
+		switch (d) {
+		case 1:
+			double max = 0;
+			for (int i = 0; i < n; i++) {
+				max = Math.max(max, ps[i][0]);
+			}
+			return max;
+		case 2:
+			return hv2(ps, n);
+		case 3:
+			return hv3(ps, n);
+		default:
+			final int last = d - 1;
+			Arrays.sort(ps, 0, n, new Comparator<double[]>() {
+				@Override
+				public int compare(double[] a, double[] b) {
+					return Double.compare(a[last], b[last]);
+				}
+			});
+			// Points after each point in this order reach at least as high
+			// in the last objective, so each slice is the exclusive
+			// contribution of a point relative to the points after it
+			double volume = 0;
+			for (int k = 0; k < n; k++) {
+				volume += ps[k][last] * exclusive(ps, n, k, last);
+			}
+			return volume;
+		}
+	}
+
+	/**
+	 * Exclusive hypervolume of ps[k] relative to ps[k+1..n) in the first d
+	 * objectives
+	 */
+	private static double exclusive(double[][] ps, int n, int k, int d) {
+		double volume = inclusive(ps[k], d);
+		if (k + 1 < n) {
+			double[][] limited = new double[n - k - 1][];
+			for (int i = k + 1; i < n; i++) {
+				limited[i - k - 1] = limit(ps[k], ps[i], d);
+			}
+			volume -= hv(limited, reduce(limited, limited.length, d), d);
+		}
+		return volume;
+	}
+
+	/**
+	 * Two objectives: sweep by decreasing first objective, adding the strip
+	 * each point adds above the ones before it
+	 */
+	private static double hv2(double[][] ps, int n) {
+		Arrays.sort(ps, 0, n, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] a, double[] b) {
+				return Double.compare(b[0], a[0]);
+			}
+		});
+		double volume = 0;
+		double height = 0;
+		for (int i = 0; i < n; i++) {
+			if (ps[i][1] > height) {
+				volume += ps[i][0] * (ps[i][1] - height);
+				height = ps[i][1];
+			}
+		}
+		return volume;
+	}
+
+	/**
+	 * Three objectives: sweep by decreasing third objective, keeping the
+	 * area dominated in the first two objectives by the points seen so far
+	 * as a staircase
+	 */
+	private static double hv3(double[][] ps, int n) {
+		Arrays.sort(ps, 0, n, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] a, double[] b) {
+				return Double.compare(b[2], a[2]);
+			}
+		});
+		// First objective to second, with the second decreasing as the first
+		// increases
+		TreeMap<Double, Double> staircase = new TreeMap<Double, Double>();
+		double area = 0;
+		double volume = 0;
+		for (int i = 0; i < n; i++) {
+			area += addToStaircase(staircase, ps[i][0], ps[i][1]);
+			double next = i + 1 < n ? ps[i + 1][2] : 0;
+			volume += area * (ps[i][2] - next);
+		}
+		return volume;
+	}
+
+	/**
+	 * Add a point to the staircase, removing the steps it dominates
+	 *
+	 * @return area added to the staircase
+	 */
+	private static double addToStaircase(TreeMap<Double, Double> staircase, double x, double y) {
+		Map.Entry<Double, Double> right = staircase.ceilingEntry(x);
+		if (right != null && right.getValue() >= y) {
+			return 0;
+		}
+		// Height of the staircase just left of x
+		double height = right == null ? 0 : right.getValue();
+		if (right != null && right.getKey() == x) {
+			staircase.remove(x);
+		}
+		double added = 0;
+		double end = x;
+		Map.Entry<Double, Double> left = staircase.lowerEntry(x);
+		while (true) {
+			double start = left == null ? 0 : left.getKey();
+			added += (end - start) * (y - height);
+			if (left == null || left.getValue() > y) {
+				break;
+			}
+			height = left.getValue();
+			end = start;
+			staircase.remove(start);
+			left = staircase.lowerEntry(start);
+		}
+		staircase.put(x, y);
+		return added;
+	}
+}
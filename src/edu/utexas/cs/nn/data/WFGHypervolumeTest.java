@@ -0,0 +1,82 @@
+package edu.utexas.cs.nn.data;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import jmetal.qualityIndicator.Hypervolume;
+
+public class WFGHypervolumeTest {
+
+	/**
+	 * Random points, on a coarse grid so that ties and duplicates are common
+	 */
+	private static double[][] randomPoints(Random random, int n, int objectives) {
+		double[][] points = new double[n][objectives];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < objectives; j++) {
+				points[i][j] = random.nextInt(20) / 4.0;
+			}
+		}
+		return points;
+	}
+
+	private static double[][] copy(double[][] points) {
+		double[][] result = new double[points.length][];
+		for (int i = 0; i < points.length; i++) {
+			result[i] = points[i].clone();
+		}
+		return result;
+	}
+
+	private static double jMetal(double[][] points) {
+		double[][] front = copy(points);
+		return new Hypervolume().calculateHypervolume(front, front.length, front[0].length);
+	}
+
+	/**
+	 * Same hypervolumes and front sizes as jMetal, for two to five objectives
+	 */
+	@Test
+	public void test_sameAsJMetal() {
+		Random random = new Random(0);
+		for (int objectives = 2; objectives <= 5; objectives++) {
+			for (int n : new int[] { 1, 2, 10, 40 }) {
+				double[][] points = randomPoints(random, n, objectives);
+				double[][] original = copy(points);
+				double expected = jMetal(points);
+				assertEquals(expected, WFGHypervolume.hypervolume(points), 1e-9 * expected);
+				double[][] front = copy(points);
+				int size = new Hypervolume().filterNondominatedSet(front, front.length, objectives);
+				assertEquals(size, WFGHypervolume.frontSize(points));
+				// Points are left alone
+				assertArrayEquals(original, points);
+			}
+		}
+	}
+
+	/**
+	 * Incremental updates agree with recomputing the hypervolume, whether a
+	 * few points change or many
+	 */
+	@Test
+	public void test_incremental() {
+		Random random = new Random(1);
+		for (int objectives = 2; objectives <= 5; objectives++) {
+			IncrementalHypervolume hypervolume = new IncrementalHypervolume();
+			double[][] points = randomPoints(random, 30, objectives);
+			for (int generation = 0; generation < 30; generation++) {
+				int changes = generation % 10 == 0 ? 30 : random.nextInt(4);
+				double[][] fresh = randomPoints(random, changes, objectives);
+				for (int i = 0; i < changes; i++) {
+					points[random.nextInt(points.length)] = fresh[i];
+				}
+				double expected = jMetal(points);
+				assertEquals(expected, hypervolume.update(points), 1e-9 * expected);
+				assertEquals(WFGHypervolume.frontSize(points), hypervolume.frontSize());
+			}
+		}
+	}
+}
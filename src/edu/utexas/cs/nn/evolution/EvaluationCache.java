@@ -0,0 +1,252 @@
+package edu.utexas.cs.nn.evolution;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.GenotypeCodec;
+import edu.utexas.cs.nn.log.PlotLog;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.MultiObjectiveScore;
+import edu.utexas.cs.nn.scores.Score;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the scores of recent evaluations so that evaluating the same
+ * genotypes again costs nothing. In a Mu + Lambda EA every surviving parent is
+ * evaluated again each generation, and crossover between similar parents can
+ * produce children identical to genotypes already evaluated. Scores are found
+ * first by genotype id, and then by the structure of the genotype, which
+ * catches identical genotypes with different ids.
+ *
+ * Evaluations are looked up as teams: a LonerTask looks up teams of one, and
+ * a CooperativeTask looks up one score for each member of a team. The least
+ * recently used evaluations are dropped once the cache is full.
+ *
+ * Only use the cache when evaluation is deterministic, since a cached score
+ * is reused instead of sampling a noisy evaluation again. Side effects an
+ * evaluation has on the genotype itself, such as recording module usage, are
+ * not repeated when the score comes from the cache, so a genotype found by
+ * structure keeps whatever values it was created with. Evaluations that draw
+ * from the shared random generator, for example to break ties, also leave
+ * the generator in a different state when skipped, so a run with the cache
+ * follows a different (but equally valid) course than one without it.
+ *
+ * @author Jacob Schrum
+ */
+public class EvaluationCache {
+
+	/**
+	 * Structure of each member of a team, compared by value
+	 */
+	private static class Structure {
+
+		final byte[][] members;
+
+		Structure(byte[][] members) {
+			this.members = members;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Structure && Arrays.deepEquals(members, ((Structure) other).members);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.deepHashCode(members);
+		}
+	}
+
+	/**
+	 * Map that drops its least recently used entry when it grows too large
+	 */
+	private static class LRU<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		LRU(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	// Scores by structure of the team, or by ids if a member has no structure
+	private final LRU<Object, Score<?>[]> entries;
+	// Key in entries of each team of ids recently looked up or evaluated
+	private final LRU<List<Long>, Object> keys;
+	private PlotLog log = null;
+	// Counts since the last time the cache was logged
+	private int idHits = 0;
+	private int structureHits = 0;
+	private int misses = 0;
+
+	/**
+	 * Cache sized by the evaluationCacheSize parameter
+	 *
+	 * @return new cache, or null if evaluationCacheSize is 0
+	 */
+	public static EvaluationCache create() {
+		int size = Parameters.parameters.integerParameter("evaluationCacheSize");
+		return size > 0 ? new EvaluationCache(size) : null;
+	}
+
+	/**
+	 * @param capacity
+	 *            most evaluations that can be remembered
+	 */
+	public EvaluationCache(int capacity) {
+		this.entries = new LRU<Object, Score<?>[]>(capacity);
+		this.keys = new LRU<List<Long>, Object>(capacity);
+	}
+
+	/**
+	 * Scores from an earlier evaluation of the same team, if it is still
+	 * remembered. The scores are fresh copies that belong to the members of
+	 * the given team, so they can be changed freely.
+	 *
+	 * @param team
+	 *            genotypes evaluated together
+	 * @return score of each member, or null if the team is not cached
+	 */
+	public synchronized Score<?>[] get(Genotype<?>[] team) {
+		List<Long> ids = ids(team);
+		Object key = keys.get(ids);
+		Score<?>[] scores = key == null ? null : entries.get(key);
+		if (scores != null) {
+			idHits++;
+			return copies(scores, team);
+		}
+		Structure structure = structure(team);
+		scores = structure == null ? null : entries.get(structure);
+		if (scores != null) {
+			structureHits++;
+			// Later lookups of these ids are quicker
+			keys.put(ids, structure);
+			return copies(scores, team);
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Remember the scores a team was given
+	 *
+	 * @param team
+	 *            genotypes evaluated together
+	 * @param scores
+	 *            score of each member, in the same order. Copies are stored,
+	 *            so these can still be changed
+	 */
+	public synchronized void put(Genotype<?>[] team, Score<?>[] scores) {
+		List<Long> ids = ids(team);
+		Structure structure = structure(team);
+		Object key = structure == null ? ids : structure;
+		entries.put(key, copies(scores, new Genotype<?>[team.length]));
+		keys.put(ids, key);
+	}
+
+	/**
+	 * Add the hits and misses since the previous call to the
+	 * EvaluationCache log, and start counting again. Nothing is written if
+	 * io is off.
+	 *
+	 * @param generation
+	 *            generation the counts belong to
+	 */
+	public synchronized void log(int generation) {
+		if (log == null && Parameters.parameters.booleanParameter("io")) {
+			ArrayList<String> labels = new ArrayList<String>();
+			labels.add("Id Hits");
+			labels.add("Structure Hits");
+			labels.add("Misses");
+			labels.add("Hit Rate");
+			labels.add("Cached");
+			log = new PlotLog("EvaluationCache", labels);
+		}
+		if (log != null) {
+			ArrayList<Double> values = new ArrayList<Double>(5);
+			values.add((double) idHits);
+			values.add((double) structureHits);
+			values.add((double) misses);
+			values.add(hitRate());
+			values.add((double) entries.size());
+			log.log(generation, values);
+		}
+		idHits = 0;
+		structureHits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * @return fraction of lookups since the last log that were hits
+	 */
+	public synchronized double hitRate() {
+		int lookups = idHits + structureHits + misses;
+		return lookups == 0 ? 0 : (idHits + structureHits) / (double) lookups;
+	}
+
+	public synchronized void close() {
+		if (log != null) {
+			log.close();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Evaluation cache: " + idHits + " id hits, " + structureHits + " structure hits, " + misses + " misses";
+	}
+
+	private static List<Long> ids(Genotype<?>[] team) {
+		Long[] ids = new Long[team.length];
+		for (int i = 0; i < team.length; i++) {
+			ids[i] = team[i].getId();
+		}
+		return Arrays.asList(ids);
+	}
+
+	/**
+	 * Structure of the team, or null if any member cannot be encoded
+	 */
+	private static Structure structure(Genotype<?>[] team) {
+		byte[][] members = new byte[team.length][];
+		for (int i = 0; i < team.length; i++) {
+			if (!GenotypeCodec.supports(team[i])) {
+				return null;
+			}
+			members[i] = GenotypeCodec.structure(team[i]);
+		}
+		return new Structure(members);
+	}
+
+	/**
+	 * Copy each score, keeping its class and everything the evaluation
+	 * recorded, but belonging to the corresponding member of the team.
+	 * Evaluation times are left unset, since a cached score takes no time.
+	 */
+	private static Score<?>[] copies(Score<?>[] scores, Genotype<?>[] team) {
+		Score<?>[] result = new Score<?>[scores.length];
+		for (int i = 0; i < scores.length; i++) {
+			result[i] = copy(scores[i], team[i]);
+		}
+		return result;
+	}
+
+	private static <T> Score<T> copy(Score<?> s, Genotype<T> member) {
+		double[] values = Arrays.copyOf(s.scores, s.scores.length);
+		double[] otherStats = s.otherStats == null ? null : Arrays.copyOf(s.otherStats, s.otherStats.length);
+		ArrayList<Double> behaviorVector = s.behaviorVector == null ? null : new ArrayList<Double>(s.behaviorVector);
+		Score<T> copy = s instanceof MultiObjectiveScore
+				? new MultiObjectiveScore<T>(member, values, behaviorVector, otherStats)
+				: new Score<T>(member, values, behaviorVector, otherStats);
+		copy.evals = s.evals;
+		return copy;
+	}
+}
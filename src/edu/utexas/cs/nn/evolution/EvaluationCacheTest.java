@@ -0,0 +1,79 @@
+package edu.utexas.cs.nn.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.RealValuedGenotype;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.MultiObjectiveScore;
+import edu.utexas.cs.nn.scores.Score;
+
+public class EvaluationCacheTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		MMNEAT.loadClasses();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	private static Score<?>[] scores(Genotype<ArrayList<Double>> g, double fitness) {
+		Score<ArrayList<Double>> s = new MultiObjectiveScore<ArrayList<Double>>(g, new double[] { fitness }, null, new double[] { 2 * fitness });
+		s.evals = 3;
+		return new Score<?>[] { s };
+	}
+
+	@Test
+	public void test_hits() {
+		EvaluationCache cache = new EvaluationCache(10);
+		RealValuedGenotype g = new RealValuedGenotype(4);
+		Genotype<?>[] team = new Genotype<?>[] { g };
+		assertNull(cache.get(team));
+		Score<?>[] evaluated = scores(g, 5);
+		cache.put(team, evaluated);
+		// Changing the original does not change the cached copy
+		evaluated[0].extraScore(1);
+
+		Score<?>[] byId = cache.get(team);
+		assertTrue(byId[0] instanceof MultiObjectiveScore);
+		assertArrayEquals(new double[] { 5 }, byId[0].scores, 0);
+		assertArrayEquals(new double[] { 10 }, byId[0].otherStats, 0);
+		assertEquals(3, byId[0].evals);
+		assertSame(g, byId[0].individual);
+
+		// An identical genotype with a new id is found by structure
+		Genotype<ArrayList<Double>> twin = g.copy();
+		Score<?>[] byStructure = cache.get(new Genotype<?>[] { twin });
+		assertNotNull(byStructure);
+		assertSame(twin, byStructure[0].individual);
+		assertArrayEquals(new double[] { 5 }, byStructure[0].scores, 0);
+		assertNull(cache.get(new Genotype<?>[] { new RealValuedGenotype(4) }));
+		assertEquals(2.0 / 4, cache.hitRate(), 0);
+	}
+
+	@Test
+	public void test_leastRecentlyUsedDropped() {
+		EvaluationCache cache = new EvaluationCache(2);
+		RealValuedGenotype[] a = new RealValuedGenotype[] { new RealValuedGenotype(4) };
+		RealValuedGenotype[] b = new RealValuedGenotype[] { new RealValuedGenotype(4) };
+		RealValuedGenotype[] c = new RealValuedGenotype[] { new RealValuedGenotype(4) };
+		cache.put(a, scores(a[0], 1));
+		cache.put(b, scores(b[0], 2));
+		assertNotNull(cache.get(a));
+		cache.put(c, scores(c[0], 3));
+		assertNotNull(cache.get(a));
+		assertNull(cache.get(b));
+		assertNotNull(cache.get(c));
+	}
+}
@@ -1,9 +1,11 @@
 package edu.utexas.cs.nn.evolution;
 
+import edu.utexas.cs.nn.data.PopulationArchive;
 import edu.utexas.cs.nn.evolution.crossover.network.CombiningTWEANNCrossover;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.evolution.lineage.LineageStore;
 import edu.utexas.cs.nn.log.MMNEATLog;
 import edu.utexas.cs.nn.log.TWEANNLog;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
@@ -15,6 +17,7 @@ import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,6 +49,7 @@ public class EvolutionaryHistory {
 	public static TWEANNLog tweannLog = null;
 	public static MMNEATLog mutationLog = null;
 	public static MMNEATLog lineageLog = null;
+	public static LineageStore lineageStore = null;
 
 	/**
 	 * Commonly used/shared networks (hierarchical architectures). Raw types are
@@ -256,18 +260,66 @@ public class EvolutionaryHistory {
 	 *            coevolution has not been implemented yet, unused.
 	 */
 	public static void saveArchetype(int populationIndex) {
+		saveArchetype(populationIndex, "");
+	}
+
+	/**
+	 * Save the archetype, and any combining crossover information, to their
+	 * usual file names with a suffix added
+	 *
+	 * @return usual names of the saved files, without the suffix
+	 */
+	private static ArrayList<String> saveArchetype(int populationIndex, String suffix) {
+		ArrayList<String> files = new ArrayList<String>();
 		if (archetypes != null && archetypes[populationIndex] != null && CommonConstants.netio) {
 			System.out.println("Saving archetype");
 			String file = FileUtilities.getSaveDirectory() + "/" + "archetype";
 			Parameters.parameters.setString("archetype", file);
 			file += populationIndex + ".xml";
-			Easy.save(archetypes[populationIndex], file);
-			System.out.println("Done saving " + file);
+			Easy.save(archetypes[populationIndex], file + suffix);
+			files.add(file);
+			System.out.println("Done saving " + file + suffix);
 			// Could make more explicit using
 			// CommonConstants.trackCombiningCrossover
 			// Only happens if there is information to save
-			CombiningTWEANNCrossover.saveCombiningCrossoverInformation(); 
+			String mapping = CombiningTWEANNCrossover.saveCombiningCrossoverInformation(suffix);
+			if (mapping != null) {
+				files.add(mapping);
+			}
 		}
+		return files;
+	}
+
+	/**
+	 * Save the archetype as it is now to temporary files, which are only
+	 * moved into place later. Used when the population is saved in the
+	 * background, so that the archetype on disk never gets ahead of the last
+	 * population that was completely saved.
+	 *
+	 * @param populationIndex
+	 *            index of population whose archetype is saved
+	 * @param name
+	 *            name of the save, such as gen5, which keeps the temporary
+	 *            files apart from those of a save still being moved
+	 * @return moves the saved files into place when run
+	 */
+	public static Runnable archetypeSaver(int populationIndex, String name) {
+		final String suffix = "." + name + ".tmp";
+		final ArrayList<String> files = saveArchetype(populationIndex, suffix);
+		return new Runnable() {
+			@Override
+			public void run() {
+				for (String file : files) {
+					try {
+						PopulationArchive.replace(new File(file + suffix), new File(file));
+					} catch (IOException ex) {
+						ex.printStackTrace();
+						System.out.println("Could not save " + file);
+						System.exit(1);
+					}
+				}
+			}
+		};
 	}
 
 	/**
@@ -277,6 +329,60 @@ public class EvolutionaryHistory {
                 // Seective breeding allows for an unusual number of log lines per generation
 		mutationLog = new MMNEATLog("Mutations", true, false, MMNEAT.ea instanceof SelectiveBreedingEA);
 		lineageLog = new MMNEATLog("Lineage", true, false, MMNEAT.ea instanceof SelectiveBreedingEA);
+		if (Parameters.parameters.booleanParameter("lineageStore") && !Parameters.parameters.booleanParameter("logLock")) {
+			File lineageFile = lineageLog.getFile();
+			String logPrefix = lineageFile.getPath();
+			logPrefix = logPrefix.substring(0, logPrefix.length() - "Lineage_log.txt".length());
+			String storePrefix = LineageStore.prefix(logPrefix);
+			int lastSavedGeneration = Parameters.parameters.integerParameter("lastSavedGeneration");
+			try {
+				if (lastSavedGeneration == 0) {
+					lineageStore = LineageStore.create(storePrefix);
+				} else {
+					if (LineageStore.exists(storePrefix)) {
+						try {
+							lineageStore = LineageStore.append(storePrefix);
+							if (lineageStore.numGenerations() != lastSavedGeneration) {
+								// Holds generations that were not saved before the run stopped
+								lineageStore.close();
+								lineageStore = null;
+							}
+						} catch (IOException ex) {
+							ex.printStackTrace();
+							System.out.println("Could not reopen lineage store for " + logPrefix);
+						}
+					}
+					if (lineageStore == null) {
+						// Text logs already hold the lines kept from before the resume
+						System.out.println("Rebuilding lineage store from text logs");
+						lineageStore = LineageStore.fromTextLogs(storePrefix, lineageFile, mutationLog.getFile());
+					}
+				}
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not create lineage store for " + logPrefix);
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Writes everything logged so far to the lineage store, if there is one
+	 */
+	public static void flushLineageStore() {
+		if (lineageStore != null) {
+			lineageStore.flush();
+		}
+	}
+
+	/**
+	 * Closes the lineage store, if there is one
+	 */
+	public static void closeLineageStore() {
+		if (lineageStore != null) {
+			lineageStore.close();
+			lineageStore = null;
+		}
 	}
 
 	/**
@@ -315,6 +421,9 @@ public class EvolutionaryHistory {
 		if (mutationLog != null) {
 			mutationLog.log(data);
 		}
+		if (lineageStore != null) {
+			lineageStore.logMutations(data);
+		}
 	}
 
 	/**
@@ -327,6 +436,9 @@ public class EvolutionaryHistory {
 		if (lineageLog != null) {
 			lineageLog.log(data);
 		}
+		if (lineageStore != null) {
+			lineageStore.logLineage(data);
+		}
 	}
 
 	/**
@@ -35,6 +35,18 @@ public class CombiningTWEANNCrossover extends TWEANNCrossover {
 	public static HashMap<Long, Long> oldToNew = new HashMap<Long, Long>();
 
 	public static void saveCombiningCrossoverInformation() {
+		saveCombiningCrossoverInformation("");
+	}
+
+	/**
+	 * Save the combining crossover mapping, if there is one, to its usual
+	 * file name with a suffix added
+	 *
+	 * @param suffix
+	 *            added to the file name, such as .tmp
+	 * @return usual file name, without the suffix, or null if nothing was saved
+	 */
+	public static String saveCombiningCrossoverInformation(String suffix) {
 		// Could check CommonConstants.trackCombiningCrossover, but knowing that
 		// oldToNew is not empty should be enough
 		if (!oldToNew.isEmpty()) {// means crossover has occurred before, and
@@ -48,9 +60,11 @@ public class CombiningTWEANNCrossover extends TWEANNCrossover {
 																								// file
 			Parameters.parameters.setString("combiningCrossoverMapping", file);
 			file += ".txt";
-			CombiningTWEANNCrossover.saveOldToNew(file);// saves new crossover
+			CombiningTWEANNCrossover.saveOldToNew(file + suffix);// saves new crossover
 														// information
+			return file;
 		}
+		return null;
 	}
 
 	public static void addToArchetypeForCombiningCrossover(int populationIndex, int pos, NodeGene node,
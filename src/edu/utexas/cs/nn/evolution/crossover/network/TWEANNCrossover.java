@@ -19,6 +19,7 @@ import edu.utexas.cs.nn.util.random.RandomNumbers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 
 /**
  * This class crosses over two TWEANN networks with a command line parameter
@@ -241,6 +242,7 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	private static ArrayList<NodeGene> alignNodesToArchetype(ArrayList<NodeGene> list, int archetypeIndex) {
 		ArrayList<NodeGene> archetype = EvolutionaryHistory.archetypes[archetypeIndex];
 		ArrayList<NodeGene> aligned = new ArrayList<NodeGene>(archetype.size());
+		HashMap<Long, Integer> archetypePositions = innovationPositions(archetype);
 
 		// Deal with matching and disjoint genes
 		int listPos = 0, archetypePos = 0;
@@ -253,7 +255,7 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 				aligned.add(list.get(listPos++));
 				archetypePos++;
 			} else {// checks if misaligned
-				Integer pos = containsInnovationAt(archetype, leftInnovation);
+				Integer pos = archetypePositions.get(leftInnovation);
 				if (pos == null) {
 					System.out.println("archetypeIndex: " + archetypeIndex);
 					System.out.println("How can archetype not have innovation? " + leftInnovation);
@@ -353,6 +355,27 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 		return null;
 	}
 
+	/**
+	 * Map from each innovation number in a list of genes to the first index
+	 * where it is found
+	 *
+	 * @param <G>
+	 *            LinkGene or NodeGene
+	 * @param genes
+	 *            = list of genes
+	 * @return map from innovation to index, as containsInnovationAt would find
+	 */
+	private static <G extends Gene> HashMap<Long, Integer> innovationPositions(ArrayList<G> genes) {
+		HashMap<Long, Integer> positions = new HashMap<Long, Integer>(genes.size() * 2);
+		for (int i = 0; i < genes.size(); i++) {
+			long innovation = genes.get(i).innovation;
+			if (!positions.containsKey(innovation)) {
+				positions.put(innovation, i);
+			}
+		}
+		return positions;
+	}
+
 	/**
 	 * Aligns link genes by innovation numbers. Easier to do in the LinkGene
 	 * case because no ordering is required for correct network execution.
@@ -375,8 +398,11 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 		ArrayList<LinkGene> alignedRight = new ArrayList<LinkGene>(maxSize);
 
 		// System.out.println("Align loop start");
-		// Deal with matching and disjoint genes
+		// Deal with matching and disjoint genes. Both lists are sorted, and the
+		// innovations searched for never decrease, so each search resumes
+		// where the last one stopped and the whole merge is linear.
 		int leftPos = 0, rightPos = 0;
+		int leftSearch = 0, rightSearch = 0;
 		while (leftPos < left.size() && rightPos < right.size()) {
 			int l = leftPos, r = rightPos;
 			// System.out.println("l: " + l + ", r: " + r);
@@ -389,17 +415,23 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 			} else {
 				// System.out.println("Diff innovation: " + leftInnovation + ",
 				// " + rightInnovation);
-				Integer leftHasRightAt = containsInnovationAt(left, rightInnovation);
-				Integer rightHasLeftAt = containsInnovationAt(right, leftInnovation);
+				while (leftSearch < left.size() && left.get(leftSearch).innovation < rightInnovation) {
+					leftSearch++;
+				}
+				while (rightSearch < right.size() && right.get(rightSearch).innovation < leftInnovation) {
+					rightSearch++;
+				}
+				boolean leftHasRight = leftSearch < left.size() && left.get(leftSearch).innovation == rightInnovation;
+				boolean rightHasLeft = rightSearch < right.size() && right.get(rightSearch).innovation == leftInnovation;
 				// System.out.println("Innovation: leftHasRight: " +
-				// leftHasRightAt + ", rightHasLeft: " + rightHasLeftAt);
+				// leftHasRight + ", rightHasLeft: " + rightHasLeft);
 
-				if (leftHasRightAt == null) {
-					// System.out.println("leftHasRight is null");
+				if (!leftHasRight) {
+					// System.out.println("leftHasRight is false");
 					alignedLeft.add(null);
 					alignedRight.add(right.get(rightPos++));
-				} else if (rightHasLeftAt == null) {
-					// System.out.println("rightHasLeftAt is null");
+				} else if (!rightHasLeft) {
+					// System.out.println("rightHasLeft is false");
 					alignedLeft.add(left.get(leftPos++));
 					alignedRight.add(null);
 				}
@@ -444,12 +476,21 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 *            link genes of parent 2
 	 */
 	private static void mergeDuplicates(ArrayList<LinkGene> left, ArrayList<LinkGene> right) {
+		// Innovation of the last left link between each pair of nodes
+		HashMap<Long, HashMap<Long, Long>> leftInnovations = new HashMap<Long, HashMap<Long, Long>>(left.size());
 		for (LinkGene lg : left) {
-			for (LinkGene rg : right) {
-				if (lg.sourceInnovation == rg.sourceInnovation && lg.targetInnovation == rg.targetInnovation
-						&& lg.innovation != rg.innovation) {
-					rg.innovation = lg.innovation;
-				}
+			HashMap<Long, Long> targets = leftInnovations.get(lg.sourceInnovation);
+			if (targets == null) {
+				targets = new HashMap<Long, Long>();
+				leftInnovations.put(lg.sourceInnovation, targets);
+			}
+			targets.put(lg.targetInnovation, lg.innovation);
+		}
+		for (LinkGene rg : right) {
+			HashMap<Long, Long> targets = leftInnovations.get(rg.sourceInnovation);
+			Long innovation = targets == null ? null : targets.get(rg.targetInnovation);
+			if (innovation != null) {
+				rg.innovation = innovation;
 			}
 		}
 	}
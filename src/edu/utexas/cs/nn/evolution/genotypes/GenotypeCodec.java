@@ -0,0 +1,492 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.networks.MLP;
+import edu.utexas.cs.nn.networks.SRN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compact binary encoding of genotypes, used for population checkpoints
+ * instead of wox XML. Every field needed to resume evolution is stored,
+ * including genotype ids, so a decoded genotype is indistinguishable from
+ * the one that was encoded. Decoding does not use up any genotype ids.
+ *
+ * Only the exact classes listed below are supported. Subclasses of these are
+ * not, since they may have additional state. Anything else has to be saved as
+ * XML.
+ *
+ * @author Jacob Schrum
+ */
+public class GenotypeCodec {
+
+	// Type tags: never reuse or renumber these, or old files become unreadable
+	private static final byte TYPE_TWEANN = 1;
+	private static final byte TYPE_HYPERNEAT_CPPN = 2;
+	private static final byte TYPE_HIERARCHICAL_TWEANN = 3;
+	private static final byte TYPE_MLP = 4;
+	private static final byte TYPE_SRN = 5;
+	private static final byte TYPE_REAL_VALUED = 6;
+	private static final byte TYPE_BOUNDED_REAL_VALUED = 7;
+	private static final byte TYPE_BOUNDED_INTEGER_VALUED = 8;
+	private static final byte TYPE_SIMPLE_BLUEPRINT = 9;
+
+	// Bit flags of node gene records
+	private static final int NODE_FROZEN = 1;
+	private static final int NODE_FROM_COMBINING_CROSSOVER = 2;
+	// Bit flags of link gene records
+	private static final int LINK_FROZEN = 1;
+	private static final int LINK_ACTIVE = 2;
+	private static final int LINK_RECURRENT = 4;
+
+	/**
+	 * Whether the genotype can be encoded in binary
+	 *
+	 * @param g
+	 *            any genotype
+	 * @return true if write will accept it
+	 */
+	public static boolean supports(Genotype<?> g) {
+		return g != null && tag(g) != 0;
+	}
+
+	/**
+	 * Type tag of the genotype's exact class, or 0 if not supported
+	 */
+	private static byte tag(Genotype<?> g) {
+		Class<?> c = g.getClass();
+		if (c == TWEANNGenotype.class) {
+			return TYPE_TWEANN;
+		} else if (c == HyperNEATCPPNGenotype.class) {
+			return TYPE_HYPERNEAT_CPPN;
+		} else if (c == HierarchicalTWEANNGenotype.class) {
+			return TYPE_HIERARCHICAL_TWEANN;
+		} else if (c == MLPGenotype.class) {
+			return TYPE_MLP;
+		} else if (c == SRNGenotype.class) {
+			return TYPE_SRN;
+		} else if (c == RealValuedGenotype.class) {
+			return TYPE_REAL_VALUED;
+		} else if (c == BoundedRealValuedGenotype.class) {
+			return TYPE_BOUNDED_REAL_VALUED;
+		} else if (c == BoundedIntegerValuedGenotype.class) {
+			return TYPE_BOUNDED_INTEGER_VALUED;
+		} else if (c == SimpleBlueprintGenotype.class) {
+			return TYPE_SIMPLE_BLUEPRINT;
+		}
+		return 0;
+	}
+
+	/**
+	 * Encode a genotype
+	 *
+	 * @param out
+	 *            stream to write to
+	 * @param g
+	 *            genotype to encode (must be supported)
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public static void write(DataOutputStream out, Genotype<?> g) throws IOException {
+		write(out, g, true);
+	}
+
+	/**
+	 * Encode only what determines how a genotype behaves once it is turned
+	 * into a phenotype, leaving out its id and bookkeeping that evolution or
+	 * evaluation change in place: frozen flags, module usage, the archetype
+	 * and innovation counters. Links of a TWEANN that are not expressed in
+	 * its network are left out too. Genotypes with equal structures behave
+	 * the same, even if they were made separately, like identical children
+	 * from crossover. The result cannot be decoded.
+	 *
+	 * @param g
+	 *            genotype to encode (must be supported)
+	 * @return bytes of the structure
+	 */
+	public static byte[] structure(Genotype<?> g) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = new DataOutputStream(bytes);
+			write(out, g, false);
+			out.flush();
+		} catch (IOException ex) {
+			// Writing to memory does not fail
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Encode a genotype completely, or only its structure
+	 */
+	private static void write(DataOutputStream out, Genotype<?> g, boolean complete) throws IOException {
+		byte tag = tag(g);
+		out.writeByte(tag);
+		switch (tag) {
+		case TYPE_TWEANN:
+			writeTWEANN(out, (TWEANNGenotype) g, complete);
+			break;
+		case TYPE_HYPERNEAT_CPPN:
+			writeTWEANN(out, (TWEANNGenotype) g, complete);
+			if (complete) {
+				out.writeInt(((HyperNEATCPPNGenotype) g).innovationID);
+			}
+			break;
+		case TYPE_HIERARCHICAL_TWEANN:
+			writeTWEANN(out, (TWEANNGenotype) g, complete);
+			write(out, ((HierarchicalTWEANNGenotype) g).subNetIds, complete);
+			break;
+		case TYPE_MLP:
+			writeMLP(out, (MLPGenotype) g, complete);
+			break;
+		case TYPE_SRN:
+			writeMLP(out, (MLPGenotype) g, complete);
+			out.writeInt(((SRNGenotype) g).numInputs);
+			break;
+		case TYPE_REAL_VALUED:
+			writeDoubleGenes(out, (RealValuedGenotype) g, complete);
+			break;
+		case TYPE_BOUNDED_REAL_VALUED:
+			BoundedRealValuedGenotype brv = (BoundedRealValuedGenotype) g;
+			writeDoubleGenes(out, brv, complete);
+			writeDoubles(out, brv.lower);
+			writeDoubles(out, brv.upper);
+			out.writeBoolean(brv.polynomialMutation);
+			break;
+		case TYPE_BOUNDED_INTEGER_VALUED:
+			BoundedIntegerValuedGenotype biv = (BoundedIntegerValuedGenotype) g;
+			if (complete) {
+				out.writeLong(biv.id);
+			}
+			out.writeInt(biv.genes.size());
+			for (Integer x : biv.genes) {
+				out.writeInt(x);
+			}
+			break;
+		case TYPE_SIMPLE_BLUEPRINT:
+			SimpleBlueprintGenotype sb = (SimpleBlueprintGenotype) g;
+			if (complete) {
+				out.writeLong(sb.id);
+			}
+			out.writeInt(sb.genes.size());
+			for (Long x : sb.genes) {
+				out.writeLong(x);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Binary encoding not supported for " + g.getClass().getName());
+		}
+	}
+
+	/**
+	 * Decode one genotype written by write. The counter of genotype ids is
+	 * left exactly as it was before the call.
+	 *
+	 * @param in
+	 *            stream to read from
+	 * @return the decoded genotype, with its original id
+	 * @throws IOException
+	 *             if reading fails or the data is not a valid genotype
+	 */
+	public static Genotype<?> read(DataInputStream in) throws IOException {
+		// Constructors claim new ids, which must not be used up by loading
+		long unusedId = EvolutionaryHistory.largestUnusedGenotypeId;
+		try {
+			return readGenotype(in);
+		} finally {
+			EvolutionaryHistory.setHighestGenotypeId(unusedId);
+			Parameters.parameters.setLong("lastGenotypeId", unusedId);
+		}
+	}
+
+	private static Genotype<?> readGenotype(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case TYPE_TWEANN:
+			return readTWEANN(in, new TWEANNGenotype(new ArrayList<NodeGene>(), new ArrayList<LinkGene>(), 0, false, false, 0));
+		case TYPE_HYPERNEAT_CPPN:
+			HyperNEATCPPNGenotype cppn = new HyperNEATCPPNGenotype(new ArrayList<NodeGene>(), new ArrayList<LinkGene>(), 0, 0);
+			readTWEANN(in, cppn);
+			cppn.innovationID = in.readInt();
+			return cppn;
+		case TYPE_HIERARCHICAL_TWEANN:
+			HierarchicalTWEANNGenotype htg = new HierarchicalTWEANNGenotype(
+					new TWEANNGenotype(new ArrayList<NodeGene>(), new ArrayList<LinkGene>(), 0, false, false, 0),
+					new BoundedIntegerValuedGenotype(new ArrayList<Integer>()));
+			readTWEANN(in, htg);
+			htg.subNetIds = (BoundedIntegerValuedGenotype) readGenotype(in);
+			return htg;
+		case TYPE_MLP:
+			MLPGenotype mlp = new MLPGenotype(new MLP(new double[1][1], new double[1][1]));
+			readMLP(in, mlp);
+			return mlp;
+		case TYPE_SRN:
+			SRNGenotype srn = new SRNGenotype(new SRN(new double[1][1], new double[1][1], 0));
+			readMLP(in, srn);
+			srn.numInputs = in.readInt();
+			return srn;
+		case TYPE_REAL_VALUED:
+			RealValuedGenotype rv = new RealValuedGenotype(new double[0]);
+			readDoubleGenes(in, rv);
+			return rv;
+		case TYPE_BOUNDED_REAL_VALUED:
+			long id = in.readLong();
+			ArrayList<Double> genes = readDoubleList(in);
+			double[] lower = readDoubles(in);
+			double[] upper = readDoubles(in);
+			BoundedRealValuedGenotype brv = new BoundedRealValuedGenotype(genes, lower, upper);
+			brv.id = id;
+			brv.polynomialMutation = in.readBoolean();
+			return brv;
+		case TYPE_BOUNDED_INTEGER_VALUED:
+			long bivId = in.readLong();
+			int bivSize = in.readInt();
+			ArrayList<Integer> ints = new ArrayList<Integer>(bivSize);
+			for (int i = 0; i < bivSize; i++) {
+				ints.add(in.readInt());
+			}
+			BoundedIntegerValuedGenotype biv = new BoundedIntegerValuedGenotype(ints);
+			biv.id = bivId;
+			return biv;
+		case TYPE_SIMPLE_BLUEPRINT:
+			long sbId = in.readLong();
+			int sbSize = in.readInt();
+			ArrayList<Long> longs = new ArrayList<Long>(sbSize);
+			for (int i = 0; i < sbSize; i++) {
+				longs.add(in.readLong());
+			}
+			SimpleBlueprintGenotype sb = new SimpleBlueprintGenotype(longs);
+			sb.id = sbId;
+			return sb;
+		default:
+			throw new IOException("Unknown genotype type tag " + tag);
+		}
+	}
+
+	private static void writeTWEANN(DataOutputStream out, TWEANNGenotype g, boolean complete) throws IOException {
+		if (complete) {
+			out.writeLong(g.id);
+			out.writeInt(g.archetypeIndex);
+		}
+		out.writeInt(g.numIn);
+		out.writeInt(g.numOut);
+		out.writeInt(g.numModules);
+		out.writeInt(g.neuronsPerModule);
+		out.writeBoolean(g.standardMultitask);
+		out.writeBoolean(g.hierarchicalMultitask);
+		if (complete) {
+			writeInts(out, g.moduleAssociations);
+			writeInts(out, g.moduleUsage);
+		} else {
+			// Associations as a copy of the genotype has them: one per module
+			for (int i = 0; i < g.numModules; i++) {
+				out.writeInt(g.moduleAssociations == null ? i
+						: i < g.moduleAssociations.length ? g.moduleAssociations[i] : 0);
+			}
+		}
+		out.writeInt(g.nodes.size());
+		for (NodeGene ng : g.nodes) {
+			out.writeLong(ng.innovation);
+			out.writeInt(ng.ftype);
+			out.writeInt(ng.ntype);
+			if (complete) {
+				out.writeByte((ng.frozen ? NODE_FROZEN : 0) | (ng.fromCombiningCrossover ? NODE_FROM_COMBINING_CROSSOVER : 0));
+			}
+		}
+		if (complete) {
+			out.writeInt(g.links.size());
+			for (LinkGene lg : g.links) {
+				out.writeLong(lg.innovation);
+				out.writeLong(lg.sourceInnovation);
+				out.writeLong(lg.targetInnovation);
+				out.writeDouble(lg.weight);
+				out.writeByte((lg.frozen ? LINK_FROZEN : 0) | (lg.active ? LINK_ACTIVE : 0) | (lg.recurrent ? LINK_RECURRENT : 0));
+			}
+		} else {
+			writeExpressedLinks(out, g);
+		}
+	}
+
+	/**
+	 * Only active links are expressed in the network, which lists them by
+	 * source node. Writing them in that order gives the same bytes for a
+	 * genotype and for its copy, which drops inactive links and groups the
+	 * rest by source.
+	 */
+	private static void writeExpressedLinks(DataOutputStream out, TWEANNGenotype g) throws IOException {
+		HashMap<Long, ArrayList<LinkGene>> bySource = new HashMap<Long, ArrayList<LinkGene>>();
+		int active = 0;
+		for (LinkGene lg : g.links) {
+			if (lg.active) {
+				ArrayList<LinkGene> group = bySource.get(lg.sourceInnovation);
+				if (group == null) {
+					group = new ArrayList<LinkGene>();
+					bySource.put(lg.sourceInnovation, group);
+				}
+				group.add(lg);
+				active++;
+			}
+		}
+		out.writeInt(active);
+		for (NodeGene ng : g.nodes) {
+			ArrayList<LinkGene> group = bySource.remove(ng.innovation);
+			if (group != null) {
+				for (LinkGene lg : group) {
+					out.writeLong(lg.innovation);
+					out.writeLong(lg.sourceInnovation);
+					out.writeLong(lg.targetInnovation);
+					out.writeDouble(lg.weight);
+					out.writeBoolean(lg.recurrent);
+				}
+			}
+		}
+	}
+
+	private static TWEANNGenotype readTWEANN(DataInputStream in, TWEANNGenotype g) throws IOException {
+		g.id = in.readLong();
+		g.archetypeIndex = in.readInt();
+		g.numIn = in.readInt();
+		g.numOut = in.readInt();
+		g.numModules = in.readInt();
+		g.neuronsPerModule = in.readInt();
+		g.standardMultitask = in.readBoolean();
+		g.hierarchicalMultitask = in.readBoolean();
+		g.moduleAssociations = readInts(in);
+		g.moduleUsage = readInts(in);
+		int numNodes = in.readInt();
+		g.nodes = new ArrayList<NodeGene>(numNodes);
+		for (int i = 0; i < numNodes; i++) {
+			long innovation = in.readLong();
+			int ftype = in.readInt();
+			int ntype = in.readInt();
+			int flags = in.readByte();
+			NodeGene ng = g.new NodeGene(ftype, ntype, innovation, (flags & NODE_FROZEN) != 0);
+			ng.fromCombiningCrossover = (flags & NODE_FROM_COMBINING_CROSSOVER) != 0;
+			g.nodes.add(ng);
+		}
+		int numLinks = in.readInt();
+		g.links = new ArrayList<LinkGene>(numLinks);
+		for (int i = 0; i < numLinks; i++) {
+			long innovation = in.readLong();
+			long source = in.readLong();
+			long target = in.readLong();
+			double weight = in.readDouble();
+			int flags = in.readByte();
+			g.links.add(g.new LinkGene(source, target, weight, innovation, (flags & LINK_ACTIVE) != 0, (flags & LINK_RECURRENT) != 0,
+					(flags & LINK_FROZEN) != 0));
+		}
+		return g;
+	}
+
+	private static void writeMLP(DataOutputStream out, MLPGenotype g, boolean complete) throws IOException {
+		if (complete) {
+			out.writeLong(g.id);
+		}
+		writeMatrix(out, g.firstConnectionLayer);
+		writeMatrix(out, g.secondConnectionLayer);
+	}
+
+	private static void readMLP(DataInputStream in, MLPGenotype g) throws IOException {
+		g.id = in.readLong();
+		g.firstConnectionLayer = readMatrix(in);
+		g.secondConnectionLayer = readMatrix(in);
+	}
+
+	private static void writeDoubleGenes(DataOutputStream out, RealValuedGenotype g, boolean complete) throws IOException {
+		if (complete) {
+			out.writeLong(g.id);
+		}
+		out.writeInt(g.genes.size());
+		for (Double x : g.genes) {
+			out.writeDouble(x);
+		}
+	}
+
+	private static void readDoubleGenes(DataInputStream in, RealValuedGenotype g) throws IOException {
+		g.id = in.readLong();
+		g.genes = readDoubleList(in);
+	}
+
+	private static ArrayList<Double> readDoubleList(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		ArrayList<Double> list = new ArrayList<Double>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(in.readDouble());
+		}
+		return list;
+	}
+
+	/**
+	 * Arrays are written as a length followed by the elements. Null arrays
+	 * have a length of -1.
+	 */
+	private static void writeInts(DataOutputStream out, int[] xs) throws IOException {
+		if (xs == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(xs.length);
+			for (int x : xs) {
+				out.writeInt(x);
+			}
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length == -1) {
+			return null;
+		}
+		int[] xs = new int[length];
+		for (int i = 0; i < length; i++) {
+			xs[i] = in.readInt();
+		}
+		return xs;
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] xs) throws IOException {
+		if (xs == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(xs.length);
+			for (double x : xs) {
+				out.writeDouble(x);
+			}
+		}
+	}
+
+	private static double[] readDoubles(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length == -1) {
+			return null;
+		}
+		double[] xs = new double[length];
+		for (int i = 0; i < length; i++) {
+			xs[i] = in.readDouble();
+		}
+		return xs;
+	}
+
+	private static void writeMatrix(DataOutputStream out, double[][] xs) throws IOException {
+		out.writeInt(xs.length);
+		for (double[] row : xs) {
+			writeDoubles(out, row);
+		}
+	}
+
+	private static double[][] readMatrix(DataInputStream in) throws IOException {
+		double[][] xs = new double[in.readInt()][];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = readDoubles(in);
+		}
+		return xs;
+	}
+}
@@ -0,0 +1,191 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.PopulationArchive;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class GenotypeCodecTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"allowMultipleFunctions:true", "recurrency:true", "mmdRate:0.1" });
+		MMNEAT.loadClasses();
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.genotype = new TWEANNGenotype(5, 3, 0);
+		EvolutionaryHistory.initArchetype(0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	private static Genotype<?> roundTrip(Genotype<?> g) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GenotypeCodec.write(new DataOutputStream(bytes), g);
+		return GenotypeCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	private static TWEANNGenotype mutatedTWEANN() {
+		TWEANNGenotype tg = new TWEANNGenotype(5, 3, 0);
+		for (int i = 0; i < 20; i++) {
+			tg.mutate();
+		}
+		tg.moduleDuplication();
+		return tg;
+	}
+
+	private static void assertSameTWEANN(TWEANNGenotype expected, TWEANNGenotype actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.archetypeIndex, actual.archetypeIndex);
+		assertEquals(expected.numIn, actual.numIn);
+		assertEquals(expected.numOut, actual.numOut);
+		assertEquals(expected.numModules, actual.numModules);
+		assertEquals(expected.neuronsPerModule, actual.neuronsPerModule);
+		assertArrayEquals(expected.moduleUsage, actual.moduleUsage);
+		assertEquals(expected.nodes.size(), actual.nodes.size());
+		for (int i = 0; i < expected.nodes.size(); i++) {
+			NodeGene e = expected.nodes.get(i);
+			NodeGene a = actual.nodes.get(i);
+			assertEquals(e.innovation, a.innovation);
+			assertEquals(e.ftype, a.ftype);
+			assertEquals(e.ntype, a.ntype);
+			assertEquals(e.frozen, a.frozen);
+		}
+		assertEquals(expected.links.size(), actual.links.size());
+		for (int i = 0; i < expected.links.size(); i++) {
+			LinkGene e = expected.links.get(i);
+			LinkGene a = actual.links.get(i);
+			assertEquals(e.innovation, a.innovation);
+			assertEquals(e.sourceInnovation, a.sourceInnovation);
+			assertEquals(e.targetInnovation, a.targetInnovation);
+			assertEquals(e.weight, a.weight, 0.0);
+			assertEquals(e.active, a.active);
+			assertEquals(e.recurrent, a.recurrent);
+			assertEquals(e.frozen, a.frozen);
+		}
+	}
+
+	/**
+	 * Decoded TWEANNs have the same genes and produce the same outputs, and
+	 * decoding does not use up genotype ids.
+	 */
+	@Test
+	public void test_TWEANN() throws IOException {
+		TWEANNGenotype tg = mutatedTWEANN();
+		long nextId = EvolutionaryHistory.largestUnusedGenotypeId;
+		TWEANNGenotype copy = (TWEANNGenotype) roundTrip(tg);
+		assertEquals(nextId, EvolutionaryHistory.largestUnusedGenotypeId);
+		assertSameTWEANN(tg, copy);
+		TWEANN original = tg.getPhenotype();
+		TWEANN decoded = copy.getPhenotype();
+		for (int step = 0; step < 20; step++) {
+			double[] inputs = RandomNumbers.randomArray(5);
+			assertArrayEquals(original.process(inputs), decoded.process(inputs), 0.0);
+		}
+	}
+
+	@Test
+	public void test_HyperNEATCPPN() throws IOException {
+		HyperNEATCPPNGenotype cppn = new HyperNEATCPPNGenotype(5, 3, 0);
+		cppn.mutate();
+		HyperNEATCPPNGenotype copy = (HyperNEATCPPNGenotype) roundTrip(cppn);
+		assertEquals(HyperNEATCPPNGenotype.class, copy.getClass());
+		assertSameTWEANN(cppn, copy);
+		assertEquals(cppn.innovationID, copy.innovationID);
+	}
+
+	@Test
+	public void test_MLP() throws IOException {
+		MLPGenotype mlp = new MLPGenotype(4, 3, 2);
+		MLPGenotype copy = (MLPGenotype) roundTrip(mlp);
+		assertEquals(mlp.getId(), copy.getId());
+		double[] inputs = RandomNumbers.randomArray(4);
+		assertArrayEquals(mlp.getPhenotype().process(inputs), copy.getPhenotype().process(inputs), 0.0);
+	}
+
+	@Test
+	public void test_realValued() throws IOException {
+		RealValuedGenotype rv = new RealValuedGenotype(6);
+		RealValuedGenotype copy = (RealValuedGenotype) roundTrip(rv);
+		assertEquals(rv.getId(), copy.getId());
+		assertEquals(rv.getPhenotype(), copy.getPhenotype());
+
+		BoundedRealValuedGenotype brv = new BoundedRealValuedGenotype(new double[] { -1, 0, 2 }, new double[] { 1, 5, 3 });
+		BoundedRealValuedGenotype bcopy = (BoundedRealValuedGenotype) roundTrip(brv);
+		assertEquals(brv.getId(), bcopy.getId());
+		assertEquals(brv.getPhenotype(), bcopy.getPhenotype());
+		assertArrayEquals(brv.lower, bcopy.lower, 0.0);
+		assertArrayEquals(brv.upper, bcopy.upper, 0.0);
+	}
+
+	/**
+	 * Copies have the same structure despite new ids and module usage, but
+	 * a structural mutation changes it.
+	 */
+	@Test
+	public void test_structure() {
+		TWEANNGenotype tg = mutatedTWEANN();
+		TWEANNGenotype copy = (TWEANNGenotype) tg.copy();
+		copy.moduleUsage = new int[copy.moduleUsage.length];
+		copy.moduleUsage[0] = 7;
+		assertTrue(tg.getId() != copy.getId());
+		assertArrayEquals(GenotypeCodec.structure(tg), GenotypeCodec.structure(copy));
+		// Always adds a node, unlike mutate, which can leave the genotype as
+		// it was
+		copy.spliceMutation();
+		assertFalse(Arrays.equals(GenotypeCodec.structure(tg), GenotypeCodec.structure(copy)));
+
+		RealValuedGenotype rv = new RealValuedGenotype(6);
+		assertArrayEquals(GenotypeCodec.structure(rv), GenotypeCodec.structure(rv.copy()));
+	}
+
+	/**
+	 * Whole populations come back in order, and single genotypes can be
+	 * loaded by id.
+	 */
+	@Test
+	public void test_archive() throws IOException {
+		ArrayList<Genotype<TWEANN>> population = new ArrayList<Genotype<TWEANN>>();
+		for (int i = 0; i < 5; i++) {
+			population.add(mutatedTWEANN());
+		}
+		assertTrue(PopulationArchive.canSave(population));
+		File file = File.createTempFile("population", PopulationArchive.EXTENSION);
+		file.deleteOnExit();
+		PopulationArchive.save(population, file.getPath(), false);
+
+		ArrayList<Genotype<TWEANN>> loaded = PopulationArchive.load(file.getPath());
+		assertEquals(population.size(), loaded.size());
+		long[] ids = PopulationArchive.ids(file.getPath());
+		for (int i = 0; i < population.size(); i++) {
+			assertEquals(population.get(i).getId(), ids[i]);
+			assertSameTWEANN((TWEANNGenotype) population.get(i), (TWEANNGenotype) loaded.get(i));
+		}
+		Genotype<TWEANN> third = PopulationArchive.load(file.getPath(), ids[2]);
+		assertSameTWEANN((TWEANNGenotype) population.get(2), (TWEANNGenotype) third);
+		assertNull(PopulationArchive.load(file.getPath(), -5));
+	}
+}
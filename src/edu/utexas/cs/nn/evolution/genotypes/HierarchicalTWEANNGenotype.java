@@ -43,7 +43,7 @@ public class HierarchicalTWEANNGenotype extends TWEANNGenotype {
 	@Override
 	public TWEANN getPhenotype() {
 		HierarchicalTWEANN result = new HierarchicalTWEANN(this);
-		this.moduleUsage = result.moduleUsage;
+		setModuleUsage(result.moduleUsage);
 		return result;
 	}
 
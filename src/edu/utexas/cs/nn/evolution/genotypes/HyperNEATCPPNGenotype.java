@@ -1,14 +1,20 @@
 package edu.utexas.cs.nn.evolution.genotypes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.networks.hyperneat.HyperNEATTask;
 import edu.utexas.cs.nn.networks.hyperneat.Substrate;
+import edu.utexas.cs.nn.networks.hyperneat.SubstrateCoordinateMapping;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.util2D.ILocated2D;
 import edu.utexas.cs.nn.util.util2D.Tuple2D;
@@ -23,6 +29,106 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 
 	private static final double BIAS = 1.0;// Necessary for most CPPN networks
 	public int innovationID = 0;// provides unique innovation numbers for links and genes
+	// Links of the most recent batched phenotype, reused until the CPPN or substrates change.
+	// Transient to avoid saving it with the genotype.
+	private transient volatile SubstrateLinks substrateLinks = null;
+
+	/**
+	 * Links created by createNodeLinksBatched, along with everything they were
+	 * derived from: the CPPN genes, the substrates and connections, and the
+	 * expression threshold.
+	 */
+	private static final class SubstrateLinks {
+		final long[] key;
+		final SubstrateCoordinateMapping mapping;
+		final ArrayList<LinkGene> links;
+
+		SubstrateLinks(long[] key, SubstrateCoordinateMapping mapping, ArrayList<LinkGene> links) {
+			this.key = key;
+			this.mapping = mapping;
+			this.links = links;
+		}
+	}
+
+	/**
+	 * Growable list of the expressed links of one connection between
+	 * substrates. Each link is stored as the index of its neuron pair in the
+	 * order loopThroughLinks visits them, along with its weight.
+	 */
+	private static final class ExpressedLinks {
+		int size = 0;
+		int[] pairs = new int[16];
+		double[] weights = new double[16];
+
+		void add(int pair, double weight) {
+			if (size == pairs.length) {
+				pairs = Arrays.copyOf(pairs, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			pairs[size] = pair;
+			weights[size] = weight;
+			size++;
+		}
+	}
+
+	/**
+	 * Queries a compiled copy of the CPPN once for every pair of neurons in
+	 * two substrates of the given sizes. The CPPN inputs only depend on the
+	 * sizes of the substrates, so all connections between substrates of
+	 * these sizes are handled by the same pass, each one reading its own CPPN
+	 * output.
+	 */
+	private final class SubstrateQueries implements Callable<ExpressedLinks[]> {
+		final int width1, height1, width2, height2;
+		final ArrayList<Integer> outputIndices = new ArrayList<Integer>();
+
+		SubstrateQueries(int width1, int height1, int width2, int height2) {
+			this.width1 = width1;
+			this.height1 = height1;
+			this.width2 = width2;
+			this.height2 = height2;
+		}
+
+		@Override
+		public ExpressedLinks[] call() {
+			CompiledTWEANN cppn = new CompiledTWEANN(HyperNEATCPPNGenotype.this);
+			double[] x1 = new double[width1 * height1];
+			double[] y1 = new double[x1.length];
+			scaledCoordinates(width1, height1, x1, y1);
+			double[] x2 = new double[width2 * height2];
+			double[] y2 = new double[x2.length];
+			scaledCoordinates(width2, height2, x2, y2);
+
+			int[] outputIndex = new int[outputIndices.size()];
+			int numOutputs = 0;
+			ExpressedLinks[] result = new ExpressedLinks[outputIndex.length];
+			for (int k = 0; k < outputIndex.length; k++) {
+				outputIndex[k] = outputIndices.get(k);
+				numOutputs = Math.max(numOutputs, outputIndex[k] + 1);
+				result[k] = new ExpressedLinks();
+			}
+			double[] inputs = new double[] { 0, 0, 0, 0, BIAS };
+			double[] outputs = new double[numOutputs];
+			int pair = 0;
+			for (int source = 0; source < x1.length; source++) {
+				inputs[0] = x1[source];
+				inputs[1] = y1[source];
+				for (int target = 0; target < x2.length; target++) {
+					inputs[2] = x2[target];
+					inputs[3] = y2[target];
+					cppn.processSingleModule(inputs, outputs);
+					for (int k = 0; k < outputIndex.length; k++) {
+						double output = outputs[outputIndex[k]];
+						if (Math.abs(output) > CommonConstants.linkExpressionThreshold) {
+							result[k].add(pair, calculateWeight(output));
+						}
+					}
+					pair++;
+				}
+			}
+			return result;
+		}
+	}
 
 	/**
 	 * Default constructor
@@ -77,14 +183,29 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 	 * Uses another CPPN to create a TWEANN controller for the domain. This
 	 * created TWEANN is unique only to the instance in which it is used. In a
 	 * sense, it's a one-and-done network, which explains the lax use of
-	 * innovation numbers
+	 * innovation numbers. With the phenotype cache, the substrate network is
+	 * only created once, and copies of it are shared.
 	 *
 	 * @return TWEANN generated by CPPN
 	 */
 	@Override
 	public TWEANN getPhenotype() {
+		if (CommonConstants.phenotypeCache) {
+			return PhenotypeCache.phenotype(this);
+		}
+		return networkGenotype().getPhenotype();
+	}
+
+	/**
+	 * Queries the CPPN to create the genotype of the substrate network.
+	 * Synchronized because innovationID numbers the substrate genes as they
+	 * are created, and parallel trials can decode the same genotype at once.
+	 *
+	 * @return genotype of the TWEANN generated by the CPPN
+	 */
+	@Override
+	public synchronized TWEANNGenotype networkGenotype() {
 		//long time = System.currentTimeMillis(); // for timing
-		TWEANN cppn = super.getPhenotype();// CPPN used to create TWEANN network
 		HyperNEATTask hnt = (HyperNEATTask) MMNEAT.task;// Cast task to HyperNEATTask
 		List<Substrate> subs = hnt.getSubstrateInformation();// extract substrate information from domain
 		List<Pair<String, String>> connections = hnt.getSubstrateConnectivity();// extract substrate connectivity from domain
@@ -101,7 +222,13 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 			substrateIndexMapping.put(subs.get(i).getName(), i);
 		}
 		// loop through connections and add links, based on contents of subs
-		newLinks = createNodeLinks(cppn, connections, subs, substrateIndexMapping);
+		if (CommonConstants.batchedSubstrates && feedForwardCPPN()) {
+			newLinks = createNodeLinksBatched(connections, subs, substrateIndexMapping);
+		} else {
+			TWEANN cppn = decode();// CPPN used to create TWEANN network
+			setModuleUsage(cppn.moduleUsage);
+			newLinks = createNodeLinks(cppn, connections, subs, substrateIndexMapping);
+		}
 
 		// Figure out number of output neurons
 		for (Substrate s : subs) {
@@ -118,7 +245,7 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 		// problems, since the archetype is only needed for mutations and crossover.
 		TWEANNGenotype tg = new TWEANNGenotype(newNodes,newLinks, phenotypeOutputs, false, false, -1);
 		//System.out.println("phenotype: " + (System.currentTimeMillis() - time)); // for timing
-		return tg.getPhenotype();
+		return tg;
 	}
 
 	/**
@@ -269,6 +396,187 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 	//		return X1*height1*height2*width2 + Y1*height2*width2 + X2*height2 + Y2;
 	//	}
 
+	/**
+	 * Same as createNodeLinks, but faster. The CPPN is compiled, and queried
+	 * with one reused input array. Connections between substrates of the
+	 * same sizes share a single pass over all neuron pairs, and passes for
+	 * different sizes run in parallel. Finally, the result is remembered, and
+	 * reused as long as the CPPN, substrates and connections are unchanged.
+	 *
+	 * The links are identical to those of createNodeLinks, in the same order
+	 * and with the same innovation numbers, but only for a CPPN whose outputs
+	 * do not depend on previous inputs. See feedForwardCPPN.
+	 *
+	 * @param connections
+	 *            list of different connections between substrates
+	 * @param subs
+	 *            list of substrates in question
+	 * @param sIMap
+	 *            hashmap that maps the substrate in question to its index in
+	 *            the substrate list
+	 *
+	 * @return array list containing all the links between substrates
+	 */
+	public ArrayList<LinkGene> createNodeLinksBatched(List<Pair<String, String>> connections, List<Substrate> subs, HashMap<String, Integer> sIMap) {
+		int[] sourceIndex = new int[connections.size()];
+		int[] targetIndex = new int[connections.size()];
+		for (int i = 0; i < connections.size(); i++) {
+			sourceIndex[i] = sIMap.get(connections.get(i).t1);
+			targetIndex[i] = sIMap.get(connections.get(i).t2);
+		}
+		long[] key = substrateLinksKey(subs, sourceIndex, targetIndex);
+		SubstrateLinks cached = substrateLinks;
+		if (cached == null || cached.mapping != MMNEAT.substrateMapping || !Arrays.equals(cached.key, key)) {
+			cached = new SubstrateLinks(key, MMNEAT.substrateMapping, expressLinks(subs, sourceIndex, targetIndex, innovationID));
+			substrateLinks = cached;
+		}
+		innovationID += cached.links.size();
+		return new ArrayList<LinkGene>(cached.links);
+	}
+
+	/**
+	 * Query the CPPN for every connection, and create the expressed links
+	 * in the order of loopThroughLinks
+	 */
+	private ArrayList<LinkGene> expressLinks(List<Substrate> subs, int[] sourceIndex, int[] targetIndex, long firstInnovation) {
+		// One pass for each distinct combination of substrate sizes
+		HashMap<List<Integer>, Integer> passOfSizes = new HashMap<List<Integer>, Integer>();
+		ArrayList<SubstrateQueries> jobs = new ArrayList<SubstrateQueries>();
+		int[] pass = new int[sourceIndex.length];
+		int[] slot = new int[sourceIndex.length];
+		for (int i = 0; i < sourceIndex.length; i++) {
+			Substrate s1 = subs.get(sourceIndex[i]);
+			Substrate s2 = subs.get(targetIndex[i]);
+			List<Integer> sizes = Arrays.asList(s1.size.t1, s1.size.t2, s2.size.t1, s2.size.t2);
+			if (!passOfSizes.containsKey(sizes)) {
+				passOfSizes.put(sizes, jobs.size());
+				jobs.add(new SubstrateQueries(s1.size.t1, s1.size.t2, s2.size.t1, s2.size.t2));
+			}
+			pass[i] = passOfSizes.get(sizes);
+			// The output used by connection i is also i
+			slot[i] = jobs.get(pass[i]).outputIndices.size();
+			jobs.get(pass[i]).outputIndices.add(i);
+		}
+
+		ArrayList<ExpressedLinks[]> expressed = new ArrayList<ExpressedLinks[]>(jobs.size());
+		EvaluationScheduler scheduler = EvaluationScheduler.getScheduler();
+		if (jobs.size() > 1 && scheduler.getThreads() > 1) {
+			try {
+				expressed = scheduler.invokeAll(jobs);
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.out.println("Failure querying CPPN for substrate links");
+				System.exit(1);
+			}
+		} else {
+			for (SubstrateQueries job : jobs) {
+				expressed.add(job.call());
+			}
+		}
+
+		// Innovation numbers of the first neuron in each substrate
+		long[] firstNeuron = new long[subs.size()];
+		for (int i = 1; i < subs.size(); i++) {
+			Substrate s = subs.get(i - 1);
+			firstNeuron[i] = firstNeuron[i - 1] + s.size.t1 * s.size.t2;
+		}
+		ArrayList<LinkGene> result = new ArrayList<LinkGene>();
+		long innovation = firstInnovation;
+		for (int i = 0; i < sourceIndex.length; i++) {
+			Substrate s1 = subs.get(sourceIndex[i]);
+			Substrate s2 = subs.get(targetIndex[i]);
+			int targetNeurons = s2.size.t1 * s2.size.t2;
+			ExpressedLinks links = expressed.get(pass[i])[slot[i]];
+			for (int k = 0; k < links.size; k++) {
+				// Neurons are visited with x as the outer loop, as in loopThroughLinks
+				int source = links.pairs[k] / targetNeurons;
+				int target = links.pairs[k] % targetNeurons;
+				int X1 = source / s1.size.t2;
+				int Y1 = source % s1.size.t2;
+				int X2 = target / s2.size.t2;
+				int Y2 = target % s2.size.t2;
+				result.add(new LinkGene(
+						firstNeuron[sourceIndex[i]] + (s1.size.t1 * Y1) + X1,
+						firstNeuron[targetIndex[i]] + (s2.size.t1 * Y2) + X2,
+						links.weights[k],
+						innovation++, false));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * CPPN inputs for every neuron of a substrate, in the order loopThroughLinks
+	 * visits them
+	 */
+	private static void scaledCoordinates(int width, int height, double[] xs, double[] ys) {
+		int n = 0;
+		for (int X = 0; X < width; X++) {
+			for (int Y = 0; Y < height; Y++) {
+				ILocated2D scaled = MMNEAT.substrateMapping.transformCoordinates(new Tuple2D(X, Y), width, height);
+				xs[n] = scaled.getX();
+				ys[n] = scaled.getY();
+				n++;
+			}
+		}
+	}
+
+	/**
+	 * Everything that the links of createNodeLinksBatched depend on, except
+	 * the coordinate mapping: the CPPN genes, the substrate sizes, the
+	 * connections and the expression threshold.
+	 */
+	private long[] substrateLinksKey(List<Substrate> subs, int[] sourceIndex, int[] targetIndex) {
+		long[] key = new long[2 + 2 * subs.size() + 2 * sourceIndex.length + 3 * nodes.size() + 5 * links.size()];
+		int k = 0;
+		key[k++] = Double.doubleToLongBits(CommonConstants.linkExpressionThreshold);
+		key[k++] = innovationID;
+		for (Substrate s : subs) {
+			key[k++] = s.size.t1;
+			key[k++] = s.size.t2;
+		}
+		for (int i = 0; i < sourceIndex.length; i++) {
+			key[k++] = sourceIndex[i];
+			key[k++] = targetIndex[i];
+		}
+		for (NodeGene ng : nodes) {
+			key[k++] = ng.innovation;
+			key[k++] = ng.ftype;
+			key[k++] = ng.ntype;
+		}
+		for (LinkGene lg : links) {
+			key[k++] = lg.sourceInnovation;
+			key[k++] = lg.targetInnovation;
+			key[k++] = lg.innovation;
+			key[k++] = lg.active ? 1 : 0;
+			key[k++] = Double.doubleToLongBits(lg.weight);
+		}
+		return key;
+	}
+
+	/**
+	 * Whether the outputs of the CPPN only depend on its current inputs, which
+	 * is true when it has a single module and no recurrent links. Only then can
+	 * its queries be reordered, or skipped when repeated.
+	 *
+	 * @return true if the CPPN can be used by createNodeLinksBatched
+	 */
+	public boolean feedForwardCPPN() {
+		if (numModules != 1) {
+			return false;
+		}
+		HashMap<Long, Integer> position = new HashMap<Long, Integer>(nodes.size() * 2);
+		for (int i = 0; i < nodes.size(); i++) {
+			position.put(nodes.get(i).innovation, i);
+		}
+		for (LinkGene lg : links) {
+			if (lg.active && position.get(lg.targetInnovation) <= position.get(lg.sourceInnovation)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * returns the innovation id of the node in question
 	 *
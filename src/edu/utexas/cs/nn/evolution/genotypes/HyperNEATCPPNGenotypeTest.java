@@ -11,9 +11,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
 import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.networks.hyperneat.CenteredSubstrateMapping;
+import edu.utexas.cs.nn.networks.hyperneat.HyperNEATTask;
 import edu.utexas.cs.nn.networks.hyperneat.Substrate;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
@@ -155,6 +158,48 @@ public class HyperNEATCPPNGenotypeTest {
 		hcppn.loopThroughLinks(newLinks, cppn, indexOfTest, subs.get(sub1Index), subs.get(sub2Index), sub1Index, sub2Index, subs);
 	}
 
+	/**
+	 * The batched links are exactly the links of createNodeLinks, and are
+	 * only reused while the CPPN is unchanged
+	 */
+	@Test
+	public void testCreateNodeLinksBatched() {
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.genotype = new TWEANNGenotype(HyperNEATTask.NUM_CPPN_INPUTS, 3, 0);
+		EvolutionaryHistory.initArchetype(0);
+		MMNEAT.substrateMapping = new CenteredSubstrateMapping();
+		// Two connections between substrates of the same sizes
+		subs.add(new Substrate(new Pair<Integer, Integer>(3, 4), 0, new Triple<Integer, Integer, Integer>(2, 0, 0), "I_2"));
+		sIMap.put("I_2", 2);
+		connections.add(new Pair<String, String>("I_2", "I_0"));
+		connections.add(new Pair<String, String>("I_1", "I_0"));
+		HyperNEATCPPNGenotype genotype = new HyperNEATCPPNGenotype(HyperNEATTask.NUM_CPPN_INPUTS, 3, 0);
+		assertTrue(genotype.feedForwardCPPN());
+
+		for (int change = 0; change < 2; change++) {
+			genotype.innovationID = 7;
+			ArrayList<LinkGene> expected = genotype.createNodeLinks(new TWEANN(genotype), connections, subs, sIMap);
+			int expectedInnovationID = genotype.innovationID;
+			assertFalse(expected.isEmpty());
+			// Second time comes from the cache
+			for (int repeat = 0; repeat < 2; repeat++) {
+				genotype.innovationID = 7;
+				ArrayList<LinkGene> actual = genotype.createNodeLinksBatched(connections, subs, sIMap);
+				assertEquals(expectedInnovationID, genotype.innovationID);
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expected.get(i).sourceInnovation, actual.get(i).sourceInnovation);
+					assertEquals(expected.get(i).targetInnovation, actual.get(i).targetInnovation);
+					assertEquals(expected.get(i).innovation, actual.get(i).innovation);
+					assertEquals(expected.get(i).weight, actual.get(i).weight, 0.0);
+				}
+			}
+			genotype.perturbLink(0, 1.0);
+		}
+		MMNEAT.substrateMapping = null;
+	}
+
 	/**
 	 * tests link expression calculation works
 	 */
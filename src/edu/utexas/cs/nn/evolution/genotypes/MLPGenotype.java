@@ -13,7 +13,7 @@ import edu.utexas.cs.nn.parameters.Parameters;
  */
 public class MLPGenotype implements Genotype<MLP> {
 
-	private long id = EvolutionaryHistory.nextGenotypeId();
+	long id = EvolutionaryHistory.nextGenotypeId();
 	public double[][] firstConnectionLayer; // weight from each input to each
 											// hidden node
 	public double[][] secondConnectionLayer; // weight from each hidden node to
@@ -16,7 +16,7 @@ import java.util.ArrayList;
 public abstract class NumericArrayGenotype<T> implements Genotype<ArrayList<T>> {
 
 	ArrayList<T> genes;
-	private long id = EvolutionaryHistory.nextGenotypeId();
+	long id = EvolutionaryHistory.nextGenotypeId();
 
 	@SuppressWarnings("unchecked")
 	public NumericArrayGenotype(ArrayList<T> genes) {
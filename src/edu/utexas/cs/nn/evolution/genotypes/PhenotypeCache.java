@@ -0,0 +1,96 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
+import java.lang.ref.SoftReference;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoded networks of TWEANNGenotypes, by genotype id. Some tasks ask a
+ * genotype for its phenotype many times per generation: once for each trial,
+ * team or direction checked. With this cache each genotype is only decoded
+ * (and for HyperNEAT, only queried for its substrate) once, and every request
+ * after that gets a cheap copy that shares the topology and weights of the
+ * decoded network but has its own activation state, so the copies can be used
+ * by different threads or evaluations at the same time.
+ *
+ * A cached network is dropped when its genotype is mutated or crossed over,
+ * and networks of genotypes no longer being evaluated are dropped at the
+ * start of each batch of evaluations. Networks can also be reclaimed when
+ * memory runs low, in which case they are simply decoded again. Cached
+ * networks are always CompiledTWEANNs, since the Node objects of a plain
+ * TWEANN hold activation state and cannot be shared. They give the same
+ * outputs.
+ *
+ * Decoding a HyperNEAT genotype can draw from the shared random generator,
+ * since the CPPN breaks ties between its modes randomly, and creates a new
+ * genotype for the substrate network. Skipping repeated decodes therefore
+ * leaves the generator and the next genotype id in a different state, so a
+ * run with the cache follows a different (but equally valid) course than one
+ * without it, even though the networks themselves are the same.
+ *
+ * @author Jacob Schrum
+ */
+public class PhenotypeCache {
+
+	// Substrate networks of HyperNEAT can be huge, so the garbage collector
+	// is allowed to reclaim cached networks when memory runs low
+	private static final ConcurrentHashMap<Long, SoftReference<CompiledTWEANN>> networks = new ConcurrentHashMap<Long, SoftReference<CompiledTWEANN>>();
+
+	/**
+	 * Network for a genotype, decoding it only if it is not cached
+	 *
+	 * @param g
+	 *            genotype to decode
+	 * @return new copy of the decoded network, with fresh activation state
+	 */
+	public static CompiledTWEANN phenotype(TWEANNGenotype g) {
+		long id = g.getId();
+		SoftReference<CompiledTWEANN> cached = networks.get(id);
+		CompiledTWEANN network = cached == null ? null : cached.get();
+		if (network == null) {
+			// Two threads may both decode, but the network decoded last is kept
+			network = new CompiledTWEANN(g.networkGenotype());
+			networks.put(id, new SoftReference<CompiledTWEANN>(network));
+		}
+		return new CompiledTWEANN(network);
+	}
+
+	/**
+	 * Drop the network of a genotype that has changed
+	 *
+	 * @param id
+	 *            genotype id
+	 */
+	public static void invalidate(long id) {
+		networks.remove(id);
+	}
+
+	/**
+	 * Drop the networks of all genotypes that are not in the list, which is
+	 * normally the population about to be evaluated.
+	 *
+	 * @param genotypes
+	 *            genotypes whose networks can be kept
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void retain(List<? extends Genotype> genotypes) {
+		HashSet<Long> ids = new HashSet<Long>(genotypes.size() * 2);
+		for (Genotype g : genotypes) {
+			ids.add(g.getId());
+		}
+		networks.keySet().retainAll(ids);
+	}
+
+	public static void clear() {
+		networks.clear();
+	}
+
+	/**
+	 * @return number of networks cached
+	 */
+	public static int size() {
+		return networks.size();
+	}
+}
@@ -0,0 +1,111 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.nsga2.NSGA2;
+import edu.utexas.cs.nn.evolution.nsga2.NSGA2Score;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark comparing TWEANN genotype copies made through the phenotype with
+ * copies made directly from the gene lists. Populations are grown by mutation
+ * to several sizes. For each, the time to copy every member is measured, and
+ * both kinds of copy must be identical, and then offspring generation by
+ * NSGA2 (tournament selection, copy and mutation) is timed with each kind of
+ * copy. Throughput is in genotypes per millisecond.
+ *
+ * Usage: TWEANNCopyBenchmark [repetitions] [population size]
+ *
+ * @author Jacob Schrum
+ */
+public class TWEANNCopyBenchmark {
+
+	private static final int[] MUTATIONS = new int[] { 10, 50, 200 };
+
+	public static void main(String[] args) {
+		int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int popSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "recurrency:true" });
+		MMNEAT.loadClasses();
+		TWEANNGenotype base = new TWEANNGenotype(20, 4, 0);
+		MMNEAT.genotype = base.copy();
+		EvolutionaryHistory.initArchetype(0);
+
+		System.out.println("mutations\tnodes\tlinks\tcopy:phenotype\tcopy:direct\tspeedup\toffspring:phenotype\toffspring:direct\tspeedup");
+		for (int m : MUTATIONS) {
+			ArrayList<TWEANNGenotype> population = new ArrayList<TWEANNGenotype>(popSize);
+			long nodes = 0, links = 0;
+			for (int i = 0; i < popSize; i++) {
+				TWEANNGenotype tg = (TWEANNGenotype) base.copy();
+				for (int j = 0; j < m; j++) {
+					tg.mutate();
+				}
+				population.add(tg);
+				nodes += tg.nodes.size();
+				links += tg.links.size();
+			}
+			for (TWEANNGenotype tg : population) {
+				CommonConstants.directGenotypeCopy = false;
+				TWEANNGenotype expected = (TWEANNGenotype) tg.copy();
+				CommonConstants.directGenotypeCopy = true;
+				TWEANNGenotype direct = (TWEANNGenotype) tg.copy();
+				// Only the genotype ids differ
+				if (!expected.nodes.toString().equals(direct.nodes.toString())
+						|| !expected.links.toString().equals(direct.links.toString())
+						|| !Arrays.equals(expected.moduleUsage, direct.moduleUsage)
+						|| !Arrays.equals(expected.moduleAssociations, direct.moduleAssociations)) {
+					System.out.println("Copies differ:\n" + expected + "\n" + direct);
+					System.exit(1);
+				}
+			}
+			double copyOld = copyThroughput(population, false, repetitions);
+			double copyNew = copyThroughput(population, true, repetitions);
+			double offspringOld = offspringThroughput(population, false, repetitions);
+			double offspringNew = offspringThroughput(population, true, repetitions);
+			System.out.println(m + "\t\t" + (nodes / popSize) + "\t" + (links / popSize) + "\t"
+					+ String.format("%.1f", copyOld) + "\t\t" + String.format("%.1f", copyNew) + "\t\t"
+					+ String.format("%.1f", copyNew / copyOld) + "\t" + String.format("%.1f", offspringOld) + "\t\t\t"
+					+ String.format("%.1f", offspringNew) + "\t\t\t" + String.format("%.1f", offspringNew / offspringOld));
+		}
+	}
+
+	private static double copyThroughput(ArrayList<TWEANNGenotype> population, boolean direct, int repetitions) {
+		CommonConstants.directGenotypeCopy = direct;
+		long start = 0;
+		// First half of the repetitions is warm up
+		for (int r = 0; r < 2 * repetitions; r++) {
+			if (r == repetitions) {
+				start = System.nanoTime();
+			}
+			for (TWEANNGenotype tg : population) {
+				tg.copy();
+			}
+		}
+		return repetitions * population.size() / ((System.nanoTime() - start) / 1000000.0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static double offspringThroughput(ArrayList<TWEANNGenotype> population, boolean direct, int repetitions) {
+		CommonConstants.directGenotypeCopy = direct;
+		NSGA2Score<TWEANN>[] scores = (NSGA2Score<TWEANN>[]) new NSGA2Score<?>[population.size()];
+		for (int i = 0; i < scores.length; i++) {
+			// Distinct scores, so the selection does not depend on ties
+			scores[i] = new NSGA2Score<TWEANN>(population.get(i), new double[] { i, scores.length - i }, null, new double[0]);
+		}
+		long start = 0;
+		for (int r = 0; r < 2 * repetitions; r++) {
+			if (r == repetitions) {
+				start = System.nanoTime();
+			}
+			RandomNumbers.randomGenerator = new Random(r);
+			NSGA2.generateNSGA2Children(scores.length, scores, 0, false, 0);
+		}
+		return repetitions * population.size() / ((System.nanoTime() - start) / 1000000.0);
+	}
+}
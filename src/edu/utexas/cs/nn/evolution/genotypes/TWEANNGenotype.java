@@ -7,6 +7,7 @@ import edu.utexas.cs.nn.evolution.nsga2.bd.characterizations.GeneralNetworkChara
 import edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition.TWEANNModulesNicheDefinition;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.networks.ActivationFunctions;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
@@ -278,8 +279,25 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	// multitask mode
 	public int[] moduleAssociations;
 	protected int[] moduleUsage;
-	private long id = EvolutionaryHistory.nextGenotypeId();
+	long id = EvolutionaryHistory.nextGenotypeId();
 	public int archetypeIndex;
+	/**
+	 * Lazily rebuilt lookup tables from node innovation to index in nodes, and
+	 * from link source and target innovations to index in links. A table is
+	 * only used while its list is the same object with the same size as when
+	 * the table was built, and changes made within this class discard the
+	 * tables explicitly, so they stay consistent across mutations. Indices
+	 * found are checked against the genes anyway, in case a list was reordered
+	 * in place (as crossover does when sorting links), and innovations held by
+	 * several genes are always found by a linear search.
+	 */
+	private static final int DUPLICATE_GENE = -1;
+	private transient HashMap<Long, Integer> nodeIndices = null;
+	private transient ArrayList<NodeGene> indexedNodes = null;
+	private transient int indexedNodesSize;
+	private transient HashMap<Long, HashMap<Long, Integer>> linkIndices = null;
+	private transient ArrayList<LinkGene> indexedLinks = null;
+	private transient int indexedLinksSize;
 
 	/**
 	 * Copy constructor
@@ -571,6 +589,8 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 		}
 
 		EvolutionaryHistory.logMutationData(sb.toString());
+		// Module distances may have decoded the genotype part way through
+		PhenotypeCache.invalidate(getId());
 	}
 
 	/**
@@ -663,6 +683,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	 * @return The link deleted
 	 */
 	public LinkGene deleteLink(int index) {
+		geneListsChanged();
 		return links.remove(index);
 	}
 
@@ -739,6 +760,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 			}
 		}
 		nodes.remove(nodeNum);
+		geneListsChanged();
 		numOut--;
 	}
 
@@ -846,6 +868,10 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	@Override
 	public void setModuleUsage(int[] usage) {
 		moduleUsage = usage;
+		UsageCapture capture = usageCaptures.get();
+		if (capture != null && capture.genotype == this) {
+			capture.usage = usage;
+		}
 	}
 
 	@Override
@@ -853,6 +879,48 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 		return moduleUsage;
 	}
 
+	/**
+	 * Genotype whose module usage the current thread is capturing, and the
+	 * usage most recently assigned to it on this thread
+	 */
+	private static class UsageCapture {
+
+		final TWEANNGenotype genotype;
+		int[] usage = null;
+
+		UsageCapture(TWEANNGenotype genotype) {
+			this.genotype = genotype;
+		}
+	}
+
+	private static final ThreadLocal<UsageCapture> usageCaptures = new ThreadLocal<UsageCapture>();
+
+	/**
+	 * Start remembering the module usage assigned to the genotype on the
+	 * current thread, whether by decoding a network or by the task. When
+	 * several trials of one genotype run in parallel, each replaces the
+	 * module usage of the genotype with its own, so the field itself says
+	 * nothing about which trial it came from.
+	 *
+	 * @param g
+	 *            genotype being evaluated on this thread
+	 */
+	public static void captureModuleUsage(TWEANNGenotype g) {
+		usageCaptures.set(new UsageCapture(g));
+	}
+
+	/**
+	 * Stop capturing on the current thread
+	 *
+	 * @return module usage last assigned on this thread since
+	 *         captureModuleUsage, or null if none was assigned
+	 */
+	public static int[] capturedModuleUsage() {
+		UsageCapture capture = usageCaptures.get();
+		usageCaptures.remove();
+		return capture == null ? null : capture.usage;
+	}
+
 	/**
 	 * Returns LinkGene for newNode between nodes with the given linkInnovations
 	 * numbers
@@ -864,6 +932,24 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	 * @return = null on failure, LinkGene otherwise
 	 */
 	protected LinkGene getLinkBetween(long sourceInnovation, long targetInnovation) {
+		for (int attempt = 0; attempt < 2; attempt++) {
+			HashMap<Long, Integer> targets = linkIndices().get(sourceInnovation);
+			Integer index = targets == null ? null : targets.get(targetInnovation);
+			if (index == null) {
+				return null;
+			}
+			if (index == DUPLICATE_GENE) {
+				break;
+			}
+			if (index < links.size()) {
+				LinkGene l = links.get(index);
+				if (l.sourceInnovation == sourceInnovation && l.targetInnovation == targetInnovation) {
+					return l;
+				}
+			}
+			// Links were reordered in place, so rebuild the table
+			linkIndices = null;
+		}
 		for (LinkGene l : links) {
 			if (l.sourceInnovation == sourceInnovation && l.targetInnovation == targetInnovation) {
 				return l;
@@ -872,6 +958,59 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 		return null;
 	}
 
+	/**
+	 * Table from source innovation, to target innovation, to the index of the
+	 * link between them, or DUPLICATE_GENE if there are several, since the
+	 * first of these can change when links are reordered. Rebuilt if the links
+	 * have changed.
+	 *
+	 * @return map of link indices
+	 */
+	private HashMap<Long, HashMap<Long, Integer>> linkIndices() {
+		if (linkIndices == null || indexedLinks != links || indexedLinksSize != links.size()) {
+			linkIndices = new HashMap<Long, HashMap<Long, Integer>>(nodes.size() * 2);
+			for (int i = 0; i < links.size(); i++) {
+				LinkGene l = links.get(i);
+				HashMap<Long, Integer> targets = linkIndices.get(l.sourceInnovation);
+				if (targets == null) {
+					targets = new HashMap<Long, Integer>();
+					linkIndices.put(l.sourceInnovation, targets);
+				}
+				targets.put(l.targetInnovation, targets.containsKey(l.targetInnovation) ? DUPLICATE_GENE : i);
+			}
+			indexedLinks = links;
+			indexedLinksSize = links.size();
+		}
+		return linkIndices;
+	}
+
+	/**
+	 * Table from node innovation to the index of the node gene with it, or
+	 * DUPLICATE_GENE if there are several. Rebuilt if the nodes have changed.
+	 *
+	 * @return map of node indices
+	 */
+	private HashMap<Long, Integer> nodeIndices() {
+		if (nodeIndices == null || indexedNodes != nodes || indexedNodesSize != nodes.size()) {
+			nodeIndices = new HashMap<Long, Integer>(nodes.size() * 2);
+			for (int i = 0; i < nodes.size(); i++) {
+				long innovation = nodes.get(i).innovation;
+				nodeIndices.put(innovation, nodeIndices.containsKey(innovation) ? DUPLICATE_GENE : i);
+			}
+			indexedNodes = nodes;
+			indexedNodesSize = nodes.size();
+		}
+		return nodeIndices;
+	}
+
+	/**
+	 * Discard the lookup tables after nodes or links are added or removed
+	 */
+	private void geneListsChanged() {
+		nodeIndices = null;
+		linkIndices = null;
+	}
+
 	/**
 	 * default method that mutates links. Uses random link source and random
 	 * synaptic weight.
@@ -1003,6 +1142,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 			// System.out.println(nodeInnovation + "->" + sourceInnovation);
 			LinkGene lg = new LinkGene(sourceInnovation, targetInnovation, weight, innovation, target <= source);
 			links.add(lg);
+			geneListsChanged();
 		}
 	}
 
@@ -1062,6 +1202,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 		LinkGene lg = getLinkBetween(sourceInnovation, targetInnovation);
 		lg.active = CommonConstants.minimizeSpliceImpact;
 		nodes.add(Math.min(outputStartIndex(), Math.max(numIn, indexOfNodeInnovation(sourceInnovation) + 1)), ng);
+		geneListsChanged();
 		int index = EvolutionaryHistory.indexOfArchetypeInnovation(archetypeIndex, sourceInnovation);
 		// System.out.println("Innovation " + sourceInnovation + " is at index "
 		// + index);
@@ -1075,6 +1216,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 				indexOfNodeInnovation(targetInnovation) <= indexOfNodeInnovation(newNodeInnovation));
 		links.add(toNew);
 		links.add(fromNew);
+		geneListsChanged();
 	}
 
 	/**
@@ -1093,6 +1235,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 					linkInnovations.get(i), false);
 			links.add(toNew);
 		}
+		geneListsChanged();
 	}
 
 	/**
@@ -1163,6 +1306,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 			}
 		}
 		nodes.add(ng);
+		geneListsChanged();
 		numOut++;
 		EvolutionaryHistory.archetypeAdd(archetypeIndex, ng.clone(), "new output");
 		// EvolutionaryHistory.archetypeOut[archetypeIndex]++;
@@ -1178,6 +1322,18 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	 * @return Index in list where gene is located
 	 */
 	private int indexOfNodeInnovation(long innovation) {
+		for (int attempt = 0; attempt < 2; attempt++) {
+			Integer index = nodeIndices().get(innovation);
+			if (index != null && index == DUPLICATE_GENE) {
+				break;
+			}
+			if (index != null && index < nodes.size() && nodes.get(index).innovation == innovation) {
+				return index;
+			}
+			// Innovation numbers changed in place, so rebuild the table
+			nodeIndices = null;
+		}
+		// Reports the missing innovation
 		return indexOfGeneInnovation(innovation, nodes);
 	}
 
@@ -1210,6 +1366,9 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public Genotype<TWEANN> crossover(Genotype<TWEANN> g) {
+		// Crossover changes the genotypes involved
+		PhenotypeCache.invalidate(getId());
+		PhenotypeCache.invalidate(g.getId());
 		return MMNEAT.crossoverOperator.crossover(this, g);
 	}
 
@@ -1234,26 +1393,55 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 	}
 
 	/**
-	 * Generate and return phenotype TWEANN from genotype
+	 * Generate and return phenotype TWEANN from genotype. If the compiledTWEANN
+	 * parameter is set, the result executes over flat arrays, but still
+	 * produces the same outputs. If the phenotypeCache parameter is set, the
+	 * genotype is only decoded the first time, and the result is a compiled
+	 * copy of the cached network.
 	 *
 	 * @return executable TWEANN
 	 */
 	@Override
 	public TWEANN getPhenotype() {
-		TWEANN result = new TWEANN(this);
+		TWEANN result = CommonConstants.phenotypeCache ? PhenotypeCache.phenotype(this) : decode();
 		// This is the point where old parent module usage is finally erased
-		this.moduleUsage = result.moduleUsage;
+		setModuleUsage(result.moduleUsage);
 		return result;
 	}
 
+	/**
+	 * Build a new network from the genes, without the phenotype cache
+	 *
+	 * @return executable TWEANN
+	 */
+	protected TWEANN decode() {
+		return CommonConstants.compiledTWEANN ? new CompiledTWEANN(this) : new TWEANN(this);
+	}
+
+	/**
+	 * Genotype whose genes are exactly the nodes and links of the phenotype.
+	 * This is usually the genotype itself, but indirect encodings first have
+	 * to build the genotype of the network they encode.
+	 *
+	 * @return genotype of the phenotype network
+	 */
+	public TWEANNGenotype networkGenotype() {
+		return this;
+	}
+
 	/**
 	 * Copies the TWEANNGenotype via the trick of generating a TWEANN, then
-	 * using it to generate a new Genotype
+	 * using it to generate a new Genotype. Unless directGenotypeCopy is off,
+	 * the same copy is made directly from the gene lists, without building
+	 * the network.
 	 *
 	 * @return = copy of genotype
 	 */
 	@Override
 	public Genotype<TWEANN> copy() {
+		if (CommonConstants.directGenotypeCopy) {
+			return directCopy();
+		}
 		int[] temp = moduleUsage;
 		TWEANNGenotype result = new TWEANNGenotype(this.getPhenotype());
 		// Module usage is erased by getPhenotype(), so it is restored here
@@ -1263,6 +1451,80 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 		return result;
 	}
 
+	/**
+	 * Copy the genotype gene by gene, giving exactly the genotype that a round
+	 * trip through the phenotype produces. Node genes keep their order. Only
+	 * active links are expressed in a TWEANN, and the network lists them by
+	 * source node, so the copied links are the active ones, stably grouped by
+	 * the position of their source node. A link is recurrent if the first
+	 * link from the same source to the same target is, since that is the link
+	 * the network reports.
+	 *
+	 * @return copy of genotype
+	 */
+	private TWEANNGenotype directCopy() {
+		final int numNodes = nodes.size();
+		ArrayList<NodeGene> nodesCopy = new ArrayList<NodeGene>(numNodes);
+		HashMap<Long, Integer> position = new HashMap<Long, Integer>(numNodes * 2);
+		for (int i = 0; i < numNodes; i++) {
+			NodeGene ng = nodes.get(i);
+			nodesCopy.add(new NodeGene(ng.ftype, ng.ntype, ng.innovation, ng.frozen));
+			// The network finds the first node with an innovation number
+			if (!position.containsKey(ng.innovation)) {
+				position.put(ng.innovation, i);
+			}
+		}
+
+		// Counting sort of active links by source position, which is stable
+		int[] sources = new int[links.size()];
+		int[] start = new int[numNodes + 1];
+		for (int k = 0; k < links.size(); k++) {
+			LinkGene lg = links.get(k);
+			if (lg.active) {
+				sources[k] = position.get(lg.sourceInnovation);
+				start[sources[k] + 1]++;
+			}
+		}
+		for (int i = 0; i < numNodes; i++) {
+			start[i + 1] += start[i];
+		}
+		LinkGene[] sorted = new LinkGene[start[numNodes]];
+		int[] next = Arrays.copyOf(start, numNodes);
+		for (int k = 0; k < links.size(); k++) {
+			LinkGene lg = links.get(k);
+			if (lg.active) {
+				sorted[next[sources[k]]++] = lg;
+			}
+		}
+
+		ArrayList<LinkGene> linksCopy = new ArrayList<LinkGene>(Math.max(numNodes, sorted.length));
+		for (int i = 0; i < numNodes; i++) {
+			for (int k = start[i]; k < start[i + 1]; k++) {
+				LinkGene lg = sorted[k];
+				int first = start[i];
+				while (sorted[first].targetInnovation != lg.targetInnovation) {
+					first++;
+				}
+				linksCopy.add(new LinkGene(lg.sourceInnovation, lg.targetInnovation, lg.weight, lg.innovation,
+						sorted[first].recurrent, lg.frozen));
+			}
+		}
+
+		TWEANNGenotype result = new TWEANNGenotype(nodesCopy, linksCopy, neuronsPerModule, standardMultitask,
+				hierarchicalMultitask, archetypeIndex);
+		result.numModules = numModules;
+		if (moduleAssociations != null) {
+			result.moduleAssociations = Arrays.copyOf(moduleAssociations, numModules);
+		} else {
+			result.moduleAssociations = new int[numModules];
+			for (int i = 0; i < numModules; i++) {
+				result.moduleAssociations[i] = i;
+			}
+		}
+		result.moduleUsage = Arrays.copyOf(moduleUsage, moduleUsage.length);
+		return result;
+	}
+
 	/**
 	 * Get fresh new instance of genotype, in order to start evolution
 	 *
@@ -1499,6 +1761,8 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 			EvolutionaryHistory.archetypeAdd(archetypeIndex, nodes.get(nodes.size() - 1).clone(),
 					"insert middle preference");
 		}
+		// Innovation numbers may have shifted
+		geneListsChanged();
 		// Add one random link to new preference neuron
 		// System.out.println("Add link from " + randomSourceInnovation + " to "
 		// + newNodeInnovation);
@@ -1543,6 +1807,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
 			}
 		}
 		nodes.add(ng);
+		geneListsChanged();
 		numOut++;
 		EvolutionaryHistory.archetypeAdd(archetypeIndex, ng.clone(), "duplicate output");
 	}
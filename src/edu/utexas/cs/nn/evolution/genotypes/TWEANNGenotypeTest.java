@@ -3,6 +3,7 @@ package edu.utexas.cs.nn.evolution.genotypes;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -111,4 +112,85 @@ public class TWEANNGenotypeTest {
 
 		assertTrue(trueMaxInno == maxInno);
 	}
+
+	/**
+	 * Copying gene by gene gives the same genotype as copying through the
+	 * phenotype, including after splices deactivate links, and with frozen
+	 * genes, duplicate links and module usage
+	 */
+	@Test
+	public void test_directCopy() {
+		Parameters.initializeParameterCollections(
+				new String[] { "io:false", "netio:false", "allowMultipleFunctions:true", "recurrency:true" });
+		MMNEAT.loadClasses();
+		TWEANNGenotype tg = new TWEANNGenotype(5, 2, 0);
+		MMNEAT.genotype = tg.copy();
+		EvolutionaryHistory.initArchetype(0);
+
+		for (int i = 0; i < 4 * MUTATIONS1; i++) {
+			tg.mutate();
+		}
+		tg.nodes.get(tg.nodes.size() - 1).freeze();
+		tg.links.get(0).freeze();
+		tg.links.get(1).active = false;
+		LinkGene last = tg.links.get(tg.links.size() - 1);
+		tg.links.add(1, tg.new LinkGene(last.sourceInnovation, last.targetInnovation, 0.5, -1000, !last.recurrent));
+		tg.moduleUsage[0] = 7;
+
+		CommonConstants.directGenotypeCopy = false;
+		TWEANNGenotype expected = (TWEANNGenotype) tg.copy();
+		CommonConstants.directGenotypeCopy = true;
+		TWEANNGenotype direct = (TWEANNGenotype) tg.copy();
+
+		assertEquals(expected.nodes.toString(), direct.nodes.toString());
+		assertEquals(expected.links.toString(), direct.links.toString());
+		assertEquals(expected.numIn, direct.numIn);
+		assertEquals(expected.numOut, direct.numOut);
+		assertEquals(expected.numModules, direct.numModules);
+		assertEquals(expected.neuronsPerModule, direct.neuronsPerModule);
+		assertEquals(expected.archetypeIndex, direct.archetypeIndex);
+		assertArrayEquals(expected.moduleAssociations, direct.moduleAssociations);
+		assertArrayEquals(expected.moduleUsage, direct.moduleUsage);
+		assertArrayEquals(tg.moduleUsage, direct.moduleUsage);
+		assertNotSame(tg.moduleUsage, direct.moduleUsage);
+	}
+
+	/**
+	 * Link lookups through the innovation indices agree with a linear scan of
+	 * the genes after every mutation, and after the link genes are reordered
+	 * from outside the genotype, as crossover does
+	 */
+	@Test
+	public void test_geneLookups() {
+		Parameters.initializeParameterCollections(
+				new String[] { "io:false", "netio:false", "allowMultipleFunctions:true", "recurrency:true" });
+		MMNEAT.loadClasses();
+		TWEANNGenotype tg = new TWEANNGenotype(5, 2, 0);
+		MMNEAT.genotype = tg.copy();
+		EvolutionaryHistory.initArchetype(0);
+
+		for (int i = 0; i < 4 * MUTATIONS1; i++) {
+			tg.mutate();
+			assertLookupsMatchGenes(tg);
+		}
+		TWEANNGenotype.sortLinkGenes(tg.links);
+		assertLookupsMatchGenes(tg);
+		Collections.reverse(tg.links);
+		assertLookupsMatchGenes(tg);
+	}
+
+	private static void assertLookupsMatchGenes(TWEANNGenotype tg) {
+		for (NodeGene source : tg.nodes) {
+			for (NodeGene target : tg.nodes) {
+				LinkGene expected = null;
+				for (LinkGene lg : tg.links) {
+					if (lg.sourceInnovation == source.innovation && lg.targetInnovation == target.innovation) {
+						expected = lg;
+						break;
+					}
+				}
+				assertSame(expected, tg.getLinkBetween(source.innovation, target.innovation));
+			}
+		}
+	}
 }
@@ -0,0 +1,493 @@
+package edu.utexas.cs.nn.evolution.lineage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+/**
+ * Append-only binary store of the same information as the lineage and
+ * mutation logs, which can be queried one offspring at a time instead of
+ * reading whole text logs into memory.
+ *
+ * The data file holds one record per lineage log line (offspring id, parent
+ * ids and generation) and one per mutation log line (offspring id and mutation
+ * names), in the order they were logged. The index file starts with a small
+ * header, followed by a table with one fixed size entry per offspring id: the
+ * offset of its lineage record and the offset of its most recent mutation
+ * record. Each mutation record in turn points to the previous mutation record
+ * of the same offspring. Offsets are stored plus one, so that 0 (the value of
+ * unwritten parts of the table) means there is no record.
+ *
+ * Records are buffered in memory, and written along with the changed index
+ * entries whenever a generation ends, or the store is flushed. The header
+ * records how much of the data file was complete at that point, so that a
+ * resumed run can append to the store after anything written later.
+ *
+ * @author Jacob Schrum
+ */
+public class LineageStore {
+
+	public static final String DATA_EXTENSION = ".bin";
+	public static final String INDEX_EXTENSION = ".idx";
+	public static final String STORE_SUFFIX = "LineageStore";
+
+	private static final int MAGIC = 0x4D4D4C53; // "MMLS"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+	private static final int ENTRY_SIZE = 16;
+	private static final byte LINEAGE_RECORD = 'L';
+	private static final byte MUTATION_RECORD = 'M';
+	// kind, offspring id, two parent ids, generation
+	private static final int LINEAGE_RECORD_SIZE = 1 + 8 + 8 + 8 + 4;
+	// kind, offspring id, previous record, payload length
+	private static final int MUTATION_HEADER_SIZE = 1 + 8 + 8 + 4;
+
+	private final File dataFile;
+	private final RandomAccessFile index;
+	private RandomAccessFile data = null;
+	// Only used when writing
+	private final DataOutputStream out;
+	private long dataSize;
+	// Index entries changed since the last flush
+	private final TreeMap<Long, long[]> pending = new TreeMap<Long, long[]>();
+	private int lineageGeneration = 0;
+	private int numGenerations;
+
+	/**
+	 * @param prefix
+	 *            path of the store without extension
+	 * @param write
+	 *            whether the store is opened for writing instead of only
+	 *            reading
+	 * @param append
+	 *            whether writing adds to an existing store instead of
+	 *            creating a new, empty store (replacing any old one)
+	 */
+	private LineageStore(String prefix, boolean write, boolean append) throws IOException {
+		dataFile = new File(prefix + DATA_EXTENSION);
+		File indexFile = new File(prefix + INDEX_EXTENSION);
+		if (write && !append) {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+			dataSize = 0;
+			index = new RandomAccessFile(indexFile, "rw");
+			index.setLength(0);
+			numGenerations = 0;
+			writeHeader();
+			return;
+		}
+		index = new RandomAccessFile(indexFile, write ? "rw" : "r");
+		if (index.length() < HEADER_SIZE || index.readInt() != MAGIC || index.readInt() != VERSION) {
+			index.close();
+			throw new IOException("Not a lineage store: " + indexFile);
+		}
+		numGenerations = index.readInt();
+		index.readInt();
+		dataSize = index.readLong();
+		if (dataSize < 0 || dataFile.length() < dataSize) {
+			index.close();
+			throw new IOException("Lineage store ends early: " + dataFile);
+		}
+		if (write) {
+			// Drop records written after the last flush
+			RandomAccessFile truncate = new RandomAccessFile(dataFile, "rw");
+			truncate.setLength(dataSize);
+			truncate.close();
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile, true)));
+			lineageGeneration = numGenerations;
+		} else {
+			out = null;
+		}
+	}
+
+	/**
+	 * @param logPrefix
+	 *            prefix of the log files of a run, such as
+	 *            base/saveTo1/log1_
+	 * @return prefix of the lineage store of that run
+	 */
+	public static String prefix(String logPrefix) {
+		return logPrefix + STORE_SUFFIX;
+	}
+
+	/**
+	 * @param prefix
+	 *            path of a store without extension
+	 * @return whether both files of the store exist
+	 */
+	public static boolean exists(String prefix) {
+		return new File(prefix + DATA_EXTENSION).exists() && new File(prefix + INDEX_EXTENSION).exists();
+	}
+
+	/**
+	 * Create a new, empty store for writing, replacing any existing one
+	 *
+	 * @param prefix
+	 *            path of the store without extension
+	 * @return the store
+	 * @throws IOException
+	 *             if the files cannot be created
+	 */
+	public static LineageStore create(String prefix) throws IOException {
+		return new LineageStore(prefix, true, false);
+	}
+
+	/**
+	 * Open an existing store for writing, to continue logging a resumed run
+	 * after the generations it already holds
+	 *
+	 * @param prefix
+	 *            path of the store without extension
+	 * @return the store
+	 * @throws IOException
+	 *             if the files are missing or not a store
+	 */
+	public static LineageStore append(String prefix) throws IOException {
+		return new LineageStore(prefix, true, true);
+	}
+
+	/**
+	 * Open an existing store for reading
+	 *
+	 * @param prefix
+	 *            path of the store without extension
+	 * @return the store
+	 * @throws IOException
+	 *             if the files are missing or not a store
+	 */
+	public static LineageStore open(String prefix) throws IOException {
+		return new LineageStore(prefix, false, false);
+	}
+
+	/**
+	 * Create a store from the text lineage and mutation logs of a run, for
+	 * runs that were logged without one. The store is left open for writing,
+	 * so that more log lines can be added.
+	 *
+	 * @param prefix
+	 *            path of the store without extension
+	 * @param lineageLog
+	 *            lineage log file, or null
+	 * @param mutationLog
+	 *            mutation log file, or null
+	 * @return the store
+	 * @throws IOException
+	 *             if the logs cannot be read or the store written
+	 */
+	public static LineageStore fromTextLogs(String prefix, File lineageLog, File mutationLog) throws IOException {
+		LineageStore store = create(prefix);
+		if (lineageLog != null && lineageLog.exists()) {
+			Scanner s = new Scanner(lineageLog);
+			while (s.hasNextLine()) {
+				store.logLineage(s.nextLine());
+			}
+			s.close();
+		}
+		if (mutationLog != null && mutationLog.exists()) {
+			Scanner s = new Scanner(mutationLog);
+			while (s.hasNextLine()) {
+				store.logMutations(s.nextLine());
+			}
+			s.close();
+		}
+		store.flush();
+		return store;
+	}
+
+	/**
+	 * Record a line of the lineage log: either "parent -> child",
+	 * "parent1 X parent2 -> child", or a line starting with "--" that marks
+	 * the end of a generation.
+	 *
+	 * @param line
+	 *            line in the format of the lineage log
+	 */
+	public synchronized void logLineage(String line) {
+		if (line.trim().isEmpty()) {
+			return;
+		}
+		if (line.startsWith("--")) {
+			lineageGeneration++;
+			numGenerations = Math.max(numGenerations, lineageGeneration);
+			flush();
+			return;
+		}
+		String[] tokens = line.trim().split("\\s+");
+		long parentId1 = Long.parseLong(tokens[0]);
+		long parentId2 = -1;
+		int next = 1;
+		if (tokens[next].equals("X")) {
+			parentId2 = Long.parseLong(tokens[next + 1]);
+			next += 2;
+		}
+		if (!tokens[next].equals("->")) {
+			System.out.println("WTF: " + tokens[next]);
+			System.out.println("Format error");
+			System.exit(1);
+		}
+		long offspringId = Long.parseLong(tokens[next + 1]);
+		try {
+			long offset = dataSize;
+			out.writeByte(LINEAGE_RECORD);
+			out.writeLong(offspringId);
+			out.writeLong(parentId1);
+			out.writeLong(parentId2);
+			out.writeInt(lineageGeneration);
+			dataSize += LINEAGE_RECORD_SIZE;
+			entry(offspringId)[0] = offset + 1;
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not write lineage store: " + dataFile);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Record a line of the mutation log: an offspring id followed by the
+	 * names of its mutations, or a line starting with "--" that marks the end
+	 * of a generation.
+	 *
+	 * @param line
+	 *            line in the format of the mutation log
+	 */
+	public synchronized void logMutations(String line) {
+		if (line.startsWith("--")) {
+			return;
+		}
+		String[] tokens = line.trim().split("\\s+");
+		if (tokens.length < 2) {
+			return; // No mutations
+		}
+		long offspringId = Long.parseLong(tokens[0]);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream payload = new DataOutputStream(bytes);
+			payload.writeInt(tokens.length - 1);
+			for (int i = 1; i < tokens.length; i++) {
+				payload.writeUTF(tokens[i]);
+			}
+			payload.close();
+			long[] entry = entry(offspringId);
+			long offset = dataSize;
+			out.writeByte(MUTATION_RECORD);
+			out.writeLong(offspringId);
+			out.writeLong(entry[1]);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+			dataSize += MUTATION_HEADER_SIZE + bytes.size();
+			entry[1] = offset + 1;
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not write lineage store: " + dataFile);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Index entry of an offspring that is about to change, read from the
+	 * index file the first time it is needed after a flush
+	 */
+	private long[] entry(long offspringId) throws IOException {
+		long[] entry = pending.get(offspringId);
+		if (entry == null) {
+			entry = readEntry(offspringId);
+			pending.put(offspringId, entry);
+		}
+		return entry;
+	}
+
+	private long[] readEntry(long offspringId) throws IOException {
+		long position = HEADER_SIZE + offspringId * ENTRY_SIZE;
+		if (offspringId < 0 || position + ENTRY_SIZE > index.length()) {
+			return new long[2];
+		}
+		byte[] bytes = new byte[ENTRY_SIZE];
+		index.seek(position);
+		index.readFully(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		return new long[] { in.readLong(), in.readLong() };
+	}
+
+	private void writeHeader() throws IOException {
+		index.seek(0);
+		index.writeInt(MAGIC);
+		index.writeInt(VERSION);
+		index.writeInt(numGenerations);
+		index.writeInt(0);
+		index.writeLong(dataSize);
+	}
+
+	/**
+	 * Write all buffered records and index entries, so that the files are
+	 * complete up to this point
+	 */
+	public synchronized void flush() {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.flush();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(ENTRY_SIZE);
+			DataOutputStream entryOut = new DataOutputStream(bytes);
+			for (Map.Entry<Long, long[]> e : pending.entrySet()) {
+				bytes.reset();
+				entryOut.writeLong(e.getValue()[0]);
+				entryOut.writeLong(e.getValue()[1]);
+				index.seek(HEADER_SIZE + e.getKey() * ENTRY_SIZE);
+				index.write(bytes.toByteArray());
+			}
+			pending.clear();
+			writeHeader();
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not write lineage store: " + dataFile);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Flush and close the files of the store
+	 */
+	public synchronized void close() {
+		flush();
+		try {
+			if (out != null) {
+				out.close();
+			}
+			if (data != null) {
+				data.close();
+			}
+			index.close();
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not close lineage store: " + dataFile);
+		}
+	}
+
+	/**
+	 * @return number of generations ended in the lineage log
+	 */
+	public int numGenerations() {
+		return numGenerations;
+	}
+
+	/**
+	 * @return one more than the highest offspring id in the index
+	 */
+	public synchronized long indexSize() throws IOException {
+		flush();
+		return Math.max(0, (index.length() - HEADER_SIZE) / ENTRY_SIZE);
+	}
+
+	/**
+	 * Look up a single offspring, along with its mutations, without reading
+	 * anything else
+	 *
+	 * @param offspringId
+	 *            id of the offspring
+	 * @return offspring with its parents, generation and mutations, or null if
+	 *         it is not in the lineage log
+	 * @throws IOException
+	 *             if the store cannot be read
+	 */
+	public synchronized Offspring get(long offspringId) throws IOException {
+		flush();
+		long[] entry = readEntry(offspringId);
+		if (entry[0] == 0) {
+			return null;
+		}
+		if (data == null) {
+			data = new RandomAccessFile(dataFile, "r");
+		}
+		byte[] bytes = new byte[LINEAGE_RECORD_SIZE];
+		data.seek(entry[0] - 1);
+		data.readFully(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		in.readByte();
+		long id = in.readLong();
+		Offspring o = new Offspring(id, in.readLong(), in.readLong(), in.readInt());
+		// Mutation records are chained from the most recent
+		ArrayList<String[]> mutations = new ArrayList<String[]>();
+		long next = entry[1];
+		while (next != 0) {
+			bytes = new byte[MUTATION_HEADER_SIZE];
+			data.seek(next - 1);
+			data.readFully(bytes);
+			in = new DataInputStream(new ByteArrayInputStream(bytes));
+			in.readByte();
+			in.readLong();
+			next = in.readLong();
+			bytes = new byte[in.readInt()];
+			data.readFully(bytes);
+			mutations.add(readMutations(new DataInputStream(new ByteArrayInputStream(bytes))));
+		}
+		for (int i = mutations.size() - 1; i >= 0; i--) {
+			for (String mutation : mutations.get(i)) {
+				o.addMutation(mutation);
+			}
+		}
+		return o;
+	}
+
+	private static String[] readMutations(DataInputStream in) throws IOException {
+		String[] mutations = new String[in.readInt()];
+		for (int i = 0; i < mutations.length; i++) {
+			mutations[i] = in.readUTF();
+		}
+		return mutations;
+	}
+
+	/**
+	 * Convert the text logs of a finished run into a store, or query a store
+	 * without loading the whole lineage.
+	 *
+	 * Usage: LineageStore [log prefix] convert
+	 *        LineageStore [log prefix] offspring [id]
+	 *        LineageStore [log prefix] ancestors [id]
+	 *        LineageStore [log prefix] common [id1] [id2]
+	 *
+	 * where the log prefix is the path of the run logs up to and including
+	 * the underscore, such as base/saveTo1/log1_
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: LineageStore [log prefix] convert|offspring|ancestors|common [ids]");
+			System.exit(1);
+		}
+		String prefix = prefix(args[0]);
+		if (args[1].equals("convert")) {
+			LineageStore store = fromTextLogs(prefix, new File(args[0] + "Lineage_log.txt"),
+					new File(args[0] + "Mutations_log.txt"));
+			System.out.println("Saved " + prefix + " (" + store.numGenerations() + " generations)");
+			store.close();
+			return;
+		}
+		if (!exists(prefix)) {
+			throw new FileNotFoundException(prefix + DATA_EXTENSION);
+		}
+		LineageStore store = open(prefix);
+		Offspring.lineageStore = store;
+		if (args[1].equals("offspring")) {
+			System.out.println(store.get(Long.parseLong(args[2])));
+		} else if (args[1].equals("ancestors")) {
+			for (Offspring o : Offspring.allAncestors(Long.parseLong(args[2])).values()) {
+				System.out.println(o);
+			}
+		} else if (args[1].equals("common")) {
+			System.out.println(Offspring.mostRecentCommonAncestor(Long.parseLong(args[2]), Long.parseLong(args[3])));
+		} else {
+			System.out.println("Unknown command: " + args[1]);
+		}
+		store.close();
+	}
+}
@@ -0,0 +1,160 @@
+package edu.utexas.cs.nn.evolution.lineage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.util.PopulationUtil;
+import edu.utexas.cs.nn.util.file.FileUtilities;
+
+public class LineageStoreTest {
+
+	File dir;
+	String logPrefix;
+
+	@Before
+	public void setUp() throws Exception {
+		Offspring.reset();
+		dir = Files.createTempDirectory("lineage").toFile();
+		logPrefix = dir.getPath() + "/Test0_";
+		// Three generations, with crossover, several mutation lines for one
+		// offspring, and one offspring without mutations
+		PrintStream lineage = new PrintStream(new File(logPrefix + PopulationUtil.LINEAGE_LOG));
+		PrintStream mutations = new PrintStream(new File(logPrefix + Offspring.MUTATIONS_LOG));
+		lineage.println("0 -> 4");
+		lineage.println("1 X 2 -> 5");
+		lineage.println("3 -> 6");
+		mutations.println("4 NewLink Splice");
+		mutations.println("5 Weight");
+		mutations.println("6 ");
+		lineage.println("---Gen 0 Over-----------------");
+		mutations.println("---Gen 0 Over-----------------");
+		lineage.println("4 X 5 -> 7");
+		lineage.println("7 -> 8");
+		mutations.println("7 MMD");
+		mutations.println("8 NewLink");
+		mutations.println("7 Weight");
+		lineage.println("---Gen 1 Over-----------------");
+		mutations.println("---Gen 1 Over-----------------");
+		lineage.println("8 X 6 -> 9");
+		lineage.println("---Gen 2 Over-----------------");
+		mutations.println("---Gen 2 Over-----------------");
+		lineage.close();
+		mutations.close();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Offspring.reset();
+		FileUtilities.deleteDirectoryContents(dir);
+		dir.delete();
+	}
+
+	/**
+	 * Lineage as loaded by the browser, from the text logs or the store
+	 */
+	private ArrayList<String> loadText() throws Exception {
+		Offspring.reset();
+		int generations = PopulationUtil.loadLineage(logPrefix + PopulationUtil.LINEAGE_LOG);
+		Offspring.addMutationInformation(logPrefix + Offspring.MUTATIONS_LOG);
+		ArrayList<String> result = new ArrayList<String>();
+		result.add("generations " + generations);
+		for (int i = 0; i < Offspring.lineageSize(); i++) {
+			result.add(String.valueOf(Offspring.getOffspring(i)));
+		}
+		return result;
+	}
+
+	/**
+	 * Loading the whole lineage from the store gives the same offspring as
+	 * reading the text logs, and single offspring read by seeking agree too
+	 */
+	@Test
+	public void test_sameAsTextLogs() throws Exception {
+		ArrayList<String> expected = loadText();
+		LineageStore.fromTextLogs(LineageStore.prefix(logPrefix), new File(logPrefix + PopulationUtil.LINEAGE_LOG),
+				new File(logPrefix + Offspring.MUTATIONS_LOG)).close();
+		// Loaders now find the store, and read offspring from it as needed
+		assertEquals(expected, loadText());
+		assertTrue(Offspring.lineage.isEmpty());
+
+		LineageStore store = LineageStore.open(LineageStore.prefix(logPrefix));
+		assertEquals(3, store.numGenerations());
+		assertEquals(10, store.indexSize());
+		for (int i = 0; i < expected.size() - 1; i++) {
+			assertEquals(expected.get(i + 1), String.valueOf(store.get(i)));
+		}
+		assertNull(store.get(100));
+		store.close();
+	}
+
+	/**
+	 * Ancestor queries seek in the store instead of needing the loaded
+	 * lineage
+	 */
+	@Test
+	public void test_queriesBySeeking() throws Exception {
+		LineageStore.fromTextLogs(LineageStore.prefix(logPrefix), new File(logPrefix + PopulationUtil.LINEAGE_LOG),
+				new File(logPrefix + Offspring.MUTATIONS_LOG)).close();
+		loadText();
+		long[] ids = new long[] { 4, 5, 6, 7, 8, 9 };
+		ArrayList<String> expected = new ArrayList<String>();
+		for (long id : ids) {
+			expected.add(Offspring.allAncestors(id).keySet().toString());
+			expected.add(Offspring.completeMutationHistory(id).toString());
+		}
+		String common = String.valueOf(Offspring.mostRecentCommonAncestor(9, 7));
+
+		Offspring.reset();
+		Offspring.lineageStore = LineageStore.open(LineageStore.prefix(logPrefix));
+		ArrayList<String> seeking = new ArrayList<String>();
+		for (long id : ids) {
+			seeking.add(Offspring.allAncestors(id).keySet().toString());
+			seeking.add(Offspring.completeMutationHistory(id).toString());
+		}
+		assertEquals(expected, seeking);
+		assertEquals(common, String.valueOf(Offspring.mostRecentCommonAncestor(9, 7)));
+		assertTrue(Offspring.lineage.isEmpty());
+	}
+
+	/**
+	 * A resumed run appends to the store it already has, giving the same
+	 * store as converting the complete text logs
+	 */
+	@Test
+	public void test_append() throws Exception {
+		LineageStore.fromTextLogs(LineageStore.prefix(logPrefix), new File(logPrefix + PopulationUtil.LINEAGE_LOG),
+				new File(logPrefix + Offspring.MUTATIONS_LOG)).close();
+		LineageStore store = LineageStore.append(LineageStore.prefix(logPrefix));
+		assertEquals(3, store.numGenerations());
+		store.logLineage("9 -> 10");
+		store.logMutations("10 Splice");
+		store.logMutations("8 Weight");
+		store.logLineage("---Gen 3 Over-----------------");
+		store.logMutations("---Gen 3 Over-----------------");
+		store.close();
+		PrintStream lineage = new PrintStream(new FileOutputStream(logPrefix + PopulationUtil.LINEAGE_LOG, true));
+		PrintStream mutations = new PrintStream(new FileOutputStream(logPrefix + Offspring.MUTATIONS_LOG, true));
+		lineage.println("9 -> 10");
+		mutations.println("10 Splice");
+		mutations.println("8 Weight");
+		lineage.println("---Gen 3 Over-----------------");
+		mutations.println("---Gen 3 Over-----------------");
+		lineage.close();
+		mutations.close();
+		ArrayList<String> appended = loadText();
+
+		LineageStore.fromTextLogs(LineageStore.prefix(logPrefix), new File(logPrefix + PopulationUtil.LINEAGE_LOG),
+				new File(logPrefix + Offspring.MUTATIONS_LOG)).close();
+		assertEquals(loadText(), appended);
+		assertEquals("generations 4", appended.get(0));
+	}
+}
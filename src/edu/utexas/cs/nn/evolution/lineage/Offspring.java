@@ -28,6 +28,7 @@ import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -138,7 +139,7 @@ public class Offspring {
 		 * Draws the initial panels and information
 		 */
 		public void draw() {
-			Offspring o = lineage.get(position);
+			Offspring o = getOffspring(position);
 			System.out.println(position);
 			clear();
 			if (o == null) {
@@ -234,7 +235,7 @@ public class Offspring {
 
 			// Show scores of ancestry backwards through generations
 			if (key == KeyEvent.VK_B) {
-				Offspring o = lineage.get(position);
+				Offspring o = getOffspring(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -244,7 +245,7 @@ public class Offspring {
 
 			// Run evaluation
 			if (key == KeyEvent.VK_E) {
-				final Offspring o = lineage.get(position);
+				final Offspring o = getOffspring(position);
 				if (o != null && o.xmlNetwork != null) {
 					// Launch a new thread in which to evaluate the genotype
 					new Thread() {
@@ -317,7 +318,7 @@ public class Offspring {
 
 			// Save picture of network
 			if (key == KeyEvent.VK_S) {
-				Offspring o = lineage.get(position);
+				Offspring o = getOffspring(position);
 				if (o != null && o.xmlNetwork != null) {
 					String filename = "NETWORK_" + o.offspringId + "_GEN_" + o.generation + ".jpg";
 					panel.save(filename);
@@ -381,7 +382,7 @@ public class Offspring {
 			// Make jump point be the biggest fitness jump in ancestry of
 			// current position
 			if (key == KeyEvent.VK_J) {
-				if (lineage.get(position) == null) {
+				if (getOffspring(position) == null) {
 					System.out.println("Cannot calculate jump to null");
 				} else {
 					// Biggest fitness jump info
@@ -423,7 +424,7 @@ public class Offspring {
 
 			// Goto parent 1 (mother)
 			if (key == KeyEvent.VK_M) {
-				Offspring o = lineage.get(position);
+				Offspring o = getOffspring(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -435,7 +436,7 @@ public class Offspring {
 
 			// Goto parent 2 (father)
 			if (key == KeyEvent.VK_F) {
-				Offspring o = lineage.get(position);
+				Offspring o = getOffspring(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -497,7 +498,7 @@ public class Offspring {
 		}
 
 		public void changeGeneration(boolean up) {
-			Offspring o = lineage.get(position);
+			Offspring o = getOffspring(position);
 			int prev = position;
 			if (o == null) {
 				while (o == null || o.xmlNetwork == null) {
@@ -506,7 +507,7 @@ public class Offspring {
 					} else {
 						decreasePosition();
 					}
-					o = lineage.get(position);
+					o = getOffspring(position);
 				}
 				System.out.println((up ? "Advancing" : "Decreasing") + " to non-null generation: " + o.generation);
 			} else {
@@ -517,7 +518,7 @@ public class Offspring {
 					} else {
 						decreasePosition();
 					}
-					o = lineage.get(position);
+					o = getOffspring(position);
 				}
 				System.out.println(
 						(up ? "Advancing" : "Decreasing") + " from generation: " + generation + " to " + o.generation);
@@ -533,7 +534,7 @@ public class Offspring {
 		public void advancePosition() {
 			previousPosition = position;
 			position++;
-			if (position >= lineage.size()) {
+			if (position >= lineageSize()) {
 				position = 0;
 			}
 		}
@@ -542,7 +543,7 @@ public class Offspring {
 			previousPosition = position;
 			position--;
 			if (position < 0) {
-				position = lineage.size() - 1;
+				position = lineageSize() - 1;
 			}
 		}
 
@@ -572,6 +573,9 @@ public class Offspring {
 	public static double[][] worstScores = null;
 	public static double[][] tugGoals = null;
 	public static int numObjectives = 0;
+	public static final String MUTATIONS_LOG = "Mutations_log.txt";
+	// Offspring missing from lineage are looked up here, if not null
+	public static LineageStore lineageStore = null;
 
 	//public global variables
 	public long offspringId;
@@ -595,6 +599,10 @@ public class Offspring {
 		worstScores = null;
 		tugGoals = null;
 		numObjectives = 0;
+		if (lineageStore != null) {
+			lineageStore.close();
+			lineageStore = null;
+		}
 	}
 	/**
 	 * Default constructor 
@@ -637,7 +645,8 @@ public class Offspring {
 		if (o instanceof Offspring) {
 			Offspring other = (Offspring) o;
 			return other.offspringId == offspringId && other.parentId1 == parentId1 && other.parentId2 == parentId2
-					&& other.generation == generation && other.xmlNetwork.equals(xmlNetwork);
+					&& other.generation == generation
+					&& (other.xmlNetwork == null ? xmlNetwork == null : other.xmlNetwork.equals(xmlNetwork));
 		}
 		return false;
 	}
@@ -692,7 +701,7 @@ public class Offspring {
 	 * @param name name of offspring 
 	 */
 	public static void addMutation(long offspringId, String name) {
-		lineage.get((int) offspringId).addMutation(name);
+		loadedOffspring(offspringId).addMutation(name);
 	}
 
 	/**
@@ -713,7 +722,7 @@ public class Offspring {
 	 */
 	public static void addScores(long offspringId, ArrayList<Double> s, int generation) {
 
-		Offspring o = lineage.get((int) offspringId);
+		Offspring o = loadedOffspring(offspringId);
 		if (o == null) {
 			o = new Offspring(offspringId, -1);
 			addOffspring(o);
@@ -730,12 +739,73 @@ public class Offspring {
 	 * @param withinGen population slot within that generation
 	 */
 	public static void addNetwork(long offspringId, String filePrefix, int gen, int withinGen) {
-		Offspring o = lineage.get((int) offspringId);
+		Offspring o = loadedOffspring(offspringId);
 		int slash = filePrefix.lastIndexOf("/");
 		String subdir = gen == 0 ? "initial" : "gen" + gen;
 		o.xmlNetwork = filePrefix.substring(0, slash) + "/" + subdir + "/" + filePrefix.substring(slash + 1) + subdir + "_" + withinGen + ".xml";
 	}
 
+	/**
+	 * Offspring with the given id, from the loaded lineage if present there,
+	 * and otherwise from the lineage store, which only reads that one
+	 * offspring.
+	 *
+	 * @param offspringId
+	 *            ID of offspring
+	 * @return the offspring, or null if unknown
+	 */
+	public static Offspring getOffspring(long offspringId) {
+		Offspring o = offspringId < lineage.size() ? lineage.get((int) offspringId) : null;
+		if (o == null && lineageStore != null) {
+			try {
+				o = lineageStore.get(offspringId);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not read offspring " + offspringId + " from lineage store");
+				System.exit(1);
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * Offspring with the given id, which is added to the loaded lineage if it
+	 * had to be read from the lineage store, so that information added to it
+	 * is kept
+	 *
+	 * @param offspringId
+	 *            ID of offspring
+	 * @return the offspring, or null if unknown
+	 */
+	private static Offspring loadedOffspring(long offspringId) {
+		Offspring o = offspringId < lineage.size() ? lineage.get((int) offspringId) : null;
+		if (o == null) {
+			o = getOffspring(offspringId);
+			if (o != null) {
+				addOffspring(o);
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * @return one more than the highest offspring id in the loaded lineage
+	 *         or the lineage store
+	 */
+	public static int lineageSize() {
+		long size = lineage.size();
+		if (lineageStore != null) {
+			try {
+				size = Math.max(size, lineageStore.indexSize());
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not read lineage store");
+				System.exit(1);
+			}
+		}
+		return (int) size;
+	}
+
 	/**
 	 * Adds offspring if individual has any
 	 * @param o individual in question
@@ -763,6 +833,10 @@ public class Offspring {
 	 * @throws FileNotFoundException if mutation file cannot be found 
 	 */
 	public static void addMutationInformation(String filename) throws FileNotFoundException {
+		if (lineageStore != null) {
+			// Offspring read from the store come with their mutations
+			return;
+		}
 		Scanner s = new Scanner(new File(filename));
 		@SuppressWarnings("unused")
 		int generation = 0;
@@ -919,8 +993,8 @@ public class Offspring {
 	 * @return
 	 */
 	public static ArrayList<Double> fitnessDifference(int generation, long parentId, long offspringId) {
-		Offspring parent = lineage.get((int) parentId);
-		Offspring child = lineage.get((int) offspringId);
+		Offspring parent = getOffspring(parentId);
+		Offspring child = getOffspring(offspringId);
 		int genIndex = parent.correspondingGenerations.indexOf(generation);
 		if (genIndex == -1) {
 			System.out.println("FAILURE!");
@@ -962,7 +1036,11 @@ public class Offspring {
 		if (visited.containsKey(offspringId)) {
 			return visited.get(offspringId);
 		}
-		Offspring o = lineage.get((int) offspringId);
+		Offspring o = getOffspring(offspringId);
+		if (o == null) {
+			// Initial population members have no lineage entry, as in addScores
+			o = new Offspring(offspringId, -1);
+		}
 		long parent1 = o.parentId1;
 		long parent2 = o.parentId2;
 		MutationBranch left = completeMutationHistory(parent1, visited);
@@ -1017,7 +1095,7 @@ public class Offspring {
 	 * @return
 	 */
 	public static int lastGeneration() {
-		return lineage.get(lineage.size() - 1).generation;
+		return getOffspring(lineageSize() - 1).generation;
 	}
 
 	/**
@@ -1067,11 +1145,11 @@ public class Offspring {
 		int recentGen = 0;
 		Offspring result = null;
 		for (Offspring o1 : a1.values()) {
-			for (Offspring o2 : a2.values()) {
-				if (o1.equals(o2) && o1.generation > recentGen) {
-					recentGen = o1.generation;
-					result = o1;
-				}
+			// Equal offspring have the same id
+			Offspring o2 = a2.get(o1.offspringId);
+			if (o2 != null && o1.equals(o2) && o1.generation > recentGen) {
+				recentGen = o1.generation;
+				result = o1;
 			}
 		}
 		return result;
@@ -1114,8 +1192,8 @@ public class Offspring {
 	 */
 	public static ArrayList<Offspring> offspringOfGeneration(int generation) {
 		ArrayList<Offspring> os = new ArrayList<Offspring>();
-		for (int i = 0; i < lineage.size(); i++) {
-			Offspring next = lineage.get(i);
+		for (int i = 0, size = lineageSize(); i < size; i++) {
+			Offspring next = getOffspring(i);
 			if (next != null && next.generation == generation) {
 				os.add(next);
 			}
@@ -1343,11 +1421,11 @@ public class Offspring {
 			g.drawString("" + mins.get(obj1), 0, browseDim - offset / 2);
 		}
 
-		Offspring child = lineage.get((int) currentId);
+		Offspring child = getOffspring(currentId);
 		long parentId1 = child.parentId1;
 		long parentId2 = child.parentId2;
-		for (int i = 0; i < lineage.size(); i++) {
-			Offspring o = lineage.get(i);
+		for (int i = 0, size = lineageSize(); i < size; i++) {
+			Offspring o = getOffspring(i);
 			if (o != null) {
 				if (o.offspringId == currentId) {
 					// All scores of given solution
@@ -1485,7 +1563,7 @@ public class Offspring {
 			DrawingPanel fitness, DrawingPanel front, boolean showScores, boolean showIds, DrawingPanel info, int obj1,
 			int obj2) {
 		if (offspringId != -1) {
-			Offspring o = lineage.get((int) offspringId);
+			Offspring o = getOffspring(offspringId);
 			fillInfo(o, info);
 			if (o != null) {
 				if (MMNEAT.genotype instanceof TWEANNGenotype) {
@@ -1667,7 +1745,7 @@ public class Offspring {
 
 				int parent1Pos = (int) o.parentId1;
 				if (parent1Pos > -1) {
-					Offspring parent1 = lineage.get(parent1Pos);
+					Offspring parent1 = getOffspring(parent1Pos);
 					double parent1Score = parent1.scores.get(0).get(i);
 
 					double bestScore = parent1Score;
@@ -1676,7 +1754,7 @@ public class Offspring {
 
 					int parent2Pos = (int) o.parentId2;
 					if (parent2Pos > -1) {
-						Offspring parent2 = lineage.get(parent2Pos);
+						Offspring parent2 = getOffspring(parent2Pos);
 						double parent2Score = parent2.scores.get(0).get(i);
 						if (parent2Score > bestScore) {
 							bestScore = parent2Score;
@@ -1687,7 +1765,7 @@ public class Offspring {
 					drawScoreSegment(offspringScore, o.correspondingGenerations.get(0), bestScore,
 							bestParent.correspondingGenerations.get(0), bests[i], i);
 
-					o = lineage.get(bestPos);
+					o = getOffspring(bestPos);
 				} else {
 					o = null;
 				}
@@ -209,6 +209,9 @@ public abstract class CooperativeCoevolutionMuLambda implements MultiplePopulati
 		if (writeOutput && ((CooperativeTask) task).teamLog != null) {
 			((CooperativeTask) task).teamLog.log("---Gen " + generation + " Over-----------------");
 		}
+		if (((CooperativeTask) task).evaluationCache != null) {
+			((CooperativeTask) task).evaluationCache.log(generation);
+		}
 
 		ArrayList<ArrayList<Genotype>> finalKeepers = new ArrayList<ArrayList<Genotype>>(parentScores.size());
 		for (int i = 0; i < parentScores.size(); i++) {
@@ -316,6 +319,9 @@ public abstract class CooperativeCoevolutionMuLambda implements MultiplePopulati
 				((CooperativeTask) task).teamLog.close();
 			}
 		}
+		if (((CooperativeTask) task).evaluationCache != null) {
+			((CooperativeTask) task).evaluationCache.close();
+		}
 	}
 
 	/**
@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.evolution.mulambda;
 
+import edu.utexas.cs.nn.data.IncrementalHypervolume;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.SinglePopulationGenerationalEA;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
@@ -11,6 +12,7 @@ import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.tasks.LonerTask;
 import edu.utexas.cs.nn.tasks.SinglePopulationTask;
 import edu.utexas.cs.nn.tasks.Task;
 import edu.utexas.cs.nn.tasks.mspacman.CooperativeMsPacManTask;
@@ -46,6 +48,8 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 	protected FitnessLog<T> parentLog;
 	protected FitnessLog<T> childLog;
 	protected PlotLog modeLog;
+	protected PlotLog hypervolumeLog;
+	protected IncrementalHypervolume hypervolume;
 	protected boolean writeOutput;
 	private final int MAX_MODE_OF_LOG_INTEREST = 5;
 	public boolean evaluatingParents = false;
@@ -95,6 +99,13 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 				labels.add("More Than " + i + " Modes Best");
 				modeLog = new PlotLog("ModeUsage", labels);
 			}
+			if (Parameters.parameters.booleanParameter("logHypervolume") && task.numObjectives() > 1) {
+				ArrayList<String> labels = new ArrayList<String>();
+				labels.add("Hypervolume");
+				labels.add("Pareto Front Size");
+				hypervolumeLog = new PlotLog("Hypervolume", labels);
+				hypervolume = new IncrementalHypervolume();
+			}
 		}
 	}
 
@@ -140,6 +151,9 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 	public void logParentInfo(ArrayList<Score<T>> parentScores) {
 		if (writeOutput) {
 			parentLog.log(parentScores, generation);
+			if (hypervolumeLog != null) {
+				hypervolumeLogging(parentScores);
+			}
 			Genotype example = parentScores.get(0).individual;
 			if (example instanceof TWEANNGenotype) {
 				ArrayList<TWEANNGenotype> tweanns = new ArrayList<TWEANNGenotype>(parentScores.size());
@@ -154,6 +168,25 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 		}
 	}
 
+	/**
+	 * Log the hypervolume of the parent scores, calculated the same way as
+	 * when processing results after the experiment
+	 */
+	private void hypervolumeLogging(ArrayList<Score<T>> parentScores) {
+		int numObjectives = task.numObjectives();
+		double[] mins = task.minScores();
+		double[][] points = new double[parentScores.size()][numObjectives];
+		for (int i = 0; i < points.length; i++) {
+			for (int j = 0; j < numObjectives; j++) {
+				points[i][j] = parentScores.get(i).scores[j] - mins[j];
+			}
+		}
+		ArrayList<Double> values = new ArrayList<Double>(2);
+		values.add(hypervolume.update(points));
+		values.add((double) hypervolume.frontSize());
+		hypervolumeLog.log(generation, values);
+	}
+
 	private void modeLogging(ArrayList<Score<T>> parentScores) {
 		// Find out how many modes the best and worst nets had
 		double[] modeBests = new double[MAX_MODE_OF_LOG_INTEREST + 1];
@@ -385,6 +418,9 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 			combined.addAll(childrenScores);
 			MMNEAT.logPerformanceInformation(combined, generation);
 		}
+		if (task instanceof LonerTask && ((LonerTask<T>) task).evaluationCache != null) {
+			((LonerTask<T>) task).evaluationCache.log(generation);
+		}
 		return selectAndAdvance(parentScores, childrenScores);
 	}
 
@@ -407,6 +443,12 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 			if (modeLog != null) {
 				modeLog.close();
 			}
+			if (hypervolumeLog != null) {
+				hypervolumeLog.close();
+			}
+		}
+		if (task instanceof LonerTask && ((LonerTask<T>) task).evaluationCache != null) {
+			((LonerTask<T>) task).evaluationCache.close();
 		}
 	}
 
@@ -280,6 +280,10 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 	 *            population that was just evaluated.
 	 */
 	private static <T> void assignCrowdingDistance(NSGA2Score<T>[] scores) {
+		if (CommonConstants.fastNonDominatedSort && !containsNaN(scores)) {
+			fastCrowdingDistance(scores);
+			return;
+		}
 		// reset distances
 		for (int i = 0; i < scores.length; i++) {
 			scores[i].setCrowdingDistance(0);
@@ -308,6 +312,94 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 		}
 	}
 
+	/**
+	 * Same as the Object based crowding distance calculation above, but the
+	 * sorting and summing is done over primitive arrays. The same stable sort
+	 * is applied for each objective, in the same order, so the scores array
+	 * ends up in exactly the same order, and every distance is summed in
+	 * exactly the same order. Requires that no score is NaN, since NaN scores
+	 * make the sort order depend on the sorting algorithm.
+	 *
+	 * @param scores
+	 *            See assignCrowdingDistance
+	 */
+	private static <T> void fastCrowdingDistance(NSGA2Score<T>[] scores) {
+		int n = scores.length;
+		int numObjectives = scores[0].numObjectives();
+		double[] distance = new double[n];
+		// order[k] is the original index of the score at position k
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		int[] buffer = new int[n];
+		double[] values = new double[n];
+		for (int j = 0; j < numObjectives; j++) {
+			if (scores[order[0]].useObjective(j)) {
+				for (int i = 0; i < n; i++) {
+					values[i] = scores[i].scores[j];
+				}
+				mergeSort(order, buffer, values, 0, n);
+
+				distance[order[0]] = Float.POSITIVE_INFINITY;
+				distance[order[n - 1]] = Float.POSITIVE_INFINITY;
+
+				double min = values[order[0]];
+				double max = values[order[n - 1]];
+
+				if (max - min > 0) {
+					for (int k = 1; k < n - 1; k++) {
+						distance[order[k]] += Math.abs(values[order[k + 1]] - values[order[k - 1]]) / (max - min);
+					}
+				}
+			}
+		}
+
+		NSGA2Score<T>[] original = Arrays.copyOf(scores, n);
+		for (int k = 0; k < n; k++) {
+			scores[k] = original[order[k]];
+			scores[k].setCrowdingDistance(distance[order[k]]);
+		}
+	}
+
+	/**
+	 * Stable sort of indices in [from, to) in increasing order of their
+	 * values. Any stable sort produces the same order as Arrays.sort with an
+	 * ObjectiveComparator, since no values are NaN.
+	 */
+	private static void mergeSort(int[] indices, int[] buffer, double[] values, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(indices, buffer, values, from, mid);
+		mergeSort(indices, buffer, values, mid, to);
+		if (values[indices[mid - 1]] <= values[indices[mid]]) {
+			return; // Already in order
+		}
+		System.arraycopy(indices, from, buffer, from, to - from);
+		int left = from;
+		int right = mid;
+		for (int k = from; k < to; k++) {
+			if (right >= to || (left < mid && values[buffer[left]] <= values[buffer[right]])) {
+				indices[k] = buffer[left++];
+			} else {
+				indices[k] = buffer[right++];
+			}
+		}
+	}
+
+	private static <T> boolean containsNaN(NSGA2Score<T>[] scores) {
+		for (NSGA2Score<T> s : scores) {
+			for (double x : s.scores) {
+				if (Double.isNaN(x)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Sort the evaluated population into Pareto fronts according to their
 	 * objective scores.
@@ -327,6 +419,10 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 			scores[i].reset();
 		}
 
+		if (CommonConstants.fastNonDominatedSort && scores.length > 0) {
+			return primitiveNonDominatedSort(scores);
+		}
+
 		for (int i = 0; i < scores.length; i++) {
 			NSGA2Score<T> p = scores[i];
 			for (int j = 0; j < scores.length; j++) {
@@ -369,6 +465,51 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 		return frontSet;
 	}
 
+	/**
+	 * Same result as fastNonDominatedSort, but computed by NonDominatedSorting
+	 * over a primitive copy of the objectives that are in use. Members of each
+	 * front are in the same order as in the scores array.
+	 *
+	 * @param scores
+	 *            See fastNonDominatedSort, already reset
+	 * @return See fastNonDominatedSort
+	 */
+	private static <T> ArrayList<ArrayList<NSGA2Score<T>>> primitiveNonDominatedSort(NSGA2Score<T>[] scores) {
+		int numObjectives = scores[0].numObjectives();
+		int used = 0;
+		for (int j = 0; j < numObjectives; j++) {
+			if (scores[0].useObjective(j)) {
+				used++;
+			}
+		}
+		double[][] objectives = new double[scores.length][used];
+		for (int i = 0; i < scores.length; i++) {
+			int k = 0;
+			for (int j = 0; j < numObjectives; j++) {
+				if (scores[0].useObjective(j)) {
+					objectives[i][k++] = scores[i].scores[j];
+				}
+			}
+		}
+
+		int[] ranks = NonDominatedSorting.ranks(objectives);
+		int numFronts = NonDominatedSorting.numFronts(ranks);
+		int[] frontSizes = new int[numFronts];
+		for (int r : ranks) {
+			frontSizes[r]++;
+		}
+		ArrayList<ArrayList<NSGA2Score<T>>> frontSet = new ArrayList<ArrayList<NSGA2Score<T>>>(numFronts);
+		for (int f = 0; f < numFronts; f++) {
+			frontSet.add(new ArrayList<NSGA2Score<T>>(frontSizes[f]));
+		}
+		for (int i = 0; i < scores.length; i++) {
+			frontSet.get(ranks[i]).add(scores[i]);
+			scores[i].assign(ranks[i]);
+			scores[i].processed = true;
+		}
+		return frontSet;
+	}
+
 	/**
 	 * Return just the Pareto front for a given population of scores.
 	 * 
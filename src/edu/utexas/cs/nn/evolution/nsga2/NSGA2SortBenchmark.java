@@ -0,0 +1,78 @@
+package edu.utexas.cs.nn.evolution.nsga2;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.RealValuedGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Micro-benchmark comparing the original Object based NSGA2 selection with
+ * the primitive array version, for several population sizes and numbers of
+ * objectives. Both versions must select exactly the same individuals, which
+ * is checked for every case. Each time is the average over several
+ * repetitions after a warm up, in milliseconds.
+ *
+ * Usage: NSGA2SortBenchmark [repetitions]
+ *
+ * @author Jacob Schrum
+ */
+public class NSGA2SortBenchmark {
+
+	private static final int[] SIZES = new int[] { 100, 250, 500, 1000, 2000 };
+	private static final int[] OBJECTIVES = new int[] { 2, 3, 5, 8 };
+
+	public static void main(String[] args) {
+		int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		Random random = new Random(0);
+		System.out.println("N\tM\tfronts\toriginal\tfast\tspeedup");
+		for (int m : OBJECTIVES) {
+			for (int n : SIZES) {
+				NSGA2Score<ArrayList<Double>>[] scores = randomScores(random, n, m);
+				// Select half, as mu+lambda selection does
+				double original = time(scores, n / 2, false, repetitions);
+				double fast = time(scores, n / 2, true, repetitions);
+				if (!select(scores, n / 2, true).equals(select(scores, n / 2, false))) {
+					System.out.println("Selections differ for N=" + n + ", M=" + m);
+					System.exit(1);
+				}
+				int fronts = NSGA2.getParetoLayers(scores.clone()).size();
+				System.out.println(n + "\t" + m + "\t" + fronts + "\t" + String.format("%.3f", original) + "\t\t"
+						+ String.format("%.3f", fast) + "\t" + String.format("%.1f", original / fast));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static NSGA2Score<ArrayList<Double>>[] randomScores(Random random, int n, int m) {
+		NSGA2Score<ArrayList<Double>>[] scores = (NSGA2Score<ArrayList<Double>>[]) new NSGA2Score<?>[n];
+		for (int i = 0; i < n; i++) {
+			double[] objectives = new double[m];
+			for (int j = 0; j < m; j++) {
+				// Coarse values, since game scores have many ties
+				objectives[j] = random.nextInt(1000);
+			}
+			Genotype<ArrayList<Double>> g = new RealValuedGenotype(new double[0]);
+			scores[i] = new NSGA2Score<ArrayList<Double>>(g, objectives, null, new double[0]);
+		}
+		return scores;
+	}
+
+	private static ArrayList<Genotype<ArrayList<Double>>> select(NSGA2Score<ArrayList<Double>>[] scores, int numParents, boolean fast) {
+		CommonConstants.fastNonDominatedSort = fast;
+		return NSGA2.staticSelection(numParents, scores.clone());
+	}
+
+	private static double time(NSGA2Score<ArrayList<Double>>[] scores, int numParents, boolean fast, int repetitions) {
+		for (int i = 0; i < repetitions; i++) {
+			select(scores, numParents, fast);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < repetitions; i++) {
+			select(scores, numParents, fast);
+		}
+		return (System.nanoTime() - start) / (repetitions * 1000000.0);
+	}
+}
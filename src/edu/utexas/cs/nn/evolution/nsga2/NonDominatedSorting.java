@@ -0,0 +1,249 @@
+package edu.utexas.cs.nn.evolution.nsga2;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Pareto ranking of objective vectors stored in primitive arrays. All
+ * objectives are maximized, and one vector dominates another if it is at least
+ * as good in every objective and better in at least one, exactly as in
+ * MultiObjectiveScore.isBetter.
+ *
+ * For up to three objectives, Efficient Non-dominated Sort (ENS) with binary
+ * search over fronts is used: after sorting the vectors lexicographically,
+ * a vector can only be dominated by vectors before it, so each one is placed
+ * in the first front that does not dominate it. With two objectives, only the
+ * most recently added member of a front needs to be checked, which makes the
+ * whole sort O(N log N) (as in Jensen's algorithm). For more objectives, ENS
+ * loses most of its advantage, so all pairs are compared as in Deb's fast
+ * non-dominated sort, but without any object overhead.
+ *
+ * Vectors containing NaN are always handled by the pairwise sort, because
+ * NaN cannot be sorted consistently.
+ *
+ * @author Jacob Schrum
+ */
+public class NonDominatedSorting {
+
+	/**
+	 * Pareto rank of every vector: 0 for the non-dominated vectors, 1 for
+	 * vectors only dominated by rank 0 vectors, etc.
+	 *
+	 * @param objectives
+	 *            objectives[i][j] is objective j of vector i. All vectors must
+	 *            have the same length.
+	 * @return rank of each vector
+	 */
+	public static int[] ranks(double[][] objectives) {
+		int numObjectives = objectives.length == 0 ? 0 : objectives[0].length;
+		if (numObjectives <= 3 && !containsNaN(objectives)) {
+			return efficientRanks(objectives);
+		} else {
+			return pairwiseRanks(objectives);
+		}
+	}
+
+	/**
+	 * @return number of fronts given the ranks returned by ranks
+	 */
+	public static int numFronts(int[] ranks) {
+		int max = -1;
+		for (int r : ranks) {
+			max = Math.max(max, r);
+		}
+		return max + 1;
+	}
+
+	/**
+	 * Whether one vector dominates another
+	 *
+	 * @param x
+	 *            first vector
+	 * @param y
+	 *            second vector
+	 * @return true if x dominates y
+	 */
+	public static boolean dominates(double[] x, double[] y) {
+		boolean better = false;
+		for (int j = 0; j < x.length; j++) {
+			if (x[j] < y[j]) {
+				return false;
+			}
+			if (x[j] > y[j]) {
+				better = true;
+			}
+		}
+		return better;
+	}
+
+	private static boolean containsNaN(double[][] objectives) {
+		for (double[] v : objectives) {
+			for (double x : v) {
+				if (Double.isNaN(x)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * ENS-BS: Efficient Non-dominated Sort with binary search. Requires that
+	 * no vector contains NaN.
+	 *
+	 * @param objectives
+	 *            see ranks
+	 * @return see ranks
+	 */
+	static int[] efficientRanks(final double[][] objectives) {
+		int n = objectives.length;
+		int[] rank = new int[n];
+		if (n == 0) {
+			return rank;
+		}
+		final int numObjectives = objectives[0].length;
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		// Lexicographically decreasing, so dominators come first
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				double[] x = objectives[a];
+				double[] y = objectives[b];
+				for (int j = 0; j < numObjectives; j++) {
+					if (x[j] > y[j]) {
+						return -1;
+					} else if (x[j] < y[j]) {
+						return 1;
+					}
+				}
+				return 0;
+			}
+		});
+
+		// Members of each front, in the order they were added
+		int[][] fronts = new int[n][];
+		int[] sizes = new int[n];
+		int numFronts = 0;
+		for (int k = 0; k < n; k++) {
+			int p = order[k];
+			int low = 0;
+			int high = numFronts;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (frontDominates(objectives, fronts[mid], sizes[mid], objectives[p])) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low == numFronts) {
+				fronts[numFronts++] = new int[4];
+			} else if (sizes[low] == fronts[low].length) {
+				fronts[low] = Arrays.copyOf(fronts[low], sizes[low] * 2);
+			}
+			fronts[low][sizes[low]++] = p;
+			rank[p] = low;
+		}
+		return rank;
+	}
+
+	/**
+	 * Whether any member of a front dominates p. Because members are added in
+	 * lexicographically decreasing order, the last member of a two-objective
+	 * front has the highest second objective, so it dominates p if any member
+	 * does. Otherwise, members are checked from last to first, since later
+	 * members are most similar to p.
+	 */
+	private static boolean frontDominates(double[][] objectives, int[] front, int size, double[] p) {
+		if (p.length <= 2) {
+			return dominates(objectives[front[size - 1]], p);
+		}
+		for (int i = size - 1; i >= 0; i--) {
+			if (dominates(objectives[front[i]], p)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Deb's fast non-dominated sort: compare every pair, then peel off one
+	 * front at a time.
+	 *
+	 * @param objectives
+	 *            see ranks
+	 * @return see ranks
+	 */
+	static int[] pairwiseRanks(double[][] objectives) {
+		int n = objectives.length;
+		int[] numDominators = new int[n];
+		int[][] dominated = new int[n][];
+		int[] numDominated = new int[n];
+		for (int i = 0; i < n; i++) {
+			dominated[i] = new int[4];
+		}
+
+		for (int i = 0; i < n; i++) {
+			double[] x = objectives[i];
+			for (int j = i + 1; j < n; j++) {
+				double[] y = objectives[j];
+				boolean xBetter = false;
+				boolean yBetter = false;
+				for (int k = 0; k < x.length && !(xBetter && yBetter); k++) {
+					if (x[k] > y[k]) {
+						xBetter = true;
+					} else if (x[k] < y[k]) {
+						yBetter = true;
+					}
+				}
+				if (xBetter && !yBetter) {
+					add(dominated, numDominated, i, j);
+					numDominators[j]++;
+				} else if (yBetter && !xBetter) {
+					add(dominated, numDominated, j, i);
+					numDominators[i]++;
+				}
+			}
+		}
+
+		int[] rank = new int[n];
+		int[] current = new int[n];
+		int[] next = new int[n];
+		int currentSize = 0;
+		for (int i = 0; i < n; i++) {
+			if (numDominators[i] == 0) {
+				current[currentSize++] = i;
+			}
+		}
+		int front = 0;
+		while (currentSize > 0) {
+			int nextSize = 0;
+			for (int c = 0; c < currentSize; c++) {
+				int p = current[c];
+				rank[p] = front;
+				for (int d = 0; d < numDominated[p]; d++) {
+					int q = dominated[p][d];
+					if (--numDominators[q] == 0) {
+						next[nextSize++] = q;
+					}
+				}
+			}
+			int[] temp = current;
+			current = next;
+			next = temp;
+			currentSize = nextSize;
+			front++;
+		}
+		return rank;
+	}
+
+	private static void add(int[][] lists, int[] sizes, int list, int value) {
+		if (sizes[list] == lists[list].length) {
+			lists[list] = Arrays.copyOf(lists[list], sizes[list] * 2);
+		}
+		lists[list][sizes[list]++] = value;
+	}
+}
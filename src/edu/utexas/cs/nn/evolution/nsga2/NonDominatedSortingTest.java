@@ -0,0 +1,116 @@
+package edu.utexas.cs.nn.evolution.nsga2;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.RealValuedGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+
+public class NonDominatedSortingTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		CommonConstants.fastNonDominatedSort = false;
+	}
+
+	/**
+	 * Random scores with many ties, since ties are where the algorithms are
+	 * most likely to disagree
+	 */
+	@SuppressWarnings("unchecked")
+	private static NSGA2Score<ArrayList<Double>>[] randomScores(Random random, int n, int m, int levels) {
+		NSGA2Score<ArrayList<Double>>[] scores = (NSGA2Score<ArrayList<Double>>[]) new NSGA2Score<?>[n];
+		for (int i = 0; i < n; i++) {
+			double[] objectives = new double[m];
+			for (int j = 0; j < m; j++) {
+				objectives[j] = random.nextInt(levels) - levels / 2;
+			}
+			Genotype<ArrayList<Double>> g = new RealValuedGenotype(new double[0]);
+			scores[i] = new NSGA2Score<ArrayList<Double>>(g, objectives, null, new double[0]);
+		}
+		return scores;
+	}
+
+	/**
+	 * Both kernels give every vector the rank that the pairwise definition
+	 * of Pareto fronts requires.
+	 */
+	@Test
+	public void test_ranks() {
+		Random random = new Random(0);
+		for (int m = 0; m <= 6; m++) {
+			for (int trial = 0; trial < 20; trial++) {
+				int n = 1 + random.nextInt(60);
+				double[][] objectives = new double[n][m];
+				for (int i = 0; i < n; i++) {
+					for (int j = 0; j < m; j++) {
+						objectives[i][j] = random.nextInt(4);
+					}
+				}
+				int[] pairwise = NonDominatedSorting.pairwiseRanks(objectives);
+				assertArrayEquals(pairwise, NonDominatedSorting.efficientRanks(objectives));
+				for (int i = 0; i < n; i++) {
+					// Dominated by some member of the previous front, and by
+					// nothing in the same or later fronts
+					boolean dominatedByPrevious = pairwise[i] == 0;
+					for (int k = 0; k < n; k++) {
+						if (NonDominatedSorting.dominates(objectives[k], objectives[i])) {
+							assertTrue(pairwise[k] < pairwise[i]);
+							dominatedByPrevious |= pairwise[k] == pairwise[i] - 1;
+						}
+					}
+					assertTrue(dominatedByPrevious);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Selection with the fast sort picks exactly the same individuals as the
+	 * original sort, leaves the score array in the same order, and assigns
+	 * the same ranks and crowding distances.
+	 */
+	@Test
+	public void test_sameSelection() {
+		Random random = new Random(1);
+		for (int m = 1; m <= 6; m++) {
+			for (int trial = 0; trial < 10; trial++) {
+				int n = 2 + random.nextInt(100);
+				NSGA2Score<ArrayList<Double>>[] original = randomScores(random, n, m, 2 + random.nextInt(8));
+				NSGA2Score<ArrayList<Double>>[] fast = original.clone();
+				int numParents = 1 + random.nextInt(n);
+
+				CommonConstants.fastNonDominatedSort = false;
+				ArrayList<Genotype<ArrayList<Double>>> expected = NSGA2.staticSelection(numParents, original);
+				double[] expectedDistances = new double[n];
+				int[] expectedRanks = new int[n];
+				for (int i = 0; i < n; i++) {
+					expectedDistances[i] = original[i].getCrowdingDistance();
+					expectedRanks[i] = original[i].getRank();
+				}
+
+				CommonConstants.fastNonDominatedSort = true;
+				ArrayList<Genotype<ArrayList<Double>>> actual = NSGA2.staticSelection(numParents, fast);
+				assertEquals(expected, actual);
+				for (int i = 0; i < n; i++) {
+					assertSame(original[i], fast[i]);
+					assertEquals(expectedDistances[i], fast[i].getCrowdingDistance(), 0.0);
+					assertEquals(expectedRanks[i], fast[i].getRank());
+				}
+			}
+		}
+	}
+}
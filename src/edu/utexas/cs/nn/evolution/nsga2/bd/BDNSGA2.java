@@ -3,8 +3,10 @@ package edu.utexas.cs.nn.evolution.nsga2.bd;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.nsga2.NSGA2;
 import edu.utexas.cs.nn.evolution.nsga2.bd.characterizations.BehaviorCharacterization;
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.BehaviorMatrix;
 import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.BehaviorVector;
 import edu.utexas.cs.nn.util.ClassCreation;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
 
@@ -132,8 +134,17 @@ public class BDNSGA2<T> extends NSGA2<T> {
 		ArrayList<Double> result = new ArrayList<Double>(behaviorVectors.size());
 		double maxDiversity = -Double.MAX_VALUE;// more negative = more diverse
 		int mostDiverseIndex = -1;
+		double[] nearest = null;
+		if (CommonConstants.fastBehaviorDistances) {
+			// Same distances as diversityScore, computed over primitive arrays
+			BehaviorMatrix behaviors = BehaviorMatrix.of(behaviorVectors);
+			BehaviorMatrix archived = compareArchive ? BehaviorMatrix.of(archiveBehaviors) : null;
+			if (behaviors != null && (!compareArchive || archived != null)) {
+				nearest = behaviors.nearestDistances(archived);
+			}
+		}
 		for (int i = 0; i < behaviorVectors.size(); i++) {
-			double score = diversityScore(behaviorVectors, i, compareArchive);
+			double score = nearest == null ? diversityScore(behaviorVectors, i, compareArchive) : nearest[i];
 			result.add(score);
 			if (score > maxDiversity) {
 				maxDiversity = score;
@@ -0,0 +1,203 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Real behavior vectors packed into the rows of one contiguous array, padded
+ * with zeros to the length of the longest vector, for fast nearest neighbor
+ * distances. Zero padding does not change any distance, since vectors of
+ * different lengths are already compared as if padded with zeros.
+ *
+ * Nearest neighbor distances are found by a blocked kernel: a block of rows
+ * is compared against each row of the other matrix in turn, so every row
+ * fetched from memory is used for the whole block. Blocks are independent,
+ * and are spread over the threads of the shared EvaluationScheduler. Every
+ * distance is computed exactly as RealBehaviorVector.distance would, and
+ * minimums do not depend on the order they are taken in, so results are
+ * identical to comparing the vectors one pair at a time.
+ *
+ * @author Jacob Schrum
+ */
+public class BehaviorMatrix {
+
+	// Rows compared against each row of the other matrix at once
+	private static final int BLOCK_SIZE = 16;
+	// Fewer distance terms than this are not worth splitting among threads
+	private static final long PARALLEL_WORK = 1 << 20;
+
+	private final double[] values;
+	private final int rows;
+	private final int dimension;
+
+	private BehaviorMatrix(double[] values, int rows, int dimension) {
+		this.values = values;
+		this.rows = rows;
+		this.dimension = dimension;
+	}
+
+	/**
+	 * Pack a list of behavior vectors into a matrix
+	 *
+	 * @param vectors
+	 *            behavior vectors
+	 * @return matrix with one row per vector, or null if any of the vectors
+	 *         is not a RealBehaviorVector
+	 */
+	public static BehaviorMatrix of(List<BehaviorVector> vectors) {
+		int dimension = 0;
+		for (BehaviorVector v : vectors) {
+			if (!(v instanceof RealBehaviorVector)) {
+				return null;
+			}
+			dimension = Math.max(dimension, ((RealBehaviorVector) v).size());
+		}
+		double[] values = new double[vectors.size() * dimension];
+		for (int r = 0; r < vectors.size(); r++) {
+			RealBehaviorVector v = (RealBehaviorVector) vectors.get(r);
+			for (int i = 0; i < v.size(); i++) {
+				values[r * dimension + i] = v.get(i);
+			}
+		}
+		return new BehaviorMatrix(values, vectors.size(), dimension);
+	}
+
+	/**
+	 * @return number of rows (vectors)
+	 */
+	public int rows() {
+		return rows;
+	}
+
+	/**
+	 * Distance between a row of this matrix and a row of another
+	 */
+	private double distance(int row, BehaviorMatrix other, int otherRow) {
+		return RealBehaviorVector.distance(values, row * dimension, dimension, other.values, otherRow * other.dimension,
+				other.dimension);
+	}
+
+	/**
+	 * For each row, the distance to the nearest other row of this matrix, and
+	 * to the nearest row of the archive at nonzero distance, as computed by
+	 * BDNSGA2.diversityScore.
+	 *
+	 * @param archive
+	 *            matrix of archived behaviors, or null to only compare rows of
+	 *            this matrix
+	 * @return nearest neighbor distance of each row, Double.MAX_VALUE if
+	 *         there are no neighbors
+	 */
+	public double[] nearestDistances(final BehaviorMatrix archive) {
+		final double[] nearest = new double[rows];
+		Arrays.fill(nearest, Double.MAX_VALUE);
+		int blocks = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		long work = (long) rows * (rows + (archive == null ? 0 : archive.rows)) * Math.max(1, dimension);
+		EvaluationScheduler scheduler = EvaluationScheduler.getScheduler();
+		if (blocks > 1 && work >= PARALLEL_WORK && scheduler.getThreads() > 1) {
+			ArrayList<Callable<Boolean>> jobs = new ArrayList<Callable<Boolean>>(blocks);
+			for (int b = 0; b < blocks; b++) {
+				final int first = b * BLOCK_SIZE;
+				jobs.add(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						nearestDistances(first, Math.min(rows, first + BLOCK_SIZE), archive, nearest);
+						return true;
+					}
+				});
+			}
+			try {
+				scheduler.invokeAll(jobs);
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.out.println("Failure computing behavior distances");
+				System.exit(1);
+			}
+		} else {
+			for (int first = 0; first < rows; first += BLOCK_SIZE) {
+				nearestDistances(first, Math.min(rows, first + BLOCK_SIZE), archive, nearest);
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Fill in nearest neighbor distances of rows in [first, last)
+	 */
+	private void nearestDistances(int first, int last, BehaviorMatrix archive, double[] nearest) {
+		nearestDistances(first, last, this, true, nearest);
+		if (archive != null) {
+			nearestDistances(first, last, archive, false, nearest);
+		}
+	}
+
+	/**
+	 * Compare rows in [first, last) with every row of another matrix. Four
+	 * rows are compared with each row of the other matrix at once, each with
+	 * its own sum, which lets the processor overlap the four sums without
+	 * changing the order of terms within any of them.
+	 *
+	 * @param self
+	 *            whether the other matrix is this one, in which case each row
+	 *            skips itself, and otherwise the other matrix is an archive,
+	 *            in which case zero distances are skipped
+	 */
+	private void nearestDistances(int first, int last, BehaviorMatrix other, boolean self, double[] nearest) {
+		final int common = Math.min(dimension, other.dimension);
+		final double[] b = other.values;
+		final double[] distances = new double[4];
+		for (int j = 0; j < other.rows; j++) {
+			final int bStart = j * other.dimension;
+			int i = first;
+			for (; i + 4 <= last; i += 4) {
+				final int a0 = i * dimension, a1 = a0 + dimension, a2 = a1 + dimension, a3 = a2 + dimension;
+				double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+				for (int k = 0; k < common; k++) {
+					final double x = b[bStart + k];
+					s0 += Math.pow(values[a0 + k] - x, 2);
+					s1 += Math.pow(values[a1 + k] - x, 2);
+					s2 += Math.pow(values[a2 + k] - x, 2);
+					s3 += Math.pow(values[a3 + k] - x, 2);
+				}
+				for (int k = common; k < dimension; k++) {
+					s0 += Math.pow(values[a0 + k], 2);
+					s1 += Math.pow(values[a1 + k], 2);
+					s2 += Math.pow(values[a2 + k], 2);
+					s3 += Math.pow(values[a3 + k], 2);
+				}
+				for (int k = common; k < other.dimension; k++) {
+					final double x = Math.pow(b[bStart + k], 2);
+					s0 += x;
+					s1 += x;
+					s2 += x;
+					s3 += x;
+				}
+				distances[0] = Math.sqrt(s0);
+				distances[1] = Math.sqrt(s1);
+				distances[2] = Math.sqrt(s2);
+				distances[3] = Math.sqrt(s3);
+				for (int r = 0; r < 4; r++) {
+					update(i + r, j, distances[r], self, nearest);
+				}
+			}
+			for (; i < last; i++) {
+				update(i, j, distance(i, other, j), self, nearest);
+			}
+		}
+	}
+
+	/**
+	 * Take the distance between row i and row j of another matrix into
+	 * account in the nearest distance of row i
+	 */
+	private static void update(int i, int j, double distance, boolean self, double[] nearest) {
+		if (self ? i != j : distance > 0) {
+			// Only identical agents should have zero distance to the archive
+			nearest[i] = Math.min(nearest[i], distance);
+		}
+	}
+}
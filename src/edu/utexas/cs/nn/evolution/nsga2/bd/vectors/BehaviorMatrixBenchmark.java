@@ -0,0 +1,111 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Micro-benchmark comparing behavioral diversity scores computed the
+ * original way, with boxed vectors compared one pair at a time, with the
+ * packed BehaviorMatrix version, for several population sizes, archive sizes
+ * and vector lengths. Both versions must give exactly the same scores, which
+ * is checked for every case. Each time is the average over several
+ * repetitions after a warm up, in milliseconds.
+ *
+ * Usage: BehaviorMatrixBenchmark [repetitions]
+ *
+ * @author Jacob Schrum
+ */
+public class BehaviorMatrixBenchmark {
+
+	private static final int[][] CASES = new int[][] {
+		// population, archive, vector length
+		{ 100, 0, 50 }, { 100, 500, 50 }, { 500, 0, 200 }, { 500, 2000, 200 }, { 500, 2000, 1000 } };
+
+	public static void main(String[] args) {
+		int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		Random random = new Random(0);
+		// Warm up
+		ArrayList<ArrayList<Double>> warmUp = randomLists(random, CASES[0][0], CASES[0][2]);
+		for (int i = 0; i < 10; i++) {
+			original(warmUp, warmUp);
+			matrix(warmUp, warmUp);
+		}
+		System.out.println("N\tA\tD\toriginal\tmatrix\tspeedup");
+		for (int[] c : CASES) {
+			ArrayList<ArrayList<Double>> population = randomLists(random, c[0], c[2]);
+			ArrayList<ArrayList<Double>> archive = c[1] == 0 ? null : randomLists(random, c[1], c[2]);
+			double[] expected = original(population, archive);
+			if (!Arrays.equals(expected, matrix(population, archive))) {
+				System.out.println("Scores differ for N=" + c[0] + ", A=" + c[1] + ", D=" + c[2]);
+				System.exit(1);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < repetitions; i++) {
+				original(population, archive);
+			}
+			double originalTime = (System.nanoTime() - start) / (repetitions * 1000000.0);
+			// Packing into matrices is part of the cost
+			start = System.nanoTime();
+			for (int i = 0; i < repetitions; i++) {
+				matrix(population, archive);
+			}
+			double matrixTime = (System.nanoTime() - start) / (repetitions * 1000000.0);
+			System.out.println(c[0] + "\t" + c[1] + "\t" + c[2] + "\t" + String.format("%.1f", originalTime) + "\t\t"
+					+ String.format("%.1f", matrixTime) + "\t" + String.format("%.1f", originalTime / matrixTime));
+		}
+	}
+
+	private static ArrayList<ArrayList<Double>> randomLists(Random random, int n, int length) {
+		ArrayList<ArrayList<Double>> lists = new ArrayList<ArrayList<Double>>(n);
+		for (int i = 0; i < n; i++) {
+			ArrayList<Double> v = new ArrayList<Double>(length);
+			for (int j = 0; j < length; j++) {
+				v.add(random.nextDouble());
+			}
+			lists.add(v);
+		}
+		return lists;
+	}
+
+	/**
+	 * Scores as computed before BehaviorMatrix, on lists of boxed values
+	 */
+	private static double[] original(ArrayList<ArrayList<Double>> population, ArrayList<ArrayList<Double>> archive) {
+		double[] result = new double[population.size()];
+		for (int i = 0; i < population.size(); i++) {
+			double score = Double.MAX_VALUE;
+			for (int j = 0; j < population.size(); j++) {
+				if (i != j) {
+					score = Math.min(score, CartesianGeometricUtilities.euclideanDistance(population.get(j), population.get(i)));
+				}
+			}
+			if (archive != null) {
+				for (int j = 0; j < archive.size(); j++) {
+					double distance = CartesianGeometricUtilities.euclideanDistance(archive.get(j), population.get(i));
+					if (distance > 0) {
+						score = Math.min(score, distance);
+					}
+				}
+			}
+			result[i] = score;
+		}
+		return result;
+	}
+
+	private static double[] matrix(ArrayList<ArrayList<Double>> population, ArrayList<ArrayList<Double>> archive) {
+		BehaviorMatrix behaviors = BehaviorMatrix.of(vectors(population));
+		return behaviors.nearestDistances(archive == null ? null : BehaviorMatrix.of(vectors(archive)));
+	}
+
+	private static ArrayList<BehaviorVector> vectors(ArrayList<ArrayList<Double>> lists) {
+		ArrayList<BehaviorVector> vectors = new ArrayList<BehaviorVector>(lists.size());
+		for (ArrayList<Double> l : lists) {
+			vectors.add(new RealBehaviorVector(l));
+		}
+		return vectors;
+	}
+}
@@ -0,0 +1,124 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
+
+public class BehaviorMatrixTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+	}
+
+	/**
+	 * Distance as originally computed on lists, padding the shorter list
+	 */
+	private static double listDistance(ArrayList<Double> a, ArrayList<Double> b) {
+		ArrayList<Double> shorter = new ArrayList<Double>(a);
+		ArrayList<Double> longer = new ArrayList<Double>(b);
+		if (shorter.size() > longer.size()) {
+			ArrayList<Double> temp = shorter;
+			shorter = longer;
+			longer = temp;
+		}
+		while (shorter.size() < longer.size()) {
+			shorter.add(0.0);
+		}
+		return CartesianGeometricUtilities.euclideanDistance(shorter, longer);
+	}
+
+	/**
+	 * Nearest neighbor distances as originally computed by
+	 * BDNSGA2.diversityScore
+	 */
+	private static double[] listNearest(ArrayList<ArrayList<Double>> vectors, ArrayList<ArrayList<Double>> archive) {
+		double[] result = new double[vectors.size()];
+		for (int i = 0; i < vectors.size(); i++) {
+			double score = Double.MAX_VALUE;
+			for (int j = 0; j < vectors.size(); j++) {
+				if (i != j) {
+					score = Math.min(score, listDistance(vectors.get(j), vectors.get(i)));
+				}
+			}
+			if (archive != null) {
+				for (int j = 0; j < archive.size(); j++) {
+					double distance = listDistance(archive.get(j), vectors.get(i));
+					if (distance > 0) {
+						score = Math.min(score, distance);
+					}
+				}
+			}
+			result[i] = score;
+		}
+		return result;
+	}
+
+	private static ArrayList<ArrayList<Double>> randomLists(Random random, int n, int maxLength) {
+		ArrayList<ArrayList<Double>> lists = new ArrayList<ArrayList<Double>>(n);
+		for (int i = 0; i < n; i++) {
+			if (i > 0 && random.nextInt(10) == 0) {
+				// Identical behavior
+				lists.add(new ArrayList<Double>(lists.get(random.nextInt(i))));
+				continue;
+			}
+			int length = maxLength - random.nextInt(3);
+			ArrayList<Double> v = new ArrayList<Double>(length);
+			for (int j = 0; j < length; j++) {
+				v.add(random.nextGaussian());
+			}
+			lists.add(v);
+		}
+		return lists;
+	}
+
+	private static ArrayList<BehaviorVector> vectors(ArrayList<ArrayList<Double>> lists) {
+		ArrayList<BehaviorVector> vectors = new ArrayList<BehaviorVector>(lists.size());
+		for (ArrayList<Double> l : lists) {
+			vectors.add(new RealBehaviorVector(l));
+		}
+		return vectors;
+	}
+
+	/**
+	 * Matrix distances are bit for bit the distances of the original list
+	 * based vectors, with vectors of different lengths and duplicates, and do
+	 * not change the vectors
+	 */
+	@Test
+	public void test_nearestDistances() {
+		Random random = new Random(0);
+		for (int n : new int[] { 1, 2, 17, 150 }) {
+			ArrayList<ArrayList<Double>> population = randomLists(random, n, 12);
+			ArrayList<ArrayList<Double>> archive = randomLists(random, 40, 10);
+			archive.add(new ArrayList<Double>(population.get(0)));
+			ArrayList<BehaviorVector> vectors = vectors(population);
+			BehaviorMatrix matrix = BehaviorMatrix.of(vectors);
+			assertArrayEquals(listNearest(population, null), matrix.nearestDistances(null), 0);
+			assertArrayEquals(listNearest(population, archive), matrix.nearestDistances(BehaviorMatrix.of(vectors(archive))), 0);
+			for (int i = 0; i < n; i++) {
+				assertEquals(listDistance(population.get(i), population.get(n - 1 - i)),
+						vectors.get(i).distance(vectors.get(n - 1 - i)), 0);
+				assertEquals(population.get(i).size(), ((RealBehaviorVector) vectors.get(i)).size());
+			}
+		}
+	}
+
+	/**
+	 * Bit vectors can not be packed
+	 */
+	@Test
+	public void test_onlyRealVectors() {
+		ArrayList<BehaviorVector> vectors = new ArrayList<BehaviorVector>();
+		vectors.add(new RealBehaviorVector(new double[] { 1, 2 }));
+		vectors.add(new ThresholdBitBehaviorVector(new ArrayList<Double>()));
+		assertNull(BehaviorMatrix.of(vectors));
+	}
+}
@@ -4,48 +4,90 @@
  */
 package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
 
-import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
 import java.util.ArrayList;
 
 /**
+ * Behavior vector of real values, compared by Euclidean distance. Vectors of
+ * different lengths are compared as if the shorter one were padded with
+ * zeros.
  *
  * @author Jacob Schrum
  */
 public class RealBehaviorVector implements BehaviorVector {
 
-	private final ArrayList<Double> v;
+	private final double[] v;
 
 	public RealBehaviorVector(ArrayList<Double> v) {
-		this.v = v;
+		this.v = new double[v.size()];
+		for (int j = 0; j < this.v.length; j++) {
+			this.v[j] = v.get(j);
+		}
 	}
 
 	public RealBehaviorVector(int[] i) {
-		this.v = new ArrayList<Double>(i.length);
+		this.v = new double[i.length];
 		for (int j = 0; j < i.length; j++) {
-			v.add(new Double(i[j]));
+			v[j] = i[j];
 		}
 	}
 
 	public RealBehaviorVector(double[] d) {
-		this.v = new ArrayList<Double>(d.length);
-		for (int j = 0; j < d.length; j++) {
-			v.add(new Double(d[j]));
-		}
+		this.v = d.clone();
+	}
+
+	/**
+	 * @return number of values in the vector
+	 */
+	public int size() {
+		return v.length;
+	}
+
+	/**
+	 * @param i
+	 *            index of value
+	 * @return value at that index
+	 */
+	public double get(int i) {
+		return v[i];
 	}
 
 	public double distance(BehaviorVector rhs) {
-		ArrayList<Double> shorter = v;
-		ArrayList<Double> longer = ((RealBehaviorVector) rhs).v;
-		if (shorter.size() != longer.size()) {
-			if (shorter.size() > longer.size()) {
-				shorter = longer;
-				longer = v;
-			}
-
-			for (int i = shorter.size(); i < longer.size(); i++) {
-				shorter.add(0.0);
-			}
+		double[] other = ((RealBehaviorVector) rhs).v;
+		return distance(v, 0, v.length, other, 0, other.length);
+	}
+
+	/**
+	 * Euclidean distance between two vectors stored in arrays, with missing
+	 * values of the shorter vector treated as zero. Squared differences are
+	 * summed in index order, so the result does not depend on which vector is
+	 * given first, and is the same wherever the vectors are stored.
+	 *
+	 * @param a
+	 *            array holding first vector
+	 * @param aStart
+	 *            index of first vector in a
+	 * @param aLength
+	 *            length of first vector
+	 * @param b
+	 *            array holding second vector
+	 * @param bStart
+	 *            index of second vector in b
+	 * @param bLength
+	 *            length of second vector
+	 * @return distance between the vectors
+	 */
+	public static double distance(double[] a, int aStart, int aLength, double[] b, int bStart, int bLength) {
+		int common = Math.min(aLength, bLength);
+		double sum = 0;
+		for (int i = 0; i < common; i++) {
+			sum += Math.pow(a[aStart + i] - b[bStart + i], 2);
+		}
+		for (int i = common; i < aLength; i++) {
+			sum += Math.pow(a[aStart + i], 2);
+		}
+		for (int i = common; i < bLength; i++) {
+			sum += Math.pow(b[bStart + i], 2);
 		}
-		return CartesianGeometricUtilities.euclideanDistance(shorter, longer);
+		return Math.sqrt(sum);
 	}
 }
@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.experiment;
 
-import edu.utexas.cs.nn.data.SaveThread;
+import edu.utexas.cs.nn.data.CheckpointStore;
+import edu.utexas.cs.nn.data.PopulationArchive;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.SinglePopulationGenerationalEA;
 import edu.utexas.cs.nn.evolution.crossover.network.CombiningTWEANNCrossover;
@@ -13,10 +14,6 @@ import edu.utexas.cs.nn.util.random.RandomNumbers;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Evolve a single population of genotypes one generation at a time.
@@ -40,6 +37,8 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 	private boolean loaded = false;
 	// Whether file saving should occur in a parellel thread
 	private boolean parallel;
+	// Saves only new genotypes each generation, or null to save whole populations
+	private CheckpointStore checkpoints = null;
 
 	public SinglePopulationGenerationalEAExperiment() {
 		// Dummy constructor used by Post Evolution Evaluation Experiment
@@ -192,6 +191,9 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 		if ((writeOutput || io) && !dir.exists()) {
 			dir.mkdir();
 		}
+		if (writeOutput && Parameters.parameters.booleanParameter("incrementalCheckpoints")) {
+			checkpoints = new CheckpointStore(saveDirectory + "/checkpoints", deleteOld);
+		}
 		System.out.println("GenerationalEAExperiment: writeOutput = " + writeOutput);
 	}
 
@@ -204,8 +206,7 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 	public void run() {
 		System.out.println("Evolving with " + ea + " to solve " + ea.getTask());
 		if (writeOutput && !loaded) {
-			save("initial");
-			Parameters.parameters.saveParameters();
+			checkpoint("initial");
 		}
 		while (!shouldStop()) {
 			System.out.println("Starting generation: " + ea.currentGeneration());
@@ -220,10 +221,9 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 				EvolutionaryHistory.cleanArchetype(0, tweannPopulation, gen);
 			}
 			if (writeOutput) {
-				save("gen" + gen);
 				Parameters.parameters.setInteger("lastSavedGeneration", gen);
-				Parameters.parameters.saveParameters();
-				if (deleteOld) {
+				boolean incremental = checkpoint("gen" + gen);
+				if (deleteOld && !incremental) {
 					File lastDir = gen > 1 ? new File(saveDirectory + "/gen" + (gen - 1))
 							: new File(saveDirectory + "/initial");
 					if (lastDir.exists()) {
@@ -234,15 +234,51 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 			}
 		}
 		ea.close(population);
+		if (checkpoints != null) {
+			checkpoints.close();
+		}
 		System.out.println("Finished evolving");
 	}
 
+	/**
+	 * Save the population along with the parameters needed to resume
+	 * evolution from it. With incremental checkpoints, the files are written
+	 * in the background, and the parameters are only saved once the
+	 * population is safely on disk.
+	 *
+	 * @param prefix
+	 *            name of the generation, such as initial or gen5
+	 * @return whether an incremental checkpoint was saved, instead of a
+	 *         directory of genotypes
+	 */
+	private boolean checkpoint(String prefix) {
+		if (checkpoints != null && PopulationArchive.canSave(population)) {
+			Parameters.parameters.setString("lastSavedDirectory", checkpoints.manifest(prefix));
+			// Archetype is only moved into place along with the population
+			final Runnable archetypeSaver = EvolutionaryHistory.archetypeSaver(0, prefix);
+			final Runnable parameterSaver = Parameters.parameters.parameterSaver();
+			checkpoints.checkpoint(prefix, population, new Runnable() {
+				@Override
+				public void run() {
+					archetypeSaver.run();
+					parameterSaver.run();
+				}
+			});
+			return true;
+		} else {
+			save(prefix);
+			Parameters.parameters.saveParameters();
+			return false;
+		}
+	}
+
 	public void save(String prefix) {
 		save(prefix, saveDirectory, population, parallel);
 	}
 
 	/**
-	 * Save all members of population as xml files in the dir saveDirectory.
+	 * Save all members of population in the dir saveDirectory, either as one
+	 * binary archive or as xml files.
 	 *
 	 * @param <T>
 	 *            phenotype of genotype
@@ -265,45 +301,7 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 		Parameters.parameters.setString("lastSavedDirectory", fullSaveDir);
 		System.out.println("Saving to \"" + fullSaveDir + "\" with prefix \"" + prefix + "\"");
 
-		ExecutorService poolExecutor = null;
-		ArrayList<Future<Boolean>> futures = null;
-		ArrayList<SaveThread<Genotype<T>>> saves = new ArrayList<SaveThread<Genotype<T>>>(population.size());
-
-		for (int i = 0; i < population.size(); i++) {
-			String filename = fullSaveDir;
-			if (!filename.equals("")) {
-				filename = filename + "/";
-			}
-			filename += prefix + i + ".xml";
-			// System.out.println("Saving " + population.get(i).getId());
-			saves.add(new SaveThread<Genotype<T>>(population.get(i), filename));
-		}
-
-		if (parallel) {
-			poolExecutor = Executors.newCachedThreadPool();
-			futures = new ArrayList<Future<Boolean>>(population.size());
-			for (int i = 0; i < population.size(); i++) {
-				futures.add(poolExecutor.submit(saves.get(i)));
-			}
-		}
-
-		for (int i = 0; i < saves.size(); i++) {
-			try {
-				Boolean result = parallel ? futures.get(i).get() : saves.get(i).call();
-				if (!result) {
-					System.out.println("Failure saving " + population.get(i));
-					System.exit(1);
-				}
-			} catch (InterruptedException | ExecutionException ex) {
-				ex.printStackTrace();
-				System.out.println("Failure saving " + population.get(i));
-				System.exit(1);
-			}
-		}
-
-		if (parallel) {
-			poolExecutor.shutdown();
-		}
+		PopulationUtil.saveGenotypes(fullSaveDir, prefix, population, parallel);
 
 		// Better to save archetype immediately after network saves so that
 		// unexpected crash/restarts don't make archetype out of sync with
@@ -315,7 +313,7 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 	 * Load population and return true on success
 	 *
 	 * @param directory
-	 *            directory full of xml files of saved genotypes
+	 *            directory of saved genotypes
 	 * @return true if successful, false otherwise
 	 */
 	public final boolean load(String directory) {
@@ -0,0 +1,461 @@
+package edu.utexas.cs.nn.networks;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.graphics.DrawingPanel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A TWEANN whose process method executes over flat primitive arrays instead
+ * of walking the Node and Link objects. The node/link structure of the parent
+ * class is still built, so that drawing, genotype conversion, and anything else
+ * that inspects the topology works as before, but activations are only stored
+ * in the arrays below (and copied back to the Node objects when drawing).
+ *
+ * Links are laid out contiguously by source node, in the same order as the
+ * nodes and their outgoing link lists. Because of this, every neuron sum is
+ * accumulated in exactly the same order as in TWEANN, so outputs are
+ * identical, including those that depend on recurrent links.
+ *
+ * Nodes are grouped into runs of consecutive nodes sharing an activation
+ * function, so the choice of function is made once per run rather than once
+ * per neuron. The network ordering constraints prevent reordering nodes across
+ * runs.
+ *
+ * @author Jacob Schrum
+ */
+public class CompiledTWEANN extends TWEANN {
+
+	// Per node state, indexed by position in nodes
+	private final double[] sums;
+	private final double[] activations;
+	// Outgoing links of node i occupy [linkStart[i], linkStart[i+1])
+	private final int[] linkStart;
+	private final int[] linkTarget;
+	private final double[] linkWeight;
+	// Nodes in [runStart[r], runStart[r+1]) all use activation function runFtype[r]
+	private final int[] runStart;
+	private final int[] runFtype;
+	// Whether every link goes forward, so no state carries between inputs
+	private final boolean feedForward;
+	// Node values for each row of a batch, node by node, reused between batches
+	private double[] batch = new double[0];
+	private int[] batchRows = new int[0];
+
+	/**
+	 * Create compiled network from a genotype
+	 *
+	 * @param g
+	 *            The genotype
+	 */
+	public CompiledTWEANN(TWEANNGenotype g) {
+		super(g);
+		int size = nodes.size();
+		sums = new double[size];
+		activations = new double[size];
+		linkStart = new int[size + 1];
+
+		HashMap<Node, Integer> nodeIndex = new HashMap<Node, Integer>(size * 2);
+		int numLinks = 0;
+		for (int i = 0; i < size; i++) {
+			Node n = nodes.get(i);
+			nodeIndex.put(n, i);
+			numLinks += n.outputs.size();
+		}
+
+		linkTarget = new int[numLinks];
+		linkWeight = new double[numLinks];
+		int link = 0;
+		for (int i = 0; i < size; i++) {
+			linkStart[i] = link;
+			for (Link l : nodes.get(i).outputs) {
+				linkTarget[link] = nodeIndex.get(l.target);
+				linkWeight[link] = l.weight;
+				link++;
+			}
+		}
+		linkStart[size] = link;
+
+		boolean forward = true;
+		for (int i = 0; i < size && forward; i++) {
+			for (int k = linkStart[i]; k < linkStart[i + 1]; k++) {
+				forward = forward && linkTarget[k] > i;
+			}
+			forward = forward && knownFtype(nodes.get(i).ftype);
+		}
+		feedForward = forward;
+
+		int runs = 0;
+		int[] starts = new int[size + 1];
+		int[] ftypes = new int[size];
+		for (int i = 0; i < size; i++) {
+			int ftype = nodes.get(i).ftype;
+			if (runs == 0 || ftypes[runs - 1] != ftype) {
+				starts[runs] = i;
+				ftypes[runs] = ftype;
+				runs++;
+			}
+		}
+		starts[runs] = size;
+		runStart = Arrays.copyOf(starts, runs + 1);
+		runFtype = Arrays.copyOf(ftypes, runs);
+	}
+
+	/**
+	 * Copy that shares the topology and weights of another compiled network,
+	 * including its Node and Link objects, but has its own activation state.
+	 * Making a copy costs little more than allocating the state arrays, so
+	 * one compiled network can hand out a copy for each evaluation.
+	 *
+	 * @param other
+	 *            network to copy
+	 */
+	public CompiledTWEANN(CompiledTWEANN other) {
+		super(other);
+		sums = new double[other.sums.length];
+		activations = new double[other.activations.length];
+		linkStart = other.linkStart;
+		linkTarget = other.linkTarget;
+		linkWeight = other.linkWeight;
+		runStart = other.runStart;
+		runFtype = other.runFtype;
+		feedForward = other.feedForward;
+	}
+
+	/**
+	 * @return whether every link goes forward, so no state carries from one
+	 *         input to the next and batches are processed in a single pass
+	 */
+	public boolean isFeedForward() {
+		return feedForward;
+	}
+
+	@Override
+	protected void activateNodes(double[] inputs) {
+		// Load inputs: added to sums in case they hold recurrent activation
+		final int numIn = numInputs();
+		for (int i = 0; i < numIn; i++) {
+			assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
+			sums[i] += inputs[i];
+		}
+
+		// Activate nodes in forward order, one run of equal ftype at a time
+		for (int r = 0; r < runFtype.length; r++) {
+			final int end = runStart[r + 1];
+			switch (runFtype[r]) {
+			case ActivationFunctions.FTYPE_SAWTOOTH:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.sawtooth(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_HLPIECEWISE:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.halfLinear(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_SIGMOID:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.sigmoid(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_TANH:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.tanh(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_ID:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = sums[i];
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_APPROX:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.quickSigmoid(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_FULLAPPROX:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.fullQuickSigmoid(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_GAUSS:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.gaussian(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_SINE:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.sine(sums[i]);
+					transmit(i);
+				}
+				break;
+			case ActivationFunctions.FTYPE_ABSVAL:
+				for (int i = runStart[r]; i < end; i++) {
+					activations[i] = ActivationFunctions.absVal(sums[i]);
+					transmit(i);
+				}
+				break;
+			default:
+				// Unknown functions leave the activation unchanged, as in TWEANN
+				for (int i = runStart[r]; i < end; i++) {
+					transmit(i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clear the sum of node i and send its activation along all outgoing links
+	 *
+	 * @param i
+	 *            index of node that was just activated
+	 */
+	private void transmit(int i) {
+		assert !Double.isNaN(activations[i]) : "Activation of node " + i + " is NaN on " + sums[i];
+		sums[i] = 0.0;
+		final double signal = activations[i];
+		final int end = linkStart[i + 1];
+		for (int k = linkStart[i]; k < end; k++) {
+			sums[linkTarget[k]] += (signal * linkWeight[k]);
+		}
+	}
+
+	/**
+	 * Process the whole batch in one pass over the topology: each node is
+	 * activated for every row before moving on to the next node. This is
+	 * only done when no state carries from one input to the next, which
+	 * requires all links to be forward links, and when nothing is being
+	 * drawn. Otherwise the rows are processed in order. Every row sums its
+	 * inputs in the same order as process, so outputs are identical.
+	 */
+	@Override
+	public void process(double[][] inputs, double[][] outputs) {
+		if (!feedForward || (canDraw && (panel != null || inputPanel != null || preferenceNeuronPanel != null))) {
+			super.process(inputs, outputs);
+			return;
+		}
+		// Rows that are actually processed
+		if (batchRows.length < inputs.length) {
+			batchRows = new int[inputs.length];
+		}
+		int rows = 0;
+		for (int i = 0; i < inputs.length; i++) {
+			if (inputs[i] != null) {
+				batchRows[rows++] = i;
+			}
+		}
+		if (rows == 0) {
+			return;
+		}
+		final int size = activations.length;
+		if (batch.length < size * rows) {
+			batch = new double[size * rows];
+		}
+		Arrays.fill(batch, 0, size * rows, 0.0);
+		final int numIn = numInputs();
+		for (int b = 0; b < rows; b++) {
+			double[] row = inputs[batchRows[b]];
+			assert row.length == numIn : "Input mismatch! numIn = " + numIn + ", inputs.length = " + row.length;
+			for (int i = 0; i < numIn; i++) {
+				assert !Double.isNaN(row[i]) : "Input " + i + " is NaN!" + Arrays.toString(row);
+				batch[i * rows + b] += row[i];
+			}
+		}
+		for (int r = 0; r < runFtype.length; r++) {
+			final int ftype = runFtype[r];
+			for (int i = runStart[r]; i < runStart[r + 1]; i++) {
+				final int from = i * rows;
+				final int to = from + rows;
+				for (int v = from; v < to; v++) {
+					batch[v] = activation(ftype, batch[v], 0.0);
+					assert !Double.isNaN(batch[v]) : "Activation of node " + i + " is NaN";
+				}
+				for (int k = linkStart[i]; k < linkStart[i + 1]; k++) {
+					final double weight = linkWeight[k];
+					final int target = linkTarget[k] * rows;
+					for (int b = 0; b < rows; b++) {
+						batch[target + b] += (batch[from + b] * weight);
+					}
+				}
+			}
+		}
+		// Mode selection sees the activations of one row at a time
+		final int numOut = numOutputs();
+		for (int b = 0; b < rows; b++) {
+			for (int i = outputStart; i < outputStart + numOut; i++) {
+				activations[i] = batch[i * rows + b];
+			}
+			selectOutputs(inputs[batchRows[b]], outputs[batchRows[b]]);
+		}
+		// Left as if the last row was processed alone
+		for (int i = 0; i < size; i++) {
+			activations[i] = batch[i * rows + rows - 1];
+		}
+	}
+
+	/**
+	 * Process each row with its own network, as if each network processed
+	 * its row on its own, but in a single pass over the shared topology.
+	 * Each network keeps its own recurrent state, mode usage and fatigue.
+	 * Rows that are null are skipped, and their networks are left unchanged.
+	 *
+	 * @param networks
+	 *            networks compiled from the same genotype, one per row
+	 * @param inputs
+	 *            sensor readings for each network, or null
+	 * @param outputs
+	 *            filled with the outputs of each network
+	 */
+	public static void process(CompiledTWEANN[] networks, double[][] inputs, double[][] outputs) {
+		CompiledTWEANN first = null;
+		for (int b = 0; b < networks.length && first == null; b++) {
+			first = inputs[b] == null ? null : networks[b];
+		}
+		if (first == null) {
+			return;
+		}
+		final int numIn = first.numInputs();
+		for (int b = 0; b < networks.length; b++) {
+			if (inputs[b] != null) {
+				assert networks[b].linkTarget.length == first.linkTarget.length
+						&& networks[b].activations.length == first.activations.length : "Networks differ";
+				assert inputs[b].length == numIn : "Input mismatch! numIn = " + numIn + ", inputs.length = " + inputs[b].length;
+				for (int i = 0; i < numIn; i++) {
+					assert !Double.isNaN(inputs[b][i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs[b]);
+					networks[b].sums[i] += inputs[b][i];
+				}
+			}
+		}
+		final int[] linkStart = first.linkStart;
+		final int[] linkTarget = first.linkTarget;
+		final double[] linkWeight = first.linkWeight;
+		for (int r = 0; r < first.runFtype.length; r++) {
+			final int ftype = first.runFtype[r];
+			for (int i = first.runStart[r]; i < first.runStart[r + 1]; i++) {
+				for (int b = 0; b < networks.length; b++) {
+					if (inputs[b] != null) {
+						final double[] sums = networks[b].sums;
+						final double[] activations = networks[b].activations;
+						activations[i] = activation(ftype, sums[i], activations[i]);
+						assert !Double.isNaN(activations[i]) : "Activation of node " + i + " is NaN on " + sums[i];
+						sums[i] = 0.0;
+						final double signal = activations[i];
+						for (int k = linkStart[i]; k < linkStart[i + 1]; k++) {
+							sums[linkTarget[k]] += (signal * linkWeight[k]);
+						}
+					}
+				}
+			}
+		}
+		for (int b = 0; b < networks.length; b++) {
+			if (inputs[b] != null) {
+				networks[b].selectOutputs(inputs[b], outputs[b]);
+			}
+		}
+	}
+
+	/**
+	 * Same activation functions as activateNodes
+	 *
+	 * @param ftype
+	 *            activation function
+	 * @param sum
+	 *            sum of the incoming signals
+	 * @param previous
+	 *            activation before this one, kept for unknown functions
+	 * @return new activation
+	 */
+	private static double activation(int ftype, double sum, double previous) {
+		switch (ftype) {
+		case ActivationFunctions.FTYPE_SAWTOOTH:
+			return ActivationFunctions.sawtooth(sum);
+		case ActivationFunctions.FTYPE_HLPIECEWISE:
+			return ActivationFunctions.halfLinear(sum);
+		case ActivationFunctions.FTYPE_SIGMOID:
+			return ActivationFunctions.sigmoid(sum);
+		case ActivationFunctions.FTYPE_TANH:
+			return ActivationFunctions.tanh(sum);
+		case ActivationFunctions.FTYPE_ID:
+			return sum;
+		case ActivationFunctions.FTYPE_APPROX:
+			return ActivationFunctions.quickSigmoid(sum);
+		case ActivationFunctions.FTYPE_FULLAPPROX:
+			return ActivationFunctions.fullQuickSigmoid(sum);
+		case ActivationFunctions.FTYPE_GAUSS:
+			return ActivationFunctions.gaussian(sum);
+		case ActivationFunctions.FTYPE_SINE:
+			return ActivationFunctions.sine(sum);
+		case ActivationFunctions.FTYPE_ABSVAL:
+			return ActivationFunctions.absVal(sum);
+		default:
+			return previous;
+		}
+	}
+
+	/**
+	 * Whether activation knows the function, so that the result does not
+	 * depend on the previous activation
+	 */
+	private static boolean knownFtype(int ftype) {
+		// Unknown functions return the previous activation
+		return !Double.isNaN(activation(ftype, 0.0, Double.NaN));
+	}
+
+	@Override
+	protected double nodeOutput(int index) {
+		return activations[index];
+	}
+
+	/**
+	 * Process the inputs and copy the outputs into an existing array, without
+	 * any allocation. Only valid for networks with a single module, since no
+	 * mode is selected, but gives the same outputs as process for those
+	 * networks. Used when the same network is queried many times in a row,
+	 * as with HyperNEAT CPPNs.
+	 *
+	 * @param inputs
+	 *            sensor readings for the network
+	 * @param outputs
+	 *            filled with the first outputs.length network outputs
+	 */
+	public void processSingleModule(double[] inputs, double[] outputs) {
+		assert numModules() == 1 : "Only for single module networks: " + numModules();
+		assert outputs.length <= neuronsPerMode() : "Too many outputs: " + outputs.length;
+		activateNodes(inputs);
+		System.arraycopy(activations, outputStart, outputs, 0, outputs.length);
+	}
+
+	/**
+	 * Activation state lives in the arrays, so the Node objects, which may be
+	 * shared with other copies, are left alone.
+	 */
+	@Override
+	protected void flushNodes() {
+		Arrays.fill(sums, 0.0);
+		Arrays.fill(activations, 0.0);
+	}
+
+	/**
+	 * Node objects are not updated by process, so their activations are
+	 * synchronized with the arrays before drawing. Copies share Node objects,
+	 * so only draw one of them at a time.
+	 */
+	@Override
+	public void draw(DrawingPanel panel, boolean showInnovationNumbers, boolean showWeights) {
+		for (int i = 0; i < activations.length; i++) {
+			Node n = nodes.get(i);
+			n.sum = sums[i];
+			n.activation = activations[i];
+		}
+		super.draw(panel, showInnovationNumbers, showWeights);
+	}
+}
@@ -0,0 +1,180 @@
+package edu.utexas.cs.nn.networks;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.PhenotypeCache;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class CompiledTWEANNTest {
+
+	final static int MUTATIONS = 30;
+	final static int STEPS = 50;
+
+	@Before
+	public void setUp() throws Exception {
+		// Ties between preference neurons are broken the same way in every
+		// network, so identical networks always select the same module
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"allowMultipleFunctions:true", "recurrency:true", "mmdRate:0.1", "randomArgMaxTieBreak:false" });
+		RandomNumbers.reset(0);
+		MMNEAT.loadClasses();
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.genotype = new TWEANNGenotype(5, 3, 0);
+		EvolutionaryHistory.initArchetype(0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	/**
+	 * Compiled networks must produce exactly the same outputs as the
+	 * equivalent TWEANN, including recurrent state and module selection.
+	 */
+	@Test
+	public void test_sameOutputs() {
+		for (int trial = 0; trial < 10; trial++) {
+			TWEANNGenotype tg = new TWEANNGenotype(5, 3, 0);
+			for (int i = 0; i < MUTATIONS; i++) {
+				tg.mutate();
+			}
+			tg.moduleDuplication();
+			TWEANN original = new TWEANN(tg);
+			CompiledTWEANN compiled = new CompiledTWEANN(tg);
+			assertEquals(original.numModules(), compiled.numModules());
+			for (int step = 0; step < STEPS; step++) {
+				double[] inputs = RandomNumbers.randomArray(5);
+				assertArrayEquals(original.process(inputs), compiled.process(inputs), 0.0);
+				assertEquals(original.lastModule(), compiled.lastModule());
+				for (int m = 0; m < original.numModules(); m++) {
+					assertArrayEquals(original.moduleOutput(m), compiled.moduleOutput(m), 0.0);
+				}
+			}
+			assertArrayEquals(original.getModuleUsage(), compiled.getModuleUsage());
+			original.flush();
+			compiled.flush();
+			double[] inputs = RandomNumbers.randomArray(5);
+			assertArrayEquals(original.process(inputs), compiled.process(inputs), 0.0);
+		}
+	}
+
+	/**
+	 * A batch gives the same outputs and final state as processing its rows
+	 * one at a time, whether or not the network has recurrent links.
+	 */
+	@Test
+	public void test_batch() {
+		for (int trial = 0; trial < 20; trial++) {
+			// Half of the networks are purely feed forward
+			CommonConstants.recurrency = trial % 2 == 0;
+			TWEANNGenotype tg = new TWEANNGenotype(5, 3, 0);
+			for (int i = 0; i < MUTATIONS; i++) {
+				tg.mutate();
+			}
+			tg.moduleDuplication();
+			TWEANN original = new TWEANN(tg);
+			CompiledTWEANN compiled = new CompiledTWEANN(tg);
+			double[][] inputs = new double[4][];
+			double[][] outputs = new double[4][original.effectiveNumOutputs()];
+			for (int step = 0; step < STEPS; step++) {
+				for (int row = 0; row < inputs.length; row++) {
+					inputs[row] = row == step % inputs.length ? null : RandomNumbers.randomArray(5);
+				}
+				compiled.process(inputs, outputs);
+				for (int row = 0; row < inputs.length; row++) {
+					if (inputs[row] != null) {
+						assertArrayEquals(original.process(inputs[row]), outputs[row], 0.0);
+					}
+				}
+				assertEquals(original.lastModule(), compiled.lastModule());
+				for (int m = 0; m < original.numModules(); m++) {
+					assertArrayEquals(original.moduleOutput(m), compiled.moduleOutput(m), 0.0);
+				}
+			}
+			assertArrayEquals(original.getModuleUsage(), compiled.getModuleUsage());
+		}
+	}
+
+	/**
+	 * Networks processed together keep separate states, just like networks
+	 * processed separately.
+	 */
+	@Test
+	public void test_separateNetworks() {
+		for (int trial = 0; trial < 10; trial++) {
+			TWEANNGenotype tg = new TWEANNGenotype(5, 3, 0);
+			for (int i = 0; i < MUTATIONS; i++) {
+				tg.mutate();
+			}
+			tg.moduleDuplication();
+			TWEANN[] originals = new TWEANN[4];
+			CompiledTWEANN[] compiled = new CompiledTWEANN[4];
+			for (int i = 0; i < compiled.length; i++) {
+				originals[i] = new TWEANN(tg);
+				compiled[i] = new CompiledTWEANN(tg);
+			}
+			double[][] inputs = new double[4][];
+			double[][] outputs = new double[4][originals[0].effectiveNumOutputs()];
+			for (int step = 0; step < STEPS; step++) {
+				for (int row = 0; row < inputs.length; row++) {
+					inputs[row] = row == step % inputs.length ? null : RandomNumbers.randomArray(5);
+				}
+				CompiledTWEANN.process(compiled, inputs, outputs);
+				for (int row = 0; row < inputs.length; row++) {
+					if (inputs[row] != null) {
+						assertArrayEquals(originals[row].process(inputs[row]), outputs[row], 0.0);
+						assertEquals(originals[row].lastModule(), compiled[row].lastModule());
+					}
+				}
+			}
+			for (int i = 0; i < compiled.length; i++) {
+				assertArrayEquals(originals[i].getModuleUsage(), compiled[i].getModuleUsage());
+			}
+		}
+	}
+
+	/**
+	 * Copies handed out by the phenotype cache share one decoded network, but
+	 * keep separate states, and mutation makes the genotype decode again.
+	 */
+	@Test
+	public void test_cachedCopies() {
+		for (int trial = 0; trial < 10; trial++) {
+			TWEANNGenotype tg = new TWEANNGenotype(5, 3, 0);
+			for (int i = 0; i < MUTATIONS; i++) {
+				tg.mutate();
+			}
+			tg.moduleDuplication();
+			CompiledTWEANN first = PhenotypeCache.phenotype(tg);
+			CompiledTWEANN second = PhenotypeCache.phenotype(tg);
+			assertSame(first.nodes, second.nodes);
+			TWEANN[] originals = new TWEANN[] { new TWEANN(tg), new TWEANN(tg) };
+			CompiledTWEANN[] copies = new CompiledTWEANN[] { first, second };
+			for (int step = 0; step < STEPS; step++) {
+				// Only the first copy is used on odd steps
+				for (int i = 0; i <= step % 2; i++) {
+					double[] inputs = RandomNumbers.randomArray(5);
+					assertArrayEquals(originals[i].process(inputs), copies[i].process(inputs), 0.0);
+					assertEquals(originals[i].lastModule(), copies[i].lastModule());
+				}
+			}
+			for (int i = 0; i < copies.length; i++) {
+				assertArrayEquals(originals[i].getModuleUsage(), copies[i].getModuleUsage());
+			}
+			tg.mutate();
+			assertNotSame(first.nodes, PhenotypeCache.phenotype(tg).nodes);
+		}
+		PhenotypeCache.clear();
+	}
+}
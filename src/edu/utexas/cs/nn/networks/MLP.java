@@ -28,6 +28,16 @@ public class MLP implements Network {
 		return propagate(inputs);
 	}
 
+	@Override
+	public void process(double[][] inputs, double[][] outputs) {
+		for (int i = 0; i < inputs.length; i++) {
+			if (inputs[i] != null) {
+				double[] result = propagate(inputs[i]);
+				System.arraycopy(result, 0, outputs[i], 0, result.length);
+			}
+		}
+	}
+
         @Override
 	public void flush() {
 		// Matters for SRN
@@ -40,6 +40,21 @@ public interface Network {
 	 **/
 	public double[] process(double[] inputs);
 
+	/**
+	 * Process several input vectors in a batch, giving the same outputs and
+	 * leaving the network in the same state as calling process on each row
+	 * in order. Rows of inputs that are null are skipped, and their rows of
+	 * outputs are left unchanged. Buffers can be reused from one call to the
+	 * next.
+	 *
+	 * @param inputs
+	 *            rows of sensor inputs (each of length numInputs()), or null
+	 * @param outputs
+	 *            filled with the network outputs for each row (each of length
+	 *            effectiveNumOutputs())
+	 */
+	public void process(double[][] inputs, double[][] outputs);
+
 	/**
 	 * Clear any internal state
 	 */
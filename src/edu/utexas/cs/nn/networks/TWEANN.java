@@ -376,6 +376,8 @@ public class TWEANN implements Network {
 	public ArrayList<Node> nodes;
 	public int[] moduleUsage;
 	private double[] preferenceFatigue;
+	// Reused by every call to process
+	private double[] preferences = null;
 	public int chosenModule = 0;
 	public boolean canDraw = true;
 	public final int archetypeIndex;
@@ -608,6 +610,34 @@ public class TWEANN implements Network {
 		allViable();
 	}
 
+	/**
+	 * Network with the same topology and weights as another. The Node and
+	 * Link objects are shared rather than copied, so this is only safe for
+	 * subclasses that keep activation state outside of the Nodes, like
+	 * CompiledTWEANN. Module usage and preference fatigue start fresh.
+	 *
+	 * @param other
+	 *            network to share the structure of
+	 */
+	protected TWEANN(TWEANN other) {
+		this.archetypeIndex = other.archetypeIndex;
+		this.id = other.id;
+		this.nodes = other.nodes;
+		this.numIn = other.numIn;
+		this.numOut = other.numOut;
+		this.numModes = other.numModes;
+		this.neuronsPerMode = other.neuronsPerMode;
+		this.standardMultitask = other.standardMultitask;
+		this.hierarchicalMultitask = other.hierarchicalMultitask;
+		this.presetMode = other.presetMode;
+		this.moduleAssociations = Arrays.copyOf(other.moduleAssociations, other.moduleAssociations.length);
+		this.moduleUsage = new int[numModes];
+		this.preferenceFatigue = new double[numModes];
+		this.canDraw = other.canDraw;
+		this.outputStart = other.outputStart;
+		allViable();
+	}
+
 	// Getters
 	@Override
 	public int[] getModuleUsage() {
@@ -688,20 +718,41 @@ public class TWEANN implements Network {
 		assert(inputs.length == numIn) : "Input mismatch! numIn = " + numIn + "\n" + "inputs.length = " + inputs.length + "\n" + Arrays.toString(inputs);
 		assert(numIn <= nodes.size()) : "Input mismatch! numIn = " + numIn + "\n" + "nodes.size() = " + nodes.size() + "\n" + nodes;
 
-		// Load inputs
-		for (int i = 0; i < numIn; i++) {
-			assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
-			nodes.get(i).load(inputs[i]);
-		}
+		activateNodes(inputs);
+		double[] outputs = new double[neuronsPerMode];
+		selectOutputs(inputs, outputs);
+		return outputs;
+	}
 
-		// Activate nodes in forward order
-		for (int i = 0; i < nodes.size(); i++) {
-			nodes.get(i).activateAndTransmit();
+	/**
+	 * Process each row in order. Subclasses can activate the nodes for the
+	 * whole batch at once, and then call selectOutputs for each row.
+	 */
+	@Override
+	public void process(double[][] inputs, double[][] outputs) {
+		for (int i = 0; i < inputs.length; i++) {
+			if (inputs[i] != null) {
+				assert(inputs[i].length == numIn) : "Input mismatch! numIn = " + numIn + "\n" + "inputs.length = " + inputs[i].length;
+				activateNodes(inputs[i]);
+				selectOutputs(inputs[i], outputs[i]);
+			}
 		}
+	}
 
+	/**
+	 * Everything process does after the nodes are activated: choose the mode
+	 * and copy its outputs, and update mode usage, fatigue and displays.
+	 *
+	 * @param inputs
+	 *            sensor readings the nodes were just activated with
+	 * @param outputs
+	 *            filled with the network outputs (length neuronsPerMode)
+	 */
+	protected void selectOutputs(double[] inputs, double[] outputs) {
 		// All outputs
-
-		double[] preferences = new double[numModes];
+		if (preferences == null) {
+			preferences = new double[numModes];
+		}
 		if (CommonConstants.ensembleModeMutation) {
 			// Give all equal preference and then take average across modes
 			Arrays.fill(preferences, 1.0);
@@ -709,12 +760,13 @@ public class TWEANN implements Network {
 			if (numModes == 1) {
 				preferences[0] = 1.0;
 			} else if (standardMultitask) { // But NOT Hierarchical Multitask
+				Arrays.fill(preferences, 0.0);
 				preferences[presetMode] = 1.0;
 			} else {
 				for (int m = 0; m < numModes; m++) {
-					Node out = nodes.get(outputStart + (m * (neuronsPerMode + 1)) + neuronsPerMode);
+					int preferenceIndex = outputStart + (m * (neuronsPerMode + 1)) + neuronsPerMode;
 					// Inviable modes have minimal preference
-					preferences[m] = viableModes[m] ? out.output() : -Double.MAX_VALUE;
+					preferences[m] = viableModes[m] ? nodeOutput(preferenceIndex) : -Double.MAX_VALUE;
 				}
 			}
 			// subtract fatigue
@@ -747,18 +799,21 @@ public class TWEANN implements Network {
 					}
 		}
 
-		double[] outputs = new double[neuronsPerMode];
 		if (CommonConstants.ensembleModeMutation || CommonConstants.weightedAverageModeAggregation) {
 			// Calculate weighted average across all modes
 			for (int i = 0; i < outputs.length; i++) {
+				outputs[i] = 0;
 				for (int j = 0; j < numModes; j++) {
 					int modeStart = outputStart + (j * (neuronsPerMode + (CommonConstants.ensembleModeMutation ? 0 : 1)));
-					outputs[i] += preferences[j] * nodes.get(modeStart + i).output();
+					outputs[i] += preferences[j] * nodeOutput(modeStart + i);
 				}
 				outputs[i] /= numModes;
 			}
 		} else {
-			outputs = moduleOutput(chosenModule);
+			int selectedModeStart = outputStart + (chosenModule * (neuronsPerMode + (standardMultitask ? 0 : 1)));
+			for (int i = 0; i < neuronsPerMode; i++) {
+				outputs[i] = nodeOutput(selectedModeStart + i);
+			}
 		}
 
 		// System.out.println("final outputs: " + Arrays.toString(outputs));
@@ -773,7 +828,40 @@ public class TWEANN implements Network {
 				refreshActivation(inputPanel, inputs, outputs, preferences, standardMultitask, preferenceFatigue);
 			}
 		}
-		return outputs;
+	}
+
+	/**
+	 * Load the inputs and then activate every node in forward order, so that
+	 * each node's activation is transmitted along its outgoing links.
+	 * Subclasses can replace this with a different execution strategy as long
+	 * as nodeOutput reflects the result.
+	 *
+	 * @param inputs
+	 *            sensor readings for the network
+	 */
+	protected void activateNodes(double[] inputs) {
+		// Load inputs
+		for (int i = 0; i < numIn; i++) {
+			assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
+			nodes.get(i).load(inputs[i]);
+		}
+
+		// Activate nodes in forward order
+		for (int i = 0; i < nodes.size(); i++) {
+			nodes.get(i).activateAndTransmit();
+		}
+	}
+
+	/**
+	 * Activation of the node at the given position in the node list after the
+	 * most recent call to process
+	 *
+	 * @param index
+	 *            index of node in nodes
+	 * @return current activation of that node
+	 */
+	protected double nodeOutput(int index) {
+		return nodes.get(index).output();
 	}
 
 	/**
@@ -789,8 +877,7 @@ public class TWEANN implements Network {
 		int selectedModeStart = outputStart + (mode * (neuronsPerMode + (standardMultitask ? 0 : 1)));
 		double[] outputs = new double[neuronsPerMode];
 		for (int i = 0; i < neuronsPerMode; i++) {
-			Node out = nodes.get(selectedModeStart + i);
-			outputs[i] = out.output();
+			outputs[i] = nodeOutput(selectedModeStart + i);
 		}
 		return outputs;
 	}
@@ -799,9 +886,7 @@ public class TWEANN implements Network {
 	@Override
 	public void flush() {
 		// System.out.println("Flush: " + id);
-		for (Node n : nodes) {
-			n.flush();
-		}
+		flushNodes();
 		if (canDraw && preferenceNeuronPanel != null && !standardMultitask && numModes > 1) {
 			preferenceActivationHistory = new ArrayList[numModes];
 			for (int i = 0; i < preferenceActivationHistory.length; i++) {
@@ -815,6 +900,15 @@ public class TWEANN implements Network {
 		}
 	}
 
+	/**
+	 * Clear the sum and activation of every neuron
+	 */
+	protected void flushNodes() {
+		for (Node n : nodes) {
+			n.flush();
+		}
+	}
+
 	private Node getNode(long targetInnovation) {
 		Node targetNode = null;
 		for (Node n : nodes) {
@@ -13,17 +13,22 @@ public class CommonConstants {
 	// boolean
 	public static boolean allowMultipleFunctions;
 	public static boolean allowRandomGhostReversals;
+	public static boolean batchedSubstrates;
 	public static boolean checkEachAbsoluteDistanceGhostSort;
 	public static boolean checkEachFlushWalls;
+	public static boolean compiledTWEANN;
 	public static boolean connectToInputs;
 	public static boolean constantTUGGoalIncrements;
 	public static boolean cullCrossovers;
 	public static boolean cullModeMutations;
 	public static boolean deleteLeastUsed;
+	public static boolean directGenotypeCopy;
 	public static boolean eliminateImpossibleDirections;
 	public static boolean ensembleModeMutation;
 	public static boolean evalReport;
 	public static boolean exploreWeightsOfNewStructure;
+	public static boolean fastBehaviorDistances;
+	public static boolean fastNonDominatedSort;
 	public static boolean freezeBeforeModeMutation;
 	public static boolean fs;
 	public static boolean hierarchicalMultitask;
@@ -31,6 +36,7 @@ public class CommonConstants {
 	public static boolean imprisonedWhileEdible;
 	public static boolean infiniteEdibleTime;
 	public static boolean logChildScores;
+	public static boolean logEvaluationScheduler;
 	public static boolean meltAfterCrossover;
 	public static boolean minimalSubnetExecution;
 	public static boolean minimizeSpliceImpact;
@@ -42,9 +48,11 @@ public class CommonConstants {
 	public static boolean onlyModeMutationWhenModesSame;
 	public static boolean pacmanFatalTimeLimit;
 	public static boolean pacManSensorCaching;
+	public static boolean phenotypeCache;
 	public static boolean polynomialWeightMutation;
 	public static boolean probabilisticSelection;
 	public static boolean randomArgMaxTieBreak;
+	public static boolean randomStreams;
 	public static boolean reachabilityReportsBuffers;
 	public static boolean recordPacman;
 	public static boolean recurrency;
@@ -112,18 +120,23 @@ public class CommonConstants {
 		// boolean
 		allowMultipleFunctions = Parameters.parameters.booleanParameter("allowMultipleFunctions");
 		allowRandomGhostReversals = Parameters.parameters.booleanParameter("allowRandomGhostReversals");
+		batchedSubstrates = Parameters.parameters.booleanParameter("batchedSubstrates");
 		checkEachAbsoluteDistanceGhostSort = Parameters.parameters
 				.booleanParameter("checkEachAbsoluteDistanceGhostSort");
 		checkEachFlushWalls = Parameters.parameters.booleanParameter("checkEachFlushWalls");
+		compiledTWEANN = Parameters.parameters.booleanParameter("compiledTWEANN");
 		connectToInputs = Parameters.parameters.booleanParameter("connectToInputs");
 		constantTUGGoalIncrements = Parameters.parameters.booleanParameter("constantTUGGoalIncrements");
 		cullCrossovers = Parameters.parameters.booleanParameter("cullCrossovers");
 		cullModeMutations = Parameters.parameters.booleanParameter("cullModeMutations");
 		deleteLeastUsed = Parameters.parameters.booleanParameter("deleteLeastUsed");
+		directGenotypeCopy = Parameters.parameters.booleanParameter("directGenotypeCopy");
 		eliminateImpossibleDirections = Parameters.parameters.booleanParameter("eliminateImpossibleDirections");
 		ensembleModeMutation = Parameters.parameters.booleanParameter("ensembleModeMutation");
 		evalReport = Parameters.parameters.booleanParameter("evalReport");
 		exploreWeightsOfNewStructure = Parameters.parameters.booleanParameter("exploreWeightsOfNewStructure");
+		fastBehaviorDistances = Parameters.parameters.booleanParameter("fastBehaviorDistances");
+		fastNonDominatedSort = Parameters.parameters.booleanParameter("fastNonDominatedSort");
 		freezeBeforeModeMutation = Parameters.parameters.booleanParameter("freezeBeforeModeMutation");
 		fs = Parameters.parameters.booleanParameter("fs");
 		hierarchicalMultitask = Parameters.parameters.booleanParameter("hierarchicalMultitask");
@@ -131,6 +144,7 @@ public class CommonConstants {
 		imprisonedWhileEdible = Parameters.parameters.booleanParameter("imprisonedWhileEdible");
 		infiniteEdibleTime = Parameters.parameters.booleanParameter("infiniteEdibleTime");
 		logChildScores = Parameters.parameters.booleanParameter("logChildScores");
+		logEvaluationScheduler = Parameters.parameters.booleanParameter("logEvaluationScheduler");
 		meltAfterCrossover = Parameters.parameters.booleanParameter("meltAfterCrossover");
 		minimalSubnetExecution = Parameters.parameters.booleanParameter("minimalSubnetExecution");
 		minimizeSpliceImpact = Parameters.parameters.booleanParameter("minimizeSpliceImpact");
@@ -142,9 +156,11 @@ public class CommonConstants {
 		onlyModeMutationWhenModesSame = Parameters.parameters.booleanParameter("onlyModeMutationWhenModesSame");
 		pacmanFatalTimeLimit = Parameters.parameters.booleanParameter("pacmanFatalTimeLimit");
 		pacManSensorCaching = Parameters.parameters.booleanParameter("pacManSensorCaching");
+		phenotypeCache = Parameters.parameters.booleanParameter("phenotypeCache");
 		polynomialWeightMutation = Parameters.parameters.booleanParameter("polynomialWeightMutation");
 		probabilisticSelection = Parameters.parameters.booleanParameter("probabilisticSelection");
 		randomArgMaxTieBreak = Parameters.parameters.booleanParameter("randomArgMaxTieBreak");
+		randomStreams = Parameters.parameters.booleanParameter("randomStreams");
 		reachabilityReportsBuffers = Parameters.parameters.booleanParameter("reachabilityReportsBuffers");
 		recordPacman = Parameters.parameters.booleanParameter("recordPacman");
 		recurrency = Parameters.parameters.booleanParameter("recurrency");
@@ -1,8 +1,10 @@
 package edu.utexas.cs.nn.parameters;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Scanner;
@@ -153,8 +155,16 @@ public class Parameters {
 			dir.mkdir();
 
 		}
+		this.saveParameters(parameterFilename());
+	}
+
+	/**
+	 * @return file name used by saveParameters()
+	 */
+	public String parameterFilename() {
+		String path = stringParameter("base") + "/" + stringParameter("saveTo") + integerParameter("runNumber");
 		String name = stringOptions.get("log") + integerParameter("runNumber") + "_parameters.txt";
-		this.saveParameters(path + "/" + name);
+		return path + "/" + name;
 	}
 
 	/**
@@ -166,23 +176,55 @@ public class Parameters {
 	public void saveParameters(String filename) {
 		// PrintStream will be cleaned up as part of the try
 		try (PrintStream stream = new PrintStream(new FileOutputStream(filename))) {
-			integerOptions.writeLabels(stream);
-			longOptions.writeLabels(stream);
-			booleanOptions.writeLabels(stream);
-			doubleOptions.writeLabels(stream);
-			stringOptions.writeLabels(stream);
-			classOptions.writeLabels(stream);
+			writeParameters(stream);
 		} catch (FileNotFoundException ex) {
 			System.out.println("Could not save parameters");
 			System.exit(1);
 		}
 	}
 
+	/**
+	 * Capture the current parameter values, so that they can be saved later,
+	 * possibly from another thread, even if the values change in the meantime.
+	 *
+	 * @return saves the captured values to the file used by saveParameters()
+	 *         when run
+	 */
+	public Runnable parameterSaver() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (PrintStream stream = new PrintStream(bytes)) {
+			writeParameters(stream);
+		}
+		final byte[] contents = bytes.toByteArray();
+		final String filename = parameterFilename();
+		return new Runnable() {
+			@Override
+			public void run() {
+				try (FileOutputStream out = new FileOutputStream(filename)) {
+					out.write(contents);
+				} catch (IOException ex) {
+					System.out.println("Could not save parameters");
+					System.exit(1);
+				}
+			}
+		};
+	}
+
+	private void writeParameters(PrintStream stream) {
+		integerOptions.writeLabels(stream);
+		longOptions.writeLabels(stream);
+		booleanOptions.writeLabels(stream);
+		doubleOptions.writeLabels(stream);
+		stringOptions.writeLabels(stream);
+		classOptions.writeLabels(stream);
+	}
+
 	/**
 	 * Define all parameter labels, default values, and help text
 	 */
 	public final void fillDefaults() {
 		// Integer parameters
+		integerOptions.add("evaluationCacheSize", 0, "Evaluations remembered by id and genotype structure so they are not repeated (0 to disable, only for deterministic tasks)");
 		integerOptions.add("doomInputPixelSmudge", 1, "Determines the amount of pixels to 'smudge' together for inputs");
 		integerOptions.add("doomInputColorVal", 2, "The number value for the color we want to use for inputs, default is red (2)");
 		integerOptions.add("doomInputStartX", 0, "The starting x coordinate for a VizDoom input section");
@@ -190,6 +232,7 @@ public class Parameters {
 		integerOptions.add("doomInputHeight", 150, "The height for a VizDoom input section");
 		integerOptions.add("doomInputWidth", 200, "The width for a VizDoom input section");
 		integerOptions.add("imageSize", 250, "Size of image for Picbreeder");
+		integerOptions.add("picbreederPreviewScale", 0, "Picbreeder first shows images at 1/scale of full resolution, and draws the full images in the background (0 for full images only)");
 		integerOptions.add("doomEpisodeLength", 200, "The length of the current game's episodes");
 		integerOptions.add("rlGluePort", RLGlueTask.DEFAULT_PORT, "The port number for the current instance of RLGlue");
 		integerOptions.add("imageHeight", 100, "height of CPPN image (overrides height of image being matched if overrideImageSize is true)");
@@ -275,6 +318,22 @@ public class Parameters {
 		longOptions.add("lastInnovation", 0l, "Highest innovation number used so far");
 		longOptions.add("lastGenotypeId", 0l, "Highest genotype id used so far");
 		// Boolean parameters
+		booleanOptions.add("parallelRendering", false, "Draw bands of rows of CPPN images on the shared worker threads, when the CPPN is a CompiledTWEANN");
+		booleanOptions.add("matchDataEarlyAbort", false, "In Mu + Lambda match data tasks, stop evaluating a child once its error is certain to be worse than every parent. Only sensible when error is the only objective");
+		booleanOptions.add("randomStreams", false, "Each evaluation and trial draws from its own random stream, derived from the random seed, generation, genotype id and trial, so results do not depend on thread scheduling");
+		booleanOptions.add("phenotypeCache", false, "Decode each TWEANN genotype once per generation and hand out compiled copies of the cached network");
+		booleanOptions.add("rlGlueInProcess", true, "RL-Glue agents and environments are connected by direct method calls, one set per evaluation thread, instead of through the external rl_glue.exe program");
+		booleanOptions.add("logHypervolume", false, "For Mu/Lambda approaches with several objectives, log the hypervolume of the parent population each generation");
+		booleanOptions.add("fastBehaviorDistances", true, "Behavioral diversity compares real behavior vectors packed in a matrix, in parallel blocks (same scores, faster)");
+		booleanOptions.add("lineageStore", true, "Lineage and mutation logs are also written to an indexed binary store, read instead of the text logs when browsing");
+		booleanOptions.add("directGenotypeCopy", true, "TWEANN genotypes are copied gene by gene instead of through a phenotype (same copies, faster)");
+		booleanOptions.add("batchedSubstrates", true, "HyperNEAT substrate links come from one pass of a compiled CPPN per pair of substrate sizes, cached until the CPPN changes (same links, faster)");
+		booleanOptions.add("fastNonDominatedSort", true, "NSGA2 sorts fronts and crowding distances over primitive arrays (same fronts, faster)");
+		booleanOptions.add("incrementalCheckpoints", false, "Save only new genotypes each generation, plus a manifest of the population, from a background thread");
+		booleanOptions.add("binaryGenotypes", false, "Save each population as one binary archive instead of one xml file per genotype, when supported");
+		booleanOptions.add("parallelTrials", false, "Spread the trials of each noisy evaluation across the evaluation threads, each trial drawing from its own random stream");
+		booleanOptions.add("logEvaluationScheduler", false, "Print queue, utilization and straggler statistics after each parallel evaluation batch");
+		booleanOptions.add("compiledTWEANN", false, "TWEANN phenotypes execute over flat primitive arrays (same outputs, faster)");
 		booleanOptions.add("changeCoordinateFrame", false, "Allows for coordinate of input substrate space to be changed. Default is -1 to 1 in all dimensions");
 		booleanOptions.add("monitorSubstrates", false, "Allows us to visualizen the features (raw inputs) of a HyperNEAT agent");
 		booleanOptions.add("doomFullScreenInput", false, "Detemines if we should use all of the screen inputs or just the given row");
@@ -5,10 +5,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
-import wox.serial.Easy;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.SaveThread;
+import edu.utexas.cs.nn.evolution.EvaluationCache;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.PhenotypeCache;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.evolution.lineage.Offspring;
 import edu.utexas.cs.nn.evolution.mulambda.CooperativeCoevolutionMuLambda;
@@ -20,8 +24,10 @@ import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.gridTorus.cooperative.CooperativeTorusPredPreyTask;
 import edu.utexas.cs.nn.tasks.mspacman.CooperativeMsPacManTask;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.SplitMixRandom;
 
 /**
  * Task involving multiple individuals combined into a single team or organism
@@ -47,7 +53,51 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 	 */
 	private ArrayList<ArrayList<Integer>> joinOrder = null;
 	public MMNEATLog teamLog;
+	// Scores of recently evaluated teams
+	public EvaluationCache evaluationCache;
 	private final boolean bestTeamScore;
+	private final boolean parallelSave;
+	private final boolean parallel;
+	// Each thread that evaluates teams lazily creates its own task instance
+	private final ThreadLocal<CooperativeTask> workerTask = new ThreadLocal<CooperativeTask>() {
+		@Override
+		protected CooperativeTask initialValue() {
+			return newWorkerInstance();
+		}
+	};
+
+	/**
+	 * Evaluation of one team, run on whichever worker thread picks it up,
+	 * using the task instance that belongs to that thread.
+	 */
+	@SuppressWarnings("rawtypes") // because populations can be mixed
+	private class TeamEvaluation implements Callable<ArrayList<Score>> {
+
+		private final Genotype[] team;
+		private final long seed;
+
+		TeamEvaluation(Genotype[] team, long seed) {
+			this.team = team;
+			this.seed = seed;
+		}
+
+		@Override
+		public ArrayList<Score> call() {
+			CooperativeTask worker = workerTask.get();
+			worker.assignTeamSeed(seed);
+			// With randomStreams, everything else the team draws also comes
+			// from a stream of its own, unrelated to the trial seeds derived
+			// from the team seed
+			SplitMixRandom previous = CommonConstants.randomStreams ? RandomNumbers.useStream(RandomNumbers.derivedSeed(seed, -1)) : null;
+			try {
+				return evaluateTeam(worker, team);
+			} finally {
+				if (CommonConstants.randomStreams) {
+					RandomNumbers.restoreStream(previous);
+				}
+			}
+		}
+	}
 
 	public CooperativeTask() {
 		this.teams = Parameters.parameters.integerParameter("teams");
@@ -56,6 +106,48 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 		}
 		TWEANN.NETWORK_VIEW_DIM = 800 / 5; // Why these magic numbers? Why not 160?
 		this.bestTeamScore = Parameters.parameters.booleanParameter("bestTeamScore");
+		this.parallelSave = Parameters.parameters.booleanParameter("parallelSave");
+		this.parallel = Parameters.parameters.booleanParameter("parallelEvaluations");
+		this.evaluationCache = EvaluationCache.create();
+	}
+
+	/**
+	 * Whether newWorkerInstance gives copies of this task that can evaluate
+	 * teams at the same time as each other. Only then are teams evaluated in
+	 * parallel when parallelEvaluations is set. Many cooperative tasks keep
+	 * the members of the team being evaluated in shared components, so the
+	 * default is false.
+	 *
+	 * @return whether teams can be evaluated in parallel
+	 */
+	protected boolean supportsParallelTeams() {
+		return false;
+	}
+
+	/**
+	 * Create the task instance used by a single thread that evaluates teams
+	 * in parallel. This is called once on each such thread. The copy must
+	 * not share any state that changes during an evaluation with this task
+	 * or with copies on other threads. The default shares this instance,
+	 * which is only appropriate for tasks whose evaluate method does not
+	 * modify anything.
+	 *
+	 * @return task instance for the current thread
+	 */
+	protected CooperativeTask newWorkerInstance() {
+		return this;
+	}
+
+	/**
+	 * When teams are evaluated in parallel, each team is assigned its own
+	 * seed before it is evaluated, so that its random events do not depend
+	 * on which thread evaluates it, or when. Tasks pass the seed on to
+	 * whatever performs the evaluation. By default the seed is ignored.
+	 *
+	 * @param seed
+	 *            seed of the team about to be evaluated
+	 */
+	protected void assignTeamSeed(long seed) {
 	}
 
 	/**
@@ -119,6 +211,13 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 	public ArrayList<ArrayList<Score>> evaluateAllPopulations(ArrayList<ArrayList<Genotype>> populations, List<ArrayList<Integer>> teamOrder) {
 		int pops = populations.size();
 		int popSize = populations.get(0).size();
+		if (CommonConstants.phenotypeCache) {
+			ArrayList<Genotype> everyone = new ArrayList<Genotype>(pops * popSize);
+			for (ArrayList<Genotype> population : populations) {
+				everyone.addAll(population);
+			}
+			PhenotypeCache.retain(everyone);
+		}
 
 		// initialize score table (nulls)
 		Score[][] rawScores = new Score[pops][popSize];
@@ -144,13 +243,25 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 			bestScores[j] = new Score[bestObjectives[j].length]; 
 		}
 
+		// Teams can be evaluated in any order, but the results are always
+		// combined in team order, so the outcome does not depend on it
+		ArrayList<ArrayList<Score>> teamScores = null;
+		if (parallel && supportsParallelTeams() && !CommonConstants.showNetworks && !CommonConstants.monitorInputs) {
+			teamScores = evaluateTeamsInParallel(populations, teamOrder);
+		}
+
 		for (int i = 0; i < totalEvals; i++) {
 			// Create team
 			Genotype[] team = getTeam(populations, teamOrder, i);
-			// Visualize (conditional)
-			DrawingPanel[] panels = drawNetworks(team);
-			// Evaluate
-			ArrayList<Score> scores = evaluate(team);
+			DrawingPanel[] panels = null;
+			ArrayList<Score> scores;
+			if (teamScores != null) {
+				scores = teamScores.get(i);
+			} else {
+				// Visualize (conditional)
+				panels = drawNetworks(team);
+				scores = evaluateTeam(this, team);
+			}
 			// Track the best ms pacman team in each generation
 			if (trackBestPacManScore) {
 				Score firstScoreSet = scores.get(0);
@@ -187,6 +298,7 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 		}
 
 		if (CommonConstants.netio) {
+			ArrayList<SaveThread<Genotype>> bestSaves = new ArrayList<SaveThread<Genotype>>();
 			// Go through each population (for saving best objectives and genotypes of each population)
 			for(int i = 0; i < pops; i++){
 				//save the best in each objective for this population (will happen for each population)
@@ -203,10 +315,11 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 				}
 				// save all of the best objectives for this population
 				for (int j = 0; j < bestObjectives[i].length; j++) {
-					Easy.save(bestGenotypes[i][j], bestDir + "/" + filePrefix + "bestIn" + j + ".xml");
+					bestSaves.add(new SaveThread<Genotype>(bestGenotypes[i][j], bestDir + "/" + filePrefix + "bestIn" + j + ".xml"));
 					FileUtilities.simpleFileWrite(bestDir + "/" + filePrefix + "score" + j + ".txt", bestScores[i][j].toString());
 				}
 			}
+			saveAll(bestSaves);
 		}
 
 		if (bestPacManTeam != null) {
@@ -220,9 +333,11 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 			} else {
 				bestDir.mkdir();
 			}
+			ArrayList<SaveThread<Genotype>> teamSaves = new ArrayList<SaveThread<Genotype>>(bestPacManTeam.length);
 			for (int i = 0; i < bestPacManTeam.length; i++) {
-				Easy.save(bestPacManTeam[i], teamDir + "/teamMember" + i + ".xml");
+				teamSaves.add(new SaveThread<Genotype>(bestPacManTeam[i], teamDir + "/teamMember" + i + ".xml"));
 			}
+			saveAll(teamSaves);
 			System.out.println("Saved best team with score of " + maxPacManScore);
 			FileUtilities.simpleFileWrite(teamDir + "/score.txt", bestScoreSet.toString());
 		}
@@ -230,6 +345,97 @@ public abstract class CooperativeTask implements MultiplePopulationTask {
 		return wrapUpScores(rawScores, populations, teamOrder);
 	}
 
+	/**
+	 * Evaluate one team with the given task instance, unless the same team
+	 * was evaluated recently.
+	 *
+	 * @param evaluator
+	 *            this task, or the copy belonging to the current thread
+	 * @param team
+	 *            genotypes to evaluate together
+	 * @return score of each team member
+	 */
+	@SuppressWarnings("rawtypes") // because populations can be mixed
+	private ArrayList<Score> evaluateTeam(CooperativeTask evaluator, Genotype[] team) {
+		ArrayList<Score> scores = null;
+		if (evaluationCache != null) {
+			Score<?>[] cached = evaluationCache.get(team);
+			scores = cached == null ? null : new ArrayList<Score>(Arrays.asList(cached));
+		}
+		if (scores == null) {
+			scores = evaluator.evaluate(team);
+			if (evaluationCache != null) {
+				evaluationCache.put(team, scores.toArray(new Score<?>[scores.size()]));
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Evaluate every team in teamOrder on the shared worker threads. Each
+	 * team gets its own seed, derived from a single seed drawn from the
+	 * shared random generator, so the seeds do not depend on the order in
+	 * which teams are evaluated.
+	 *
+	 * @param populations
+	 *            all populations (all are the same size)
+	 * @param teamOrder
+	 *            how to join the population members into teams to evaluate
+	 * @return scores of each team, in the same order as teamOrder
+	 */
+	@SuppressWarnings("rawtypes") // because populations can be mixed
+	private ArrayList<ArrayList<Score>> evaluateTeamsInParallel(ArrayList<ArrayList<Genotype>> populations, List<ArrayList<Integer>> teamOrder) {
+		int totalEvals = teamOrder.get(0).size();
+		long seed = RandomNumbers.randomGenerator.nextLong();
+		ArrayList<TeamEvaluation> calls = new ArrayList<TeamEvaluation>(totalEvals);
+		for (int i = 0; i < totalEvals; i++) {
+			calls.add(new TeamEvaluation(getTeam(populations, teamOrder, i), RandomNumbers.derivedSeed(seed, i)));
+		}
+		final ArrayList<ArrayList<Score>> results = new ArrayList<ArrayList<Score>>(totalEvals);
+		for (int i = 0; i < totalEvals; i++) {
+			results.add(null);
+		}
+		try {
+			EvaluationScheduler.Batch batch = EvaluationScheduler.getScheduler().execute(calls, null, new EvaluationScheduler.ResultHandler<ArrayList<Score>>() {
+				@Override
+				public void handle(int index, ArrayList<Score> result) {
+					results.set(index, result);
+				}
+			});
+			if (CommonConstants.logEvaluationScheduler) {
+				System.out.println(batch);
+			}
+			return results;
+		} catch (InterruptedException | ExecutionException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return null;
+	}
+
+	/**
+	 * Save several genotypes, using the shared worker threads if saving in
+	 * parallel.
+	 *
+	 * @param saves
+	 *            genotypes paired with the files to save them to
+	 */
+	@SuppressWarnings("rawtypes")  // because each population can have a different type
+	private void saveAll(ArrayList<SaveThread<Genotype>> saves) {
+		try {
+			ArrayList<Boolean> results = parallelSave ? EvaluationScheduler.getScheduler().executeAll(saves) : null;
+			for (int i = 0; i < saves.size(); i++) {
+				if (!(parallelSave ? results.get(i) : saves.get(i).call())) {
+					System.out.println("Failure saving best genotypes");
+					System.exit(1);
+				}
+			}
+		} catch (InterruptedException | ExecutionException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+	}
+
 	/**
 	 * One genotype for each member of the team, and one score for each member
 	 * as well
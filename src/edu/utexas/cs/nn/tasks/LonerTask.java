@@ -1,6 +1,8 @@
 package edu.utexas.cs.nn.tasks;
 
+import edu.utexas.cs.nn.evolution.EvaluationCache;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.PhenotypeCache;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.evolution.lineage.Offspring;
 import edu.utexas.cs.nn.evolution.metaheuristics.Metaheuristic;
@@ -17,7 +19,10 @@ import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusPredPreyTask;
 import edu.utexas.cs.nn.tasks.mspacman.MsPacManTask;
 import edu.utexas.cs.nn.util.PopulationUtil;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.file.FileUtilities;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.SplitMixRandom;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.CopyOption;
@@ -27,6 +32,7 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.concurrent.*;
 import wox.serial.Easy;
 
@@ -115,8 +121,31 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 				MMNEAT.evalReport = new EvalLog("Eval-Net" + genotype.getId());
 			}
 			long before = System.currentTimeMillis();
-			// finds the score based on evaluation of the task's genotype
-			Score<T> score = task.evaluate(genotype);
+			// finds the score based on evaluation of the task's genotype,
+			// using the task instance that belongs to the current thread,
+			// unless the same genotype was evaluated recently
+			Score<T> score = null;
+			Genotype<?>[] team = new Genotype<?>[] { genotype };
+			if (task.evaluationCache != null) {
+				Score<?>[] cached = task.evaluationCache.get(team);
+				// Copies belong to the members of the team
+				score = cached == null ? null : (Score<T>) cached[0];
+			}
+			if (score == null) {
+				// With randomStreams, the evaluation draws from a stream of its
+				// own, so it does not matter which thread runs it or when
+				SplitMixRandom previous = CommonConstants.randomStreams ? RandomNumbers.useStream(streamSeed(genotype, -1)) : null;
+				try {
+					score = task.workerInstance().evaluate(genotype);
+				} finally {
+					if (CommonConstants.randomStreams) {
+						RandomNumbers.restoreStream(previous);
+					}
+				}
+				if (task.evaluationCache != null) {
+					task.evaluationCache.put(team, new Score<?>[] { score });
+				}
+			}
 			long after = System.currentTimeMillis();
 			// if there is an evalReport, save it
 			if (MMNEAT.evalReport != null) {
@@ -157,7 +186,17 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 	}
 
 	private final boolean parallel;
-	private final int threads;
+	// Scores of recent evaluations, shared by all worker instances
+	public EvaluationCache evaluationCache;
+	// Duration of the most recent evaluation of each genotype, by id
+	private final HashMap<Long, Double> previousEvalTimes = new HashMap<Long, Double>();
+	// Each evaluation thread lazily creates its own task instance
+	private final ThreadLocal<LonerTask<T>> workerTask = new ThreadLocal<LonerTask<T>>() {
+		@Override
+		protected LonerTask<T> initialValue() {
+			return newWorkerInstance();
+		}
+	};
 
 	/**
 	 * constructor for a LonerTask based upon command line specified evaluation
@@ -165,7 +204,61 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 	 */
 	public LonerTask() {
 		this.parallel = Parameters.parameters.booleanParameter("parallelEvaluations");
-		this.threads = Parameters.parameters.integerParameter("threads");
+		this.evaluationCache = EvaluationCache.create();
+	}
+
+	/**
+	 * The task instance that the calling thread should use to evaluate
+	 * genotypes. When evaluating in serial this is always the task itself.
+	 * When evaluating in parallel, each thread gets its own instance from
+	 * newWorkerInstance, so that evaluations do not share mutable state.
+	 *
+	 * @return task instance confined to the current thread
+	 */
+	public LonerTask<T> workerInstance() {
+		return parallel ? workerTask.get() : this;
+	}
+
+	/**
+	 * The task instance confined to the current thread, regardless of
+	 * whether whole evaluations run in parallel. Used when parts of a single
+	 * evaluation are spread across threads, and by cooperative tasks that
+	 * evaluate teams in parallel using a LonerTask.
+	 *
+	 * @return task instance confined to the current thread
+	 */
+	public LonerTask<T> threadInstance() {
+		return workerTask.get();
+	}
+
+	/**
+	 * Create the task instance used by a single evaluation thread. This is
+	 * called once on each thread that evaluates genotypes in parallel. Tasks
+	 * that store state during an evaluation (game instances, controllers,
+	 * etc.) must override this to return an independent copy. The default
+	 * shares this instance, which is only appropriate for tasks whose
+	 * evaluate method does not modify any fields.
+	 *
+	 * @return task instance for the current thread
+	 */
+	protected LonerTask<T> newWorkerInstance() {
+		return this;
+	}
+
+	/**
+	 * Seed of the random stream for one trial of evaluating a genotype in the
+	 * current generation
+	 *
+	 * @param genotype
+	 *            genotype being evaluated
+	 * @param trial
+	 *            which trial, or -1 for the evaluation as a whole
+	 * @return seed for RandomNumbers.useStream
+	 */
+	@SuppressWarnings("rawtypes")
+	protected static long streamSeed(Genotype genotype, int trial) {
+		int generation = MMNEAT.ea == null ? 0 : MMNEAT.ea.currentGeneration();
+		return RandomNumbers.streamSeed(generation, genotype.getId(), trial);
 	}
 
 	/**
@@ -179,6 +272,113 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		return new EvaluationThread(this, genotype).call();
 	}
 
+	/**
+	 * Estimated evaluation time of each member of the population, based on
+	 * the time its previous evaluation took. Individuals that have not been
+	 * evaluated before are assumed to take the average time of those that
+	 * have.
+	 *
+	 * @param population
+	 *            genotypes about to be evaluated
+	 * @return expected evaluation time of each genotype
+	 */
+	private double[] expectedEvalTimes(ArrayList<Genotype<T>> population) {
+		double[] expected = new double[population.size()];
+		double sum = 0;
+		int known = 0;
+		for (int i = 0; i < expected.length; i++) {
+			Double previous = previousEvalTimes.get(population.get(i).getId());
+			expected[i] = previous == null ? -1 : previous;
+			if (previous != null) {
+				sum += previous;
+				known++;
+			}
+		}
+		double average = known == 0 ? 0 : sum / known;
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] < 0) {
+				expected[i] = average;
+			}
+		}
+		return expected;
+	}
+
+	/**
+	 * Remember how long each evaluation took, for scheduling the next
+	 * generation. Only the latest population is kept.
+	 *
+	 * @param scores
+	 *            scores of the evaluated population
+	 */
+	private void rememberEvalTimes(ArrayList<Score<T>> scores) {
+		previousEvalTimes.clear();
+		for (Score<T> s : scores) {
+			previousEvalTimes.put(s.individual.getId(), s.averageEvalTime >= 0 ? s.averageEvalTime : s.totalEvalTime);
+		}
+	}
+
+	/**
+	 * Tracks the best individual in each objective (and the best Ms. Pac-Man
+	 * game score) as scores arrive. Scores can arrive in any order, so ties
+	 * are broken by population index, which gives the same result as
+	 * processing the scores in population order: the last of several tied
+	 * individuals wins.
+	 */
+	private class BestTracker implements EvaluationScheduler.ResultHandler<Score<T>> {
+
+		private final Score<T>[] results;
+		// General tracking of best in each objective
+		final double[] bestObjectives = minScores();
+		final Genotype<T>[] bestGenotypes;
+		final Score<T>[] bestScores;
+		private final int[] bestIndices;
+		// some pac man variables that only apply if pac man is being used to
+		// save the best pac man later
+		private final boolean trackBestPacManScore;
+		private int maxPacManScore = 0;
+		private int bestPacManIndex = -1;
+		Genotype<T> bestPacMan = null;
+		Score<T> bestScoreSet = null;
+
+		@SuppressWarnings("unchecked")
+		BestTracker(Score<T>[] results) {
+			this.results = results;
+			this.bestGenotypes = (Genotype<T>[]) new Genotype<?>[bestObjectives.length];
+			this.bestScores = (Score<T>[]) new Score<?>[bestObjectives.length];
+			this.bestIndices = new int[bestObjectives.length];
+			Arrays.fill(bestIndices, -1);
+			this.trackBestPacManScore = CommonConstants.netio && LonerTask.this instanceof MsPacManTask
+					&& MMNEAT.ea instanceof MuLambda && ((MuLambda<T>) MMNEAT.ea).evaluatingParents;
+		}
+
+		@Override
+		public void handle(int i, Score<T> s) {
+			results[i] = s;
+			// Specific to Ms Pac-Man
+			if (trackBestPacManScore) {
+				int gameScore = (int) s.otherStats[0]; // Game Score is always first
+				if (gameScore > maxPacManScore || (gameScore == maxPacManScore && i > bestPacManIndex)) {
+					bestPacMan = s.individual;
+					maxPacManScore = gameScore;
+					bestScoreSet = s;
+					bestPacManIndex = i;
+				}
+			}
+			// Best in each objective
+			for (int j = 0; j < bestObjectives.length; j++) {
+				double objectiveScore = s.scores[j];
+				// the first score seen is the tentative best until a better individual is found
+				if (bestIndices[j] == -1 || objectiveScore > bestObjectives[j] || (objectiveScore == bestObjectives[j] && i > bestIndices[j])) {
+					// update best individual in objective j
+					bestGenotypes[j] = s.individual;
+					bestObjectives[j] = objectiveScore;
+					bestScores[j] = s;
+					bestIndices[j] = i;
+				}
+			}
+		}
+	}
+
 	/**
 	 * evaluate all of the genotypes in the population
 	 * 
@@ -189,11 +389,12 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public ArrayList<Score<T>> evaluateAll(ArrayList<Genotype<T>> population) {
+		if (CommonConstants.phenotypeCache) {
+			PhenotypeCache.retain(population);
+		}
 		// a list of the fitness scores of the population
 		ArrayList<Score<T>> scores = new ArrayList<Score<T>>(population.size());
 
-		ExecutorService poolExecutor = null;
-		ArrayList<Future<Score<T>>> futures = null;
 		ArrayList<EvaluationThread> calls = new ArrayList<EvaluationThread>(population.size());
 
 		// get each genotype for the population and add an EvaluationThread for
@@ -204,57 +405,32 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 			calls.add(callable);
 		}
 
-		if (parallel) {
-			poolExecutor = Executors.newFixedThreadPool(threads);
-			futures = new ArrayList<Future<Score<T>>>(population.size());
-			for (int i = 0; i < population.size(); i++) {
-				Future<Score<T>> future = poolExecutor.submit(calls.get(i));
-				futures.add(future);
-			}
-		}
-
-		// General tracking of best in each objective
-		double[] bestObjectives = minScores();
-		Genotype<T>[] bestGenotypes = new Genotype[bestObjectives.length];
-		Score<T>[] bestScores = new Score[bestObjectives.length];
-
-		// some pac man variables that only apply if pac man is being used to
-		// save the best pac man later
-		int maxPacManScore = 0;
-		Genotype<T> bestPacMan = null;
-		Score<T> bestScoreSet = null;
-		boolean trackBestPacManScore = 
-                                   CommonConstants.netio && this instanceof MsPacManTask
-				&& MMNEAT.ea instanceof MuLambda && ((MuLambda<T>) MMNEAT.ea).evaluatingParents;
-		for (int i = 0; i < population.size(); i++) {
-			try {
-				Score<T> s = parallel ? futures.get(i).get() : calls.get(i).call();
-				// Specific to Ms Pac-Man
-				if (trackBestPacManScore) {
-					int gameScore = (int) s.otherStats[0]; // Game Score is always first
-					if (gameScore >= maxPacManScore) {
-						bestPacMan = s.individual;
-						maxPacManScore = gameScore;
-						bestScoreSet = s;
-					}
+		// Results can arrive in any order, so they are stored by index
+		Score<T>[] results = (Score<T>[]) new Score<?>[population.size()];
+		BestTracker tracker = new BestTracker(results);
+		try {
+			if (parallel) {
+				EvaluationScheduler.Batch batch = EvaluationScheduler.getScheduler().execute(calls, expectedEvalTimes(population), tracker);
+				if (CommonConstants.logEvaluationScheduler) {
+					System.out.println(batch);
 				}
-				// Best in each objective
-				for (int j = 0; j < bestObjectives.length; j++) {
-					double objectiveScore = s.scores[j];
-                    // i == 0 saves first member of the population as the tentative best until a better individual is found
-					if (i == 0 || objectiveScore >= bestObjectives[j]) {
-                        // update best individual in objective j
-						bestGenotypes[j] = s.individual;
-						bestObjectives[j] = objectiveScore;
-						bestScores[j] = s;
-					}
+			} else {
+				for (int i = 0; i < population.size(); i++) {
+					tracker.handle(i, calls.get(i).call());
 				}
-				scores.add(s);
-			} catch (InterruptedException | ExecutionException ex) {
-				ex.printStackTrace();
-				System.exit(1);
 			}
+		} catch (InterruptedException | ExecutionException ex) {
+			ex.printStackTrace();
+			System.exit(1);
 		}
+		scores.addAll(Arrays.asList(results));
+		rememberEvalTimes(scores);
+
+		double[] bestObjectives = tracker.bestObjectives;
+		Genotype<T>[] bestGenotypes = tracker.bestGenotypes;
+		Score<T>[] bestScores = tracker.bestScores;
+		Genotype<T> bestPacMan = tracker.bestPacMan;
+		Score<T> bestScoreSet = tracker.bestScoreSet;
 
 		if (bestPacMan != null) {
 			// Save best pacman
@@ -276,10 +452,6 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 			PopulationUtil.saveBestOfCurrentGen(bestObjectives, bestGenotypes, bestScores);
 		}
 
-		if (parallel) {
-			poolExecutor.shutdown();
-		}
-
 		/**
 		 * If using UCB to decide who to give extra evals to, then by this point
 		 * every member of the population will have been evaluated (preferably
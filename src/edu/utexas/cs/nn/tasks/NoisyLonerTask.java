@@ -9,13 +9,18 @@ import edu.utexas.cs.nn.scores.MultiObjectiveScore;
 import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.pacman.NNCheckEachDirectionPacManController;
 import edu.utexas.cs.nn.util.ClassCreation;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.datastructures.ArrayUtil;
 import edu.utexas.cs.nn.util.datastructures.Pair;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.SplitMixRandom;
 import edu.utexas.cs.nn.util.stats.Average;
 import edu.utexas.cs.nn.util.stats.Statistic;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Any task in which multiple trials are needed because evaluations are noisy.
@@ -28,6 +33,16 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 
 	public Statistic stat;
 	public final boolean printFitness;
+	public final boolean parallelTrials;
+	// Seed assigned to the trial this instance is running (parallel trials only)
+	private long assignedTrialSeed;
+	private boolean trialSeedAssigned = false;
+	// Seed assigned to the whole evaluation (parallel cooperative teams only)
+	private long assignedEvaluationSeed;
+	private boolean evaluationSeedAssigned = false;
+	private int trialsSeeded = 0;
+	// Whether this task was checked to have instances of its own for each thread
+	private boolean workerInstancesChecked = false;
 
 	/**
 	 * constructor for a noisy loner task. Assigns fitness according to
@@ -35,6 +50,7 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 	 */
 	public NoisyLonerTask() {
 		this.printFitness = Parameters.parameters.booleanParameter("printFitness");
+		this.parallelTrials = Parameters.parameters.booleanParameter("parallelTrials");
 		try {
 			stat = (Statistic) ClassCreation.createObject("noisyTaskStat");
 		} catch (NoSuchMethodException ex) {
@@ -68,6 +84,130 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 	 */
 	public abstract Pair<double[], double[]> oneEval(Genotype<T> individual, int num);
 
+	/**
+	 * Seed for the random elements of the trial currently being evaluated.
+	 * When trials run in parallel, each one is assigned its own seed derived
+	 * from a single seed per individual. Otherwise, a new seed is drawn from
+	 * the shared random generator.
+	 *
+	 * @return seed for the current trial
+	 */
+	protected long trialSeed() {
+		if (trialSeedAssigned) {
+			return assignedTrialSeed;
+		} else if (evaluationSeedAssigned) {
+			return RandomNumbers.derivedSeed(assignedEvaluationSeed, trialsSeeded++);
+		} else {
+			return RandomNumbers.randomGenerator.nextLong();
+		}
+	}
+
+	/**
+	 * Seed the next evaluation performed by this instance, instead of drawing
+	 * seeds from the shared random generator. Used when a CooperativeTask
+	 * evaluates teams in parallel on copies of this task, so that the trials
+	 * of each team do not depend on the order in which teams are evaluated.
+	 * Each trial gets its own seed derived from this one.
+	 *
+	 * @param seed
+	 *            seed for the next evaluation
+	 */
+	public void assignEvaluationSeed(long seed) {
+		assignedEvaluationSeed = seed;
+		evaluationSeedAssigned = true;
+		trialsSeeded = 0;
+	}
+
+	/**
+	 * One trial of an evaluation, run on whichever worker thread picks it up,
+	 * using the task instance that belongs to that thread. The trial prepares
+	 * and cleans up that instance itself, and draws from its own random
+	 * stream, so it does not depend on the other trials running at the same
+	 * time.
+	 */
+	private class TrialEvaluation implements Callable<Pair<double[], double[]>> {
+
+		private final Genotype<T> individual;
+		private final int num;
+		private final long seed;
+		long evalTime;
+		// Module usage this trial left on the genotype, if it is a TWEANN
+		int[] moduleUsage = null;
+		// Behavior gathered by the task instance during this trial
+		ArrayList<Double> behaviorVector = null;
+
+		TrialEvaluation(Genotype<T> individual, int num, long seed) {
+			this.individual = individual;
+			this.num = num;
+			this.seed = seed;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Pair<double[], double[]> call() {
+			NoisyLonerTask<T> task = (NoisyLonerTask<T>) threadInstance();
+			long before = System.currentTimeMillis();
+			if (MMNEAT.evalReport != null) {
+				MMNEAT.evalReport.log("Eval " + num + ":");
+			}
+			task.assignedTrialSeed = seed;
+			task.trialSeedAssigned = true;
+			// With parallelTrials, randomGenerator always supports streams
+			SplitMixRandom previous = RandomNumbers.useStream(CommonConstants.randomStreams ? streamSeed(individual, num) : seed);
+			if (individual instanceof TWEANNGenotype) {
+				TWEANNGenotype.captureModuleUsage((TWEANNGenotype) individual);
+			}
+			try {
+				task.prep();
+				Pair<double[], double[]> result = task.oneEval(individual, num);
+				behaviorVector = task.getBehaviorVector();
+				task.cleanup();
+				return result;
+			} finally {
+				if (individual instanceof TWEANNGenotype) {
+					moduleUsage = TWEANNGenotype.capturedModuleUsage();
+				}
+				RandomNumbers.restoreStream(previous);
+				task.trialSeedAssigned = false;
+				evalTime = System.currentTimeMillis() - before;
+			}
+		}
+	}
+
+	/**
+	 * Trials that run in parallel each use the task instance of their own
+	 * thread, so a task that shares one instance between threads cannot run
+	 * them. Checked once, by asking for one more instance.
+	 */
+	private void checkWorkerInstances() {
+		if (!workerInstancesChecked) {
+			if (newWorkerInstance() == this) {
+				System.out.println("parallelTrials requires separate task instances for each thread, which "
+						+ getClass().getSimpleName() + " does not create");
+				System.exit(1);
+			}
+			workerInstancesChecked = true;
+		}
+	}
+
+	/**
+	 * Print results of one trial if printFitness is set
+	 *
+	 * @param result
+	 *            fitness and other scores from the trial
+	 * @param moduleUsage
+	 *            module usage of the network in the trial, or null if the
+	 *            genotype is not a TWEANN
+	 */
+	private void printTrial(Pair<double[], double[]> result, int[] moduleUsage) {
+		if (printFitness) {
+			System.out.println(Arrays.toString(result.t1) + Arrays.toString(result.t2));
+			if (moduleUsage != null) {
+				System.out.println("Module Usage: " + Arrays.toString(moduleUsage));
+			}
+		}
+	}
+
 	/**
 	 * Evaluate an agent by subjecting it to several separate evaluations/trials
 	 * in the domain. Return the fitness score(s)
@@ -79,28 +219,71 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 	 */
 	@Override
 	public Score<T> evaluate(Genotype<T> individual) {
-		prep();
 		double[][] objectiveScores = new double[CommonConstants.trials][this.numObjectives()];
 		double[][] otherScores = new double[CommonConstants.trials][this.numOtherScores()];
 		double evalTimeSum = 0;
-		for (int i = 0; i < CommonConstants.trials; i++) {
-			long before = System.currentTimeMillis();
-			if (MMNEAT.evalReport != null) {
-				MMNEAT.evalReport.log("Eval " + i + ":");
+		ArrayList<Double> behaviorVector = null;
+		if (parallelTrials) {
+			checkWorkerInstances();
+			// Each trial runs on its own worker, with its own seed
+			long seed = evaluationSeedAssigned ? assignedEvaluationSeed : RandomNumbers.randomGenerator.nextLong();
+			ArrayList<TrialEvaluation> trials = new ArrayList<TrialEvaluation>(CommonConstants.trials);
+			for (int i = 0; i < CommonConstants.trials; i++) {
+				trials.add(new TrialEvaluation(individual, i, RandomNumbers.derivedSeed(seed, i)));
 			}
-			Pair<double[], double[]> result = oneEval(individual, i);
-			if (printFitness) {
-				System.out.println(Arrays.toString(result.t1) + Arrays.toString(result.t2));
-				if (individual instanceof TWEANNGenotype) {
-					System.out.println(
-							"Module Usage: " + Arrays.toString(((TWEANNGenotype) individual).getModuleUsage()));
+			try {
+				ArrayList<Pair<double[], double[]>> results = EvaluationScheduler.getScheduler().invokeAll(trials);
+				int[] moduleUsage = null;
+				for (int i = 0; i < CommonConstants.trials; i++) {
+					Pair<double[], double[]> result = results.get(i);
+					printTrial(result, trials.get(i).moduleUsage);
+					if (trials.get(i).moduleUsage != null) {
+						moduleUsage = trials.get(i).moduleUsage;
+					}
+					if (trials.get(i).behaviorVector != null) {
+						// In trial order, as serial trials collect them
+						if (behaviorVector == null) {
+							behaviorVector = new ArrayList<Double>();
+						}
+						behaviorVector.addAll(trials.get(i).behaviorVector);
+					}
+					evalTimeSum += trials.get(i).evalTime;
+					objectiveScores[i] = result.t1; // fitness scores
+					otherScores[i] = result.t2; // other scores
+				}
+				if (moduleUsage != null) {
+					// Trials overwrote module usage in whatever order they ran.
+					// Keep the usage of the last trial, as serial trials do
+					((TWEANNGenotype) individual).setModuleUsage(moduleUsage);
+				}
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.exit(1);
+			}
+		} else {
+			prep();
+			for (int i = 0; i < CommonConstants.trials; i++) {
+				long before = System.currentTimeMillis();
+				if (MMNEAT.evalReport != null) {
+					MMNEAT.evalReport.log("Eval " + i + ":");
+				}
+				Pair<double[], double[]> result;
+				// Each trial has its own random stream, as when trials run in parallel
+				SplitMixRandom previous = CommonConstants.randomStreams ? RandomNumbers.useStream(streamSeed(individual, i)) : null;
+				try {
+					result = oneEval(individual, i);
+				} finally {
+					if (CommonConstants.randomStreams) {
+						RandomNumbers.restoreStream(previous);
+					}
 				}
+				printTrial(result, individual instanceof TWEANNGenotype ? ((TWEANNGenotype) individual).getModuleUsage() : null);
+				long after = System.currentTimeMillis();
+				evalTimeSum += (after - before);
+				objectiveScores[i] = result.t1; // fitness scores
+				// ScoreHistory.add(individual.getId(), result.t1);
+				otherScores[i] = result.t2; // other scores
 			}
-			long after = System.currentTimeMillis();
-			evalTimeSum += (after - before);
-			objectiveScores[i] = result.t1; // fitness scores
-			// ScoreHistory.add(individual.getId(), result.t1);
-			otherScores[i] = result.t2; // other scores
 		}
 		double averageEvalTime = evalTimeSum / CommonConstants.trials;
 		double[] fitness = new double[this.numObjectives()];
@@ -178,9 +361,12 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 				NNCheckEachDirectionPacManController.totalChosenDirectionJunctionThreatModeUsageCounts = null;
 			}
 		}
-		cleanup();
+		if (!parallelTrials) {
+			cleanup();
+			behaviorVector = getBehaviorVector();
+		}
 		// creates the score based off of the multiple objective score
-		Score<T> s = new MultiObjectiveScore<T>(individual, fitness, getBehaviorVector(), other);
+		Score<T> s = new MultiObjectiveScore<T>(individual, fitness, behaviorVector, other);
 		// set the average time
 		s.averageEvalTime = averageEvalTime;
 		return s;
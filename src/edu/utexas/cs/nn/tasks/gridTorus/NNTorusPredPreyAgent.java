@@ -8,6 +8,7 @@ import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.datastructures.Pair;
 
 /**
  * 
@@ -18,9 +19,10 @@ import edu.utexas.cs.nn.parameters.Parameters;
 public class NNTorusPredPreyAgent<T extends Network> extends Organism<T> {
 
 	// These were added so that HyperNEAT teams can share the same network
-	// rather than make copies of it.
-	private static long networkGenotypeID = -1;
-	private static Network storedNN = null;
+	// rather than make copies of it. Teams evaluated on different threads
+	// cannot share a network, so each thread stores its own, along with the
+	// id of its genotype.
+	private static final ThreadLocal<Pair<Long, Network>> storedNN = new ThreadLocal<Pair<Long, Network>>();
 	
 	/**
 	 * Initialize controller
@@ -41,11 +43,12 @@ public class NNTorusPredPreyAgent<T extends Network> extends Organism<T> {
 		// Since HyperNEAT networks are large, and (for this domain) do not allow recurrent links,
 		// it is both safe and efficient to simply share one network across all team members
 		// rather than have multiple copies of the same network. This results in a minor speedup.
-		if(CommonConstants.hyperNEAT && networkGenotypeID != getGenotype().getId()) {
-			storedNN = (Network) getGenotype().getPhenotype();
-			networkGenotypeID = getGenotype().getId();
+		Pair<Long, Network> stored = storedNN.get();
+		if(CommonConstants.hyperNEAT && (stored == null || stored.t1 != getGenotype().getId())) {
+			stored = new Pair<Long, Network>(getGenotype().getId(), (Network) getGenotype().getPhenotype());
+			storedNN.set(stored);
 		}
-		Network net = CommonConstants.hyperNEAT ? storedNN : (Network) getGenotype().getPhenotype();
+		Network net = CommonConstants.hyperNEAT ? stored.t2 : (Network) getGenotype().getPhenotype();
 		controller = Parameters.parameters.booleanParameter("hyperNEAT")
 				? new HyperNEATNNTorusPredPreyController(net, isPredator)
 				: new NNTorusPredPreyController(net, isPredator);
@@ -23,6 +23,7 @@ import edu.utexas.cs.nn.networks.hyperneat.HyperNEATTask;
 import edu.utexas.cs.nn.networks.hyperneat.Substrate;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.tasks.LonerTask;
 import edu.utexas.cs.nn.tasks.NoisyLonerTask;
 import edu.utexas.cs.nn.tasks.gridTorus.objectives.GridTorusObjective;
 import edu.utexas.cs.nn.util.datastructures.ArrayUtil;
@@ -44,7 +45,7 @@ import edu.utexas.cs.nn.util.datastructures.*;
  * @param <T>
  *            Network phenotype being evolved
  */
-public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTask<T> implements TUGTask, NetworkTask, HyperNEATTask {
+public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTask<T> implements TUGTask, NetworkTask, HyperNEATTask, Cloneable {
 
 	public static final String[] ALL_ACTIONS = new String[] { "UP", "RIGHT", "DOWN", "LEFT", "NOTHING" };
 	public static final String[] MOVEMENT_ACTIONS = new String[] { "UP", "RIGHT", "DOWN", "LEFT" };
@@ -102,6 +103,27 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 		}
 	}
 
+	/**
+	 * Parallel evaluation threads each get a shallow copy of the task, with
+	 * their own executor and evolved agents. Objectives are shared.
+	 *
+	 * @return copy of the task for the current thread
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected LonerTask<T> newWorkerInstance() {
+		try {
+			TorusPredPreyTask<T> worker = (TorusPredPreyTask<T>) clone();
+			worker.exec = null;
+			worker.evolved = null;
+			return worker;
+		} catch (CloneNotSupportedException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return null;
+	}
+
 	public final void addObjective(GridTorusObjective<T> o, ArrayList<GridTorusObjective<T>> list) {
 		addObjective(o,list,true);
 	}
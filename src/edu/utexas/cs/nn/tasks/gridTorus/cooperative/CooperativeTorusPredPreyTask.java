@@ -30,7 +30,7 @@ import edu.utexas.cs.nn.tasks.gridTorus.sensors.TorusPreyByProximitySensorBlock;
  * @param <T> phenotype of all evolving populations
  *
  */
-public abstract class CooperativeTorusPredPreyTask<T extends Network> extends CooperativeTask implements NetworkTask {
+public abstract class CooperativeTorusPredPreyTask<T extends Network> extends CooperativeTask implements NetworkTask, Cloneable {
 
 	public TorusPredPreyTask<T> task;
 
@@ -42,6 +42,39 @@ public abstract class CooperativeTorusPredPreyTask<T extends Network> extends Co
 		task = getLonerTaskInstance();
 	}
 
+	/**
+	 * Each team is evaluated with the evolved agents and game of the
+	 * TorusPredPreyTask, so separate copies of it can evaluate teams in
+	 * parallel.
+	 *
+	 * @return true
+	 */
+	@Override
+	protected boolean supportsParallelTeams() {
+		return true;
+	}
+
+	/**
+	 * Threads that evaluate teams in parallel each get a shallow copy of the
+	 * task, which evaluates with the thread's own copy of the
+	 * TorusPredPreyTask.
+	 *
+	 * @return copy of the task for the current thread
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected CooperativeTask newWorkerInstance() {
+		try {
+			CooperativeTorusPredPreyTask<T> worker = (CooperativeTorusPredPreyTask<T>) clone();
+			worker.task = (TorusPredPreyTask<T>) task.threadInstance();
+			return worker;
+		} catch (CloneNotSupportedException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return null;
+	}
+
 	/**
 	 * gets and returns the task instance (for either evolved predators or evolved prey)
 	 * @return task, torusPredPreyTask instance
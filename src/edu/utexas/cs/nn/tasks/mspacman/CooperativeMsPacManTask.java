@@ -39,6 +39,17 @@ public abstract class CooperativeMsPacManTask<T extends Network> extends Coopera
 		task = new MsPacManTask<T>();
 	}
 
+	/**
+	 * The trials of the team are seeded from the team seed
+	 *
+	 * @param seed
+	 *            seed of the team about to be evaluated
+	 */
+	@Override
+	protected void assignTeamSeed(long seed) {
+		task.assignEvaluationSeed(seed);
+	}
+
 	public int numObjectives() {
 		return task.numObjectives();
 	}
@@ -8,6 +8,7 @@ import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.MultiObjectiveScore;
 import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.tasks.CooperativeTask;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.pacman.*;
 import edu.utexas.cs.nn.tasks.mspacman.facades.GameFacade;
 import edu.utexas.cs.nn.tasks.mspacman.facades.PacManControllerFacade;
@@ -29,13 +30,17 @@ import pacman.controllers.NewPacManController;
  * @author Jacob Schrum
  */
 public abstract class CooperativeNonHierarchicalMultiNetMsPacManTask<T extends Network>
-		extends CooperativeMsPacManTask<T> {
+		extends CooperativeMsPacManTask<T> implements Cloneable {
 
 	protected int members;
 	protected boolean ensemble;
 	protected boolean checkEachDir;
 	public FitnessToModeMap fitnessMap;
 	public MsPacManControllerInputOutputMediator[] inputMediators;
+	private final String fitnessMapKey;
+	// Whether the mediators were created by this task rather than given to it
+	private final boolean ownMediators;
+	private final boolean ghostMonitors;
 
 	public CooperativeNonHierarchicalMultiNetMsPacManTask(int numMembers, boolean ensemble, String fitnessMapKey) {
 		this(numMembers, ensemble, fitnessMapKey, null);
@@ -50,6 +55,9 @@ public abstract class CooperativeNonHierarchicalMultiNetMsPacManTask<T extends N
 			boolean ghostMonitors, MsPacManControllerInputOutputMediator[] mediators) {
 		super();
 		this.members = numMembers;
+		this.fitnessMapKey = fitnessMapKey;
+		this.ownMediators = mediators == null;
+		this.ghostMonitors = ghostMonitors;
 		// Copy of same mediator for each mode
 		try {
 			fitnessMap = (FitnessToModeMap) ClassCreation.createObject(fitnessMapKey); // plain
@@ -95,6 +103,46 @@ public abstract class CooperativeNonHierarchicalMultiNetMsPacManTask<T extends N
 		}
 	}
 
+	/**
+	 * Each team is evaluated by a new controller made from the team members,
+	 * so copies of the task with their own mediators, fitness map and
+	 * MsPacManTask can evaluate teams in parallel. The mediators of ghost
+	 * monitors, and mediators given to the task, cannot be copied.
+	 *
+	 * @return whether teams can be evaluated in parallel
+	 */
+	@Override
+	protected boolean supportsParallelTeams() {
+		return ownMediators && !ghostMonitors;
+	}
+
+	/**
+	 * Threads that evaluate teams in parallel each get a shallow copy of the
+	 * task, with new instances of the mediators and the fitness map, and the
+	 * thread's own copy of the MsPacManTask.
+	 *
+	 * @return copy of the task for the current thread
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected CooperativeTask newWorkerInstance() {
+		try {
+			CooperativeNonHierarchicalMultiNetMsPacManTask<T> worker = (CooperativeNonHierarchicalMultiNetMsPacManTask<T>) clone();
+			worker.task = (MsPacManTask<T>) task.threadInstance();
+			worker.fitnessMap = (FitnessToModeMap) ClassCreation.createObject(fitnessMapKey);
+			worker.inputMediators = new MsPacManControllerInputOutputMediator[inputMediators.length];
+			for (int i = 0; i < inputMediators.length; i++) {
+				// The mediator classes may have been specialized after construction
+				worker.inputMediators[i] = (MsPacManControllerInputOutputMediator) ClassCreation.createObject(inputMediators[i].getClass());
+			}
+			return worker;
+		} catch (CloneNotSupportedException | NoSuchMethodException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return null;
+	}
+
 	@Override
 	public ArrayList<Score> evaluate(Genotype[] team) {
 
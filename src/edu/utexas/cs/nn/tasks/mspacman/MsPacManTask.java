@@ -10,6 +10,7 @@ import edu.utexas.cs.nn.networks.NetworkTask;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.tasks.LonerTask;
 import edu.utexas.cs.nn.tasks.NoisyLonerTask;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.ghosts.SharedNNGhosts;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.pacman.MultinetworkMsPacManController;
@@ -23,7 +24,6 @@ import edu.utexas.cs.nn.tasks.mspacman.multitask.MsPacManModeSelector;
 import edu.utexas.cs.nn.tasks.mspacman.objectives.*;
 import edu.utexas.cs.nn.util.ClassCreation;
 import edu.utexas.cs.nn.util.datastructures.Pair;
-import edu.utexas.cs.nn.util.random.RandomNumbers;
 import edu.utexas.cs.nn.util.stats.Average;
 import edu.utexas.cs.nn.util.stats.Max;
 import edu.utexas.cs.nn.util.stats.Mode;
@@ -42,7 +42,7 @@ import pacman.game.Game;
  * @param <T>
  *            phenotype of evolved agent
  */
-public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements TUGTask, NetworkTask {
+public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements TUGTask, NetworkTask, Cloneable {
 
 	public static String saveFilePrefix = "";
 
@@ -356,6 +356,32 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 				: new double[] { taskScores.otherStats[scoreIndex] });
 	}
 
+	/**
+	 * Each parallel evaluation thread gets a shallow copy of the task. The
+	 * objectives and settings are shared, since they do not change, but the
+	 * game, controllers and executor are private to the copy. The thread also
+	 * gets its own mediator and other stateful controller components.
+	 *
+	 * @return copy of the task for the current thread
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected LonerTask<T> newWorkerInstance() {
+		try {
+			MsPacManTask<T> worker = (MsPacManTask<T>) clone();
+			worker.exec = new ExecutorFacade(new Executor());
+			worker.game = null;
+			worker.mspacman = null;
+			worker.ghosts = null;
+			MMNEAT.createThreadPacManComponents();
+			return worker;
+		} catch (CloneNotSupportedException | NoSuchMethodException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return null;
+	}
+
 	public void loadGhosts() {
 		if (ghosts == null) {
 			try {
@@ -439,7 +465,7 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 			loadGhosts();
 		}
 		tcManager.preEval();
-		game = new GameFacade(new Game(deterministic ? num : RandomNumbers.randomGenerator.nextLong()));
+		game = new GameFacade(new Game(deterministic ? num : trialSeed()));
 		game.setExitLairEdible(exitLairEdible);
 		game.setEndOnlyOnTimeLimit(endOnlyOnTimeLimit);
 		game.setRandomLairExit(randomLairExit);
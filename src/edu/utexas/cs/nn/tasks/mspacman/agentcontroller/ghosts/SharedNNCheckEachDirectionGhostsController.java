@@ -16,10 +16,20 @@ import java.util.Arrays;
  */
 public class SharedNNCheckEachDirectionGhostsController extends SharedNNDirectionalGhostsController {
 
+	// Reused every time step: inputs for each direction (null for walls),
+	// along with the arrays the inputs and outputs are written to
+	private final double[][] directionInputs = new double[GameFacade.NUM_DIRS][];
+	private final double[][] inputBuffers = new double[GameFacade.NUM_DIRS][];
+	private final double[][] directionOutputs;
+
 	public SharedNNCheckEachDirectionGhostsController(Network n) {
 		super(n);
+		directionOutputs = new double[GameFacade.NUM_DIRS][n.effectiveNumOutputs()];
 	}
 
+	/**
+	 * The shared network checks the directions in order, all in one batch
+	 */
 	@Override
 	public double[] getDirectionPreferences(GameFacade gf, int ghostIndex) {
 		double[] preferences = new double[GameFacade.NUM_DIRS];
@@ -27,13 +37,22 @@ public class SharedNNCheckEachDirectionGhostsController extends SharedNNDirectio
 										// activation function scaling
 		final int current = gf.getGhostCurrentNodeIndex(ghostIndex);
 		final int[] neighbors = gf.neighbors(current);
+		VariableDirectionGhostBlockLoadedInputOutputMediator mediator = (VariableDirectionGhostBlockLoadedInputOutputMediator) this.inputMediator;
 		for (int i = 0; i < neighbors.length; i++) {
+			directionInputs[i] = null;
 			if (neighbors[i] != -1) {
-				((VariableDirectionGhostBlockLoadedInputOutputMediator) this.inputMediator).setDirection(i);
-				double[] inputs = this.inputMediator.getInputs(gf, ghostIndex);
-				double[] outputs = nn.process(inputs);
-				assert outputs.length == 1 : "Network should have a lone output for the utility of the move in the given direction";
-				preferences[i] = outputs[0];
+				if (inputBuffers[i] == null) {
+					inputBuffers[i] = new double[mediator.numIn()];
+				}
+				mediator.setDirection(i);
+				directionInputs[i] = mediator.getInputs(gf, ghostIndex, inputBuffers[i]);
+			}
+		}
+		nn.process(directionInputs, directionOutputs);
+		for (int i = 0; i < neighbors.length; i++) {
+			if (directionInputs[i] != null) {
+				assert directionOutputs[i].length == 1 : "Network should have a lone output for the utility of the move in the given direction";
+				preferences[i] = directionOutputs[i][0];
 			}
 		}
 		return preferences;
@@ -20,7 +20,7 @@ public class CheckEachDirectionMultinetworkMsPacManController<T extends Network>
 		assert(genotypes.length == inputMediators.length) : "Genotypes length and mediators length are not the same";
 		agents = new NNCheckEachDirectionPacManController[genotypes.length];
 		for (int i = 0; i < genotypes.length; i++) {
-			agents[i] = new NNCheckEachDirectionPacManController(genotypes[i], MMNEAT.directionalSafetyFunction);
+			agents[i] = new NNCheckEachDirectionPacManController(genotypes[i], MMNEAT.directionalSafetyFunction());
 			assert inputMediators[i] != null : "Mediator " + i + " is null!";
 			agents[i].inputMediator = inputMediators[i];
 		}
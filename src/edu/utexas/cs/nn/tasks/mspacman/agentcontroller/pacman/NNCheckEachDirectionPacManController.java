@@ -6,6 +6,7 @@ import edu.utexas.cs.nn.evolution.lineage.Offspring;
 import edu.utexas.cs.nn.graphics.DrawingPanel;
 import edu.utexas.cs.nn.graphics.Plot;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
@@ -90,6 +91,16 @@ public class NNCheckEachDirectionPacManController extends NNDirectionalPacManCon
 	private final VariableDirectionBlock safe;
 	private int scentMode = -1;
 	private PrintStream modeFile = null;
+	// Set when the direction networks are compiled, so they can be
+	// processed together
+	private final CompiledTWEANN[] compiledNetworks;
+	// Reused every time step: inputs for each direction (null for walls),
+	// along with the arrays the inputs and outputs are written to
+	private final double[][] directionInputs = new double[GameFacade.NUM_DIRS][];
+	private final double[][] inputBuffers = new double[GameFacade.NUM_DIRS][];
+	private final double[][] directionOutputs;
+	private final double[][] fullPreferences;
+	private final boolean[] safeDirections = new boolean[GameFacade.NUM_DIRS];
 
 	/**
 	 * creates the controller based on genotype, the variable direction block,
@@ -113,6 +124,21 @@ public class NNCheckEachDirectionPacManController extends NNDirectionalPacManCon
 			threatJunctionModeUsageCounts[i] = new int[directionalNetworks[i].numModules()];
 			junctionModeUsageCounts[i] = new int[directionalNetworks[i].numModules()];
 		}
+		boolean compiled = true;
+		for (int i = 0; i < GameFacade.NUM_DIRS; i++) {
+			compiled = compiled && directionalNetworks[i] instanceof CompiledTWEANN;
+		}
+		if (compiled) {
+			compiledNetworks = new CompiledTWEANN[GameFacade.NUM_DIRS];
+			for (int i = 0; i < GameFacade.NUM_DIRS; i++) {
+				compiledNetworks[i] = (CompiledTWEANN) directionalNetworks[i];
+			}
+		} else {
+			compiledNetworks = null;
+		}
+		directionOutputs = new double[GameFacade.NUM_DIRS][directionalNetworks[0].effectiveNumOutputs()];
+		// Used by ensemble arbitrators: Assume one output per mode
+		fullPreferences = new double[directionalNetworks[0].numOutputs()][GameFacade.NUM_DIRS];
 		chosenDirectionModeUsageCounts = new int[directionalNetworks[0].numModules()];
 		chosenJunctionDirectionModeUsageCounts = new int[directionalNetworks[0].numModules()];
 		chosenDirectionEdibleModeUsageCounts = new int[directionalNetworks[0].numModules()];
@@ -178,20 +204,50 @@ public class NNCheckEachDirectionPacManController extends NNDirectionalPacManCon
 			ms.giveGame(gf);
 			mode = ms.mode();
 		}
-		// Used by ensemble arbitrators: Assume one output per mode
-		double[][] fullPreferences = new double[this.directionalNetworks[0].numOutputs()][neighbors.length];
+		assert neighbors.length == GameFacade.NUM_DIRS : "Unexpected number of directions: " + neighbors.length;
+		VariableDirectionBlockLoadedInputOutputMediator mediator = (VariableDirectionBlockLoadedInputOutputMediator) this.inputMediator;
 		for (int i = 0; i < neighbors.length; i++) {
+			directionInputs[i] = null;
 			if (neighbors[i] != -1) {
-				((VariableDirectionBlockLoadedInputOutputMediator) this.inputMediator).setDirection(i);
-				double[] inputs = this.inputMediator.getInputs(gf, gf.getPacmanLastMoveMade());
+				if (inputBuffers[i] == null) {
+					inputBuffers[i] = new double[mediator.numIn()];
+				}
+				mediator.setDirection(i);
+				directionInputs[i] = mediator.getInputs(gf, gf.getPacmanLastMoveMade(), inputBuffers[i]);
 				if (mode != -1) {
 					this.directionalNetworks[i].chooseMode(mode);
 				}
+				usageCounts[i]++;
+			}
+		}
+		if (compiledNetworks != null && panels == null) {
+			// One pass over the shared topology for all directions
+			CompiledTWEANN.process(compiledNetworks, directionInputs, directionOutputs);
+			if (CommonConstants.checkEachFlushWalls) {
+				for (int i = 0; i < neighbors.length; i++) {
+					if (directionInputs[i] == null) {
+						this.directionalNetworks[i].flush(); // Nothing sensed
+																// from wall
+					}
+				}
+			}
+		} else {
+			for (int i = 0; i < neighbors.length; i++) {
 				if (panels != null) {
 					TWEANN.inputPanel = panels[i];
 				}
-				usageCounts[i]++;
-				double[] outputs = this.directionalNetworks[i].process(inputs);
+				if (directionInputs[i] != null) {
+					double[] outputs = this.directionalNetworks[i].process(directionInputs[i]);
+					System.arraycopy(outputs, 0, directionOutputs[i], 0, outputs.length);
+				} else if (CommonConstants.checkEachFlushWalls) {
+					this.directionalNetworks[i].flush(); // Nothing sensed from
+															// wall
+				}
+			}
+		}
+		for (int i = 0; i < neighbors.length; i++) {
+			if (directionInputs[i] != null) {
+				double[] outputs = directionOutputs[i];
 				// Much of mode usage tracking for eval reports
 				int lastMode = directionalNetworks[i].lastModule();
 				if (gf.anyIsEdible()) {
@@ -217,26 +273,17 @@ public class NNCheckEachDirectionPacManController extends NNDirectionalPacManCon
 						fullPreferences[j][i] = this.directionalNetworks[i].moduleOutput(j)[0];
 					}
 				}
-			} else {
-				if (ensemble) {
-					for (int j = 0; j < fullPreferences.length; j++) {
-						fullPreferences[j][i] = -1; // Direction is not viable
-													// in any mode
-					}
-				}
-				if (panels != null) {
-					TWEANN.inputPanel = panels[i];
-				}
-				if (CommonConstants.checkEachFlushWalls) {
-					this.directionalNetworks[i].flush(); // Nothing sensed from
-															// wall
+			} else if (ensemble) {
+				for (int j = 0; j < fullPreferences.length; j++) {
+					fullPreferences[j][i] = -1; // Direction is not viable
+												// in any mode
 				}
 			}
 		}
 		// Should unsafe directions be excluded?
 		if (safe != null) {
 			boolean anySafe = false;
-			boolean[] safeDirections = new boolean[preferences.length];
+			Arrays.fill(safeDirections, false);
 			for (int i = 0; i < preferences.length; i++) {
 				if (neighbors[i] != -1) {
 					safe.setDirection(i);
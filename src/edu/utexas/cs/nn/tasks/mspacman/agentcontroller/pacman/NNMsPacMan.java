@@ -47,25 +47,25 @@ public class NNMsPacMan<T extends Network> extends Organism<T> {
 		Network net = (Network) this.getGenotype().getPhenotype();
 		boolean evolveNetworkSelector = Parameters.parameters.booleanParameter("evolveNetworkSelector");
 		try {
-			if (MMNEAT.pacmanInputOutputMediator instanceof ActionBlockLoadedInputOutputMediator) {
+			if (MMNEAT.pacmanInputOutputMediator() instanceof ActionBlockLoadedInputOutputMediator) {
 				controller = new NNActionPacManController(net);
-			} else if (MMNEAT.pacmanInputOutputMediator instanceof VariableDirectionBlockLoadedInputOutputMediator) {
+			} else if (MMNEAT.pacmanInputOutputMediator() instanceof VariableDirectionBlockLoadedInputOutputMediator) {
 				if (MMNEAT.sharedMultitaskNetwork != null) {
 					// All individuals define preference usage for the same
 					// shared Multitask policy network
 					controller = new NNMultitaskSelectorCheckEachDirectionPacManController(
-							MMNEAT.sharedMultitaskNetwork, genotype, MMNEAT.directionalSafetyFunction);
+							MMNEAT.sharedMultitaskNetwork, genotype, MMNEAT.directionalSafetyFunction());
 				} else if (MMNEAT.sharedPreferenceNetwork != null) {
 					// All individuals use same preference net for different
 					// evolved Multitask policy networks
 					controller = new NNMultitaskSelectorCheckEachDirectionPacManController(genotype,
-							MMNEAT.sharedPreferenceNetwork, MMNEAT.directionalSafetyFunction);
+							MMNEAT.sharedPreferenceNetwork, MMNEAT.directionalSafetyFunction());
 				} else if (CooperativeCheckEachMultitaskSelectorMsPacManTask.multitaskGenotype != null) {
 					controller = new NNMultitaskSelectorCheckEachDirectionPacManController(
 							CooperativeCheckEachMultitaskSelectorMsPacManTask.multitaskGenotype, genotype,
-							MMNEAT.directionalSafetyFunction);
+							MMNEAT.directionalSafetyFunction());
 				} else {
-					controller = new NNCheckEachDirectionPacManController(genotype, MMNEAT.directionalSafetyFunction);
+					controller = new NNCheckEachDirectionPacManController(genotype, MMNEAT.directionalSafetyFunction());
 				}
 			} else if (genotype instanceof HierarchicalTWEANNGenotype) {
 				HierarchicalTWEANN ht = (HierarchicalTWEANN) net;
@@ -73,11 +73,11 @@ public class NNMsPacMan<T extends Network> extends Organism<T> {
 				// System.out.println("ghostNet = " + ghostNet.getId());
 				Genotype<TWEANN> pillNet = ht.getSubNetGenotype(PillEatingNetworkBlock.PILL_POOL);
 				// System.out.println("pillNet = " + pillNet.getId());
-				if (MMNEAT.pacmanInputOutputMediator instanceof CombiningInputOutputMediator) {
+				if (MMNEAT.pacmanInputOutputMediator() instanceof CombiningInputOutputMediator) {
 					// Evolve combining net with population of possible subnets
-					((SubNetworkBlock) ((CombiningInputOutputMediator) MMNEAT.pacmanInputOutputMediator).blocks
+					((SubNetworkBlock) ((CombiningInputOutputMediator) MMNEAT.pacmanInputOutputMediator()).blocks
 							.get(GhostEatingNetworkBlock.GHOST_POOL)).changeNetwork(ghostNet.getPhenotype());
-					((SubNetworkBlock) ((CombiningInputOutputMediator) MMNEAT.pacmanInputOutputMediator).blocks
+					((SubNetworkBlock) ((CombiningInputOutputMediator) MMNEAT.pacmanInputOutputMediator()).blocks
 							.get(PillEatingNetworkBlock.PILL_POOL)).changeNetwork(pillNet.getPhenotype());
 					controller = new ReactiveNNPacManController(net);
 				} else if (evolveNetworkSelector) {
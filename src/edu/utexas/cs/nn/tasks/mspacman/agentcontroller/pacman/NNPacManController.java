@@ -50,13 +50,13 @@ public abstract class NNPacManController extends NewPacManController {
 		nn = n;
 		maxLevel = Parameters.parameters.integerParameter("pacmanMaxLevel");
 
-		inputMediator = MMNEAT.pacmanInputOutputMediator;
+		inputMediator = MMNEAT.pacmanInputOutputMediator();
 		if (inputMediator != null) {
 			inputMediator.reset();
 		}
 
 		if (nn != null && nn.isMultitask()) {
-			ms = MMNEAT.pacmanMultitaskScheme;
+			ms = MMNEAT.pacmanMultitaskScheme();
 		}
 	}
 
@@ -694,17 +694,18 @@ public class GameFacade {
 			assert targetNodeIndices[i] < newG.getCurrentMaze().graph.length : targetNodeIndices[i]
 					+ " is not an index in the maze " + newG.getCurrentLevel() + "/" + newG.getCurrentMaze().name
 					+ " : " + Arrays.toString(targetNodeIndices) + ":" + targetNodeIndices.length;
-			int[] path = getPathInDirFromNew(fromNodeIndex, targetNodeIndices[i], direction);
-			assert(path.length == 0 || path[path.length
-					- 1] == targetNodeIndices[i]) : ("Last element of path should be the to location! " + ("new"));
-			assert(path.length == 0 || path[0] != fromNodeIndex) : ("Path should NOT start at  location! " + ("new"));
+			// Only the path to the chosen target is actually created
+			int distance = getPathDistanceInDirFromNew(fromNodeIndex, targetNodeIndices[i], direction);
 			// Shortest distance lower bound on direction distance
-			if (shortest ? path.length < extremeDistance : path.length > extremeDistance) {
-				extremeDistance = path.length;
+			if (shortest ? distance < extremeDistance : distance > extremeDistance) {
+				extremeDistance = distance;
 				target = targetNodeIndices[i];
-				extremePath = path;
 			}
 		}
+		if (target != -1) {
+			extremePath = getPathInDirFromNew(fromNodeIndex, target, direction);
+			assert extremePath.length == extremeDistance : "Distance " + extremeDistance + " does not match path " + Arrays.toString(extremePath);
+		}
 		assert extremePath != null : "Extreme path is null: targetNodeIndices:" + Arrays.toString(targetNodeIndices)
 				+ ":extremeDistance:" + extremeDistance;
 		return new Pair<Integer, int[]>(target, extremePath);
@@ -1102,7 +1103,11 @@ public class GameFacade {
 			int simCurrent = copy.getPacmanCurrentNodeIndex();
 			// pathTraversed.add(simCurrent);
 			int dir = copy.getNextMoveTowardsTarget(simCurrent, destination);
-			copy = copy.simulateInDir(dir, ghostModel);
+			if (copy == this) {
+				// Only copy once: later steps overwrite the copy in place
+				copy = this.copy();
+			}
+			copy.simulateInDirInPlace(dir, ghostModel);
 			// steps++;
 			if (previousLives > copy.getPacmanNumberOfLivesRemaining()) {
 				return null;
@@ -1146,7 +1151,11 @@ public class GameFacade {
 			// movesMade.add(dir);
 			// pathTraversed.add(simCurrent);
 			dir = steps == 0 ? dir : copy.getRestrictedNextDir(simCurrent, target, dir);
-			copy = copy.simulateInDir(dir, ghostModel);
+			if (copy == this) {
+				// Only copy once: later steps overwrite the copy in place
+				copy = this.copy();
+			}
+			copy.simulateInDirInPlace(dir, ghostModel);
 			steps++;
 			if (previousLives > copy.getPacmanNumberOfLivesRemaining()) {
 				return null;
@@ -1169,15 +1178,68 @@ public class GameFacade {
 	 */
 	public GameFacade simulateInDir(int dir, GhostControllerFacade ghostModel) {
 		GameFacade copy = this.copy();
-		int[] ghostDirs = ghostModel.getActions(copy, 0);
+		copy.simulateInDirInPlace(dir, ghostModel);
+		return copy;
+	}
 
-		GameFacade backup = copy.copy();
+	/**
+	 * Snapshot of the state just before each reversal retry, one per thread
+	 */
+	private static final ThreadLocal<Game.Snapshot> RETRY_SNAPSHOT = new ThreadLocal<Game.Snapshot>() {
+		@Override
+		protected Game.Snapshot initialValue() {
+			return new Game.Snapshot();
+		}
+	};
+
+	/**
+	 * Simulate one step in direction, given model of how to move ghosts, by
+	 * overwriting this game state instead of copying it. The resulting state
+	 * is the same as the one returned by simulateInDir, provided that this
+	 * facade holds a game created by copy(). Save a snapshot beforehand to be
+	 * able to undo the step with restoreSnapshot. Don't allow reversals.
+	 *
+	 * @param dir
+	 *            direction to move
+	 * @param ghostModel
+	 *            how ghosts move
+	 */
+	public void simulateInDirInPlace(int dir, GhostControllerFacade ghostModel) {
+		// Continue as a fresh copy would
+		newG.clearStepState();
+		int[] ghostDirs = ghostModel.getActions(this, 0);
+
+		Game.Snapshot backup = RETRY_SNAPSHOT.get();
+		newG.saveSnapshot(backup);
+		boolean first = true;
 		// Loop prevents reversals
 		do {
-			copy = backup.copy();
-			copy.advanceGame(dir, ghostDirs);
-		} while (copy.ghostReversal() && copy.getNumActivePowerPills() == backup.getNumActivePowerPills());
-		return copy;
+			if (!first) {
+				newG.restoreSnapshot(backup);
+			}
+			first = false;
+			advanceGame(dir, ghostDirs);
+		} while (ghostReversal() && getNumActivePowerPills() == backup.getNumberOfActivePowerPills());
+	}
+
+	/**
+	 * Save the current game state into a reusable buffer
+	 *
+	 * @param s
+	 *            snapshot to overwrite
+	 */
+	public void saveSnapshot(Game.Snapshot s) {
+		newG.saveSnapshot(s);
+	}
+
+	/**
+	 * Restore a saved game state in place, for example to undo simulated steps
+	 *
+	 * @param s
+	 *            previously saved snapshot
+	 */
+	public void restoreSnapshot(Game.Snapshot s) {
+		newG.restoreSnapshot(s);
 	}
 
 	/**
@@ -1395,6 +1457,31 @@ public class GameFacade {
 		return finalPath;
 	}
 
+	/**
+	 * Length of the path returned by getPathInDirFromNew, computed without
+	 * creating any path.
+	 *
+	 * @param from
+	 *            start point
+	 * @param to
+	 *            target
+	 * @param direction
+	 *            direction pacman must go in
+	 * @return length of path from "from" to "to" heading in direction
+	 */
+	public int getPathDistanceInDirFromNew(int from, int to, int direction) {
+		int[] neighbors = neighbors(newG, from);
+		assert(neighbors[direction] != -1) : ("Picked invalid direction " + direction + " given neighbors "
+				+ Arrays.toString(neighbors));
+		if (neighbors[getLeftOf(direction)] == -1 && neighbors[getRightOf(direction)] == -1) {
+			// getShortestPath prevents reverse, so it goes in "direction"
+			return newG.getShortestPathDistance(from, to, indexToMove(direction));
+		} else {
+			// One step, then the rest of the path
+			return 1 + newG.getShortestPathDistance(neighbors[direction], to, indexToMove(direction));
+		}
+	}
+
 	/**
 	 * Too expensive to actually run this on every path
 	 *
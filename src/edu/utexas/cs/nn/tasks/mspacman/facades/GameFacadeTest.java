@@ -0,0 +1,77 @@
+package edu.utexas.cs.nn.tasks.mspacman.facades;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import pacman.controllers.examples.Legacy;
+import pacman.game.Game;
+
+public class GameFacadeTest {
+
+	private static final int TICKS = 300;
+
+	private GhostControllerFacade ghostModel;
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		// Uses the game's random generator for one ghost
+		ghostModel = new GhostControllerFacade(new Legacy());
+	}
+
+	/**
+	 * The original copy based step, which copies the game three times
+	 */
+	private static GameFacade copySimulateInDir(GameFacade gf, int dir, GhostControllerFacade ghostModel) {
+		GameFacade copy = gf.copy();
+		int[] ghostDirs = ghostModel.getActions(copy, 0);
+
+		GameFacade backup = copy.copy();
+		do {
+			copy = backup.copy();
+			copy.advanceGame(dir, ghostDirs);
+		} while (copy.ghostReversal() && copy.getNumActivePowerPills() == backup.getNumActivePowerPills());
+		return copy;
+	}
+
+	/**
+	 * Plays a game with random moves, and at every tick checks that chains of
+	 * in place steps end in the same states as chains of copy based steps,
+	 * and that restoring a snapshot undoes them.
+	 */
+	@Test
+	public void test_simulateInDirInPlace() {
+		Random random = new Random(0);
+		GameFacade gf = new GameFacade(new Game(0, 0));
+		Game.Snapshot start = new Game.Snapshot();
+		for (int t = 0; t < TICKS && !gf.gameOver(); t++) {
+			int[] neighbors = gf.neighbors(gf.getPacmanCurrentNodeIndex());
+			for (int dir = 0; dir < GameFacade.NUM_DIRS; dir++) {
+				if (neighbors[dir] == -1) {
+					continue;
+				}
+				GameFacade expected = gf;
+				GameFacade sim = gf.copy();
+				sim.saveSnapshot(start);
+				String before = sim.newG.getGameState();
+				for (int step = 0; step < 10 && !expected.gameOver(); step++) {
+					expected = copySimulateInDir(expected, dir, ghostModel);
+					sim.simulateInDirInPlace(dir, ghostModel);
+					assertEquals(expected.newG.getGameState(), sim.newG.getGameState());
+				}
+				sim.restoreSnapshot(start);
+				assertEquals(before, sim.newG.getGameState());
+			}
+			int dir;
+			do {
+				dir = random.nextInt(GameFacade.NUM_DIRS);
+			} while (neighbors[dir] == -1);
+			gf.advanceGame(dir, ghostModel.getActions(gf, 0));
+		}
+	}
+}
@@ -22,7 +22,7 @@ public class NetworkModeSelector<T extends Network> extends MsPacManModeSelector
 	 *            network
 	 */
 	public NetworkModeSelector(T n) {
-		this(n, MMNEAT.pacmanInputOutputMediator);
+		this(n, MMNEAT.pacmanInputOutputMediator());
 	}
 
 	/**
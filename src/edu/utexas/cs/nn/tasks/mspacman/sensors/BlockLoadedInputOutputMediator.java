@@ -34,7 +34,22 @@ public class BlockLoadedInputOutputMediator extends MsPacManControllerInputOutpu
 	 * @return the sensor inputs
 	 */
 	public double[] getInputs(GameFacade gs, int currentDir) {
-		double[] inputs = new double[numIn()];
+		return getInputs(gs, currentDir, new double[numIn()]);
+	}
+
+	/**
+	 * Same sensor values as getInputs, written to an existing array
+	 *
+	 * @param gs,
+	 *            the game instance
+	 * @param currentDir,
+	 *            the current direction
+	 * @param inputs,
+	 *            array of length numIn() to fill, which is cleared first
+	 * @return inputs, filled with the sensor values
+	 */
+	public double[] getInputs(GameFacade gs, int currentDir, double[] inputs) {
+		Arrays.fill(inputs, 0.0);
 		int in = 0;
 		for (int i = 0; i < blocks.size(); i++) {
 			in = CommonConstants.pacManSensorCaching ? blocks.get(i).retrieveSensors(inputs, in, gs, currentDir)
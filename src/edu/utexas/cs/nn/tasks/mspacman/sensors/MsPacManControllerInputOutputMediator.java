@@ -16,7 +16,21 @@ import edu.utexas.cs.nn.util.ClassCreation;
 public abstract class MsPacManControllerInputOutputMediator {
 
 	protected final int absence;
-	public static NodeCollection escapeNodes = null;
+	// Mediators created on the same thread share escape nodes, but
+	// each evaluation thread has its own collection
+	private static final ThreadLocal<NodeCollection> threadEscapeNodes = new ThreadLocal<NodeCollection>() {
+		@Override
+		protected NodeCollection initialValue() {
+			try {
+				return (NodeCollection) ClassCreation.createObject("pacmanEscapeNodeCollection");
+			} catch (NoSuchMethodException ex) {
+				System.out.println("Cannot initialize escape nodes");
+				System.exit(1);
+				return null;
+			}
+		}
+	};
+	public final NodeCollection escapeNodes;
 	private final boolean evolveNetworkSelector;
 	private final boolean externalPreferenceNeurons;
 
@@ -24,14 +38,7 @@ public abstract class MsPacManControllerInputOutputMediator {
 	 * Constructor to set some global variables based on command line parameters
 	 */
 	public MsPacManControllerInputOutputMediator() {
-		if (escapeNodes == null) {
-			try {
-				escapeNodes = (NodeCollection) ClassCreation.createObject("pacmanEscapeNodeCollection");
-			} catch (NoSuchMethodException ex) {
-				System.out.println("Cannot initialize escape nodes");
-				System.exit(1);
-			}
-		}
+		escapeNodes = threadEscapeNodes.get();
 		externalPreferenceNeurons = Parameters.parameters.booleanParameter("externalPreferenceNeurons");
 		absence = Parameters.parameters.booleanParameter("absenceNegative") ? -1 : 0;
 		evolveNetworkSelector = Parameters.parameters.booleanParameter("evolveNetworkSelector");
@@ -14,8 +14,14 @@ import java.util.HashMap;
  */
 public abstract class MsPacManSensorBlock {
 
-	// Key is Block hash code, pair of level time and sensor values
-	private static HashMap<MsPacManSensorBlock, Pair<Integer, double[]>> sensorRecord = new HashMap<MsPacManSensorBlock, Pair<Integer, double[]>>();
+	// Key is Block hash code, pair of level time and sensor values.
+	// Each thread has its own record, since parallel evaluations play different games.
+	private static final ThreadLocal<HashMap<MsPacManSensorBlock, Pair<Integer, double[]>>> sensorRecord = new ThreadLocal<HashMap<MsPacManSensorBlock, Pair<Integer, double[]>>>() {
+		@Override
+		protected HashMap<MsPacManSensorBlock, Pair<Integer, double[]>> initialValue() {
+			return new HashMap<MsPacManSensorBlock, Pair<Integer, double[]>>();
+		}
+	};
 
 	/**
 	 * Takes a set of input values under construction, and from the index of
@@ -46,14 +52,15 @@ public abstract class MsPacManSensorBlock {
 	 * @return
 	 */
 	public int retrieveSensors(double[] inputs, int in, GameFacade gf, int lastDirection) {
-		Pair<Integer, double[]> previousCalculation = sensorRecord.get(this);
+		HashMap<MsPacManSensorBlock, Pair<Integer, double[]>> record = sensorRecord.get();
+		Pair<Integer, double[]> previousCalculation = record.get(this);
 		int currentTime = gf.getCurrentLevelTime();
 		int toAdd = numberAdded();
 		if (previousCalculation == null || previousCalculation.t1 != currentTime) {
 			int result = incorporateSensors(inputs, in, gf, lastDirection);
 			double[] store = new double[toAdd];
 			System.arraycopy(inputs, in, store, 0, toAdd);
-			sensorRecord.put(this, new Pair<Integer, double[]>(currentTime, store));
+			record.put(this, new Pair<Integer, double[]>(currentTime, store));
 			return result;
 		} else {
 			// System.out.println("Retrieved cached sensor result: " +
@@ -16,7 +16,13 @@ import java.util.ArrayList;
  */
 public abstract class VariableDirectionDistanceBlock extends VariableDirectionBlock {
 
-	public static ArrayList<Integer> excludedNodes = new ArrayList<Integer>();
+	// Shared by the blocks of one mediator, but each thread has its own list
+	public static final ThreadLocal<ArrayList<Integer>> excludedNodes = new ThreadLocal<ArrayList<Integer>>() {
+		@Override
+		protected ArrayList<Integer> initialValue() {
+			return new ArrayList<Integer>();
+		}
+	};
 
 	public final int numberToExclude;
 
@@ -30,6 +36,7 @@ public abstract class VariableDirectionDistanceBlock extends VariableDirectionBl
 	}
 
 	public double getValue(GameFacade gf) {
+		ArrayList<Integer> excludedNodes = VariableDirectionDistanceBlock.excludedNodes.get();
 		if (numberToExclude == 0) {
 			excludedNodes.clear();
 		}
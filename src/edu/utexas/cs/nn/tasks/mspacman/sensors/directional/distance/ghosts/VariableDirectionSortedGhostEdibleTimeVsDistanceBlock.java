@@ -8,6 +8,7 @@ import edu.utexas.cs.nn.networks.ActivationFunctions;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.tasks.mspacman.facades.GameFacade;
 import edu.utexas.cs.nn.tasks.mspacman.ghosts.DirectionalGhostComparator;
+import edu.utexas.cs.nn.tasks.mspacman.sensors.directional.distance.VariableDirectionDistanceBlock;
 import edu.utexas.cs.nn.tasks.mspacman.ghosts.GhostComparator;
 import edu.utexas.cs.nn.util.datastructures.ArrayUtil;
 import edu.utexas.cs.nn.util.datastructures.Pair;
@@ -60,6 +61,7 @@ public class VariableDirectionSortedGhostEdibleTimeVsDistanceBlock extends Varia
 
 	@Override
 	public double getValue(GameFacade gf) {
+		ArrayList<Integer> excludedNodes = VariableDirectionDistanceBlock.excludedNodes.get();
 		if (numberToExclude == 0) {
 			excludedNodes.clear();
 		}
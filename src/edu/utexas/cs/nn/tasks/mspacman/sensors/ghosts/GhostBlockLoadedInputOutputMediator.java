@@ -21,7 +21,22 @@ public abstract class GhostBlockLoadedInputOutputMediator extends GhostControlle
 
 	@Override
 	public double[] getInputs(GameFacade gs, int ghostIndex) {
-		double[] inputs = new double[numIn()];
+		return getInputs(gs, ghostIndex, new double[numIn()]);
+	}
+
+	/**
+	 * Same sensor values as getInputs, written to an existing array
+	 *
+	 * @param gs
+	 *            the game instance
+	 * @param ghostIndex
+	 *            ghost being controlled
+	 * @param inputs
+	 *            array of length numIn() to fill, which is cleared first
+	 * @return inputs, filled with the sensor values
+	 */
+	public double[] getInputs(GameFacade gs, int ghostIndex, double[] inputs) {
+		Arrays.fill(inputs, 0.0);
 		int in = 0;
 		for (int i = 0; i < blocks.size(); i++) {
 			in = blocks.get(i).incorporateSensors(inputs, in, gs, ghostIndex);
@@ -54,7 +54,7 @@ public class DirectionalToActionInputOutputMediator extends ActionBlockLoadedInp
 		// Actions
 		actions.add(new FromNearestPowerPillAction());
 		actions.add(new FromNearestThreatAction());
-		actions.add(new ToFarthestSafeLocationAction(Parameters.parameters.integerParameter("escapeNodeDepth"), MsPacManControllerInputOutputMediator.escapeNodes, ghostModel));
+		actions.add(new ToFarthestSafeLocationAction(Parameters.parameters.integerParameter("escapeNodeDepth"), escapeNodes, ghostModel));
 		actions.add(new ToNearestEdibleGhostAction());
 		actions.add(new ToNearestPillAction());
 		actions.add(new ToNearestPowerPillAction());
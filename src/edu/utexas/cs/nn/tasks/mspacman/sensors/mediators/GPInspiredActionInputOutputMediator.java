@@ -76,7 +76,7 @@ public class GPInspiredActionInputOutputMediator extends ActionBlockLoadedInputO
 		// Actions
 		actions.add(new FromNearestPowerPillAction()); // FromEnergizer
 		actions.add(new FromNearestThreatAction()); // FromGhost
-		actions.add(new ToFarthestSafeLocationAction(Parameters.parameters.integerParameter("escapeNodeDepth"), MsPacManControllerInputOutputMediator.escapeNodes, ghostModel)); // ToSafety
+		actions.add(new ToFarthestSafeLocationAction(Parameters.parameters.integerParameter("escapeNodeDepth"), escapeNodes, ghostModel)); // ToSafety
 		actions.add(new ToNearestEdibleGhostAction()); // ToEdibleGhost
 		actions.add(new ToNearestPillAction()); // ToPill
 		actions.add(new ToNearestPowerPillAction()); // ToEnergizer
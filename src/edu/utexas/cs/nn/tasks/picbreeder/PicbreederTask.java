@@ -18,6 +18,7 @@ import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
@@ -93,6 +94,11 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 	private boolean waitingForUser;
 	private boolean[] chosen;
 	private boolean[] activation;
+	// Images are first drawn this many times smaller, if above 0
+	private final int previewScale;
+	// Increased whenever new individuals are put on the buttons, so that full
+	// images still being drawn for the previous individuals are dropped
+	private volatile int imagesShown = 0;
 
 	/**
 	 * Default Constructor
@@ -108,6 +114,7 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 		NUM_BUTTONS	= Parameters.parameters.integerParameter("mu");
 		NUM_ROWS = NUM_BUTTONS / NUM_COLUMNS;
 		PIC_SIZE = Parameters.parameters.integerParameter("imageSize");
+		previewScale = Parameters.parameters.integerParameter("picbreederPreviewScale");
 		chosen = new boolean[NUM_BUTTONS];
 		showLineage = false;
 		showNetwork = false;
@@ -400,11 +407,53 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 	 */
 	private void resetButton(Genotype<T> individual, int x) { 
 		scores.add(new Score<T>(individual, new double[]{0}, null));
-		setButtonImage(showNetwork ? getNetwork(individual) : GraphicsUtil.imageFromCPPN((Network)individual.getPhenotype(), PIC_SIZE, PIC_SIZE), x);
+		BufferedImage image;
+		if(showNetwork) {
+			image = getNetwork(individual);
+		} else if(previewScale > 0) {// full image is drawn later by drawFullImages
+			image = GraphicsUtil.previewFromCPPN((Network)individual.getPhenotype(), PIC_SIZE, PIC_SIZE, previewScale);
+		} else {
+			image = GraphicsUtil.imageFromCPPN((Network)individual.getPhenotype(), PIC_SIZE, PIC_SIZE);
+		}
+		setButtonImage(image, x);
 		chosen[x] = false;
 		buttons.get(x).setBorder(BorderFactory.createLineBorder(Color.lightGray, BORDER_THICKNESS));
 	}
 
+	/**
+	 * Replaces the previews on the buttons with full images, which are drawn
+	 * on a separate thread so that the user can already look at and choose
+	 * the previews. Does nothing unless previews are shown.
+	 */
+	private void drawFullImages() {
+		final int shown = ++imagesShown;
+		if(previewScale <= 0 || showNetwork) {
+			return;
+		}
+		// Networks are created here, since the genotypes may change once the user moves on
+		final ArrayList<Network> networks = new ArrayList<Network>(scores.size());
+		for(Score<T> s : scores) {
+			networks.add((Network) s.individual.getPhenotype());
+		}
+		new Thread("Picbreeder images") {
+			@Override
+			public void run() {
+				for(int i = 0; i < networks.size() && shown == imagesShown; i++) {
+					final BufferedImage image = GraphicsUtil.imageFromCPPN(networks.get(i), PIC_SIZE, PIC_SIZE);
+					final int index = i;
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							if(shown == imagesShown && !showNetwork) {
+								setButtonImage(image, index);
+							}
+						}
+					});
+				}
+			}
+		}.start();
+	}
+
 	/**
 	 * Used to get the image of a network using a drawing panel
 	 * @param tg genotype of network
@@ -434,6 +483,7 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 		for(int x = 0; x < buttons.size(); x++) {
 			resetButton(population.get(x), x);
 		}
+		drawFullImages();
 		while(waitingForUser){
 			try {//waits for user to click buttons before evaluating
 				Thread.sleep(50);
@@ -470,6 +520,7 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 		for(int i = 0; i < newPop.size(); i++) {
 			resetButton(newPop.get(i), i);
 		}
+		drawFullImages();
 		// Attempted to completely clear all old log info, but realy complicated
 		//		String base = Parameters.parameters.stringParameter("base");
 		//		int runNumber = Parameters.parameters.integerParameter("runNumber");
@@ -701,7 +752,7 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T extends Network> void drawLineage(long id, long childId, int x, int y, int depth) {
-		Offspring o = Offspring.lineage.get((int) id);
+		Offspring o = Offspring.getOffspring(id);
 		if(o != null && !drawnOffspring.contains(id)) { // Don't draw if already drawn
 			Genotype<T> g = (Genotype<T>) Offspring.getGenotype(o.xmlNetwork);
 			BufferedImage bi = GraphicsUtil.imageFromCPPN(g.getPhenotype(), PIC_SIZE/2, PIC_SIZE/2);
@@ -22,8 +22,10 @@ import java.util.ArrayList;
 import java.util.Map;
 
 import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.LocalGlue;
 import org.rlcommunity.rlglue.codec.NetGlue;
 import org.rlcommunity.rlglue.codec.RLGlue;
+import org.rlcommunity.rlglue.codec.RLGlueInterface;
 import org.rlcommunity.rlglue.codec.util.AgentLoader;
 import org.rlcommunity.rlglue.codec.util.EnvironmentLoader;
 
@@ -33,21 +35,42 @@ import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.networks.NetworkTask;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.tasks.LonerTask;
 import edu.utexas.cs.nn.tasks.NoisyLonerTask;
 import edu.utexas.cs.nn.util.ClassCreation;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 
-public class RLGlueTask<T extends Network> extends NoisyLonerTask<T>implements NetworkTask {
+/**
+ * Task for any RL-Glue domain. Evolved agents are connected to the
+ * environment by an RL-Glue implementation. By default this is a LocalGlue
+ * belonging to the task instance, which connects the agent and environment by
+ * direct method calls, and every parallel evaluation thread gets its own
+ * instance with its own agent and environment. Otherwise, the external
+ * rl_glue.exe program is launched, and the agent and environment talk to it
+ * over sockets, which only allows one agent and environment in total.
+ */
+public class RLGlueTask<T extends Network> extends NoisyLonerTask<T>implements NetworkTask, Cloneable {
 
 	/**
-	 * Initialize the elements to be used here
+	 * External RL-Glue program and the loaders connecting to it, shared by
+	 * every instance of the task
 	 */
 	protected static Process rlglue = null;
 	protected static AgentLoader agentLoader = null;
 	protected static EnvironmentLoader environmentLoader = null;
-	protected static RLGlueEnvironment environment;
-	@SuppressWarnings("rawtypes") // Needs static access, and type T isn't known yet
-	public static RLGlueAgent agent;
+	@SuppressWarnings("rawtypes")
+	private static RLGlueAgent externalAgent = null;
+	private static RLGlueInterface externalGlue = null;
+
+	/**
+	 * Agent and environment of this task instance, and the glue connecting
+	 * them
+	 */
+	protected RLGlueEnvironment environment;
+	@SuppressWarnings("rawtypes") // Type T isn't known when the agent is created
+	public RLGlueAgent agent;
+	protected RLGlueInterface glue;
+	private final boolean inProcess;
 	protected int[] rlNumSteps;
 	protected double[] rlReturn;
 	// cutoff
@@ -71,46 +94,98 @@ public class RLGlueTask<T extends Network> extends NoisyLonerTask<T>implements N
 	 *
 	 * @param environment
 	 */
-	@SuppressWarnings("unchecked")
 	public RLGlueTask(RLGlueEnvironment environment) {
 		super();
 		rlGluePort = Parameters.parameters.integerParameter("rlGluePort");
+		inProcess = Parameters.parameters.booleanParameter("rlGlueInProcess");
 
 		rlNumSteps = new int[CommonConstants.trials];
 		rlReturn = new double[CommonConstants.trials];
 		maxStepsPerEpisode = Parameters.parameters.integerParameter("steps");
-		RLGlueTask.environment = environment;
+		this.environment = environment;
 
-		/*
-		 * Need to launch RL-Glue, the program that interfaces the separate
-		 * components.
-		 */
-		if (environment != null && rlglue == null) {
-			launchRLGlue();
-			/*
-			 * RL-Glue runs the Agent, Environment and Experiment separately so
-			 * this class needs to launch the Agent and Environment as well
-			 */
-			try {
-				agent = (RLGlueAgent<T>) ClassCreation.createObject("rlGlueAgent");
-			} catch (NoSuchMethodException e) {
-				e.printStackTrace();
-				System.out.println("Could not launch RLGlue agent");
-				System.exit(1);
+		if (environment != null) {
+			if (inProcess) {
+				agent = createAgent();
+				glue = new LocalGlue(environment, agent);
+				RLGlue.setGlue(glue);
+			} else {
+				/*
+				 * Need to launch RL-Glue, the program that interfaces the
+				 * separate components.
+				 */
+				if (rlglue == null) {
+					launchRLGlue();
+					/*
+					 * RL-Glue runs the Agent, Environment and Experiment
+					 * separately so this class needs to launch the Agent and
+					 * Environment as well
+					 */
+					externalAgent = createAgent();
+					launchAgent(externalAgent);
+					launchEnvironment(environment);
+					externalGlue = new NetGlue("localhost", rlGluePort);
+					RLGlue.setGlue(externalGlue);
+				}
+				agent = externalAgent;
+				glue = externalGlue;
 			}
-			launchAgent(agent);
-			launchEnvironment(environment);
-			RLGlue.setGlue(new NetGlue("localhost", rlGluePort));
 		}
 	}
 
+	/**
+	 * @return new instance of the agent class given by the rlGlueAgent
+	 *         parameter
+	 */
+	@SuppressWarnings("unchecked")
+	private RLGlueAgent<T> createAgent() {
+		try {
+			return (RLGlueAgent<T>) ClassCreation.createObject("rlGlueAgent");
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+			System.out.println("Could not launch RLGlue agent");
+			System.exit(1);
+		}
+		return null;
+	}
+
+	/**
+	 * Each parallel evaluation thread gets a shallow copy of the task with
+	 * its own environment, agent and LocalGlue connecting them. With the
+	 * external RL-Glue program there is only one agent and environment, so
+	 * evaluations can not be run in parallel.
+	 *
+	 * @return copy of the task for the current thread
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected LonerTask<T> newWorkerInstance() {
+		if (!inProcess || environment == null) {
+			return this;
+		}
+		try {
+			RLGlueTask<T> worker = (RLGlueTask<T>) clone();
+			worker.environment = (RLGlueEnvironment) ClassCreation.createObject("rlGlueEnvironment");
+			worker.agent = createAgent();
+			worker.glue = new LocalGlue(worker.environment, worker.agent);
+			worker.rlNumSteps = new int[CommonConstants.trials];
+			worker.rlReturn = new double[CommonConstants.trials];
+			worker.behaviorVector = null;
+			return worker;
+		} catch (CloneNotSupportedException | NoSuchMethodException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		return null;
+	}
+
 	/**
 	 * Starts the other initializing methods
 	 */
 	@Override
 	public void prep() {
 		behaviorVector = new ArrayList<Double>();
-		RLGlue.RL_init();
+		glue.RL_init();
 	}
 
 	/**
@@ -118,7 +193,7 @@ public class RLGlueTask<T extends Network> extends NoisyLonerTask<T>implements N
 	 */
 	@Override
 	public void cleanup() {
-		RLGlue.RL_cleanup();
+		glue.RL_cleanup();
 		// rlglue.destroy(); // Not needed?
 	}
 
@@ -153,10 +228,10 @@ public class RLGlueTask<T extends Network> extends NoisyLonerTask<T>implements N
 	public Pair<double[], double[]> oneEval(Genotype<T> individual, int num) {
 		agent.replaceGenotype(individual);
 		System.out.print("Episode: " + num);
-		RLGlue.RL_episode(maxStepsPerEpisode);
-		System.out.println("\t steps: " + RLGlue.RL_num_steps());
-		rlNumSteps[num] = RLGlue.RL_num_steps();
-		rlReturn[num] = RLGlue.RL_return();
+		glue.RL_episode(maxStepsPerEpisode);
+		System.out.println("\t steps: " + glue.RL_num_steps());
+		rlNumSteps[num] = glue.RL_num_steps();
+		rlReturn[num] = glue.RL_return();
 		behaviorVector.addAll(environment.getBehaviorVector());
 
 		return episodeResult(num);
@@ -234,7 +309,8 @@ public class RLGlueTask<T extends Network> extends NoisyLonerTask<T>implements N
 	 * @return number of objectives
 	 */
 	@Override
-	public int numObjectives(){			return 1; // default: just the RL Return
+	public int numObjectives(){
+			return 1; // default: just the RL Return
 	}
 
 	/**
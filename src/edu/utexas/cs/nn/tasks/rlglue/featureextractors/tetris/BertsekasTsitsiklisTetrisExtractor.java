@@ -1,6 +1,6 @@
 package edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris;
 
-import edu.utexas.cs.nn.tasks.rlglue.featureextractors.FeatureExtractor;
+import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisBitboard;
 import java.util.ArrayList;
 import org.rlcommunity.environments.tetris.TetrisPiece;
 import org.rlcommunity.environments.tetris.TetrisState;
@@ -11,7 +11,7 @@ import org.rlcommunity.rlglue.codec.types.Observation;
  * Depends on afterstates.
  * @author Jacob Schrum, Gabby Gonzalez
  */
-public class BertsekasTsitsiklisTetrisExtractor implements FeatureExtractor {
+public class BertsekasTsitsiklisTetrisExtractor implements TetrisBitboardExtractor {
 
 	protected final int worldWidth;
 	protected final int worldHeight;
@@ -106,6 +106,42 @@ public class BertsekasTsitsiklisTetrisExtractor implements FeatureExtractor {
 		return inputs;
 	}
 
+	/**
+	 * Same features as extract, with column heights and holes read from the
+	 * rows of the board.
+	 * 
+	 * @param board TetrisBitboard
+	 * @return array of inputs
+	 */
+	@Override
+	public double[] extract(TetrisBitboard board) {
+		if (board.width() != worldWidth || board.height() != worldHeight) {
+			return extract(board.toObservation());
+		}
+		double[] inputs = new double[numFeatures()];
+		int[] heights = new int[worldWidth];
+		int[] columnHoles = new int[worldWidth];
+		board.observedColumns(heights, columnHoles);
+
+		int in = 0;
+		double holes = 0;
+		double maxHeight = 0;
+		for (int i = 0; i < worldWidth; i++) {
+			holes += columnHoles[i];
+			maxHeight = Math.max(heights[i], maxHeight);
+			inputs[in++] = heights[i];
+		}
+		for (int i = 0; i < worldWidth - 1; i++) {
+			inputs[in++] = Math.abs(heights[i] - heights[i + 1]);
+		}
+
+		inputs[in++] = maxHeight;
+		inputs[in++] = holes;
+		inputs[in++] = 1; // bias
+
+		return inputs;
+	}
+
 	/**
 	 * Returns an array of feature labels given the current extractor
 	 */
@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris;
 
+import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisBitboard;
 import org.rlcommunity.environments.tetris.TetrisState;
 import org.rlcommunity.rlglue.codec.types.Observation;
 
@@ -69,4 +70,30 @@ public class ExtendedBertsekasTsitsiklisTetrisExtractor extends BertsekasTsitsik
 
 		return combined;
 	}
+
+	/**
+	 * Same features as extract, with the holes per column read from the rows
+	 * of the board
+	 * 
+	 * @param board TetrisBitboard
+	 * @return array of inputs
+	 */
+	@Override
+	public double[] extract(TetrisBitboard board) {
+		if (board.width() != worldWidth || board.height() != worldHeight) {
+			return extract(board.toObservation());
+		}
+		double[] base = super.extract(board);
+		int[] heights = new int[worldWidth];
+		int[] holes = new int[worldWidth];
+		board.observedColumns(heights, holes);
+
+		double[] combined = new double[super.numFeatures() + holes.length];
+		System.arraycopy(base, 0, combined, 0, super.numFeatures());
+		for (int i = 0; i < holes.length; i++) {
+			combined[super.numFeatures() + i] = holes[i];
+		}
+
+		return combined;
+	}
 }
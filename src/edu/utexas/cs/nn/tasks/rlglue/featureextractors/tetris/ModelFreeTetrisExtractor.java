@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris;
 
+import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisBitboard;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
 
 import org.rlcommunity.environments.tetris.TetrisState;
@@ -72,6 +73,18 @@ public class ModelFreeTetrisExtractor extends BertsekasTsitsiklisTetrisExtractor
 		return combined;
 	}
 	
+	/**
+	 * The falling block features are read from an Observation of the board,
+	 * since this extractor is not meant for after-states anyway.
+	 * 
+	 * @param board TetrisBitboard
+	 * @return array of inputs
+	 */
+	@Override
+	public double[] extract(TetrisBitboard board) {
+		return extract(board.toObservation());
+	}
+	
 	/**
 	 * The current worldState needs to blot out the floating piece so it
 	 * does not interfere with scoring
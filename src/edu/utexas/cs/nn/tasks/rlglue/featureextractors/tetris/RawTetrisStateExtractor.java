@@ -4,8 +4,8 @@ import org.rlcommunity.environments.tetris.TetrisState;
 import org.rlcommunity.rlglue.codec.types.Observation;
 
 import edu.utexas.cs.nn.parameters.Parameters;
-import edu.utexas.cs.nn.tasks.rlglue.featureextractors.FeatureExtractor;
 import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisAfterStateAgent;
+import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisBitboard;
 
 /**
  * Primarily designed to be used by HyperNEAT.
@@ -13,7 +13,7 @@ import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisAfterStateAgent;
  * 
  * @author Lauren Gillespie
  */
-public class RawTetrisStateExtractor implements FeatureExtractor {
+public class RawTetrisStateExtractor implements TetrisBitboardExtractor {
 
         /**
          * One feature for each block in the world state
@@ -45,6 +45,26 @@ public class RawTetrisStateExtractor implements FeatureExtractor {
 		return result;
 	}
 
+        /**
+         * Same features as extract, read from the rows of the board. As there,
+         * the cells of the falling piece are left out.
+         * @param board
+         * @return 
+         */
+	@Override
+	public double[] extract(TetrisBitboard board) {
+		double absent = Parameters.parameters.booleanParameter("absenceNegative") ? -1 : 0;
+		double[] result = new double[board.width() * board.height()];
+		int i = 0;
+		for (int y = 0; y < board.height(); y++) {
+			int row = board.observedRow(y) & ~board.pieceRow(y);
+			for (int x = 0; x < board.width(); x++) {
+				result[i++] = ((row >>> x) & 1) != 0 ? 1 : absent;
+			}
+		}
+		return result;
+	}
+
         /**
          * Features are simply named after their coordinates on the screen
          * @return array of feature labels
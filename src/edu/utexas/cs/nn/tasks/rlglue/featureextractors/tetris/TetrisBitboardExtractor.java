@@ -0,0 +1,24 @@
+package edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris;
+
+import edu.utexas.cs.nn.tasks.rlglue.featureextractors.FeatureExtractor;
+import edu.utexas.cs.nn.tasks.rlglue.tetris.TetrisBitboard;
+
+/**
+ * Tetris feature extractor that can also read its features straight from a
+ * TetrisBitboard. The TetrisAfterStateAgent extracts features from every
+ * after-state of every piece, and this saves making an Observation for each.
+ *
+ * @author Jacob Schrum
+ */
+public interface TetrisBitboardExtractor extends FeatureExtractor {
+
+	/**
+	 * Same features that extract gives for the Observation of the state the
+	 * board was copied from.
+	 *
+	 * @param board
+	 *            Tetris board and falling piece
+	 * @return unscaled feature vector
+	 */
+	public double[] extract(TetrisBitboard board);
+}
@@ -39,13 +39,17 @@ public class PuddleWorldTask<T extends Network> extends RLGlueTask<T> {
 	@Override
 	public Pair<double[], double[]> episodeResult(int num){
 		Pair<double[], double[]> p = new Pair<double[], double[]>(new double[] { rlReturn[num] }, new double[0]);
+		if (!(environment instanceof PuddleWorld)) {
+			return p;
+		}
+		PuddleWorldState state = ((PuddleWorld) environment).getState();
 		if(moPuddleWorld) {
 			p = new Pair<double[], double[]>(
-					new double[] { PuddleWorldState.finalStepScore, PuddleWorldState.finalPuddleScore },
+					new double[] { state.finalStepScore, state.finalPuddleScore },
 					new double[] { rlReturn[num] });
 		}
-		PuddleWorldState.finalStepScore = 0;
-		PuddleWorldState.finalPuddleScore = 0;
+		state.finalStepScore = 0;
+		state.finalPuddleScore = 0;
 		return p;
 	}
 	
@@ -16,6 +16,7 @@ import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.rlglue.RLGlueAgent;
+import edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris.TetrisBitboardExtractor;
 import edu.utexas.cs.nn.util.MiscUtil;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
@@ -91,10 +92,14 @@ public class TetrisAfterStateAgent<T extends Network> extends RLGlueAgent<T> {
 			ArrayList<Pair<Double, List<Integer>>> outputPairs = new ArrayList<Pair<Double, List<Integer>>>(); 
 
 			double[] outputs;
+			// Tetris extractors read after-states without making observations
+			TetrisBitboardExtractor bitboardExtractor = MMNEAT.rlGlueExtractor instanceof TetrisBitboardExtractor
+					? (TetrisBitboardExtractor) MMNEAT.rlGlueExtractor : null;
 			// for(pairs in the set){
 			for (TetrisStateActionPair i : tetrisStateHolder) {
 				// Basic features
-				double[] inputs = MMNEAT.rlGlueExtractor.extract(i.t1.get_observation());
+				double[] inputs = bitboardExtractor != null ? bitboardExtractor.extract(new TetrisBitboard(i.t1))
+						: MMNEAT.rlGlueExtractor.extract(i.t1.get_observation());
 				// Scaled to range [0,1] for the neural network
 				double[] inputsScaled = MMNEAT.rlGlueExtractor.scaleInputs(inputs);
 
@@ -0,0 +1,101 @@
+package edu.utexas.cs.nn.tasks.rlglue.tetris;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.rlcommunity.environments.tetris.TetrisState;
+
+import edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris.BertsekasTsitsiklisTetrisExtractor;
+
+/**
+ * Micro-benchmark of what TetrisAfterStateAgent does for each piece: finding
+ * all after-states and extracting Bertsekas and Tsitsiklis features from each
+ * of them. The original search over copied TetrisStates with features read
+ * from observations is compared with the bitboard search with features read
+ * from bitboards. Start states are random boards with a piece at the spawn
+ * position. Both must find the same number of after-states. Times are totals
+ * for all start states after a warm up, in milliseconds.
+ *
+ * Usage: TetrisAfterStateBenchmark [start states]
+ *
+ * @author Jacob Schrum
+ */
+public class TetrisAfterStateBenchmark {
+
+	public static void main(String[] args) {
+		int starts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		ArrayList<TetrisState> states = randomStartStates(new Random(0), starts);
+		BertsekasTsitsiklisTetrisExtractor extractor = new BertsekasTsitsiklisTetrisExtractor();
+		// Warm up
+		for (int i = 0; i < 3; i++) {
+			original(states, extractor);
+			bitboard(states, extractor);
+		}
+		long start = System.nanoTime();
+		int expected = original(states, extractor);
+		double originalTime = (System.nanoTime() - start) / 1000000.0;
+		start = System.nanoTime();
+		int actual = bitboard(states, extractor);
+		double bitboardTime = (System.nanoTime() - start) / 1000000.0;
+		if (expected != actual) {
+			System.out.println("After-state counts differ: " + expected + " vs " + actual);
+			System.exit(1);
+		}
+		System.out.println("starts\tafter-states\toriginal\tbitboard\tspeedup");
+		System.out.println(starts + "\t" + expected + "\t\t" + String.format("%.1f", originalTime) + "\t\t"
+				+ String.format("%.1f", bitboardTime) + "\t\t" + String.format("%.1f", originalTime / bitboardTime));
+	}
+
+	private static int original(ArrayList<TetrisState> states, BertsekasTsitsiklisTetrisExtractor extractor) {
+		int count = 0;
+		for (TetrisState ts : states) {
+			HashSet<TetrisStateActionPair> afterStates = TetrisAfterStateGenerator.searchAfterStates(ts);
+			for (TetrisStateActionPair pair : afterStates) {
+				extractor.extract(pair.t1.get_observation());
+			}
+			count += afterStates.size();
+		}
+		return count;
+	}
+
+	private static int bitboard(ArrayList<TetrisState> states, BertsekasTsitsiklisTetrisExtractor extractor) {
+		int count = 0;
+		for (TetrisState ts : states) {
+			HashSet<TetrisStateActionPair> afterStates = TetrisAfterStateGenerator.generateAfterStates(ts);
+			for (TetrisStateActionPair pair : afterStates) {
+				extractor.extract(new TetrisBitboard(pair.t1));
+			}
+			count += afterStates.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Boards with random column heights and some holes, and a random piece
+	 * at the top
+	 */
+	private static ArrayList<TetrisState> randomStartStates(Random random, int n) {
+		ArrayList<TetrisState> states = new ArrayList<TetrisState>(n);
+		while (states.size() < n) {
+			TetrisState ts = new TetrisState();
+			for (int x = 0; x < TetrisState.worldWidth; x++) {
+				int height = random.nextInt(TetrisState.worldHeight / 2);
+				for (int y = TetrisState.worldHeight - height; y < TetrisState.worldHeight; y++) {
+					ts.worldState[y * TetrisState.worldWidth + x] = random.nextInt(5) == 0 ? 0 : 1;
+				}
+			}
+			ts.currentBlockId = random.nextInt(TetrisState.TETRIS_STATE_NUMBER_POSSIBLE_BLOCKS);
+			ts.currentX = TetrisState.worldWidth / 2 - 2;
+			ts.currentY = -TetrisBitboard.PIECE_SIZE;
+			TetrisBitboard board = new TetrisBitboard(ts);
+			while (ts.currentY < 0 && !board.fits(0, ts.currentX, ts.currentY)) {
+				ts.currentY++;
+			}
+			if (board.fits(0, ts.currentX, ts.currentY)) {
+				states.add(ts);
+			}
+		}
+		return states;
+	}
+}
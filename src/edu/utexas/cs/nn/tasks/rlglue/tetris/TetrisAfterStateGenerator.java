@@ -13,22 +13,139 @@ import org.rlcommunity.environments.tetris.TetrisState;
 
 public class TetrisAfterStateGenerator {
 
+	private static final int[] ACT_ORDER = { TetrisState.FALL, TetrisState.NONE, TetrisState.LEFT, TetrisState.RIGHT,
+			TetrisState.CW, TetrisState.CCW };
+	// Piece boxes can hang this far over the left and top of the board
+	private static final int BOX_OVERHANG = TetrisBitboard.PIECE_SIZE - 1;
+
 	/**
 	 * Takes in the current Tetris state and finds each of the possible after
 	 * states, as well as the actions to get to that state. The after states
 	 * will be states for each possible orientation of the falling piece as they
 	 * hit the bottom from each placement across the width.
 	 *
+	 * The search is the same as searchAfterStates, and gives the same
+	 * after-states with the same action lists in the same order, but it is
+	 * done on a TetrisBitboard, over piece positions indexed by rotation,
+	 * column and row, instead of on copies of the whole state. A TetrisState
+	 * is only made for each distinct placement found.
+	 *
 	 * @param ts
 	 *            Start state
 	 * @return set of pairs (evaluated after-states and list of actions)
 	 */
 	public static HashSet<TetrisStateActionPair> generateAfterStates(TetrisState ts) {
-		int[] actOrder = { TetrisState.FALL, TetrisState.NONE, TetrisState.LEFT, TetrisState.RIGHT, TetrisState.CW,
-				TetrisState.CCW }; 
-		
+		TetrisBitboard board = new TetrisBitboard(ts);
+		if (!ts.blockMobile || !board.fits(ts.currentRotation, ts.currentX, ts.currentY)) {
+			// Broken start states depend on how TetrisState handles them
+			return searchAfterStates(ts);
+		}
+		int rotations = TetrisState.TETRIS_STATE_NUMBER_POSSIBLE_BLOCKS_ORIENTATIONS;
+		int columns = board.width() + BOX_OVERHANG;
+		int rows = board.height() + BOX_OVERHANG;
+		int positions = rotations * columns * rows;
+		// Each mobile position is reached first from its parent by an action
+		int[] parent = new int[positions];
+		int[] parentAction = new int[positions];
+		boolean[] seen = new boolean[positions];
+		// Indexed by the lowest rotation with the same shape, so placements
+		// covering the same cells are only made once
+		boolean[] placed = new boolean[positions];
+		int[] fringe = new int[positions];
+		int head = 0;
+		int tail = 0;
+
+		// only ever as big as # of orientations times the width
+		HashSet<TetrisStateActionPair> evaluated = new HashSet<TetrisStateActionPair>();
+		int start = position(ts.currentRotation, ts.currentX, ts.currentY, columns, rows);
+		seen[start] = true;
+		fringe[tail++] = start;
+
+		while (head < tail) {
+			int current = fringe[head++];
+			int rotation = current / (columns * rows);
+			int x = (current / rows) % columns - BOX_OVERHANG;
+			int y = current % rows - BOX_OVERHANG;
+			for (int action : ACT_ORDER) {
+				// Same moves as TetrisState.take_action
+				int nextRotation = rotation;
+				int nextX = x;
+				int nextY = y;
+				switch (action) {
+				case TetrisState.CW:
+					nextRotation = (rotation + 1) % rotations;
+					break;
+				case TetrisState.CCW:
+					nextRotation = (rotation + rotations - 1) % rotations;
+					break;
+				case TetrisState.LEFT:
+					nextX--;
+					break;
+				case TetrisState.RIGHT:
+					nextX++;
+					break;
+				case TetrisState.FALL:
+					while (board.fits(nextRotation, nextX, nextY + 1)) {
+						nextY++;
+					}
+					break;
+				default:
+					break;
+				}
+				if (!board.fits(nextRotation, nextX, nextY)) {
+					continue;
+				}
+				// Then TetrisState.update either drops the piece or settles it
+				if (board.fits(nextRotation, nextX, nextY + 1)) {
+					int next = position(nextRotation, nextX, nextY + 1, columns, rows);
+					if (!seen[next]) {
+						seen[next] = true;
+						parent[next] = current;
+						parentAction[next] = action;
+						fringe[tail++] = next;
+					}
+				} else {
+					int cells = position(board.shape(nextRotation), nextX, nextY, columns, rows);
+					if (!placed[cells]) {
+						placed[cells] = true;
+						LinkedList<Integer> actions = new LinkedList<Integer>();
+						for (int p = current; p != start; p = parent[p]) {
+							actions.addFirst(parentAction[p]);
+						}
+						actions.add(action);
+						TetrisState afterState = new TetrisState(ts);
+						afterState.currentRotation = nextRotation;
+						afterState.currentX = nextX;
+						afterState.currentY = nextY;
+						afterState.update();
+						evaluated.add(new TetrisStateActionPair(afterState, actions));
+					}
+				}
+			}
+		}
+
+		return evaluated;
+	}
+
+	/**
+	 * Index of a piece position in the arrays of generateAfterStates
+	 */
+	private static int position(int rotation, int x, int y, int columns, int rows) {
+		return (rotation * columns + x + BOX_OVERHANG) * rows + y + BOX_OVERHANG;
+	}
+
+	/**
+	 * Breadth first search for after-states that takes each action on a copy
+	 * of the whole TetrisState. This is how after-states were originally
+	 * generated, and is kept as a reference for generateAfterStates.
+	 *
+	 * @param ts
+	 *            Start state
+	 * @return set of pairs (evaluated after-states and list of actions)
+	 */
+	public static HashSet<TetrisStateActionPair> searchAfterStates(TetrisState ts) {
 		// only ever as big as # of orientations times the width
-		HashSet<TetrisStateActionPair> evaluated = new HashSet<TetrisStateActionPair>(); 
+		HashSet<TetrisStateActionPair> evaluated = new HashSet<TetrisStateActionPair>();
 		HashSet<TetrisState> seen = new HashSet<TetrisState>();
 		Queue<TetrisStateActionPair> fringe = new LinkedList<TetrisStateActionPair>();
 		fringe.add(new TetrisStateActionPair(ts));
@@ -36,8 +153,8 @@ public class TetrisAfterStateGenerator {
 
 		while (!fringe.isEmpty()) {
 			TetrisStateActionPair pair = fringe.poll();
-			for (int i = 0; i < actOrder.length; i++) {
-				int action = actOrder[i];
+			for (int i = 0; i < ACT_ORDER.length; i++) {
+				int action = ACT_ORDER[i];
 				TetrisStateActionPair copy = new TetrisStateActionPair(pair);
 				if (copy.t1.take_action(action)) {
 					copy.t2.add(action); // add action to list
@@ -6,10 +6,17 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
 
 import org.junit.Test;
 import org.rlcommunity.environments.tetris.TetrisState;
 
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris.ExtendedBertsekasTsitsiklisTetrisExtractor;
+import edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris.RawTetrisStateExtractor;
+import edu.utexas.cs.nn.tasks.rlglue.featureextractors.tetris.TetrisBitboardExtractor;
+
 public class TetrisAfterStateGeneratorTests {
 
 	/**
@@ -584,4 +591,82 @@ public class TetrisAfterStateGeneratorTests {
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Random boards with uneven columns, holes and nearly complete rows, with
+	 * each piece starting from every position where it fits
+	 */
+	private static ArrayList<TetrisState> randomStartStates(Random random, int boards) {
+		ArrayList<TetrisState> states = new ArrayList<TetrisState>();
+		for (int b = 0; b < boards; b++) {
+			TetrisState board = new TetrisState();
+			for (int x = 0; x < TetrisState.worldWidth; x++) {
+				int height = random.nextInt(TetrisState.worldHeight / 2);
+				for (int y = TetrisState.worldHeight - height; y < TetrisState.worldHeight; y++) {
+					board.worldState[y * TetrisState.worldWidth + x] = random.nextInt(4) == 0 ? 0 : 1;
+				}
+			}
+			for (int y = TetrisState.worldHeight - 3; y < TetrisState.worldHeight; y++) {
+				for (int x = 0; x < TetrisState.worldWidth; x++) {
+					board.worldState[y * TetrisState.worldWidth + x] = 1;
+				}
+				board.worldState[y * TetrisState.worldWidth + random.nextInt(TetrisState.worldWidth)] = 0;
+			}
+			for (int block = 0; block < TetrisState.TETRIS_STATE_NUMBER_POSSIBLE_BLOCKS; block++) {
+				board.currentBlockId = block;
+				for (int r = 0; r < TetrisState.TETRIS_STATE_NUMBER_POSSIBLE_BLOCKS_ORIENTATIONS; r++) {
+					for (int x = -4; x < TetrisState.worldWidth; x++) {
+						for (int y = -4; y < TetrisState.worldHeight; y++) {
+							if (new TetrisBitboard(board).fits(r, x, y) && random.nextInt(20) == 0) {
+								TetrisState start = new TetrisState(board);
+								start.currentRotation = r;
+								start.currentX = x;
+								start.currentY = y;
+								states.add(start);
+							}
+						}
+					}
+				}
+			}
+		}
+		return states;
+	}
+
+	/**
+	 * The bitboard search gives the same after-states, with the same action
+	 * lists, in the same order as the original search over TetrisStates
+	 */
+	@Test
+	public void test_sameAsSearch() {
+		for (TetrisState start : randomStartStates(new Random(0), 10)) {
+			HashSet<TetrisStateActionPair> expected = TetrisAfterStateGenerator.searchAfterStates(start);
+			HashSet<TetrisStateActionPair> actual = TetrisAfterStateGenerator.generateAfterStates(start);
+			assertEquals(expected.size(), actual.size());
+			Iterator<TetrisStateActionPair> itr = actual.iterator();
+			for (TetrisStateActionPair e : expected) {
+				TetrisStateActionPair a = itr.next();
+				assertEquals(e.t1, a.t1);
+				assertEquals(e.t2, a.t2);
+			}
+		}
+	}
+
+	/**
+	 * Features read from bitboards of after-states are the same as those
+	 * read from their observations
+	 */
+	@Test
+	public void test_bitboardFeatures() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "absenceNegative:true" });
+		TetrisBitboardExtractor[] extractors = new TetrisBitboardExtractor[] {
+				new ExtendedBertsekasTsitsiklisTetrisExtractor(), new RawTetrisStateExtractor() };
+		for (TetrisState start : randomStartStates(new Random(1), 3)) {
+			for (TetrisStateActionPair pair : TetrisAfterStateGenerator.generateAfterStates(start)) {
+				for (TetrisBitboardExtractor extractor : extractors) {
+					assertArrayEquals(extractor.extract(pair.t1.get_observation()),
+							extractor.extract(new TetrisBitboard(pair.t1)), 0);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package edu.utexas.cs.nn.tasks.rlglue.tetris;
+
+import java.util.Arrays;
+
+import org.rlcommunity.environments.tetris.TetrisPiece;
+import org.rlcommunity.environments.tetris.TetrisState;
+import org.rlcommunity.rlglue.codec.types.Observation;
+
+/**
+ * Compact copy of a TetrisState: the settled blocks are stored as one int per
+ * row, where bit x of row y is set when cell (x,y) is occupied, along with
+ * the id, position and rotation of the falling piece. Every rotation of every
+ * piece is precomputed as a mask for each row of its 5x5 box, so checking
+ * whether a piece fits at a position takes one AND per row of the piece, and
+ * column heights and holes are found a row at a time.
+ *
+ * Positions, rotations and piece ids mean the same as in TetrisState, and a
+ * piece fits exactly where TetrisState would consider it in bounds and not
+ * colliding. The board is not meant to be played on: its purpose is to search
+ * for after-states and read features from them quickly.
+ *
+ * @author Jacob Schrum
+ */
+public class TetrisBitboard {
+
+	// Size of the box each piece is defined in
+	public static final int PIECE_SIZE = 5;
+
+	// [piece][rotation][row of box] to bits of the filled columns of the box
+	private static final int[][][] PIECE_ROWS;
+	// [piece][rotation] to first and last filled columns and rows of the box
+	private static final int[][] MIN_X;
+	private static final int[][] MAX_X;
+	private static final int[][] MIN_Y;
+	private static final int[][] MAX_Y;
+	// [piece][rotation] to the lowest rotation with the same shape
+	private static final int[][] SHAPE;
+
+	static {
+		// Same order as TetrisState.possibleBlocks
+		TetrisPiece[] pieces = new TetrisPiece[] { TetrisPiece.makeLine(), TetrisPiece.makeSquare(),
+				TetrisPiece.makeTri(), TetrisPiece.makeSShape(), TetrisPiece.makeZShape(), TetrisPiece.makeLShape(),
+				TetrisPiece.makeJShape() };
+		int rotations = TetrisState.TETRIS_STATE_NUMBER_POSSIBLE_BLOCKS_ORIENTATIONS;
+		PIECE_ROWS = new int[pieces.length][rotations][PIECE_SIZE];
+		MIN_X = new int[pieces.length][rotations];
+		MAX_X = new int[pieces.length][rotations];
+		MIN_Y = new int[pieces.length][rotations];
+		MAX_Y = new int[pieces.length][rotations];
+		SHAPE = new int[pieces.length][rotations];
+		for (int p = 0; p < pieces.length; p++) {
+			for (int r = 0; r < rotations; r++) {
+				// Shapes are indexed by x, then y
+				int[][] shape = pieces[p].getShape(r);
+				MIN_X[p][r] = MIN_Y[p][r] = PIECE_SIZE;
+				MAX_X[p][r] = MAX_Y[p][r] = -1;
+				for (int x = 0; x < PIECE_SIZE; x++) {
+					for (int y = 0; y < PIECE_SIZE; y++) {
+						if (shape[x][y] != 0) {
+							PIECE_ROWS[p][r][y] |= 1 << x;
+							MIN_X[p][r] = Math.min(MIN_X[p][r], x);
+							MAX_X[p][r] = Math.max(MAX_X[p][r], x);
+							MIN_Y[p][r] = Math.min(MIN_Y[p][r], y);
+							MAX_Y[p][r] = Math.max(MAX_Y[p][r], y);
+						}
+					}
+				}
+				SHAPE[p][r] = r;
+				for (int earlier = r - 1; earlier >= 0; earlier--) {
+					if (Arrays.equals(PIECE_ROWS[p][r], PIECE_ROWS[p][earlier])) {
+						SHAPE[p][r] = earlier;
+					}
+				}
+			}
+		}
+	}
+
+	private final int width;
+	private final int height;
+	private final int[] rows;
+	public final int currentBlockId;
+	public final int currentX;
+	public final int currentY;
+	public final int currentRotation;
+
+	/**
+	 * Copy the settled blocks and falling piece of a TetrisState
+	 *
+	 * @param ts
+	 *            state to copy, which is not changed
+	 */
+	public TetrisBitboard(TetrisState ts) {
+		this(ts.worldState, ts.currentBlockId, ts.currentX, ts.currentY, ts.currentRotation);
+	}
+
+	/**
+	 * Board from a world state laid out as in TetrisState, with any non-zero
+	 * cell occupied
+	 *
+	 * @param worldState
+	 *            cells row by row, TetrisState.worldWidth per row
+	 * @param blockId
+	 *            falling piece
+	 * @param x
+	 *            column of the left side of the box of the falling piece
+	 * @param y
+	 *            row of the top of the box of the falling piece
+	 * @param rotation
+	 *            rotation of the falling piece
+	 */
+	public TetrisBitboard(int[] worldState, int blockId, int x, int y, int rotation) {
+		this.width = TetrisState.worldWidth;
+		this.height = TetrisState.worldHeight;
+		assert width <= Integer.SIZE : "Rows of " + width + " cells do not fit in an int";
+		this.rows = new int[height];
+		int i = 0;
+		for (int row = 0; row < height; row++) {
+			for (int column = 0; column < width; column++) {
+				if (worldState[i++] != 0) {
+					rows[row] |= 1 << column;
+				}
+			}
+		}
+		this.currentBlockId = blockId;
+		this.currentX = x;
+		this.currentY = y;
+		this.currentRotation = rotation;
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Whether the falling piece in the given rotation is inside the board and
+	 * does not overlap any settled block, when the top left of its box is at
+	 * (x,y)
+	 *
+	 * @param rotation
+	 *            rotation of the falling piece
+	 * @param x
+	 *            column of the left side of the box
+	 * @param y
+	 *            row of the top of the box
+	 * @return whether the piece fits
+	 */
+	public boolean fits(int rotation, int x, int y) {
+		int p = currentBlockId;
+		if (x + MIN_X[p][rotation] < 0 || x + MAX_X[p][rotation] >= width || y + MIN_Y[p][rotation] < 0
+				|| y + MAX_Y[p][rotation] >= height) {
+			return false;
+		}
+		int[] mask = PIECE_ROWS[p][rotation];
+		for (int dy = MIN_Y[p][rotation]; dy <= MAX_Y[p][rotation]; dy++) {
+			if ((rows[y + dy] & shift(mask[dy], x)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Rotations of the falling piece with the same shape, such as the two
+	 * vertical rotations of the line, are mapped to the lowest of them, so
+	 * that placements covering the same cells can be recognized.
+	 *
+	 * @param rotation
+	 *            rotation of the falling piece
+	 * @return lowest rotation with the same shape
+	 */
+	public int shape(int rotation) {
+		return SHAPE[currentBlockId][rotation];
+	}
+
+	/**
+	 * Cells of the falling piece in one row, at its current position
+	 *
+	 * @param y
+	 *            row of the board
+	 * @return bits of the columns the piece fills in that row
+	 */
+	public int pieceRow(int y) {
+		int dy = y - currentY;
+		if (dy < 0 || dy >= PIECE_SIZE) {
+			return 0;
+		}
+		return shift(PIECE_ROWS[currentBlockId][currentRotation][dy], currentX) & fullRow();
+	}
+
+	/**
+	 * One row of the board as seen in a TetrisState observation, which shows
+	 * the falling piece along with the settled blocks
+	 *
+	 * @param y
+	 *            row of the board
+	 * @return bits of the occupied columns
+	 */
+	public int observedRow(int y) {
+		return rows[y] | pieceRow(y);
+	}
+
+	/**
+	 * Height and number of holes of each column of the board as observed. A
+	 * hole is an empty cell anywhere below the highest block of its column.
+	 *
+	 * @param heights
+	 *            filled with the height of each column, which is 0 when the
+	 *            column is empty
+	 * @param holes
+	 *            filled with the number of holes in each column
+	 */
+	public void observedColumns(int[] heights, int[] holes) {
+		Arrays.fill(heights, 0);
+		Arrays.fill(holes, 0);
+		int covered = 0;
+		for (int y = 0; y < height; y++) {
+			int row = observedRow(y);
+			for (int top = row & ~covered; top != 0; top &= top - 1) {
+				heights[Integer.numberOfTrailingZeros(top)] = height - y;
+			}
+			covered |= row;
+			for (int empty = covered & ~row; empty != 0; empty &= empty - 1) {
+				holes[Integer.numberOfTrailingZeros(empty)]++;
+			}
+		}
+	}
+
+	/**
+	 * The same Observation as TetrisState.get_observation gives for the
+	 * state this board was copied from
+	 *
+	 * @return observation of the board and falling piece
+	 */
+	public Observation toObservation() {
+		Observation o = new Observation(TetrisState.TETRIS_STATE_NUMBER_OF_DISCRETE_FEATURES, 0);
+		int i = 0;
+		for (int y = 0; y < height; y++) {
+			int row = observedRow(y);
+			for (int x = 0; x < width; x++) {
+				o.intArray[i++] = (row >>> x) & 1;
+			}
+		}
+		o.intArray[i + currentBlockId] = 1;
+		o.intArray[TetrisState.TETRIS_STATE_CURRENT_X_INDEX] = currentX;
+		o.intArray[TetrisState.TETRIS_STATE_CURRENT_Y_INDEX] = currentY;
+		o.intArray[TetrisState.TETRIS_STATE_CURRENT_ROTATION_INDEX] = currentRotation;
+		o.intArray[TetrisState.TETRIS_STATE_CURRENT_HEIGHT_INDEX] = height;
+		o.intArray[TetrisState.TETRIS_STATE_CURRENT_WIDTH_INDEX] = width;
+		return o;
+	}
+
+	private int fullRow() {
+		return width == Integer.SIZE ? -1 : (1 << width) - 1;
+	}
+
+	/**
+	 * Move a row of a piece box to the column of the box. Columns of the box
+	 * that fall off the left side of the board are dropped.
+	 */
+	private static int shift(int mask, int x) {
+		return x >= 0 ? mask << x : mask >>> -x;
+	}
+}
@@ -6,10 +6,13 @@
 package edu.utexas.cs.nn.tasks.testmatch;
 
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.mulambda.MuLambda;
+import edu.utexas.cs.nn.evolution.mulambda.MuPlusLambda;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.networks.NetworkTask;
 import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.LonerTask;
 import edu.utexas.cs.nn.util.MiscUtil;
@@ -31,11 +34,20 @@ public abstract class MatchDataTask<T extends Network> extends LonerTask<T>imple
 
 	public static boolean pauseForEachCase = true;
 
+	// Inputs and desired outputs of each training case, built once if the
+	// training set is fixed
+	private Pair<double[][], double[][]> trainingSet = null;
+	private final boolean earlyAbort;
+	// Error of the worst parent in the current generation. Children whose
+	// error is higher cannot survive, so their evaluation can stop early.
+	private double worstParentError = Double.POSITIVE_INFINITY;
+
 	/**
 	 * create a matchDataTask object with default values for the fitness
 	 */
 	public MatchDataTask() {
 		MMNEAT.registerFitnessFunction("Error", null, true);
+		this.earlyAbort = Parameters.parameters.booleanParameter("matchDataEarlyAbort");
 	}
 
 	@Override
@@ -49,37 +61,42 @@ public abstract class MatchDataTask<T extends Network> extends LonerTask<T>imple
 	 */
 	public Score<T> evaluate(Genotype<T> individual) {
 		// RandomNumbers.randomGenerator = new Random(0);
-		ArrayList<Pair<double[], double[]>> trainingSet = getTrainingPairs();
-		ArrayList<ArrayList<Pair<Double, Double>>> samples = new ArrayList<ArrayList<Pair<Double, Double>>>(
-				trainingSet.size());
+		Pair<double[][], double[][]> trainingSet = trainingSet();
+		double[][] inputs = trainingSet.t1;
+		double[][] desired = trainingSet.t2;
 		Network n = individual.getPhenotype();
+		double abortAbove = worstParentError;
+		double averageError = 0;
 		// loop that runs for each "pattern" in the trainingSet, which is a pair
 		// of double arrays of inputs/outputs
-		for (Pair<double[], double[]> pattern : trainingSet) {
-			double[] inputs = pattern.t1;
-			double[] desiredOutputs = pattern.t2;
+		for (int i = 0; i < inputs.length; i++) {
+			double[] desiredOutputs = desired[i];
 			// find the actual outputs based on the given inputs
-			double[] actualOutputs = n.process(inputs);
+			double[] actualOutputs = n.process(inputs[i]);
 			if (CommonConstants.watch) {
 				System.out.println(
 						"Desired: " + Arrays.toString(desiredOutputs) + ", Actual: " + Arrays.toString(actualOutputs));
 			}
-			ArrayList<Pair<Double, Double>> neuronResults = new ArrayList<Pair<Double, Double>>(n.numOutputs());
-			for (int i = 0; i < desiredOutputs.length; i++) {
-				// add all of the pairs of desired and actual outputs to compare
-				assert!Double.isNaN(desiredOutputs[i]) : "desiredOutputs[" + i + "] is NaN!";
-				assert!Double.isNaN(actualOutputs[i]) : "actualOutputs[" + i + "] is NaN!";
-				neuronResults.add(new Pair<Double, Double>(desiredOutputs[i], actualOutputs[i]));
+			// compare each desired output to the actual output
+			double totalError = 0;
+			for (int j = 0; j < desiredOutputs.length; j++) {
+				assert!Double.isNaN(desiredOutputs[j]) : "desiredOutputs[" + j + "] is NaN!";
+				assert!Double.isNaN(actualOutputs[j]) : "actualOutputs[" + j + "] is NaN!";
+				totalError += StatisticsUtilities.instantaneousErrorEnergy(desiredOutputs[j], actualOutputs[j]);
 			}
-			// add all of the pairs of desired and actual outputs to compare
-			samples.add(neuronResults);
+			// same running average as StatisticsUtilities.averageSquaredErrorEnergy
+			averageError += (totalError - averageError) / (i + 1);
 			if (CommonConstants.watch && pauseForEachCase) {
 				MiscUtil.waitForReadStringAndEnterKeyPress();
 			}
+			// Remaining cases can only add to the average over all cases, so
+			// this is the least the error of the individual can be
+			double leastError = averageError * (i + 1) / inputs.length;
+			if (leastError > abortAbove) {
+				averageError = leastError;
+				break;
+			}
 		}
-		// find the average amount/occurrence of error between each desired and
-		// actual output pairs put into the samples
-		double averageError = StatisticsUtilities.averageSquaredErrorEnergy(samples);
 		assert!Double.isNaN(averageError) : "averageError is NaN!";
 		return new Score<T>(individual, new double[] { -averageError }, null); // minimize
 																				// error,
@@ -90,6 +107,73 @@ public abstract class MatchDataTask<T extends Network> extends LonerTask<T>imple
 																				// error
 	}
 
+	/**
+	 * When evaluating the parents of a Mu + Lambda EA with matchDataEarlyAbort
+	 * set, remember the error of the worst parent, so that children worse than
+	 * every parent can stop being evaluated early. Only the bound on the error
+	 * is known for such children, and it is used as their score.
+	 *
+	 * @param population
+	 *            genotypes to evaluate
+	 * @return scores of the genotypes
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ArrayList<Score<T>> evaluateAll(ArrayList<Genotype<T>> population) {
+		boolean parents = earlyAbort && MMNEAT.ea instanceof MuPlusLambda && ((MuLambda<T>) MMNEAT.ea).evaluatingParents;
+		if (parents) {
+			worstParentError = Double.POSITIVE_INFINITY;
+		}
+		ArrayList<Score<T>> scores = super.evaluateAll(population);
+		if (parents) {
+			double worst = 0;
+			for (Score<T> s : scores) {
+				worst = Math.max(worst, -s.scores[0]);
+			}
+			worstParentError = worst;
+		}
+		return scores;
+	}
+
+	/**
+	 * The training set as matrices of inputs and desired outputs, with a row
+	 * for each case. A fixed training set is only built the first time.
+	 *
+	 * @return pair of the input matrix and the desired output matrix
+	 */
+	private Pair<double[][], double[][]> trainingSet() {
+		if (!fixedTrainingSet()) {
+			return matrices(getTrainingPairs());
+		}
+		synchronized (this) {
+			if (trainingSet == null) {
+				trainingSet = matrices(getTrainingPairs());
+			}
+			return trainingSet;
+		}
+	}
+
+	private static Pair<double[][], double[][]> matrices(ArrayList<Pair<double[], double[]>> pairs) {
+		double[][] inputs = new double[pairs.size()][];
+		double[][] outputs = new double[pairs.size()][];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = pairs.get(i).t1;
+			outputs[i] = pairs.get(i).t2;
+		}
+		return new Pair<double[][], double[][]>(inputs, outputs);
+	}
+
+	/**
+	 * Whether getTrainingPairs gives the same training set every time, so it
+	 * only needs to be called once. Tasks that sample a new training set for
+	 * each evaluation must return false.
+	 *
+	 * @return true if the training set never changes
+	 */
+	protected boolean fixedTrainingSet() {
+		return true;
+	}
+
 	/**
 	 * Finds the number of inputs for the pair for the network to evolve and
 	 * match
@@ -44,6 +44,14 @@ public class ArgMaxTask<T extends Network> extends MatchDataTask<T> {
 		return pairs;
 	}
 
+	/**
+	 * A new random training set is sampled for every evaluation
+	 */
+	@Override
+	protected boolean fixedTrainingSet() {
+		return false;
+	}
+
 	public double[] resultsForInput(double[] inputs) {
 		double[] preferences = new double[numArgs];
 		for (int j = 1; j < inputs.length; j += 2) {
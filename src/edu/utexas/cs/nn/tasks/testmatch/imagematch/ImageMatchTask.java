@@ -186,11 +186,11 @@ public class ImageMatchTask<T extends Network> extends MatchDataTask<T> {
 	public ArrayList<Double> getBehaviorVector() {
 		ArrayList<Double> results = new ArrayList<Double>(img.getHeight() * img.getWidth());
 		BufferedImage child = GraphicsUtil.imageFromCPPN(individual, img.getWidth(), img.getHeight());
+		float[] hsb = new float[numOutputs()];
 		for (int i = 0; i < img.getWidth(); i++) {
 			for (int j = 0; j < img.getHeight(); j++) {
-				Color color = new Color(child.getRGB(i, j));
-				float[] hsb = new float[numOutputs()];
-				Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), hsb);
+				int rgb = child.getRGB(i, j);
+				Color.RGBtoHSB((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, hsb);
 				for (int k = 0; k < hsb.length; k++) {
 					results.add((double) hsb[k]);
 				}
@@ -3,10 +3,19 @@ package edu.utexas.cs.nn.util;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import edu.utexas.cs.nn.graphics.DrawingPanel;
 import edu.utexas.cs.nn.networks.ActivationFunctions;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.util2D.ILocated2D;
 import edu.utexas.cs.nn.util.util2D.Tuple2D;
 
@@ -18,8 +27,17 @@ public class GraphicsUtil {
 	private static final double BIAS = 1.0;// a common input used in neural networks
         private static final double SQRT2 = Math.sqrt(2); // Used for scaling distance from center
         
+	// Inputs of every pixel for each image size used, by row and then column.
+	// Reclaimed when memory runs low, since large images need a lot of them.
+	private static final ConcurrentHashMap<Long, SoftReference<double[][][]>> inputPlanes = new ConcurrentHashMap<Long, SoftReference<double[][][]>>();
+
 	/**
-	 * Draws the image created by the CPPN to a BufferedImage
+	 * Draws the image created by the CPPN to a BufferedImage. The inputs of
+	 * each pixel are only computed once for each image size, and the colors
+	 * are written straight into the pixels of the image. Rows are processed
+	 * as a batch when the CPPN is a feed forward CompiledTWEANN. If the
+	 * parallelRendering parameter is set, bands of rows are drawn on the
+	 * shared worker threads by separate copies of a CompiledTWEANN.
 	 *
 	 * @param n
 	 *            the network used to process the imag
@@ -31,18 +49,133 @@ public class GraphicsUtil {
 	 */
 	public static BufferedImage imageFromCPPN(Network n, int imageWidth, int imageHeight) {
 		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < imageWidth; x++) {// scans across whole image
-			for (int y = 0; y < imageHeight; y++) {
-				float[] hsb = getHSBFromCPPN(n, x, y, imageWidth, imageHeight);
-				// network outputs computed on hsb, not rgb scale because
-				// creates better images
-				Color childColor = Color.getHSBColor(hsb[HUE_INDEX], hsb[SATURATION_INDEX], hsb[BRIGHTNESS_INDEX]);
-                                // set back to RGB to draw picture to JFrame
-				image.setRGB(x, y, childColor.getRGB());
+		final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		final double[][][] inputs = cppnInputPlanes(imageWidth, imageHeight);
+		boolean parallel = Parameters.parameters != null && Parameters.parameters.booleanParameter("parallelRendering");
+		if (parallel && n instanceof CompiledTWEANN && imageHeight > 1) {
+			final CompiledTWEANN network = (CompiledTWEANN) n;
+			int bands = Math.min(imageHeight, EvaluationScheduler.getScheduler().getThreads());
+			ArrayList<Callable<Boolean>> jobs = new ArrayList<Callable<Boolean>>(bands);
+			for (int i = 0; i < bands; i++) {
+				final int from = i * imageHeight / bands;
+				final int to = (i + 1) * imageHeight / bands;
+				jobs.add(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						// Each band has its own activation state
+						drawRows(new CompiledTWEANN(network), inputs, pixels, from, to);
+						return true;
+					}
+				});
+			}
+			try {
+				EvaluationScheduler.getScheduler().invokeAll(jobs);
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.exit(1);
 			}
+		} else {
+			drawRows(n, inputs, pixels, 0, imageHeight);
 		}
 		return image;
 	}
+
+	/**
+	 * Draws the image at a fraction of its full resolution, and scales it up
+	 * to full size. Used to show something quickly while the full image is
+	 * drawn.
+	 *
+	 * @param n
+	 *            the network used to process the image
+	 * @param imageWidth
+	 *            width of image
+	 * @param imageHeight
+	 *            height of image
+	 * @param scale
+	 *            how many times smaller the resolution is in each dimension
+	 * @return full size image with coarse pixels
+	 */
+	public static BufferedImage previewFromCPPN(Network n, int imageWidth, int imageHeight, int scale) {
+		BufferedImage small = imageFromCPPN(n, Math.max(1, imageWidth / scale), Math.max(1, imageHeight / scale));
+		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.drawImage(small, 0, 0, imageWidth, imageHeight, null);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * Draw rows [from,to) of an image into its pixels
+	 *
+	 * @param n
+	 *            network only used by this thread
+	 * @param inputs
+	 *            inputs of each pixel, by row and then column
+	 * @param pixels
+	 *            RGB pixels of the image, row by row
+	 * @param from
+	 *            first row to draw
+	 * @param to
+	 *            row after the last one to draw
+	 */
+	private static void drawRows(Network n, double[][][] inputs, int[] pixels, int from, int to) {
+		int width = inputs[0].length;
+		// Without recurrent links, each pixel starts from nothing anyway
+		boolean batch = n instanceof CompiledTWEANN && ((CompiledTWEANN) n).isFeedForward();
+		double[][] outputs = new double[width][n.effectiveNumOutputs()];
+		double[][] pixelInputs = new double[1][];
+		double[][] pixelOutputs = new double[1][];
+		for (int y = from; y < to; y++) {
+			double[][] row = inputs[y];
+			if (batch) {
+				n.process(row, outputs);
+			} else {
+				for (int x = 0; x < width; x++) {
+					// Eliminate recurrent activation for consistent images at all resolutions
+					n.flush();
+					pixelInputs[0] = row[x];
+					pixelOutputs[0] = outputs[x];
+					n.process(pixelInputs, pixelOutputs);
+				}
+			}
+			int start = y * width;
+			for (int x = 0; x < width; x++) {
+				double[] hsb = outputs[x];
+				// Same range restriction as rangeRestrictHSB. Network outputs
+				// are on the HSB, not RGB scale, because it creates better images
+				int rgb = Color.HSBtoRGB((float) hsb[HUE_INDEX], (float) ActivationFunctions.halfLinear(hsb[SATURATION_INDEX]), (float) Math.abs(hsb[BRIGHTNESS_INDEX]));
+				// The alpha bits are not stored in an RGB image
+				pixels[start + x] = rgb & 0xFFFFFF;
+			}
+		}
+	}
+
+	/**
+	 * Inputs of every pixel of an image, computed only the first time an
+	 * image of this size is drawn. Must not be modified.
+	 *
+	 * @param imageWidth
+	 *            width of image
+	 * @param imageHeight
+	 *            height of image
+	 * @return inputs from getCPPNInputs, by row and then column
+	 */
+	public static double[][][] cppnInputPlanes(int imageWidth, int imageHeight) {
+		long size = ((long) imageWidth << 32) | imageHeight;
+		SoftReference<double[][][]> cached = inputPlanes.get(size);
+		double[][][] inputs = cached == null ? null : cached.get();
+		if (inputs == null) {
+			inputs = new double[imageHeight][imageWidth][];
+			for (int y = 0; y < imageHeight; y++) {
+				for (int x = 0; x < imageWidth; x++) {
+					inputs[y][x] = getCPPNInputs(x, y, imageWidth, imageHeight);
+				}
+			}
+			inputPlanes.put(size, new SoftReference<double[][][]>(inputs));
+		}
+		return inputs;
+	}
+
 	/**
 	 * Gets HSB outputs from the CPPN in question
 	 *
@@ -0,0 +1,115 @@
+package edu.utexas.cs.nn.util;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
+import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+
+/**
+ * JUnit tests that CPPN images are drawn the same way as they were pixel by
+ * pixel, whichever way the rows are processed
+ *
+ * @author Jacob Schrum
+ */
+public class GraphicsUtilTest {
+
+	private static final int WIDTH = 37;
+	private static final int HEIGHT = 23;
+	private static final int MUTATIONS = 40;
+
+	@Before
+	public void setUp() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "allowMultipleFunctions:true",
+				"netChangeActivationRate:0.4", "recurrency:true", "parallelRendering:true", "threads:3" });
+		MMNEAT.loadClasses();
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.genotype = new TWEANNGenotype(4, 3, 0);
+		EvolutionaryHistory.initArchetype(0);
+	}
+
+	@After
+	public void tearDown() {
+		MMNEAT.clearClasses();
+	}
+
+	/**
+	 * Image drawn one pixel at a time, as imageFromCPPN used to
+	 */
+	private static BufferedImage pixelByPixel(Network n, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				float[] hsb = GraphicsUtil.getHSBFromCPPN(n, x, y, width, height);
+				image.setRGB(x, y, Color.getHSBColor(hsb[0], hsb[1], hsb[2]).getRGB());
+			}
+		}
+		return image;
+	}
+
+	private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int x = 0; x < expected.getWidth(); x++) {
+			for (int y = 0; y < expected.getHeight(); y++) {
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void test_imageFromCPPN() {
+		boolean feedForward = false;
+		boolean recurrent = false;
+		for (int i = 0; i < 10; i++) {
+			// Half of the networks can only have forward links
+			CommonConstants.recurrency = i % 2 == 0;
+			TWEANNGenotype tg = new TWEANNGenotype(4, 3, 0);
+			for (int m = 0; m < MUTATIONS; m++) {
+				tg.mutate();
+			}
+			TWEANN plain = new TWEANN(tg);
+			BufferedImage expected = pixelByPixel(plain, WIDTH, HEIGHT);
+			assertSameImage(expected, GraphicsUtil.imageFromCPPN(plain, WIDTH, HEIGHT));
+			// In parallel bands, and in batches if feed forward
+			CompiledTWEANN compiled = new CompiledTWEANN(tg);
+			assertSameImage(expected, GraphicsUtil.imageFromCPPN(compiled, WIDTH, HEIGHT));
+			Parameters.parameters.setBoolean("parallelRendering", false);
+			assertSameImage(expected, GraphicsUtil.imageFromCPPN(compiled, WIDTH, HEIGHT));
+			Parameters.parameters.setBoolean("parallelRendering", true);
+			feedForward |= compiled.isFeedForward();
+			recurrent |= !compiled.isFeedForward();
+		}
+		assertTrue(feedForward && recurrent);
+		// Inputs are only computed once for each size
+		assertSame(GraphicsUtil.cppnInputPlanes(WIDTH, HEIGHT), GraphicsUtil.cppnInputPlanes(WIDTH, HEIGHT));
+	}
+
+	@Test
+	public void test_previewFromCPPN() {
+		TWEANNGenotype tg = new TWEANNGenotype(4, 3, 0);
+		for (int m = 0; m < MUTATIONS; m++) {
+			tg.mutate();
+		}
+		TWEANN n = tg.getPhenotype();
+		BufferedImage preview = GraphicsUtil.previewFromCPPN(n, WIDTH * 4, HEIGHT * 4, 4);
+		assertEquals(WIDTH * 4, preview.getWidth());
+		assertEquals(HEIGHT * 4, preview.getHeight());
+		// Each coarse pixel covers a 4x4 block
+		BufferedImage small = GraphicsUtil.imageFromCPPN(n, WIDTH, HEIGHT);
+		assertEquals(small.getRGB(WIDTH / 2, HEIGHT / 2), preview.getRGB(WIDTH / 2 * 4 + 1, HEIGHT / 2 * 4 + 2));
+	}
+}
@@ -1,10 +1,13 @@
 package edu.utexas.cs.nn.util;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.CheckpointStore;
+import edu.utexas.cs.nn.data.PopulationArchive;
 import edu.utexas.cs.nn.data.SaveThread;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.lineage.LineageStore;
 import edu.utexas.cs.nn.evolution.lineage.Offspring;
 import edu.utexas.cs.nn.evolution.mutation.tweann.CauchyDeltaCodeMutation;
 import edu.utexas.cs.nn.evolution.nsga2.NSGA2;
@@ -13,22 +16,22 @@ import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Better;
 import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.util.concurrent.EvaluationScheduler;
 import edu.utexas.cs.nn.util.datastructures.ArrayUtil;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.file.FileUtilities;
+import edu.utexas.cs.nn.util.file.PopulationArchiveFilter;
 import edu.utexas.cs.nn.util.file.XMLFilter;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import wox.serial.Easy;
 
 /**
@@ -39,6 +42,8 @@ import wox.serial.Easy;
  */
 public class PopulationUtil {
 
+	public static final String LINEAGE_LOG = "Lineage_log.txt";
+
 	public static int loadLineage() throws FileNotFoundException {
 		String base = Parameters.parameters.stringParameter("base");
 		String log =  Parameters.parameters.stringParameter("log");
@@ -46,7 +51,7 @@ public class PopulationUtil {
 		String saveTo = Parameters.parameters.stringParameter("saveTo");
 		//String loadFrom = Parameters.parameters.stringParameter("loadFrom");
 		String originalPrefix = base + "/" + saveTo + runNumber + "/" + log + runNumber + "_";
-		return loadLineage(originalPrefix + "Lineage_log.txt");
+		return loadLineage(originalPrefix + LINEAGE_LOG);
 	}
 	/**
 	 * Load offspring's lineage
@@ -56,6 +61,19 @@ public class PopulationUtil {
 	 */
 	public static int loadLineage(String filename) throws FileNotFoundException {
 		System.out.println("Load lineage from: " + filename);
+		String storePrefix = filename.endsWith(LINEAGE_LOG) ? LineageStore.prefix(filename.substring(0, filename.length() - LINEAGE_LOG.length())) : null;
+		// Store may belong to the current run
+		EvolutionaryHistory.flushLineageStore();
+		if (storePrefix != null && LineageStore.exists(storePrefix)) {
+			// Offspring are read from the store as they are needed
+			try {
+				Offspring.lineageStore = LineageStore.open(storePrefix);
+				return Offspring.lineageStore.numGenerations();
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not read lineage store, so reading " + filename);
+			}
+		}
 		Scanner s = new Scanner(new File(filename));
 		int generation = 0;
 		while (s.hasNextLine()) {
@@ -343,7 +361,9 @@ public class PopulationUtil {
 	}
 
 	/**
-	 * Load all genotypes that are xml files in the given directory
+	 * Load all genotypes that are xml files or population archives in the
+	 * given directory. The directory can also be the manifest of an
+	 * incremental checkpoint.
 	 *
 	 * @param <T>
 	 *            Phenotype
@@ -353,6 +373,15 @@ public class PopulationUtil {
 	 */
 	public static <T> ArrayList<Genotype<T>> load(String directory) {
 		System.out.println("Attempting to load from: " + directory);
+		if (directory.endsWith(CheckpointStore.MANIFEST_EXTENSION)) {
+			try {
+				return CheckpointStore.load(directory);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Failure loading checkpoint " + directory);
+				System.exit(1);
+			}
+		}
 
 		FilenameFilter filter = new XMLFilter();
 
@@ -364,6 +393,18 @@ public class PopulationUtil {
 			System.err.println("Can't load population, folder '" + directory + "' does not exist");
 			System.exit(1);
 		} else {
+			for (String archive : dir.list(new PopulationArchiveFilter())) {
+				String file = directory + "/" + archive;
+				System.out.println("Load Archive: \"" + file + "\"");
+				try {
+					ArrayList<Genotype<T>> genotypes = PopulationArchive.load(file);
+					population.addAll(genotypes);
+				} catch (IOException ex) {
+					ex.printStackTrace();
+					System.out.println("Failure loading population from " + file);
+					System.exit(1);
+				}
+			}
 			for (int i = 0; i < children.length; i++) {
 				String file = directory + "/" + children[i];
 				Genotype<T> individual = extractGenotype(file);
@@ -541,43 +582,60 @@ public class PopulationUtil {
 		new File(fullSaveDir).mkdir();
 		System.out.println("Saving to \"" + fullSaveDir + "\" with prefix \"" + prefix + "\"");
 
-		ExecutorService poolExecutor = null;
-		ArrayList<Future<Boolean>> futures = null;
-		ArrayList<SaveThread<Genotype<T>>> saves = new ArrayList<SaveThread<Genotype<T>>>(population.size());
+		saveGenotypes(fullSaveDir, prefix, population, parallel);
+	}
 
-		for (int i = 0; i < population.size(); i++) {
-			String filename = fullSaveDir;
-			if (!filename.equals("")) {
-				filename = filename + "/";
+	/**
+	 * Save all genotypes of a population in the given directory. Populations
+	 * are saved in a single binary archive when the "binaryGenotypes"
+	 * parameter is set and every genotype type supports it. Otherwise, each
+	 * genotype is saved in its own xml file. Any failure to save ends the
+	 * program.
+	 *
+	 * @param <T>
+	 *            phenotype
+	 * @param fullSaveDir
+	 *            directory to save in, which must exist
+	 * @param prefix
+	 *            start of each file name
+	 * @param population
+	 *            genotypes to save
+	 * @param parallel
+	 *            whether to use the shared worker threads
+	 */
+	public static <T> void saveGenotypes(String fullSaveDir, String prefix, ArrayList<Genotype<T>> population, boolean parallel) {
+		String filePrefix = fullSaveDir.equals("") ? prefix : fullSaveDir + "/" + prefix;
+		if (Parameters.parameters.booleanParameter("binaryGenotypes") && PopulationArchive.canSave(population)) {
+			String filename = filePrefix + "population" + PopulationArchive.EXTENSION;
+			try {
+				PopulationArchive.save(population, filename, parallel);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Failure saving population to " + filename);
+				System.exit(1);
 			}
-			filename += prefix + i + ".xml";
-			saves.add(new SaveThread<Genotype<T>>(population.get(i), filename));
+			return;
 		}
 
-		if (parallel) {
-			poolExecutor = Executors.newCachedThreadPool();
-			futures = new ArrayList<Future<Boolean>>(population.size());
-			for (int i = 0; i < population.size(); i++) {
-				futures.add(poolExecutor.submit(saves.get(i)));
-			}
+		ArrayList<SaveThread<Genotype<T>>> saves = new ArrayList<SaveThread<Genotype<T>>>(population.size());
+		for (int i = 0; i < population.size(); i++) {
+			saves.add(new SaveThread<Genotype<T>>(population.get(i), filePrefix + i + ".xml"));
 		}
 
-		for (int i = 0; i < saves.size(); i++) {
-			try {
-				Boolean result = parallel ? futures.get(i).get() : saves.get(i).call();
+		try {
+			// Parallel saves share the worker threads used for evaluation
+			ArrayList<Boolean> results = parallel ? EvaluationScheduler.getScheduler().executeAll(saves) : null;
+			for (int i = 0; i < saves.size(); i++) {
+				Boolean result = parallel ? results.get(i) : saves.get(i).call();
 				if (!result) {
 					System.out.println("Failure saving " + population.get(i));
 					System.exit(1);
 				}
-			} catch (InterruptedException | ExecutionException ex) {
-				ex.printStackTrace();
-				System.out.println("Failure saving " + population.get(i));
-				System.exit(1);
 			}
-		}
-
-		if (parallel) {
-			poolExecutor.shutdown();
+		} catch (InterruptedException | ExecutionException ex) {
+			ex.printStackTrace();
+			System.out.println("Failure saving population");
+			System.exit(1);
 		}
 	}
 
@@ -0,0 +1,355 @@
+package edu.utexas.cs.nn.util.concurrent;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived pool of worker threads shared by everything that evaluates or
+ * saves a population in parallel. Previously, each generation created and
+ * shut down its own fixed thread pool, and results were collected in
+ * submission order, so one slow evaluation held back every result behind it.
+ *
+ * The pool is a work-stealing ForkJoinPool, so jobs that fork sub-jobs (such
+ * as separate trials of one evaluation) keep all workers busy. Each batch of
+ * jobs is submitted longest-expected-first, which keeps the slowest jobs from
+ * being started last, and results are handed back to the calling thread in
+ * the order they finish.
+ *
+ * Batches can be submitted from the worker threads themselves, for example
+ * when a job saves genotypes or draws an image in parallel. A worker that
+ * waits on results lets the pool start a spare thread in its place, so
+ * nested batches never starve the pool.
+ *
+ * Counters for queue depth, worker utilization and straggler time are kept
+ * separately for each batch, and returned to whoever submitted it.
+ *
+ * @author Jacob Schrum
+ */
+public class EvaluationScheduler {
+
+	/**
+	 * Receives the result of each job as soon as it finishes. Always called
+	 * on the thread that submitted the batch, so implementations do not
+	 * need to be thread safe.
+	 *
+	 * @param <V>
+	 *            result type of jobs
+	 */
+	public interface ResultHandler<V> {
+
+		/**
+		 * @param index
+		 *            position of job in the submitted list
+		 * @param result
+		 *            the result of that job
+		 */
+		public void handle(int index, V result);
+	}
+
+	private static EvaluationScheduler scheduler = null;
+
+	/**
+	 * The scheduler shared by the whole experiment. Created on first use
+	 * with the number of threads given by the "threads" parameter.
+	 *
+	 * @return shared scheduler
+	 */
+	public static synchronized EvaluationScheduler getScheduler() {
+		if (scheduler == null) {
+			scheduler = new EvaluationScheduler(Parameters.parameters.integerParameter("threads"));
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Counters for a single batch of jobs. Batches can overlap, so each one
+	 * has its own.
+	 */
+	public static class Batch {
+
+		private final int threads;
+		private final int size;
+		private final AtomicInteger queued;
+		private final AtomicLong busyNanos = new AtomicLong(0);
+		private final AtomicLong firstIdleNanos = new AtomicLong(0);
+		private final long startNanos;
+		private volatile long endNanos = 0;
+
+		Batch(int threads, int size) {
+			this.threads = threads;
+			this.size = size;
+			this.queued = new AtomicInteger(size);
+			this.startNanos = System.nanoTime();
+		}
+
+		/**
+		 * @return number of jobs in the batch not yet started by a worker
+		 */
+		public int queueDepth() {
+			return queued.get();
+		}
+
+		/**
+		 * Fraction of the available worker time during the batch that was
+		 * actually spent running its jobs.
+		 *
+		 * @return utilization between 0 and 1
+		 */
+		public double utilization() {
+			long wall = endNanos - startNanos;
+			return wall <= 0 ? 0 : busyNanos.get() / ((double) wall * threads);
+		}
+
+		/**
+		 * Time in milliseconds between the first worker running out of queued
+		 * jobs and the end of the batch. During this time at least one worker
+		 * sits idle waiting on stragglers.
+		 *
+		 * @return straggler time in milliseconds
+		 */
+		public double stragglerTime() {
+			long idle = firstIdleNanos.get();
+			return idle == 0 ? 0 : Math.max(0, endNanos - idle) / 1000000.0;
+		}
+
+		/**
+		 * @return Summary of the batch
+		 */
+		@Override
+		public String toString() {
+			return "Scheduler: " + size + " jobs on " + threads + " threads in " + ((endNanos - startNanos) / 1000000) + " ms, utilization "
+					+ String.format("%.3f", utilization()) + ", straggler time " + ((long) stragglerTime()) + " ms";
+		}
+	}
+
+	/**
+	 * Lets the pool start a spare thread while a worker waits for the next
+	 * result of a batch. Threads outside the pool simply wait.
+	 */
+	private static class ResultWait<V> implements ForkJoinPool.ManagedBlocker {
+
+		private final ExecutorCompletionService<V> completion;
+		private Future<V> next = null;
+
+		ResultWait(ExecutorCompletionService<V> completion) {
+			this.completion = completion;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			if (next == null) {
+				next = completion.take();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return next != null || (next = completion.poll()) != null;
+		}
+
+		Future<V> take() throws InterruptedException {
+			ForkJoinPool.managedBlock(this);
+			Future<V> result = next;
+			next = null;
+			return result;
+		}
+	}
+
+	private final ForkJoinPool pool;
+	private final int threads;
+
+	/**
+	 * Create a scheduler backed by its own worker threads, which are daemon
+	 * threads and therefore never keep the program from exiting.
+	 *
+	 * @param threads
+	 *            number of worker threads
+	 */
+	public EvaluationScheduler(int threads) {
+		this.threads = threads;
+		this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+
+	/**
+	 * Run all jobs on the worker threads, and pass each result to the handler
+	 * as soon as it is available. Jobs with a larger expected cost are
+	 * started first. Jobs with equal expected cost are started in list order.
+	 *
+	 * @param <V>
+	 *            result type of jobs
+	 * @param jobs
+	 *            jobs to execute
+	 * @param expectedCost
+	 *            estimated run time of each job (any unit), or null if
+	 *            nothing is known, in which case jobs start in list order
+	 * @param handler
+	 *            receives each result in order of completion
+	 * @return counters for this batch
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a result
+	 * @throws ExecutionException
+	 *             if any job throws an exception
+	 */
+	public <V> Batch execute(List<? extends Callable<V>> jobs, final double[] expectedCost, ResultHandler<V> handler) throws InterruptedException, ExecutionException {
+		Integer[] order = new Integer[jobs.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		if (expectedCost != null) {
+			// Stable sort, so ties stay in list order
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(expectedCost[b], expectedCost[a]);
+				}
+			});
+		}
+
+		ExecutorCompletionService<IndexedResult<V>> completion = new ExecutorCompletionService<IndexedResult<V>>(pool);
+		Batch batch = new Batch(threads, order.length);
+		for (Integer i : order) {
+			completion.submit(new TimedJob<V>(batch, i, jobs.get(i)));
+		}
+		ResultWait<IndexedResult<V>> wait = new ResultWait<IndexedResult<V>>(completion);
+		for (int k = 0; k < order.length; k++) {
+			IndexedResult<V> r = wait.take().get();
+			handler.handle(r.index, r.result);
+		}
+		batch.endNanos = System.nanoTime();
+		return batch;
+	}
+
+	/**
+	 * Run all jobs on the worker threads and wait for all of them.
+	 *
+	 * @param <V>
+	 *            result type of jobs
+	 * @param jobs
+	 *            jobs to execute
+	 * @return results in the same order as the jobs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a result
+	 * @throws ExecutionException
+	 *             if any job throws an exception
+	 */
+	public <V> ArrayList<V> executeAll(List<? extends Callable<V>> jobs) throws InterruptedException, ExecutionException {
+		final ArrayList<V> results = new ArrayList<V>(jobs.size());
+		for (int i = 0; i < jobs.size(); i++) {
+			results.add(null);
+		}
+		execute(jobs, null, new ResultHandler<V>() {
+			@Override
+			public void handle(int index, V result) {
+				results.set(index, result);
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Run jobs that are part of a larger job, such as the separate trials of
+	 * one evaluation, and wait for all of them. When called from one of the
+	 * worker threads, the jobs are forked onto that worker's own queue, and
+	 * the worker helps run them while it waits, so idle workers can steal
+	 * them without the waiting worker blocking a thread. These jobs have no
+	 * batch statistics.
+	 *
+	 * @param <V>
+	 *            result type of jobs
+	 * @param jobs
+	 *            jobs to execute
+	 * @return results in the same order as the jobs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a result
+	 * @throws ExecutionException
+	 *             if any job throws an exception
+	 */
+	public <V> ArrayList<V> invokeAll(List<? extends Callable<V>> jobs) throws InterruptedException, ExecutionException {
+		ArrayList<ForkJoinTask<V>> tasks = new ArrayList<ForkJoinTask<V>>(jobs.size());
+		for (Callable<V> job : jobs) {
+			tasks.add(ForkJoinTask.adapt(job));
+		}
+		Thread current = Thread.currentThread();
+		boolean worker = current instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) current).getPool() == pool;
+		for (ForkJoinTask<V> task : tasks) {
+			if (worker) {
+				task.fork();
+			} else {
+				pool.execute(task);
+			}
+		}
+		ArrayList<V> results = new ArrayList<V>(tasks.size());
+		for (ForkJoinTask<V> task : tasks) {
+			// On a worker this joins the task, helping to run it
+			results.add(task.get());
+		}
+		return results;
+	}
+
+	/**
+	 * @return number of worker threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Result paired with the index of the job that produced it
+	 */
+	private static class IndexedResult<V> {
+
+		final int index;
+		final V result;
+
+		IndexedResult(int index, V result) {
+			this.index = index;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Wraps a job to keep the counters of its batch up to date
+	 */
+	private static class TimedJob<V> implements Callable<IndexedResult<V>> {
+
+		private final Batch batch;
+		private final int index;
+		private final Callable<V> job;
+
+		TimedJob(Batch batch, int index, Callable<V> job) {
+			this.batch = batch;
+			this.index = index;
+			this.job = job;
+		}
+
+		@Override
+		public IndexedResult<V> call() throws Exception {
+			long start = System.nanoTime();
+			batch.queued.decrementAndGet();
+			try {
+				return new IndexedResult<V>(index, job.call());
+			} finally {
+				long end = System.nanoTime();
+				batch.busyNanos.addAndGet(end - start);
+				if (batch.queued.get() == 0) {
+					// No work left for this worker: first one to get here marks
+					// the start of the straggler period
+					batch.firstIdleNanos.compareAndSet(0, end);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package edu.utexas.cs.nn.util.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class EvaluationSchedulerTest {
+
+	/**
+	 * Results of executeAll are returned in job order, no matter which job
+	 * finished first.
+	 */
+	@Test
+	public void test_executeAll() throws Exception {
+		EvaluationScheduler scheduler = new EvaluationScheduler(4);
+		ArrayList<Callable<Integer>> jobs = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 20; i++) {
+			final int x = i;
+			jobs.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					Thread.sleep((20 - x) % 7);
+					return x * x;
+				}
+			});
+		}
+		ArrayList<Integer> results = scheduler.executeAll(jobs);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i * i, (int) results.get(i));
+		}
+		final int[] handled = new int[jobs.size()];
+		EvaluationScheduler.Batch batch = scheduler.execute(jobs, null, new EvaluationScheduler.ResultHandler<Integer>() {
+			@Override
+			public void handle(int index, Integer result) {
+				handled[index]++;
+			}
+		});
+		for (int i = 0; i < 20; i++) {
+			assertEquals(1, handled[i]);
+		}
+		assertEquals(0, batch.queueDepth());
+		assertTrue(batch.utilization() > 0);
+		assertTrue(batch.utilization() <= 1);
+	}
+
+	/**
+	 * With a single worker, jobs start in order of decreasing expected cost,
+	 * and every result is passed to the handler exactly once.
+	 */
+	@Test
+	public void test_longestFirst() throws Exception {
+		EvaluationScheduler scheduler = new EvaluationScheduler(1);
+		final List<Integer> started = Collections.synchronizedList(new ArrayList<Integer>());
+		ArrayList<Callable<Integer>> jobs = new ArrayList<Callable<Integer>>();
+		double[] expected = new double[] { 1, 5, 3, 5, 0 };
+		for (int i = 0; i < expected.length; i++) {
+			final int x = i;
+			jobs.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					started.add(x);
+					return x;
+				}
+			});
+		}
+		final int[] handled = new int[expected.length];
+		scheduler.execute(jobs, expected, new EvaluationScheduler.ResultHandler<Integer>() {
+			@Override
+			public void handle(int index, Integer result) {
+				assertEquals(index, (int) result);
+				handled[index]++;
+			}
+		});
+		assertEquals(Arrays.asList(1, 3, 2, 0, 4), started);
+		assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, handled);
+	}
+
+	/**
+	 * Every worker can wait on sub-jobs of its own job without the pool
+	 * running out of threads.
+	 */
+	@Test
+	public void test_nestedInvokeAll() throws Exception {
+		final EvaluationScheduler scheduler = new EvaluationScheduler(2);
+		ArrayList<Callable<Integer>> jobs = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 6; i++) {
+			final int x = i;
+			jobs.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					ArrayList<Callable<Integer>> trials = new ArrayList<Callable<Integer>>();
+					for (int j = 0; j < 5; j++) {
+						final int y = j;
+						trials.add(new Callable<Integer>() {
+							@Override
+							public Integer call() throws Exception {
+								Thread.sleep(1);
+								return x * y;
+							}
+						});
+					}
+					int sum = 0;
+					for (Integer r : scheduler.invokeAll(trials)) {
+						sum += r;
+					}
+					return sum;
+				}
+			});
+		}
+		ArrayList<Integer> results = scheduler.executeAll(jobs);
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i * 10, (int) results.get(i));
+		}
+	}
+
+	/**
+	 * Every worker can wait on a whole batch submitted from its own job, as
+	 * happens when a job saves or draws in parallel, without the pool
+	 * running out of threads.
+	 */
+	@Test
+	public void test_nestedExecuteAll() throws Exception {
+		final EvaluationScheduler scheduler = new EvaluationScheduler(2);
+		ArrayList<Callable<Integer>> jobs = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 4; i++) {
+			final int x = i;
+			jobs.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					ArrayList<Callable<Integer>> parts = new ArrayList<Callable<Integer>>();
+					for (int j = 0; j < 5; j++) {
+						final int y = j;
+						parts.add(new Callable<Integer>() {
+							@Override
+							public Integer call() throws Exception {
+								Thread.sleep(1);
+								return x * y;
+							}
+						});
+					}
+					int sum = 0;
+					for (Integer r : scheduler.executeAll(parts)) {
+						sum += r;
+					}
+					return sum;
+				}
+			});
+		}
+		ArrayList<Integer> results = scheduler.executeAll(jobs);
+		for (int i = 0; i < 4; i++) {
+			assertEquals(i * 10, (int) results.get(i));
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package edu.utexas.cs.nn.util.file;
+
+import edu.utexas.cs.nn.data.PopulationArchive;
+import java.io.File;
+import java.io.FilenameFilter;
+
+/**
+ * Filename filter that accepts binary population archives.
+ * 
+ * @author Jacob
+ */
+public class PopulationArchiveFilter implements FilenameFilter {
+
+	@Override
+	public boolean accept(File dir, String name) {
+		return !name.startsWith(".") && name.endsWith(PopulationArchive.EXTENSION);
+	}
+}
@@ -13,6 +13,85 @@ import java.util.Random;
 public class RandomNumbers {
 
 	public static Random randomGenerator = new Random();
+	// Seed that the random streams of the current run are derived from
+	private static long runSeed = 0;
+	// Stream each thread is currently drawing from, if any
+	private static final ThreadLocal<SplitMixRandom> streams = new ThreadLocal<SplitMixRandom>();
+
+	/**
+	 * Shared generator that hands each draw to the stream of the current
+	 * thread if it has one, and to the shared generator otherwise. Only used
+	 * when the randomStreams parameter is set, so that code drawing from
+	 * randomGenerator automatically draws from the right stream.
+	 */
+	private static class StreamedRandom extends Random {
+
+		private static final long serialVersionUID = 7330516427811045217L;
+		private final Random shared;
+
+		StreamedRandom(Random shared) {
+			this.shared = shared;
+		}
+
+		private Random current() {
+			Random stream = streams.get();
+			return stream == null ? shared : stream;
+		}
+
+		@Override
+		public void setSeed(long seed) {
+			// Random calls this before shared is assigned
+			if (shared != null) {
+				current().setSeed(seed);
+			}
+		}
+
+		@Override
+		protected int next(int bits) {
+			// The top bits of nextInt() are what next(bits) gives
+			return current().nextInt() >>> (32 - bits);
+		}
+
+		@Override
+		public int nextInt() {
+			return current().nextInt();
+		}
+
+		@Override
+		public int nextInt(int bound) {
+			return current().nextInt(bound);
+		}
+
+		@Override
+		public long nextLong() {
+			return current().nextLong();
+		}
+
+		@Override
+		public boolean nextBoolean() {
+			return current().nextBoolean();
+		}
+
+		@Override
+		public float nextFloat() {
+			return current().nextFloat();
+		}
+
+		@Override
+		public double nextDouble() {
+			return current().nextDouble();
+		}
+
+		@Override
+		public double nextGaussian() {
+			return current().nextGaussian();
+		}
+
+		@Override
+		public void nextBytes(byte[] bytes) {
+			current().nextBytes(bytes);
+		}
+	}
 
 	/*
 	 * Reset random generator based on seed from parameter file
@@ -22,7 +101,8 @@ public class RandomNumbers {
 		if (seed != -1) { // Control algorithmic randomness
 			reset(seed);
 		} else {
-			randomGenerator = new Random();
+			Random shared = new Random();
+			install(shared, shared.nextLong());
 		}
 	}
 
@@ -34,7 +114,83 @@ public class RandomNumbers {
 	 */
 	public static void reset(int seed) {
 		System.out.println("Reset random seed to: " + seed);
-		randomGenerator = new Random(seed);
+		install(new Random(seed), seed);
+	}
+
+	/**
+	 * Make shared the generator that randomGenerator draws from, through
+	 * per-thread streams if the randomStreams parameter is set. Trials that
+	 * run in parallel (parallelTrials) always have their own streams.
+	 */
+	private static void install(Random shared, long seed) {
+		runSeed = seed;
+		boolean streamed = Parameters.parameters != null
+				&& (Parameters.parameters.booleanParameter("randomStreams") || Parameters.parameters.booleanParameter("parallelTrials"));
+		randomGenerator = streamed ? new StreamedRandom(shared) : shared;
+	}
+
+	/**
+	 * Seed of the random stream for one trial of one genotype in one
+	 * generation of the current run. The same run seed and arguments always
+	 * give the same stream, no matter which thread uses it or when.
+	 *
+	 * @param generation
+	 *            current generation
+	 * @param genotypeId
+	 *            id of the genotype being evaluated
+	 * @param trial
+	 *            which trial, or -1 for draws outside of a particular trial
+	 * @return seed for useStream
+	 */
+	public static long streamSeed(long generation, long genotypeId, long trial) {
+		return derivedSeed(derivedSeed(derivedSeed(runSeed, generation), genotypeId), trial);
+	}
+
+	/**
+	 * Make randomGenerator draw from a stream of its own on the current
+	 * thread, until restoreStream is called. Has no effect on other threads,
+	 * or unless the randomStreams or parallelTrials parameter is set.
+	 *
+	 * @param seed
+	 *            seed of the stream, usually from streamSeed
+	 * @return stream the thread used before, to pass to restoreStream
+	 */
+	public static SplitMixRandom useStream(long seed) {
+		SplitMixRandom previous = streams.get();
+		streams.set(new SplitMixRandom(seed));
+		return previous;
+	}
+
+	/**
+	 * Go back to the stream the current thread used before useStream
+	 *
+	 * @param previous
+	 *            result of useStream, or null for the shared generator
+	 */
+	public static void restoreStream(SplitMixRandom previous) {
+		if (previous == null) {
+			streams.remove();
+		} else {
+			streams.set(previous);
+		}
+	}
+
+	/**
+	 * Seed for the index-th of several independent random streams derived
+	 * from one seed. The same seed and index always give the same result,
+	 * and nearby indices give unrelated seeds (SplitMix64 mixing).
+	 *
+	 * @param seed
+	 *            seed shared by all derived streams
+	 * @param index
+	 *            which derived stream
+	 * @return seed for the derived stream
+	 */
+	public static long derivedSeed(long seed, long index) {
+		long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
 	}
 
 	/**
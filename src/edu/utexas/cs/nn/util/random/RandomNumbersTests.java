@@ -162,4 +162,42 @@ public class RandomNumbersTests {
 		assertTrue(result.equals("Yes") || result.equals("No"));
 		assertFalse(result.equals("Maybe"));
 	}
+
+	/**
+	 * Tests that a stream gives the same numbers on any thread, without
+	 * disturbing the shared generator
+	 */
+	@Test
+	public void stream_test() throws InterruptedException {
+		Parameters.initializeParameterCollections(new String[] { "randomSeed:5", "randomStreams:true" });
+		RandomNumbers.reset();
+		final long seed = RandomNumbers.streamSeed(2, 7, 0);
+		final double[] other = new double[10];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				SplitMixRandom previous = RandomNumbers.useStream(seed);
+				for (int i = 0; i < other.length; i++) {
+					other[i] = RandomNumbers.randomGenerator.nextDouble();
+				}
+				RandomNumbers.restoreStream(previous);
+			}
+		};
+		thread.start();
+		thread.join();
+		SplitMixRandom previous = RandomNumbers.useStream(seed);
+		assertNull(previous);
+		for (int i = 0; i < other.length; i++) {
+			assertEquals(other[i], RandomNumbers.randomGenerator.nextDouble(), 0);
+		}
+		RandomNumbers.restoreStream(previous);
+		// The shared generator was not used by either stream
+		Random shared = new Random(5);
+		for (int i = 0; i < other.length; i++) {
+			assertEquals(shared.nextInt(100), RandomNumbers.randomGenerator.nextInt(100));
+		}
+		assertFalse(seed == RandomNumbers.streamSeed(2, 7, 1));
+		Parameters.initializeParameterCollections(new String[] { "randomSeed:-1" });
+		RandomNumbers.reset();
+	}
 }
@@ -4,13 +4,14 @@
  */
 package edu.utexas.cs.nn.util.random;
 
-import java.lang.reflect.Field;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class creates a random number generator that stores the current seed
  * value so the program can be resumed with the current seed saved.
+ * It produces exactly the same numbers as java.util.Random, but keeps the
+ * seed in a field of its own, so it can be read and set directly. Unlike
+ * java.util.Random, it must only be used by one thread at a time.
  *
  * @author Jacob
  */
@@ -20,6 +21,13 @@ public class ResumableRandom extends Random {
 	 * autogenerated serial version ID
 	 */
 	private static final long serialVersionUID = 8857335572195241681L;
+	// Same linear congruential generator as java.util.Random
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+
+	// Not initialized here, since the Random constructor calls setSeed first
+	private long seed;
 
 	/**
 	 * creates a random number generator using the seed parameter, is inherited
@@ -39,6 +47,37 @@ public class ResumableRandom extends Random {
 		super();
 	}
 
+	/**
+	 * creates a random number generator that continues from the current seed
+	 * of another one, without the cost of seeding a new generator first
+	 *
+	 * @param other
+	 *            generator to copy
+	 */
+	public ResumableRandom(ResumableRandom other) {
+		super(0);
+		this.seed = other.seed;
+	}
+
+	/**
+	 * Scrambles the seed the same way java.util.Random does
+	 *
+	 * @param seed
+	 *            long value used to seed random number generator
+	 */
+	@Override
+	public void setSeed(long seed) {
+		// Also clears the stored Gaussian
+		super.setSeed(seed);
+		this.seed = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits) {
+		seed = (seed * MULTIPLIER + ADDEND) & MASK;
+		return (int) (seed >>> (48 - bits));
+	}
+
 	/**
 	 * Code for troubleshooting
 	 */
@@ -56,72 +95,24 @@ public class ResumableRandom extends Random {
 	// return result;
 	// }
 	/**
-	 * Accesses and hard sets the seed of the resumable random number generator
+	 * Hard sets the seed of the resumable random number generator, without
+	 * scrambling it like setSeed does
 	 * 
 	 * @param newSeed:
 	 *            long value that acts as new seed
 	 */
 	public void hardSetSeed(long newSeed) {
-		try {
-			// gets seed field from the resumable random
-			Field field = this.getClass().getSuperclass().getDeclaredField("seed");
-			// hardcodes field so the seed value is always accessible
-			field.setAccessible(true);
-			// casts the seed of the resumable random to an Atomiclong
-			AtomicLong seed = (AtomicLong) field.get(this);
-			// resets seed of resumable random number generator to the long
-			// parameter newSeed
-			seed.set(newSeed);
-			// these exceptions should not occur and if so, they crash the
-			// program
-		} catch (IllegalArgumentException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		} catch (IllegalAccessException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		} catch (NoSuchFieldException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		} catch (SecurityException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		}
+		seed = newSeed;
 	}
 
 	/**
-	 * Performs same operation as hardSetSeed method to access the seed of the
-	 * random number generator, but instead returns the seed currently being
-	 * used for the random number generator.
+	 * Returns the seed currently being used for the random number generator,
+	 * which hardSetSeed accepts to resume from this point.
 	 * 
 	 * @return: current long seed value in random number generator
 	 */
 	public long getSeed() {
-		try {
-			Field field = this.getClass().getSuperclass().getDeclaredField("seed");
-			field.setAccessible(true);
-			AtomicLong seed = (AtomicLong) field.get(this);
-			return seed.get();
-			// these exceptions should not occur and if so, they crash the
-			// program
-		} catch (IllegalArgumentException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		} catch (IllegalAccessException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		} catch (NoSuchFieldException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		} catch (SecurityException ex) {
-			ex.printStackTrace();
-			System.exit(1);
-		}
-		// if the try and catch clauses fail, returns 0. Random number
-		// generators never have seed value so client can
-		// know code is broken if 0 is returned. Should never occur
-		// theoretically.
-		return 0;
+		return seed;
 	}
 
 	public static void main(String[] args) {
@@ -5,6 +5,8 @@ package edu.utexas.cs.nn.util.random;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 /**
@@ -53,4 +55,25 @@ public class ResumableRandomTest {
 		assertEquals(l1, l2);
 	}
 
+	/**
+	 * Tests that the numbers are the same as those of java.util.Random with
+	 * the same seed, and that a copy continues from the same point
+	 */
+	@Test
+	public void test_matchesRandom() {
+		ResumableRandom resumable = new ResumableRandom(seed);
+		Random random = new Random(seed);
+		for (int i = 0; i < SIZE; i++) {
+			assertEquals(random.nextInt(), resumable.nextInt());
+			assertEquals(random.nextInt(SIZE), resumable.nextInt(SIZE));
+			assertEquals(random.nextLong(), resumable.nextLong());
+			assertEquals(random.nextDouble(), resumable.nextDouble(), 0);
+			assertEquals(random.nextGaussian(), resumable.nextGaussian(), 0);
+		}
+		ResumableRandom copy = new ResumableRandom(resumable);
+		assertEquals(resumable.getSeed(), copy.getSeed());
+		for (int i = 0; i < SIZE; i++) {
+			assertEquals(random.nextInt(), copy.nextInt());
+		}
+	}
 }
@@ -0,0 +1,87 @@
+package edu.utexas.cs.nn.util.random;
+
+import java.util.Random;
+
+/**
+ * Fast random generator based on SplitMix64, used for the independent random
+ * streams of RandomNumbers. Unlike java.util.Random, the whole state is a
+ * single long that can be read and set directly, and drawing numbers does not
+ * synchronize, so an instance must only be used by one thread at a time.
+ *
+ * @author Jacob Schrum
+ */
+public class SplitMixRandom extends Random {
+
+	private static final long serialVersionUID = -3129437612578347043L;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	// Not initialized here, since the Random constructor calls setSeed first
+	private long state;
+
+	/**
+	 * @param seed
+	 *            initial state
+	 */
+	public SplitMixRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Restart the generator from a new state
+	 *
+	 * @param seed
+	 *            new state
+	 */
+	@Override
+	public void setSeed(long seed) {
+		// Also clears the stored Gaussian
+		super.setSeed(seed);
+		state = seed;
+	}
+
+	/**
+	 * @return current state, which setState accepts to resume from here
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * Resume from a state returned by getState. Unlike setSeed, the stored
+	 * Gaussian is kept.
+	 *
+	 * @param state
+	 *            state to resume from
+	 */
+	public void setState(long state) {
+		this.state = state;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		long z = (state += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+}
@@ -37,8 +37,9 @@ import org.rlcommunity.rlglue.codec.types.Observation;
  */
 public class PuddleWorldState {
 
-	public static double finalPuddleScore = 0;
-	public static double finalStepScore = 0;
+	// Penalties summed over the current episode, reset by the task
+	public double finalPuddleScore = 0;
+	public double finalStepScore = 0;
 
 	static Point2D getDefaultPosition() {
 		return new Point2D.Double(.1d, .1d);
@@ -663,8 +663,7 @@ public final class Game {
 
 		// copy.scores = (ArrayList<Integer>) this.scores.clone();
 
-		copy.rnd = new ResumableRandom();
-		copy.rnd.hardSetSeed(rnd.getSeed());
+		copy.rnd = new ResumableRandom(rnd);
 
 		copy.currentMaze = currentMaze;
 		copy.pills = (BitSet) pills.clone();
@@ -712,6 +711,201 @@ public final class Game {
 		return copy;
 	}
 
+	/**
+	 * Reusable buffer holding the state of a game that changes while it is
+	 * played: everything transferred by copy(), plus the per step bookkeeping
+	 * that copy() resets. Saving into and restoring from a snapshot allocates
+	 * nothing once the buffer has been used, so look-ahead searches can step a
+	 * single game forward and back instead of copying it at every step.
+	 *
+	 * The level score lists and eat time lists are not included, so snapshots
+	 * are meant for games created by copy(), where these are absent.
+	 */
+	public static final class Snapshot {
+
+		private long seed;
+		private Maze currentMaze;
+		private final BitSet pills = new BitSet();
+		private final BitSet powerPills = new BitSet();
+		private int moves, mazeIndex, levelCount, levelCount2, currentLevelTime, totalTime, score, ghostEatMultiplier,
+				timeOfLastGlobalReversal, timeLastPowerPillEaten;
+		private boolean gameOver, pacmanWasEaten, pillWasEaten, powerPillWasEaten;
+		private double lureDistanceFitness;
+		private long timeInDeadSpace;
+		private int timePillReward, timeGhostReward, ghostReward, ghostRegret, eatenGhosts, powerPillsEatenWhenGhostFar,
+				improperlyEatenPowerPills, properlyEatenPowerPills, eatenPills;
+		private int[] specificEatenGhosts;
+		private boolean playWithoutPillsUntilGhostsThreaten, noPowerPills, endAfterGhostEatingChances,
+				endAfterPowerPillsEaten, ghostsStartOutsideLair, onlyOneLairExitAllowed;
+		// Ms. Pac-Man
+		private int pacmanNodeIndex, pacmanLives;
+		private MOVE pacmanLastMove;
+		private boolean pacmanExtraLife;
+		// Ghosts, indexed by GHOST ordinal
+		private final int[] ghostNodeIndex = new int[GHOST.values().length];
+		private final int[] ghostEdibleTime = new int[GHOST.values().length];
+		private final int[] ghostLairTime = new int[GHOST.values().length];
+		private final MOVE[] ghostLastMove = new MOVE[GHOST.values().length];
+		private final boolean[] ghostEaten = new boolean[GHOST.values().length];
+
+		/**
+		 * @return number of power pills remaining in the saved game
+		 */
+		public int getNumberOfActivePowerPills() {
+			return powerPills.cardinality();
+		}
+	}
+
+	/**
+	 * Save the current state of this game into a reusable snapshot, which can
+	 * later be restored in place with restoreSnapshot.
+	 *
+	 * @param s
+	 *            buffer to overwrite with the state of this game
+	 */
+	public void saveSnapshot(Snapshot s) {
+		s.seed = rnd.getSeed();
+		s.currentMaze = currentMaze;
+		s.pills.clear();
+		s.pills.or(pills);
+		s.powerPills.clear();
+		s.powerPills.or(powerPills);
+		s.moves = moves;
+		s.mazeIndex = mazeIndex;
+		s.levelCount = levelCount;
+		s.levelCount2 = levelCount2;
+		s.currentLevelTime = currentLevelTime;
+		s.totalTime = totalTime;
+		s.score = score;
+		s.ghostEatMultiplier = ghostEatMultiplier;
+		s.timeOfLastGlobalReversal = timeOfLastGlobalReversal;
+		s.timeLastPowerPillEaten = timeLastPowerPillEaten;
+		s.gameOver = gameOver;
+		s.pacmanWasEaten = pacmanWasEaten;
+		s.pillWasEaten = pillWasEaten;
+		s.powerPillWasEaten = powerPillWasEaten;
+
+		s.lureDistanceFitness = lureDistanceFitness;
+		s.timeInDeadSpace = timeInDeadSpace;
+		s.timePillReward = timePillReward;
+		s.timeGhostReward = timeGhostReward;
+		s.ghostReward = ghostReward;
+		s.ghostRegret = ghostRegret;
+		s.eatenGhosts = eatenGhosts;
+		if (s.specificEatenGhosts == null || s.specificEatenGhosts.length != specificEatenGhosts.length) {
+			s.specificEatenGhosts = new int[specificEatenGhosts.length];
+		}
+		System.arraycopy(specificEatenGhosts, 0, s.specificEatenGhosts, 0, specificEatenGhosts.length);
+		s.powerPillsEatenWhenGhostFar = powerPillsEatenWhenGhostFar;
+		s.improperlyEatenPowerPills = improperlyEatenPowerPills;
+		s.properlyEatenPowerPills = properlyEatenPowerPills;
+		s.eatenPills = eatenPills;
+		s.playWithoutPillsUntilGhostsThreaten = playWithoutPillsUntilGhostsThreaten;
+		s.noPowerPills = noPowerPills;
+
+		s.endAfterGhostEatingChances = endAfterGhostEatingChances;
+		s.endAfterPowerPillsEaten = endAfterPowerPillsEaten;
+		s.ghostsStartOutsideLair = ghostsStartOutsideLair;
+		s.onlyOneLairExitAllowed = onlyOneLairExitAllowed;
+
+		s.pacmanNodeIndex = pacman.currentNodeIndex;
+		s.pacmanLives = pacman.numberOfLivesRemaining;
+		s.pacmanLastMove = pacman.lastMoveMade;
+		s.pacmanExtraLife = pacman.hasReceivedExtraLife;
+
+		for (GHOST ghostType : GHOST.values()) {
+			Ghost ghost = ghosts.get(ghostType);
+			int i = ghostType.ordinal();
+			s.ghostNodeIndex[i] = ghost.currentNodeIndex;
+			s.ghostEdibleTime[i] = ghost.edibleTime;
+			s.ghostLairTime[i] = ghost.lairTime;
+			s.ghostLastMove[i] = ghost.lastMoveMade;
+			s.ghostEaten[i] = ghostsEaten.get(ghostType);
+		}
+	}
+
+	/**
+	 * Restore a state saved by saveSnapshot into this game, overwriting its
+	 * current state in place. Restoring the snapshot taken before advanceGame
+	 * undoes that step exactly.
+	 *
+	 * @param s
+	 *            previously saved state
+	 */
+	public void restoreSnapshot(Snapshot s) {
+		rnd.hardSetSeed(s.seed);
+		currentMaze = s.currentMaze;
+		pills.clear();
+		pills.or(s.pills);
+		powerPills.clear();
+		powerPills.or(s.powerPills);
+		moves = s.moves;
+		mazeIndex = s.mazeIndex;
+		levelCount = s.levelCount;
+		levelCount2 = s.levelCount2;
+		currentLevelTime = s.currentLevelTime;
+		totalTime = s.totalTime;
+		score = s.score;
+		ghostEatMultiplier = s.ghostEatMultiplier;
+		timeOfLastGlobalReversal = s.timeOfLastGlobalReversal;
+		timeLastPowerPillEaten = s.timeLastPowerPillEaten;
+		gameOver = s.gameOver;
+		pacmanWasEaten = s.pacmanWasEaten;
+		pillWasEaten = s.pillWasEaten;
+		powerPillWasEaten = s.powerPillWasEaten;
+
+		lureDistanceFitness = s.lureDistanceFitness;
+		timeInDeadSpace = s.timeInDeadSpace;
+		timePillReward = s.timePillReward;
+		timeGhostReward = s.timeGhostReward;
+		ghostReward = s.ghostReward;
+		ghostRegret = s.ghostRegret;
+		eatenGhosts = s.eatenGhosts;
+		if (specificEatenGhosts.length != s.specificEatenGhosts.length) {
+			specificEatenGhosts = new int[s.specificEatenGhosts.length];
+		}
+		System.arraycopy(s.specificEatenGhosts, 0, specificEatenGhosts, 0, specificEatenGhosts.length);
+		powerPillsEatenWhenGhostFar = s.powerPillsEatenWhenGhostFar;
+		improperlyEatenPowerPills = s.improperlyEatenPowerPills;
+		properlyEatenPowerPills = s.properlyEatenPowerPills;
+		eatenPills = s.eatenPills;
+		playWithoutPillsUntilGhostsThreaten = s.playWithoutPillsUntilGhostsThreaten;
+		noPowerPills = s.noPowerPills;
+
+		endAfterGhostEatingChances = s.endAfterGhostEatingChances;
+		endAfterPowerPillsEaten = s.endAfterPowerPillsEaten;
+		ghostsStartOutsideLair = s.ghostsStartOutsideLair;
+		onlyOneLairExitAllowed = s.onlyOneLairExitAllowed;
+
+		pacman.currentNodeIndex = s.pacmanNodeIndex;
+		pacman.numberOfLivesRemaining = s.pacmanLives;
+		pacman.lastMoveMade = s.pacmanLastMove;
+		pacman.hasReceivedExtraLife = s.pacmanExtraLife;
+
+		for (GHOST ghostType : GHOST.values()) {
+			Ghost ghost = ghosts.get(ghostType);
+			int i = ghostType.ordinal();
+			ghost.currentNodeIndex = s.ghostNodeIndex[i];
+			ghost.edibleTime = s.ghostEdibleTime[i];
+			ghost.lairTime = s.ghostLairTime[i];
+			ghost.lastMoveMade = s.ghostLastMove[i];
+			ghostsEaten.put(ghostType, s.ghostEaten[i]);
+		}
+	}
+
+	/**
+	 * Reset the per step bookkeeping that copy() does not transfer, so that a
+	 * game created by copy() continues exactly as a fresh copy of itself
+	 * would. Used when simulating in place instead of copying at every step.
+	 */
+	public void clearStepState() {
+		moves = 0;
+		pacmanWasEaten = false;
+		pillWasEaten = false;
+		powerPillWasEaten = false;
+		timeLastPowerPillEaten = -1;
+	}
+
 	/////////////////////////////////////////////////////////////////////////////
 	/////////////////////////// Game-engine //////////////////////////////////
 	/////////////////////////////////////////////////////////////////////////////
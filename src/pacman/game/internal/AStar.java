@@ -1,7 +1,8 @@
 package pacman.game.internal;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.PriorityQueue;
 
@@ -39,134 +40,171 @@ public class AStar {
 		}
 	}
 
-	public synchronized int[] computePathsAStar(int s, int t, MOVE lastMoveMade, Game game) {
-		N start = graph[s];
-		N target = graph[t];
+	/*
+	 * Search state of one thread. Instead of storing g, h, parent and the move that reached each node in the
+	 * shared N objects, each thread has its own arrays indexed by node, so searches from any number of threads
+	 * can run at once without locking. An entry is only valid if its stamp matches the current search, so
+	 * nothing needs to be cleared between searches.
+	 */
+	private static final class Search {
+		final double[] g, h;
+		final int[] parent, stamp;
+		final MOVE[] reached;
+		final boolean[] open, closed;
+		int current = 0;
+
+		Search(int size) {
+			g = new double[size];
+			h = new double[size];
+			parent = new int[size];
+			stamp = new int[size];
+			reached = new MOVE[size];
+			open = new boolean[size];
+			closed = new boolean[size];
+		}
 
-		PriorityQueue<N> open = new PriorityQueue<N>();
-		ArrayList<N> closed = new ArrayList<N>();
+		void visit(int n) {
+			if (stamp[n] != current) {
+				stamp[n] = current;
+				g[n] = 0;
+				h[n] = 0;
+				parent[n] = -1;
+				reached[n] = null;
+				open[n] = false;
+				closed[n] = false;
+			}
+		}
+	}
 
-		start.g = 0;
-		start.h = game.getShortestPathDistance(start.index, target.index);
+	private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+		@Override
+		protected Search initialValue() {
+			return new Search(graph.length);
+		}
+	};
+
+	/*
+	 * Safe to call from several threads at once. Nodes are expanded in exactly the same order as the original
+	 * version, which kept its state in the shared graph and was therefore synchronized: the open list is the
+	 * same PriorityQueue, ordered by the same g+h comparison, and updated by the same sequence of operations.
+	 */
+	public int[] computePathsAStar(int s, int t, MOVE lastMoveMade, Game game) {
+		final Search search = searches.get();
+		search.current++;
+		if (search.current == 0) {
+			// stamps wrapped around, so old entries could look current
+			Arrays.fill(search.stamp, -1);
+		}
 
-		start.reached = lastMoveMade;
+		PriorityQueue<Integer> open = new PriorityQueue<Integer>(11, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				double fa = search.g[a] + search.h[a];
+				double fb = search.g[b] + search.h[b];
+				if (fa < fb) {
+					return -1;
+				} else if (fa > fb) {
+					return 1;
+				}
+				return 0;
+			}
+		});
+
+		search.visit(s);
+		search.visit(t);
+		search.g[s] = 0;
+		search.h[s] = game.getShortestPathDistance(s, t);
+		search.reached[s] = lastMoveMade;
 
-		open.add(start);
+		open.add(s);
+		search.open[s] = true;
 
 		while (!open.isEmpty()) {
-			N currentNode = open.poll();
-			closed.add(currentNode);
+			int currentNode = open.poll();
+			search.open[currentNode] = false;
+			search.closed[currentNode] = true;
 
-			if (currentNode.isEqual(target)) {
+			if (currentNode == t) {
 				break;
 			}
 
-			for (E next : currentNode.adj) {
-				if (next.move != currentNode.reached.opposite()) {
+			for (E next : graph[currentNode].adj) {
+				if (next.move != search.reached[currentNode].opposite()) {
+					int nextNode = next.node.index;
 					double currentDistance = next.cost;
+					search.visit(nextNode);
 
-					if (!open.contains(next.node) && !closed.contains(next.node)) {
-						next.node.g = currentDistance + currentNode.g;
-						next.node.h = game.getShortestPathDistance(next.node.index, target.index);
-						next.node.parent = currentNode;
+					if (!search.open[nextNode] && !search.closed[nextNode]) {
+						search.g[nextNode] = currentDistance + search.g[currentNode];
+						search.h[nextNode] = game.getShortestPathDistance(nextNode, t);
+						search.parent[nextNode] = currentNode;
 
-						next.node.reached = next.move;
+						search.reached[nextNode] = next.move;
 
-						open.add(next.node);
-					} else if (currentDistance + currentNode.g < next.node.g) {
-						next.node.g = currentDistance + currentNode.g;
-						next.node.parent = currentNode;
+						open.add(nextNode);
+						search.open[nextNode] = true;
+					} else if (currentDistance + search.g[currentNode] < search.g[nextNode]) {
+						search.g[nextNode] = currentDistance + search.g[currentNode];
+						search.parent[nextNode] = currentNode;
 
-						next.node.reached = next.move;
+						search.reached[nextNode] = next.move;
 
-						if (open.contains(next.node)) {
-							open.remove(next.node);
+						if (search.open[nextNode]) {
+							open.remove(nextNode);
 						}
 
-						if (closed.contains(next.node)) {
-							closed.remove(next.node);
-						}
+						search.closed[nextNode] = false;
 
-						open.add(next.node);
+						open.add(nextNode);
+						search.open[nextNode] = true;
 					}
 				}
 			}
 		}
 
-		return extractPath(target);
+		return extractPath(search, t);
 	}
 
-	public synchronized int[] computePathsAStar(int s, int t, Game game) {
+	public int[] computePathsAStar(int s, int t, Game game) {
 		return computePathsAStar(s, t, MOVE.NEUTRAL, game);
 	}
 
-	private synchronized int[] extractPath(N target) {
-		ArrayList<Integer> route = new ArrayList<Integer>();
-		N current = target;
-		route.add(current.index);
-
-		while (current.parent != null) {
-			route.add(current.parent.index);
-			current = current.parent;
+	private static int[] extractPath(Search search, int target) {
+		int length = 1;
+		for (int n = search.parent[target]; n != -1; n = search.parent[n]) {
+			length++;
 		}
 
-		Collections.reverse(route);
-
-		int[] routeArray = new int[route.size()];
-
-		for (int i = 0; i < routeArray.length; i++) {
-			routeArray[i] = route.get(i);
+		int[] routeArray = new int[length];
+		int n = target;
+		for (int i = length - 1; i >= 0; i--) {
+			routeArray[i] = n;
+			n = search.parent[n];
 		}
 
 		return routeArray;
 	}
 
+	/*
+	 * Searches no longer leave any state in the graph, so there is nothing to reset. Kept for compatibility.
+	 */
 	public void resetGraph() {
-		for (N node : graph) {
-			node.g = 0;
-			node.h = 0;
-			node.parent = null;
-			node.reached = null;
-		}
 	}
 }
 
-class N implements Comparable<N> {
+class N {
 
-	public N parent;
-	public double g, h;
-	public boolean visited = false;
 	public ArrayList<E> adj;
 	public int index;
-	public MOVE reached = null;
 
 	public N(int index) {
 		adj = new ArrayList<E>();
 		this.index = index;
 	}
 
-	public N(double g, double h) {
-		this.g = g;
-		this.h = h;
-	}
-
-	public boolean isEqual(N another) {
-		return index == another.index;
-	}
-
 	public String toString() {
 		return "" + index;
 	}
-
-	public int compareTo(N another) {
-		if ((g + h) < (another.g + another.h)) {
-			return -1;
-		} else if ((g + h) > (another.g + another.h)) {
-			return 1;
-		}
-
-		return 0;
-	}
 }
 
 class E {
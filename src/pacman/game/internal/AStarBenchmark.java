@@ -0,0 +1,105 @@
+package pacman.game.internal;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Contention benchmark for the ghost A* search shared by all games on a maze.
+ * The same random queries are split among an increasing number of threads,
+ * all using the one AStar instance of the maze. Each case is run twice: with
+ * every search holding the AStar monitor, as the original synchronized
+ * implementation had to, and without any lock. Throughput is in thousands of
+ * searches per second, and both versions must find exactly the same paths.
+ *
+ * Usage: AStarBenchmark [searches per case] [max threads]
+ *
+ * @author Jacob Schrum
+ */
+public class AStarBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int searches = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 2 * Runtime.getRuntime().availableProcessors();
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		final Game game = new Game(0, 0);
+		final AStar astar = game.getCurrentMaze().astar;
+		int numNodes = game.getCurrentMaze().graph.length;
+
+		Random random = new Random(0);
+		final int[] from = new int[searches];
+		final int[] to = new int[searches];
+		final MOVE[] moves = new MOVE[searches];
+		for (int i = 0; i < searches; i++) {
+			from[i] = random.nextInt(numNodes);
+			to[i] = random.nextInt(numNodes);
+			moves[i] = MOVE.values()[random.nextInt(MOVE.values().length)];
+		}
+		// Warm up
+		run(astar, game, from, to, moves, 1, false);
+
+		System.out.println("threads\tlocked\tlock-free\tspeedup");
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			long start = System.nanoTime();
+			long lockedSum = run(astar, game, from, to, moves, threads, true);
+			double locked = searches / ((System.nanoTime() - start) / 1000000.0);
+			start = System.nanoTime();
+			long freeSum = run(astar, game, from, to, moves, threads, false);
+			double free = searches / ((System.nanoTime() - start) / 1000000.0);
+			if (lockedSum != freeSum) {
+				System.out.println("Paths differ with " + threads + " threads");
+				System.exit(1);
+			}
+			System.out.println(threads + "\t" + String.format("%.1f", locked) + "\t" + String.format("%.1f", free) + "\t\t"
+					+ String.format("%.2f", free / locked));
+		}
+	}
+
+	/**
+	 * Run all searches, split evenly among the threads
+	 *
+	 * @return checksum of all paths found, which does not depend on the
+	 *         number of threads
+	 */
+	private static long run(final AStar astar, final Game game, final int[] from, final int[] to, final MOVE[] moves,
+			final int threads, final boolean locked) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<Long>> parts = new ArrayList<Future<Long>>(threads);
+		for (int t = 0; t < threads; t++) {
+			final int first = t * from.length / threads;
+			final int last = (t + 1) * from.length / threads;
+			parts.add(pool.submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					long sum = 0;
+					for (int i = first; i < last; i++) {
+						int[] path;
+						if (locked) {
+							synchronized (astar) {
+								path = astar.computePathsAStar(from[i], to[i], moves[i], game);
+							}
+						} else {
+							path = astar.computePathsAStar(from[i], to[i], moves[i], game);
+						}
+						for (int k = 0; k < path.length; k++) {
+							sum += (k + 1) * (long) path[k];
+						}
+					}
+					return sum;
+				}
+			}));
+		}
+		long sum = 0;
+		for (Future<Long> part : parts) {
+			sum += part.get();
+		}
+		pool.shutdown();
+		return sum;
+	}
+}
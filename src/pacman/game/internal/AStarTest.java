@@ -0,0 +1,72 @@
+package pacman.game.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+public class AStarTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+	}
+
+	/**
+	 * Searches running at the same time on the shared AStar of a maze find
+	 * the same paths as searches running one at a time
+	 */
+	@Test
+	public void test_concurrentSearches() throws Exception {
+		final Game game = new Game(0, 1);
+		final AStar astar = game.getCurrentMaze().astar;
+		int numNodes = game.getCurrentMaze().graph.length;
+		Random random = new Random(0);
+		final int searches = 2000;
+		final int[] from = new int[searches];
+		final int[] to = new int[searches];
+		final MOVE[] moves = new MOVE[searches];
+		final int[][] expected = new int[searches][];
+		for (int i = 0; i < searches; i++) {
+			from[i] = random.nextInt(numNodes);
+			to[i] = random.nextInt(numNodes);
+			moves[i] = MOVE.values()[random.nextInt(MOVE.values().length)];
+			expected[i] = astar.computePathsAStar(from[i], to[i], moves[i], game);
+			assertEquals(to[i], expected[i][expected[i].length - 1]);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		// Strides that visit every search, in different orders
+		for (final int stride : new int[] { 1, 3, 7, 9 }) {
+			results.add(pool.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					boolean same = true;
+					for (int k = 0; k < searches; k++) {
+						int i = (k * stride) % searches;
+						int[] path = astar.computePathsAStar(from[i], to[i], moves[i], game);
+						same &= Arrays.equals(expected[i], path);
+					}
+					return same;
+				}
+			}));
+		}
+		for (Future<Boolean> result : results) {
+			assertTrue(result.get());
+		}
+		pool.shutdown();
+	}
+}
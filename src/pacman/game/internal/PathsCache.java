@@ -24,9 +24,15 @@ import pacman.game.Game;
  */
 public class PathsCache {
 
+	private static final MOVE[] MOVES = MOVE.values();
+
 	public HashMap<Integer, Integer> junctionIndexConverter;
+	// Same as junctionIndexConverter, but indexed by node without boxing: -1 for nodes that are not junctions
+	public int[] junctionIndexOf;
 	public DNode[] nodes;
 	public Junction[] junctions;
+	// pathLengths[from][to][move.ordinal()] is the length of junctions[from].paths[to].get(move), or -1 if there is no such path
+	private int[][][] pathLengths;
 	public Game game;
 
 	public PathsCache(int mazeIndex) {
@@ -36,9 +42,12 @@ public class PathsCache {
 		Maze m = game.getCurrentMaze();
 
 		int[] jctIndices = m.junctionIndices;
+		junctionIndexOf = new int[m.graph.length];
+		Arrays.fill(junctionIndexOf, -1);
 
 		for (int i = 0; i < jctIndices.length; i++) {
 			junctionIndexConverter.put(jctIndices[i], i);
+			junctionIndexOf[jctIndices[i]] = i;
 		}
 
 		nodes = assignJunctionsToNodes(game);
@@ -47,6 +56,16 @@ public class PathsCache {
 		for (int i = 0; i < junctions.length; i++) {
 			junctions[i].computeShortestPaths();
 		}
+
+		pathLengths = new int[junctions.length][junctions.length][MOVES.length];
+		for (int i = 0; i < junctions.length; i++) {
+			for (int j = 0; j < junctions.length; j++) {
+				for (MOVE move : MOVES) {
+					int[] path = junctions[i].paths[j].get(move);
+					pathLengths[i][j][move.ordinal()] = path == null ? -1 : path.length;
+				}
+			}
+		}
 	}
 
 	// for Ms Pac-Man
@@ -81,9 +100,8 @@ public class PathsCache {
 				// to the first junction
 				int distance = closestFromJunctions.get(i).path.length;
 				// junction to junction
-				int[] tmpPath = junctions[junctionIndexConverter
-						.get(closestFromJunctions.get(i).nodeID)].paths[junctionIndexConverter
-								.get(closestToJunctions.get(j).nodeID)].get(MOVE.NEUTRAL);
+				int[] tmpPath = junctions[junctionIndexOf[closestFromJunctions.get(i).nodeID]].paths[junctionIndexOf[closestToJunctions
+						.get(j).nodeID]].get(MOVE.NEUTRAL);
 				distance += tmpPath.length;
 				// to the second junction
 				distance += closestToJunctions.get(j).path.length;
@@ -101,9 +119,85 @@ public class PathsCache {
 	}
 
 	/////// ghosts //////////
-	// To be made more efficient shortly.
+	/**
+	 * Length of the path returned by getPathFromA2B(a, b, lastMoveMade). The
+	 * same choices are made, but only path lengths are added up, so no path
+	 * array is created, and junction paths are looked up in pathLengths.
+	 */
 	public int getPathDistanceFromA2B(int a, int b, MOVE lastMoveMade) {
-		return getPathFromA2B(a, b, lastMoveMade).length;
+		// not going anywhere
+		if (a == b) {
+			return 0;
+		}
+
+		JunctionData fromJunction = nodes[a].getNearestJunction(lastMoveMade);
+
+		// if target is on the way to junction, then we are done
+		for (int i = 0; i < fromJunction.path.length; i++) {
+			if (fromJunction.path[i] == b) {
+				return i + 1;
+			}
+		}
+
+		int junctionFrom = fromJunction.nodeID;
+		int junctionFromId = junctionIndexOf[junctionFrom];
+		MOVE moveEnteredJunction = fromJunction.lastMove.equals(MOVE.NEUTRAL) ? lastMoveMade : fromJunction.lastMove;
+
+		ArrayList<JunctionData> junctionsTo = nodes[b].closestJunctions;
+
+		int minDist = Integer.MAX_VALUE;
+		int shortestLength = -1;
+		int closestJunction = -1;
+
+		boolean onTheWay = false;
+
+		for (int q = 0; q < junctionsTo.size(); q++) {
+			JunctionData junctionTo = junctionsTo.get(q);
+			int junctionToId = junctionIndexOf[junctionTo.nodeID];
+
+			if (junctionFromId == junctionToId) {
+				if (!game.getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionTo.reversePath[0])
+						.equals(moveEnteredJunction.opposite())) {
+					int[] reversepath = junctionTo.reversePath;
+					int cutoff = -1;
+
+					for (int w = 0; w < reversepath.length; w++) {
+						if (reversepath[w] == b) {
+							cutoff = w;
+						}
+					}
+
+					shortestLength = cutoff + 1;
+					minDist = shortestLength;
+					closestJunction = q;
+					onTheWay = true;
+				}
+			} else {
+				int[] lengths = pathLengths[junctionFromId][junctionToId];
+
+				// same order as the key set of the EnumMap
+				for (MOVE move : MOVES) {
+					int length = lengths[move.ordinal()];
+					if (length >= 0 && !move.opposite().equals(moveEnteredJunction) && !move.equals(MOVE.NEUTRAL)) {
+						if (length + junctionTo.path.length < minDist) {
+							minDist = length + junctionTo.path.length;
+							shortestLength = length;
+							closestJunction = q;
+							onTheWay = false;
+						}
+					}
+				}
+			}
+		}
+
+		if (shortestLength < 0) {
+			// No path was found: fail exactly as getPathFromA2B does
+			return getPathFromA2B(a, b, lastMoveMade).length;
+		} else if (!onTheWay) {
+			return fromJunction.path.length + shortestLength + junctionsTo.get(closestJunction).reversePath.length;
+		} else {
+			return fromJunction.path.length + shortestLength;
+		}
 	}
 
 	public int[] getPathFromA2B(int a, int b, MOVE lastMoveMade) {
@@ -126,7 +220,7 @@ public class PathsCache {
 		// we have reached a junction, fromJunction, which we entered with
 		// moveEnteredJunction
 		int junctionFrom = fromJunction.nodeID;
-		int junctionFromId = junctionIndexConverter.get(junctionFrom);
+		int junctionFromId = junctionIndexOf[junctionFrom];
 		MOVE moveEnteredJunction = fromJunction.lastMove.equals(MOVE.NEUTRAL) ? lastMoveMade : fromJunction.lastMove; // if
 																														// we
 																														// are
@@ -149,7 +243,7 @@ public class PathsCache {
 		boolean onTheWay = false;
 
 		for (int q = 0; q < junctionsTo.size(); q++) {
-			int junctionToId = junctionIndexConverter.get(junctionsTo.get(q).nodeID);
+			int junctionToId = junctionIndexOf[junctionsTo.get(q).nodeID];
 
 			if (junctionFromId == junctionToId) {
 				if (!game.getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionsTo.get(q).reversePath[0])
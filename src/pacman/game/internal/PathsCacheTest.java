@@ -0,0 +1,45 @@
+package pacman.game.internal;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import pacman.game.Constants;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+public class PathsCacheTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+	}
+
+	/**
+	 * Distance queries agree with the length of the full path for every maze,
+	 * last move, and a sample of start and target nodes
+	 */
+	@Test
+	public void test_getPathDistanceFromA2B() {
+		for (int maze = 0; maze < Constants.NUM_MAZES; maze++) {
+			PathsCache cache = Game.caches[maze];
+			int numNodes = cache.nodes.length;
+			for (int a = 0; a < numNodes; a += 11) {
+				for (int b = 0; b < numNodes; b += 9) {
+					for (MOVE move : MOVE.values()) {
+						int[] path;
+						try {
+							path = cache.getPathFromA2B(a, b, move);
+						} catch (NullPointerException e) {
+							// Impossible move at this node
+							continue;
+						}
+						assertEquals(path.length, cache.getPathDistanceFromA2B(a, b, move));
+					}
+				}
+			}
+		}
+	}
+}